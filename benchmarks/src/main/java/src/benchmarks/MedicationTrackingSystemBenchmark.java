@@ -0,0 +1,195 @@
+package src.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import src.models.Doctor;
+import src.models.Medication;
+import src.models.MedicationTrackingSystem;
+import src.models.Patient;
+import src.models.PrescriptionRequest;
+import src.models.ReportFormat;
+
+/**
+ * Measures every MedicationTrackingSystem operation against systems holding
+ * 1k, 100k and 1M medications, patients and prescriptions, in both throughput
+ * and average-time modes.
+ *
+ * The system is built once per trial. Records added by the add and accept
+ * benchmarks are removed after every iteration so the system stays at its
+ * nominal size. The system runs silently, with no event listener.
+ *
+ * Run with the allocation profiler: java -jar target/benchmarks.jar -prof gc
+ *
+ * @author May Basalo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class MedicationTrackingSystemBenchmark {
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final int BENCH_PATIENTS = 4096;
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private MedicationTrackingSystem system;
+    private String[] medicationIds;
+    private String[] medicationNames;
+    private String[] patientIds;
+    private String[] doctorIds;
+    private List<String> benchPatientIds;
+    private List<String> addedMedications;
+    private int cursor;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void buildSystem() {
+        system = new MedicationTrackingSystem();
+        system.setEventListener(null);
+        int doctorCount = Math.max(1, size / 100);
+        medicationIds = new String[size];
+        medicationNames = new String[size];
+        patientIds = new String[size];
+        doctorIds = new String[doctorCount];
+
+        List<Medication> meds = new ArrayList<>(size);
+        List<Patient> patients = new ArrayList<>(size);
+        List<Doctor> doctors = new ArrayList<>(doctorCount);
+        for (int i = 0; i < size; i++) {
+            medicationIds[i] = "M" + i;
+            medicationNames[i] = "Medication " + i;
+            patientIds[i] = "P" + i;
+            // Expiry dates spread over two years either side of today, so expiry checks find work to do.
+            meds.add(new Medication(medicationIds[i], medicationNames[i], 1_000, "500mg", TODAY.plusDays(i % 1460 - 730)));
+            patients.add(new Patient(patientIds[i], "Patient " + i, 20 + i % 60, "555-" + i));
+        }
+        for (int i = 0; i < doctorCount; i++) {
+            doctorIds[i] = "D" + i;
+            doctors.add(new Doctor(doctorIds[i], "Doctor " + i, 30 + i % 35, "555-" + i, "General Practice"));
+        }
+        system.addMedications(meds);
+        system.addPatients(patients);
+        system.addDoctors(doctors);
+
+        List<PrescriptionRequest> requests = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            requests.add(new PrescriptionRequest("R" + i, doctorIds[i % doctorCount], patientIds[i], medicationIds[i], TODAY.plusDays(30 + i % 365)));
+        }
+        system.acceptPrescriptions(requests);
+        benchPatientIds = new ArrayList<>(BENCH_PATIENTS);
+        for (int i = 0; i < BENCH_PATIENTS; i++) {
+            benchPatientIds.add("BENCH-P" + i);
+        }
+        addBenchPatients();
+        addedMedications = new ArrayList<>();
+    }
+
+    /**
+     * Adds the patients that benchmark prescriptions are written for, spread so
+     * no single patient's prescription list grows large.
+     */
+    private void addBenchPatients() {
+        List<Patient> patients = new ArrayList<>(BENCH_PATIENTS);
+        for (String id : benchPatientIds) {
+            patients.add(new Patient(id, "Benchmark Patient", 40, "555-0000"));
+        }
+        system.addPatients(patients);
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeAddedRecords() {
+        system.deleteMedications(addedMedications);
+        addedMedications.clear();
+        // Deleting the patients cascades to the prescriptions accepted for them.
+        system.deletePatients(benchPatientIds);
+        addBenchPatients();
+    }
+
+    private int next() {
+        cursor = cursor + 1 == size ? 0 : cursor + 1;
+        return cursor;
+    }
+
+    @Benchmark
+    public void addMedication() {
+        String id = "NEW" + sequence++;
+        system.addMedication(new Medication(id, "New Medication", 100, "250mg", TODAY.plusDays(180)));
+        addedMedications.add(id);
+    }
+
+    @Benchmark
+    public Object searchMedicationByName() {
+        return system.findMedicationsByName(medicationNames[next()]);
+    }
+
+    @Benchmark
+    public Object searchMedicationByNamePrefix() {
+        return system.findMedicationsByNamePrefix("medication 99");
+    }
+
+    @Benchmark
+    public Object searchMedicationById() {
+        return system.findMedicationById(medicationIds[next()]);
+    }
+
+    @Benchmark
+    public Object searchPatientById() {
+        return system.findPatientById(patientIds[next()]);
+    }
+
+    @Benchmark
+    public void acceptPrescription() {
+        int i = next();
+        system.acceptPrescription("NEW-R" + sequence++, doctorIds[i % doctorIds.length],
+                benchPatientIds.get(i % BENCH_PATIENTS), medicationIds[i], TODAY.plusDays(90));
+    }
+
+    @Benchmark
+    public void restockMedication() {
+        system.restockMedication(medicationIds[next()], 1);
+    }
+
+    @Benchmark
+    public Object expiredMedications() {
+        return system.getExpiredMedications();
+    }
+
+    @Benchmark
+    public Object medicationsExpiringWithin30Days() {
+        return system.getMedicationsExpiringWithin(30);
+    }
+
+    @Benchmark
+    public Object prescriptionsByDoctor() {
+        return system.getPrescriptionsByDoctor(doctorIds[next() % doctorIds.length]);
+    }
+
+    @Benchmark
+    public void generateReport(Blackhole blackhole) throws IOException {
+        system.generateSystemReport(Writer.nullWriter(), ReportFormat.TEXT);
+        blackhole.consume(system);
+    }
+}
@@ -0,0 +1,121 @@
+package src.models;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps, for each patient, the set of medications they are currently
+ * prescribed as a bit set over the ordinals of an {@link InteractionRegistry},
+ * so a new prescription can be checked against all of them with one word-wise
+ * AND instead of a pass over the patient's prescriptions. A medication stays
+ * in the set while at least one of the patient's prescriptions for it is
+ * registered. The index is safe for concurrent use.
+ *
+ * @author May Basalo
+ */
+class ActiveMedicationIndex implements SecondaryIndex<Prescription> {
+    private final InteractionRegistry registry;
+    private final Map<String, Active> byPatient;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param registry The registry that assigns medication ordinals and records interactions.
+     */
+    ActiveMedicationIndex(InteractionRegistry registry) {
+        this.registry = registry;
+        this.byPatient = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void added(Prescription prescription) {
+        if (prescription.getPatient() == null || prescription.getMedication() == null) {
+            return;
+        }
+        int ordinal = registry.ordinal(prescription.getMedication().getId());
+        byPatient.compute(prescription.getPatient().getId(), (id, active) -> {
+            if (active == null) {
+                active = new Active();
+            }
+            synchronized (active) {
+                active.add(ordinal);
+            }
+            return active;
+        });
+    }
+
+    @Override
+    public void removed(Prescription prescription) {
+        if (prescription.getPatient() == null || prescription.getMedication() == null) {
+            return;
+        }
+        int ordinal = registry.ordinal(prescription.getMedication().getId());
+        byPatient.computeIfPresent(prescription.getPatient().getId(), (id, active) -> {
+            synchronized (active) {
+                active.remove(ordinal);
+                return active.medications.isEmpty() ? null : active;
+            }
+        });
+    }
+
+    /**
+     * Finds the medications a patient is prescribed that interact with another.
+     *
+     * @param patientId    The ID of the patient.
+     * @param medicationId The ID of the medication about to be prescribed.
+     * @return The IDs of the interacting medications; empty, without allocating, in the usual case of none.
+     */
+    List<String> conflicts(String patientId, String medicationId) {
+        BitSet interacting = registry.interactionsOf(medicationId);
+        if (interacting == null) {
+            return List.of();
+        }
+        Active active = byPatient.get(patientId);
+        if (active == null) {
+            return List.of();
+        }
+        BitSet both;
+        synchronized (active) {
+            if (!interacting.intersects(active.medications)) {
+                return List.of();
+            }
+            both = (BitSet) interacting.clone();
+            both.and(active.medications);
+        }
+        List<String> ids = new ArrayList<>(both.cardinality());
+        for (int ordinal = both.nextSetBit(0); ordinal >= 0; ordinal = both.nextSetBit(ordinal + 1)) {
+            ids.add(registry.idOf(ordinal));
+        }
+        return ids;
+    }
+
+    /**
+     * One patient's prescribed medications. A medication prescribed more than
+     * once keeps a count, so it leaves the set only with its last prescription.
+     */
+    private static final class Active {
+        final BitSet medications = new BitSet();
+        final Map<Integer, int[]> repeats = new HashMap<>();
+
+        void add(int ordinal) {
+            if (medications.get(ordinal)) {
+                repeats.computeIfAbsent(ordinal, o -> new int[1])[0]++;
+            } else {
+                medications.set(ordinal);
+            }
+        }
+
+        void remove(int ordinal) {
+            int[] extra = repeats.get(ordinal);
+            if (extra == null) {
+                medications.clear(ordinal);
+            } else if (--extra[0] == 0) {
+                repeats.remove(ordinal);
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package src.models;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes events on a background thread, so the threads that publish them only
+ * pay for placing each event in a ring buffer.
+ *
+ * Publishers claim a slot with a single atomic increment and store the event
+ * in it; they wait only when the ring is full. The drain thread takes events
+ * in sequence order, formats them into one batch, and writes and flushes the
+ * batch once no more events are ready or the batch reaches 8 KB.
+ *
+ * Close the sink after the systems publishing to it have stopped; events
+ * published while or after it closes may be lost.
+ *
+ * @author May Basalo
+ */
+public class AsyncEventSink implements SystemEventListener, Closeable {
+    private static final int BATCH_CHARS = 8192;
+    private static final long IDLE_PARK_NANOS = 1_000_000L;
+    private static final long FULL_PARK_NANOS = 10_000L;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final AtomicReferenceArray<SystemEvent> ring;
+    private final int mask;
+    private final AtomicLong claimed;
+    private final Writer out;
+    private final Thread drainer;
+    private volatile long consumed;
+    private volatile long written;
+    private volatile boolean drainerWaiting;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * Creates a sink that writes to the console.
+     *
+     * @param capacity The number of events the ring holds, rounded up to a power of two.
+     */
+    public AsyncEventSink(int capacity) {
+        this(new OutputStreamWriter(System.out, Charset.defaultCharset()), capacity);
+    }
+
+    /**
+     * Creates a sink that writes to the given writer, one message per line.
+     *
+     * @param out      The destination of the messages; it is closed with the sink.
+     * @param capacity The number of events the ring holds, rounded up to a power of two.
+     */
+    public AsyncEventSink(Writer out, int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.claimed = new AtomicLong();
+        this.out = out;
+        this.drainer = new Thread(this::drain, "system-event-sink");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    @Override
+    public void eventOccurred(SystemEvent event) {
+        if (closed) {
+            throw new IllegalStateException("Event sink is closed");
+        }
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed > mask) {
+            // The ring is full: wake the drain thread and give it the CPU until this slot is free.
+            if (drainerWaiting) {
+                LockSupport.unpark(drainer);
+            }
+            LockSupport.parkNanos(this, FULL_PARK_NANOS);
+        }
+        ring.set((int) (sequence & mask), event);
+        if (drainerWaiting) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    /**
+     * Waits until every event published before this call has been written and
+     * the writer flushed.
+     *
+     * @throws IOException If the writer failed.
+     */
+    public void flush() throws IOException {
+        long target = claimed.get();
+        while (written < target && drainer.isAlive()) {
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(this, 50_000L);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes the events still in the ring, stops the drain thread and closes the writer.
+     *
+     * @throws IOException If the writer failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void drain() {
+        StringBuilder batch = new StringBuilder(BATCH_CHARS + 256);
+        char[] chars = new char[BATCH_CHARS + 256];
+        long next = consumed;
+        while (true) {
+            int slot = (int) (next & mask);
+            SystemEvent event = ring.get(slot);
+            if (event != null) {
+                ring.lazySet(slot, null);
+                consumed = ++next;
+                batch.append(messageOf(event)).append(LINE_SEPARATOR);
+                if (batch.length() >= BATCH_CHARS) {
+                    chars = write(batch, chars);
+                    written = next;
+                }
+                continue;
+            }
+            if (batch.length() > 0) {
+                chars = write(batch, chars);
+            }
+            written = next;
+            if (closed && next == claimed.get()) {
+                return;
+            }
+            drainerWaiting = true;
+            if (ring.get(slot) == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            drainerWaiting = false;
+        }
+    }
+
+    /**
+     * Builds an event's message; a failure is described rather than allowed to
+     * stop the drain thread, which would leave publishers waiting on a full ring.
+     */
+    private static String messageOf(SystemEvent event) {
+        try {
+            return event.getMessage();
+        } catch (RuntimeException e) {
+            return event.getType() + " (message failed: " + e + ")";
+        }
+    }
+
+    /**
+     * Writes and flushes a batch, then empties it. After a failure, batches are
+     * discarded so publishers never block on a broken writer.
+     */
+    private char[] write(StringBuilder batch, char[] chars) {
+        if (chars.length < batch.length()) {
+            chars = new char[batch.length()];
+        }
+        batch.getChars(0, batch.length(), chars, 0);
+        try {
+            if (failure == null) {
+                out.write(chars, 0, batch.length());
+                out.flush();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (UncheckedIOException e) {
+            failure = e.getCause();
+        }
+        batch.setLength(0);
+        return chars;
+    }
+}
@@ -0,0 +1,87 @@
+package src.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summarizes the outcome of a batch operation: how many items were applied
+ * and, for every rejected item, its ID and the reason it was rejected.
+ * 
+ * @author May Basalo
+ */
+public class BatchResult {
+    private int appliedCount;
+    private final List<Failure> failures;
+
+    /**
+     * Creates an empty result.
+     */
+    public BatchResult() {
+        this.failures = new ArrayList<>();
+    }
+
+    /** Records that one more item was applied. */
+    void applied() {
+        appliedCount++;
+    }
+
+    /**
+     * Records a rejected item.
+     * 
+     * @param id     The ID of the rejected item.
+     * @param reason Why the item was rejected.
+     */
+    void failed(String id, String reason) {
+        failures.add(new Failure(id, reason));
+    }
+
+    /** Retrieves the number of items that were applied. */
+    public int getAppliedCount() { return appliedCount; }
+
+    /** Retrieves the rejected items, in batch order. */
+    public List<Failure> getFailures() { return Collections.unmodifiableList(failures); }
+
+    /** Returns true if every item in the batch was applied. */
+    public boolean isSuccessful() { return failures.isEmpty(); }
+
+    /** Returns a string representation of the result. */
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+            "Applied=" + appliedCount +
+            ", Failed=" + failures.size() +
+            '}';
+    }
+
+    /**
+     * A single rejected item within a batch.
+     */
+    public static class Failure {
+        private final String id;
+        private final String reason;
+
+        /**
+         * Creates a failure entry.
+         * 
+         * @param id     The ID of the rejected item.
+         * @param reason Why the item was rejected.
+         */
+        public Failure(String id, String reason) {
+            this.id = id;
+            this.reason = reason;
+        }
+
+        /** Retrieves the ID of the rejected item. */
+        public String getId() { return id; }
+
+        /** Retrieves the reason the item was rejected. */
+        public String getReason() { return reason; }
+
+        /** Returns a string representation of the failure. */
+        @Override
+        public String toString() {
+            return id + ": " + reason;
+        }
+    }
+}
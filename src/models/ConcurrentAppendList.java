@@ -0,0 +1,176 @@
+package src.models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * A list that many threads can read while one writer at a time changes it,
+ * built for lists that mostly grow, such as a patient's prescriptions or a
+ * doctor's panel.
+ *
+ * An append writes into spare room at the end of a shared array and costs
+ * amortized O(1), unlike a copy-on-write list, which copies the whole list on
+ * every add. Removing or replacing an element copies the array, so the arrays
+ * that readers already hold never change under them. Readers never lock: an
+ * iterator, like each single read, sees the list as it was at one moment and
+ * never throws ConcurrentModificationException. Writers lock the list.
+ *
+ * @param <E> The element type.
+ *
+ * @author May Basalo
+ */
+final class ConcurrentAppendList<E> extends AbstractList<E> implements RandomAccess {
+    private static final Object[] EMPTY = new Object[0];
+
+    /** The elements and how many of them are in the list, published together. */
+    private volatile View view = new View(EMPTY, 0);
+
+    @Override
+    public E get(int index) {
+        return view.get(index);
+    }
+
+    @Override
+    public int size() {
+        return view.size;
+    }
+
+    @Override
+    public synchronized boolean add(E element) {
+        View current = view;
+        Object[] array = current.array;
+        if (current.size == array.length) {
+            array = Arrays.copyOf(array, Math.max(4, array.length * 2));
+        }
+        // The slot is past the end of every published view, so no reader sees it change.
+        array[current.size] = element;
+        view = new View(array, current.size + 1);
+        return true;
+    }
+
+    @Override
+    public synchronized void add(int index, E element) {
+        View current = view;
+        if (index == current.size) {
+            add(element);
+            return;
+        }
+        checkIndex(index, current.size + 1);
+        Object[] array = new Object[Math.max(4, current.size + 1)];
+        System.arraycopy(current.array, 0, array, 0, index);
+        array[index] = element;
+        System.arraycopy(current.array, index, array, index + 1, current.size - index);
+        view = new View(array, current.size + 1);
+    }
+
+    @Override
+    public synchronized E set(int index, E element) {
+        View current = view;
+        E previous = current.get(index);
+        Object[] array = Arrays.copyOf(current.array, current.array.length);
+        array[index] = element;
+        view = new View(array, current.size);
+        return previous;
+    }
+
+    @Override
+    public synchronized E remove(int index) {
+        View current = view;
+        E removed = current.get(index);
+        view = current.without(index);
+        return removed;
+    }
+
+    @Override
+    public synchronized boolean remove(Object element) {
+        View current = view;
+        for (int i = 0; i < current.size; i++) {
+            if (element == null ? current.array[i] == null : element.equals(current.array[i])) {
+                view = current.without(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized boolean removeIf(Predicate<? super E> filter) {
+        View current = view;
+        Object[] kept = new Object[current.array.length];
+        int size = 0;
+        for (int i = 0; i < current.size; i++) {
+            if (!filter.test((E) current.array[i])) {
+                kept[size++] = current.array[i];
+            }
+        }
+        if (size == current.size) {
+            return false;
+        }
+        view = new View(kept, size);
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        view = new View(EMPTY, 0);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        View current = view;
+        return new Iterator<E>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < current.size;
+            }
+
+            @Override
+            public E next() {
+                if (next >= current.size) {
+                    throw new NoSuchElementException();
+                }
+                return current.get(next++);
+            }
+        };
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    /**
+     * An array and the length of its prefix that is in the list. The prefix
+     * never changes once published; appends only write past it.
+     */
+    private static final class View {
+        final Object[] array;
+        final int size;
+
+        View(Object[] array, int size) {
+            this.array = array;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        <E> E get(int index) {
+            checkIndex(index, size);
+            return (E) array[index];
+        }
+
+        View without(int index) {
+            Object[] copy = new Object[array.length];
+            System.arraycopy(array, 0, copy, 0, index);
+            System.arraycopy(array, index + 1, copy, index, size - index - 1);
+            return new View(copy, size - 1);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package src.models;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * A MedicationTrackingSystem that many terminals can use at the same time.
+ *
+ * Each mutation locks only the stripes of the IDs it changes or refers to, so
+ * changes to different records proceed in parallel while two changes to the
+ * same record are applied, logged and reported one after the other. A new
+ * prescription also locks its doctor and medication, so it is never logged
+ * ahead of the add that registered them. Restocking and
+ * dispensing take no stripe lock: stock counts change by compare-and-set, so
+ * many terminals can dispense the same popular medication at once. When the
+ * system is journaled, each stock change and its log record are made together
+ * under the log's own lock, so the log replays them in the order they happened.
+ * Batch operations, deletes and expiry sweeps, which cascade to records under
+ * other IDs, lock every stripe. Searches, lookups and reports take no locks;
+ * the registries and indexes underneath are concurrent, so readers never block
+ * writers and see each record either before or after a change.
+ *
+ * @author May Basalo
+ */
+public class ConcurrentMedicationTrackingSystem extends MedicationTrackingSystem {
+    /** Default number of lock stripes. */
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final StripedLock locks;
+    private final ExecutorService checkpointer;
+    private final AtomicBoolean checkpointQueued = new AtomicBoolean();
+
+    /**
+     * Constructs an empty system with the default number of lock stripes.
+     */
+    public ConcurrentMedicationTrackingSystem() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructs an empty system.
+     *
+     * @param stripes The least number of lock stripes; rounded up to a power of two.
+     */
+    public ConcurrentMedicationTrackingSystem(int stripes) {
+        this.locks = new StripedLock(stripes);
+        // One thread at most, started on demand and let go when idle.
+        this.checkpointer = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Holds every stripe while the action runs. Stock changes take no stripe;
+     * in a journaled system they are held off by the log's own lock instead.
+     */
+    @Override
+    void exclusive(Runnable action) {
+        lockedAll(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the checkpoint on a thread of its own. The mutation that made it
+     * due still holds its stripes, and locking every stripe from there could
+     * deadlock against a writer waiting on one of them.
+     */
+    @Override
+    void scheduleCheckpoint(Runnable checkpoint) {
+        if (checkpointQueued.compareAndSet(false, true)) {
+            checkpointer.execute(() -> {
+                checkpointQueued.set(false);
+                checkpoint.run();
+            });
+        }
+    }
+
+    @Override
+    public void addMedication(Medication medication) {
+        locked(() -> super.addMedication(medication), medication.getId());
+    }
+
+    @Override
+    public void addDoctor(Doctor doctor) {
+        locked(() -> super.addDoctor(doctor), doctor.getId());
+    }
+
+    @Override
+    public void addPatient(Patient patient) {
+        locked(() -> super.addPatient(patient), patient.getId());
+    }
+
+    /**
+     * Locks the stripes of the prescription and of the records it refers to,
+     * like {@link #acceptPrescription(String, String, String, String, LocalDate)}.
+     */
+    @Override
+    public void addPrescription(Prescription prescription) {
+        locked(() -> super.addPrescription(prescription), prescription.getId(),
+               prescription.getDoctor() == null ? null : prescription.getDoctor().getId(),
+               prescription.getPatient() == null ? null : prescription.getPatient().getId(),
+               prescription.getMedication() == null ? null : prescription.getMedication().getId());
+    }
+
+    @Override
+    public BatchResult addMedications(Collection<Medication> batch) {
+        return lockedAll(() -> super.addMedications(batch));
+    }
+
+    @Override
+    public BatchResult addDoctors(Collection<Doctor> batch) {
+        return lockedAll(() -> super.addDoctors(batch));
+    }
+
+    @Override
+    public BatchResult addPatients(Collection<Patient> batch) {
+        return lockedAll(() -> super.addPatients(batch));
+    }
+
+    @Override
+    public boolean editMedication(String medicationId, String newName, int newQuantity, String newDosage) {
+        return locked(() -> super.editMedication(medicationId, newName, newQuantity, newDosage), medicationId);
+    }
+
+    @Override
+    public boolean editMedication(String medicationId, String newName, int newQuantity, String newDosage, LocalDate newExpiryDate) {
+        return locked(() -> super.editMedication(medicationId, newName, newQuantity, newDosage, newExpiryDate), medicationId);
+    }
+
+    @Override
+    public boolean setReorderPoint(String medicationId, int reorderPoint) {
+        return locked(() -> super.setReorderPoint(medicationId, reorderPoint), medicationId);
+    }
+
+    @Override
+    public boolean editDoctor(String doctorId, String newName, int newAge, String newPhoneNumber, String newSpecialty) {
+        return locked(() -> super.editDoctor(doctorId, newName, newAge, newPhoneNumber, newSpecialty), doctorId);
+    }
+
+    @Override
+    public boolean editPatient(String patientId, String newName, int newAge, String newPhoneNumber) {
+        return locked(() -> super.editPatient(patientId, newName, newAge, newPhoneNumber), patientId);
+    }
+
+    @Override
+    public boolean deleteMedication(String medicationId, DeletePolicy policy) {
+        return lockedAll(() -> super.deleteMedication(medicationId, policy));
+    }
+
+    @Override
+    public boolean deletePatient(String patientId, DeletePolicy policy) {
+        return lockedAll(() -> super.deletePatient(patientId, policy));
+    }
+
+    @Override
+    public boolean deleteDoctor(String doctorId, DeletePolicy policy) {
+        return lockedAll(() -> super.deleteDoctor(doctorId, policy));
+    }
+
+    @Override
+    public BatchResult deleteMedications(Collection<String> medicationIds, DeletePolicy policy) {
+        return lockedAll(() -> super.deleteMedications(medicationIds, policy));
+    }
+
+    @Override
+    public BatchResult deletePatients(Collection<String> patientIds, DeletePolicy policy) {
+        return lockedAll(() -> super.deletePatients(patientIds, policy));
+    }
+
+    @Override
+    public BatchResult deleteDoctors(Collection<String> doctorIds, DeletePolicy policy) {
+        return lockedAll(() -> super.deleteDoctors(doctorIds, policy));
+    }
+
+    /**
+     * Locks every stripe, since the expired prescriptions and their patients
+     * can be under any of them. The background sweeper calls this too.
+     */
+    @Override
+    public List<Prescription> expirePrescriptions(LocalDate today) {
+        return lockedAll(() -> super.expirePrescriptions(today));
+    }
+
+    @Override
+    public void addPatientToDoctor(String doctorId, Patient patient) {
+        locked(() -> super.addPatientToDoctor(doctorId, patient), doctorId, patient == null ? null : patient.getId());
+    }
+
+    /**
+     * Locks the stripes of the prescription, the patient, the doctor and the
+     * medication. An add holds its record's stripe until its log record is
+     * written, so a prescription that finds a doctor or medication added a
+     * moment ago is always logged after that add, and replays.
+     */
+    @Override
+    public void acceptPrescription(String prescriptionId, String doctorId, String patientId, String medicationId, LocalDate prescriptionExpiry) {
+        locked(() -> super.acceptPrescription(prescriptionId, doctorId, patientId, medicationId, prescriptionExpiry),
+               prescriptionId, patientId, doctorId, medicationId);
+    }
+
+    @Override
+    public BatchResult acceptPrescriptions(Collection<PrescriptionRequest> requests) {
+        return lockedAll(() -> super.acceptPrescriptions(requests));
+    }
+
+    @Override
+    public boolean acceptPrescription(String prescriptionId, String doctorId, String patientId, String medicationId, LocalDate prescriptionExpiry, int quantity) {
+        int[] held = locks.lock(prescriptionId, patientId, doctorId, medicationId);
+        try {
+            return super.acceptPrescription(prescriptionId, doctorId, patientId, medicationId, prescriptionExpiry, quantity);
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public boolean addInteraction(String medicationId, String otherMedicationId) {
+        int[] held = locks.lock(medicationId, otherMedicationId);
+        try {
+            return super.addInteraction(medicationId, otherMedicationId);
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    @Override
+    public boolean removeInteraction(String medicationId, String otherMedicationId) {
+        int[] held = locks.lock(medicationId, otherMedicationId);
+        try {
+            return super.removeInteraction(medicationId, otherMedicationId);
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    private void locked(Runnable action, String... keys) {
+        int[] held = locks.lock(keys);
+        try {
+            action.run();
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    private <R> R locked(Supplier<R> action, String... keys) {
+        int[] held = locks.lock(keys);
+        try {
+            return action.get();
+        } finally {
+            locks.unlock(held);
+        }
+    }
+
+    private <R> R lockedAll(Supplier<R> action) {
+        locks.lockAll();
+        try {
+            return action.get();
+        } finally {
+            locks.unlockAll();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package src.models;
+
+import java.io.PrintStream;
+
+/**
+ * Prints each event's message on its own line as soon as it is published. This
+ * is the listener a new MedicationTrackingSystem starts with.
+ * 
+ * @author May Basalo
+ */
+public class ConsoleEventSink implements SystemEventListener {
+    private final PrintStream out;
+
+    /**
+     * Creates a sink that prints to whatever {@link System#out} is when each event arrives.
+     */
+    public ConsoleEventSink() {
+        this(null);
+    }
+
+    /**
+     * Creates a sink that prints to the given stream.
+     * 
+     * @param out The stream to print to.
+     */
+    public ConsoleEventSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void eventOccurred(SystemEvent event) {
+        (out != null ? out : System.out).println(event.getMessage());
+    }
+}
@@ -0,0 +1,87 @@
+package src.models;
+
+import java.time.LocalDate;
+
+/**
+ * The headline figures of a MedicationTrackingSystem, as shown on an
+ * operations dashboard. The system keeps each figure as a running total that
+ * every change updates, so reading them costs the same however many records
+ * there are. Each figure is current as of the moment it was read; figures
+ * read while other threads are changing the system may straddle a change.
+ *
+ * @author May Basalo
+ */
+public class DashboardStats {
+    private final LocalDate date;
+    private final int medicationCount;
+    private final long totalStock;
+    private final long expiredMedicationCount;
+    private final int lowStockCount;
+    private final int doctorCount;
+    private final int patientCount;
+    private final int prescriptionCount;
+    private final long activePrescriptionCount;
+
+    /**
+     * Creates a set of figures.
+     *
+     * @param date                    The date expiry was measured against.
+     * @param medicationCount         The number of medications.
+     * @param totalStock              The units in stock across all medications.
+     * @param expiredMedicationCount  The number of medications that expired before the date.
+     * @param lowStockCount           The number of medications below their reorder point.
+     * @param doctorCount             The number of doctors.
+     * @param patientCount            The number of patients.
+     * @param prescriptionCount       The number of prescriptions.
+     * @param activePrescriptionCount The number of prescriptions still valid on the date.
+     */
+    public DashboardStats(LocalDate date, int medicationCount, long totalStock, long expiredMedicationCount,
+                          int lowStockCount, int doctorCount, int patientCount, int prescriptionCount,
+                          long activePrescriptionCount) {
+        this.date = date;
+        this.medicationCount = medicationCount;
+        this.totalStock = totalStock;
+        this.expiredMedicationCount = expiredMedicationCount;
+        this.lowStockCount = lowStockCount;
+        this.doctorCount = doctorCount;
+        this.patientCount = patientCount;
+        this.prescriptionCount = prescriptionCount;
+        this.activePrescriptionCount = activePrescriptionCount;
+    }
+
+    /** Retrieves the date expiry was measured against. */
+    public LocalDate getDate() { return date; }
+
+    /** Retrieves the number of medications. */
+    public int getMedicationCount() { return medicationCount; }
+
+    /** Retrieves the units in stock across all medications. */
+    public long getTotalStock() { return totalStock; }
+
+    /** Retrieves the number of medications that expired before the date. */
+    public long getExpiredMedicationCount() { return expiredMedicationCount; }
+
+    /** Retrieves the number of medications below their reorder point. */
+    public int getLowStockCount() { return lowStockCount; }
+
+    /** Retrieves the number of doctors. */
+    public int getDoctorCount() { return doctorCount; }
+
+    /** Retrieves the number of patients. */
+    public int getPatientCount() { return patientCount; }
+
+    /** Retrieves the number of prescriptions. */
+    public int getPrescriptionCount() { return prescriptionCount; }
+
+    /** Retrieves the number of prescriptions still valid on the date, including those without an expiry date. */
+    public long getActivePrescriptionCount() { return activePrescriptionCount; }
+
+    /** Returns a string representation of the figures. */
+    @Override
+    public String toString() {
+        return "DashboardStats{Date=" + date + ", Medications=" + medicationCount + ", Stock=" + totalStock
+               + ", Expired=" + expiredMedicationCount + ", LowStock=" + lowStockCount + ", Doctors=" + doctorCount
+               + ", Patients=" + patientCount + ", Prescriptions=" + prescriptionCount
+               + ", Active=" + activePrescriptionCount + "}";
+    }
+}
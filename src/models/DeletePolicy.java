@@ -0,0 +1,18 @@
+package src.models;
+
+/**
+ * Decides what happens to the records that refer to an entity being deleted.
+ * 
+ * @author May Basalo
+ */
+public enum DeletePolicy {
+    /**
+     * Deletes the entity together with its prescriptions and removes it from
+     * every doctor's patient list.
+     */
+    CASCADE,
+    /**
+     * Refuses to delete an entity that still has prescriptions, patients or doctors.
+     */
+    RESTRICT
+}
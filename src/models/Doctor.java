@@ -1,17 +1,18 @@
 package src.models;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Defines a doctor within the pharmacy system.
- * A doctor may be responsible for multiple patients.
+ * A doctor may be responsible for multiple patients. Specialties are
+ * canonicalized through the specialty {@link StringDictionary}.
  * 
  * @author May Basalo
  */
 public class Doctor extends Person {
-    private String specialty;
+    private volatile String specialty;
     private final List<Patient> patients;
+    private volatile DoctorObserver observer;
 
     /**
      * Creates a new Doctor with the specified information..
@@ -24,8 +25,8 @@ public class Doctor extends Person {
      */
     public Doctor(String id, String name, int age, String phoneNumber, String specialty) {
         super(id, name, age, phoneNumber); // Calls the constructor of Person
-        this.specialty = specialty;
-        this.patients = new ArrayList<>();
+        this.specialty = StringDictionary.specialties().canonical(specialty);
+        this.patients = new ConcurrentAppendList<>();
     }
 
     /**
@@ -106,7 +107,7 @@ public class Doctor extends Person {
      * @param specialty The new specialty of the doctor.
      */
     public void setSpecialty(String specialty) {
-        this.specialty = specialty;
+        this.specialty = StringDictionary.specialties().canonical(specialty);
     }
 
     /**
@@ -116,6 +117,17 @@ public class Doctor extends Person {
      */
     public void addPatient(Patient patient) {
         patients.add(patient);
+        DoctorObserver current = observer;
+        if (current != null) {
+            current.patientAdded(this, patient);
+        }
+    }
+
+    /**
+     * Sets the observer told about added patients, or clears it when null.
+     */
+    void setObserver(DoctorObserver observer) {
+        this.observer = observer;
     }
 
     /**
@@ -0,0 +1,19 @@
+package src.models;
+
+/**
+ * Receives changes made to a doctor's patient list through
+ * {@link Doctor#addPatient(Patient)}, so the patient-to-doctors index stays
+ * current even when a doctor is updated directly.
+ *
+ * @author May Basalo
+ */
+interface DoctorObserver {
+
+    /**
+     * Called after a patient has been added to a doctor's list.
+     *
+     * @param doctor  The doctor that changed.
+     * @param patient The patient that was added.
+     */
+    void patientAdded(Doctor doctor, Patient patient);
+}
@@ -0,0 +1,147 @@
+package src.models;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A parsed dosage: a numeric amount and a unit, such as 500 mg or 12 ml.
+ * Dosages of the same dimension compare by their amount in the base unit, so
+ * sorting, filtering and totalling dosages are plain arithmetic rather than
+ * string handling.
+ *
+ * Dosages are immutable. {@link #of(String)} shares one instance between all
+ * medications written with the same dosage text.
+ *
+ * @author May Basalo
+ */
+public class Dosage implements Comparable<Dosage> {
+    private static final int CACHE_CAPACITY = 4096;
+    // Remembers text that does not parse, so it is not parsed again.
+    private static final Dosage UNPARSEABLE = new Dosage(0, DosageUnit.MILLIGRAM);
+    private static final ConcurrentHashMap<String, Dosage> CACHE = new ConcurrentHashMap<>();
+
+    private final double amount;
+    private final DosageUnit unit;
+
+    /**
+     * Creates a dosage.
+     *
+     * @param amount The amount, which must not be negative.
+     * @param unit   The unit of the amount.
+     */
+    public Dosage(double amount, DosageUnit unit) {
+        if (!(amount >= 0) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Dosage amount must be a non-negative number: " + amount);
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("Dosage unit must not be null");
+        }
+        this.amount = amount;
+        this.unit = unit;
+    }
+
+    /**
+     * Parses dosage text such as "500mg", "0.5 g" or "1000 IU", reusing the
+     * instance parsed earlier from the same text.
+     *
+     * @param text The dosage text, possibly null.
+     * @return The dosage, or null if the text is null or is not a single amount and unit.
+     */
+    public static Dosage of(String text) {
+        if (text == null) {
+            return null;
+        }
+        Dosage cached = CACHE.get(text);
+        if (cached == null) {
+            cached = parse(text);
+            if (cached == null) {
+                cached = UNPARSEABLE;
+            }
+            if (CACHE.size() < CACHE_CAPACITY) {
+                CACHE.putIfAbsent(text, cached);
+            }
+        }
+        return cached == UNPARSEABLE ? null : cached;
+    }
+
+    /**
+     * Parses dosage text without consulting the shared cache.
+     *
+     * @param text The dosage text.
+     * @return The dosage, or null if the text is not a single amount and unit.
+     */
+    public static Dosage parse(String text) {
+        String trimmed = text.trim();
+        int end = 0;
+        boolean point = false;
+        while (end < trimmed.length()) {
+            char c = trimmed.charAt(end);
+            if (c == '.' && !point) {
+                point = true;
+            } else if (c < '0' || c > '9') {
+                break;
+            }
+            end++;
+        }
+        if (end == 0 || (end == 1 && point)) {
+            return null;
+        }
+        DosageUnit unit = DosageUnit.fromSymbol(trimmed.substring(end).trim());
+        if (unit == null) {
+            return null;
+        }
+        return new Dosage(Double.parseDouble(trimmed.substring(0, end)), unit);
+    }
+
+    /** Retrieves the amount, in this dosage's unit. */
+    public double getAmount() { return amount; }
+
+    /** Retrieves the unit. */
+    public DosageUnit getUnit() { return unit; }
+
+    /**
+     * Retrieves the amount in the base unit of its dimension: milligrams for
+     * mass and millilitres for volume.
+     *
+     * @return The amount in the base unit.
+     */
+    public double toBaseAmount() {
+        // Round away binary fractions such as 0.007 * 1000 = 7.000000000000001, so equal doses compare equal.
+        return Math.round(unit.toBase(amount) * 1e6) / 1e6;
+    }
+
+    /**
+     * Orders dosages by dimension, then by amount in the base unit.
+     */
+    @Override
+    public int compareTo(Dosage other) {
+        int byDimension = unit.getDimension().compareTo(other.unit.getDimension());
+        return byDimension != 0 ? byDimension : Double.compare(toBaseAmount(), other.toBaseAmount());
+    }
+
+    /**
+     * Dosages are equal when they have the same dimension and base amount, so
+     * 0.5 g equals 500 mg.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Dosage)) {
+            return false;
+        }
+        return compareTo((Dosage) other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * unit.getDimension().hashCode() + Double.hashCode(toBaseAmount());
+    }
+
+    /** Returns the dosage as it is written, such as "500mg". */
+    @Override
+    public String toString() {
+        return BigDecimal.valueOf(amount).stripTrailingZeros().toPlainString() + unit.getSymbol();
+    }
+}
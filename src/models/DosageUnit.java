@@ -0,0 +1,77 @@
+package src.models;
+
+import java.util.Locale;
+
+/**
+ * The units a {@link Dosage} can be expressed in. Units of the same dimension
+ * convert to a common base unit, so dosages written as "0.5g" and "500mg"
+ * compare as equal amounts.
+ * 
+ * @author May Basalo
+ */
+public enum DosageUnit {
+    MICROGRAM(Dimension.MASS, 0.001, "mcg", "ug", "\u00b5g"),
+    MILLIGRAM(Dimension.MASS, 1, "mg"),
+    GRAM(Dimension.MASS, 1000, "g"),
+    MILLILITRE(Dimension.VOLUME, 1, "ml"),
+    LITRE(Dimension.VOLUME, 1000, "l"),
+    INTERNATIONAL_UNIT(Dimension.ACTIVITY, 1, "iu"),
+    PERCENT(Dimension.CONCENTRATION, 1, "%");
+
+    /**
+     * What a unit measures. Only dosages of the same dimension convert to one another.
+     */
+    public enum Dimension {
+        MASS,
+        VOLUME,
+        ACTIVITY,
+        CONCENTRATION
+    }
+
+    private final Dimension dimension;
+    private final double toBase;
+    private final String[] symbols;
+
+    DosageUnit(Dimension dimension, double toBase, String... symbols) {
+        this.dimension = dimension;
+        this.toBase = toBase;
+        this.symbols = symbols;
+    }
+
+    /** Retrieves what the unit measures. */
+    public Dimension getDimension() { return dimension; }
+
+    /** Retrieves the symbol the unit is written with, such as "mg". */
+    public String getSymbol() {
+        return this == INTERNATIONAL_UNIT ? "IU" : symbols[0];
+    }
+
+    /**
+     * Converts an amount in this unit to the base unit of its dimension:
+     * milligrams for mass and millilitres for volume.
+     * 
+     * @param amount The amount in this unit.
+     * @return The amount in the base unit.
+     */
+    public double toBase(double amount) {
+        return amount * toBase;
+    }
+
+    /**
+     * Finds the unit written with the given symbol, ignoring case.
+     * 
+     * @param symbol The symbol, such as "mg" or "ML".
+     * @return The unit, or null if the symbol is not recognised.
+     */
+    public static DosageUnit fromSymbol(String symbol) {
+        String lower = symbol.toLowerCase(Locale.ROOT);
+        for (DosageUnit unit : values()) {
+            for (String candidate : unit.symbols) {
+                if (candidate.equals(lower)) {
+                    return unit;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,112 @@
+package src.models;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Binary encoding of entity fields, shared by the write-ahead log and the
+ * snapshot files. Strings and dates may be null.
+ *
+ * @author May Basalo
+ */
+final class EntityCodec {
+
+    private EntityCodec() {
+    }
+
+    /** Writes a string that may be null. */
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /** Reads a string written by {@link #writeString(DataOutput, String)}. */
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /** Writes a date that may be null, as its epoch day. */
+    static void writeDate(DataOutput out, LocalDate value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochDay());
+        }
+    }
+
+    /** Reads a date written by {@link #writeDate(DataOutput, LocalDate)}. */
+    static LocalDate readDate(DataInput in) throws IOException {
+        return in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+    }
+
+    /** Writes an instant, as seconds and nanoseconds since the epoch. */
+    static void writeInstant(DataOutput out, Instant value) throws IOException {
+        out.writeLong(value.getEpochSecond());
+        out.writeInt(value.getNano());
+    }
+
+    /** Reads an instant written by {@link #writeInstant(DataOutput, Instant)}. */
+    static Instant readInstant(DataInput in) throws IOException {
+        long seconds = in.readLong();
+        return Instant.ofEpochSecond(seconds, in.readInt());
+    }
+
+    /** Writes every field of a medication. */
+    static void writeMedication(DataOutput out, Medication med) throws IOException {
+        writeString(out, med.getId());
+        writeString(out, med.getName());
+        out.writeInt(med.getQuantity());
+        writeString(out, med.getDosage());
+        writeDate(out, med.getExpiryDate());
+    }
+
+    /** Reads a medication written by {@link #writeMedication(DataOutput, Medication)}. */
+    static Medication readMedication(DataInput in) throws IOException {
+        String id = readString(in);
+        String name = readString(in);
+        int quantity = in.readInt();
+        String dosage = readString(in);
+        LocalDate expiryDate = readDate(in);
+        return new Medication(id, name, quantity, dosage, expiryDate);
+    }
+
+    /** Writes every field of a patient except its prescriptions. */
+    static void writePatient(DataOutput out, Patient patient) throws IOException {
+        writeString(out, patient.getId());
+        writeString(out, patient.getName());
+        out.writeInt(patient.getAge());
+        writeString(out, patient.getPhoneNumber());
+    }
+
+    /** Reads a patient written by {@link #writePatient(DataOutput, Patient)}. */
+    static Patient readPatient(DataInput in) throws IOException {
+        String id = readString(in);
+        String name = readString(in);
+        int age = in.readInt();
+        String phoneNumber = readString(in);
+        return new Patient(id, name, age, phoneNumber);
+    }
+
+    /** Writes every field of a doctor except its patients. */
+    static void writeDoctor(DataOutput out, Doctor doctor) throws IOException {
+        writeString(out, doctor.getId());
+        writeString(out, doctor.getName());
+        out.writeInt(doctor.getAge());
+        writeString(out, doctor.getPhoneNumber());
+        writeString(out, doctor.getSpecialty());
+    }
+
+    /** Reads a doctor written by {@link #writeDoctor(DataOutput, Doctor)}. */
+    static Doctor readDoctor(DataInput in) throws IOException {
+        String id = readString(in);
+        String name = readString(in);
+        int age = in.readInt();
+        String phoneNumber = readString(in);
+        String specialty = readString(in);
+        return new Doctor(id, name, age, phoneNumber, specialty);
+    }
+}
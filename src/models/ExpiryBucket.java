@@ -0,0 +1,56 @@
+package src.models;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Groups medications by how soon they expire, for the stock totals of
+ * {@link SystemAnalytics#stockByExpiry(LocalDate)}.
+ * 
+ * @author May Basalo
+ */
+public enum ExpiryBucket {
+    /** Expired before the reference date. */
+    EXPIRED(-1),
+    /** Expires within 30 days of the reference date, inclusive. */
+    WITHIN_30_DAYS(30),
+    /** Expires in 31 to 90 days. */
+    WITHIN_90_DAYS(90),
+    /** Expires in 91 to 365 days. */
+    WITHIN_365_DAYS(365),
+    /** Expires more than a year after the reference date. */
+    LATER(Long.MAX_VALUE),
+    /** Has no expiry date. */
+    NO_EXPIRY(Long.MAX_VALUE);
+
+    private static final ExpiryBucket[] DATED = {WITHIN_30_DAYS, WITHIN_90_DAYS, WITHIN_365_DAYS, LATER};
+
+    private final long maxDays;
+
+    ExpiryBucket(long maxDays) {
+        this.maxDays = maxDays;
+    }
+
+    /**
+     * Finds the bucket of an expiry date.
+     * 
+     * @param expiryDate The expiry date, possibly null.
+     * @param today      The reference date.
+     * @return The bucket the date falls in.
+     */
+    public static ExpiryBucket of(LocalDate expiryDate, LocalDate today) {
+        if (expiryDate == null) {
+            return NO_EXPIRY;
+        }
+        long days = ChronoUnit.DAYS.between(today, expiryDate);
+        if (days < 0) {
+            return EXPIRED;
+        }
+        for (ExpiryBucket bucket : DATED) {
+            if (days <= bucket.maxDays) {
+                return bucket;
+            }
+        }
+        return LATER;
+    }
+}
@@ -0,0 +1,97 @@
+package src.models;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Counts entities by expiry date so that the number expiring before a date can
+ * be read without visiting them. The count before the last date asked about is
+ * kept as a running total, and asking about a later date only adds the days in
+ * between; since callers ask about today, a read touches at most the days that
+ * have passed since the last one. Entities without an expiry date are not
+ * counted. The counter is safe for concurrent use.
+ *
+ * @param <T> The type of entity being counted.
+ *
+ * @author May Basalo
+ */
+class ExpiryCounter<T> implements SecondaryIndex<T> {
+    private final Function<T, LocalDate> dateOf;
+    private final TreeMap<Long, long[]> perDay;
+    private long horizon;
+    private long beforeHorizon;
+
+    /**
+     * Creates an empty counter.
+     *
+     * @param dateOf The function that extracts the expiry date from an entity.
+     */
+    ExpiryCounter(Function<T, LocalDate> dateOf) {
+        this.dateOf = dateOf;
+        this.perDay = new TreeMap<>();
+        this.horizon = LocalDate.now().toEpochDay();
+    }
+
+    @Override
+    public void added(T entity) {
+        add(dateOf.apply(entity), 1);
+    }
+
+    @Override
+    public void removed(T entity) {
+        add(dateOf.apply(entity), -1);
+    }
+
+    /**
+     * Moves one entity from one expiry date to another.
+     *
+     * @param previous The expiry date before the change, or null if it had none.
+     * @param current  The expiry date after the change, or null if it has none.
+     */
+    void moved(LocalDate previous, LocalDate current) {
+        add(previous, -1);
+        add(current, 1);
+    }
+
+    /**
+     * Counts the entities that expire before the given date.
+     *
+     * @param date The cut-off date (exclusive).
+     * @return The number of entities.
+     */
+    synchronized long countBefore(LocalDate date) {
+        long day = date.toEpochDay();
+        if (day > horizon) {
+            beforeHorizon += sum(horizon, day);
+        } else if (day < horizon) {
+            beforeHorizon -= sum(day, horizon);
+        }
+        horizon = day;
+        return beforeHorizon;
+    }
+
+    private synchronized void add(LocalDate date, long delta) {
+        if (date == null) {
+            return;
+        }
+        long day = date.toEpochDay();
+        long[] count = perDay.computeIfAbsent(day, d -> new long[1]);
+        count[0] += delta;
+        if (count[0] == 0) {
+            perDay.remove(day);
+        }
+        if (day < horizon) {
+            beforeHorizon += delta;
+        }
+    }
+
+    private long sum(long from, long to) {
+        long total = 0;
+        for (Map.Entry<Long, long[]> entry : perDay.subMap(from, to).entrySet()) {
+            total += entry.getValue()[0];
+        }
+        return total;
+    }
+}
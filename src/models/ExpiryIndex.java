@@ -0,0 +1,78 @@
+package src.models;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Orders medications by expiry date so that expired and soon-to-expire
+ * medications can be listed in time proportional to the number of results.
+ * Medications without an expiry date are not indexed. The index is safe for
+ * concurrent use.
+ *
+ * @author May Basalo
+ */
+class ExpiryIndex implements SecondaryIndex<Medication> {
+    private final SortedMultimap<LocalDate, Medication> byDate;
+    private final Map<Medication, LocalDate> dates;
+
+    /**
+     * Creates an empty expiry index.
+     */
+    ExpiryIndex() {
+        this.byDate = new SortedMultimap<>();
+        this.dates = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void added(Medication med) {
+        LocalDate date = med.getExpiryDate();
+        if (date != null) {
+            dates.put(med, date);
+            byDate.put(date, med);
+        }
+    }
+
+    @Override
+    public void removed(Medication med) {
+        LocalDate date = dates.remove(med);
+        if (date != null) {
+            byDate.remove(date, med);
+        }
+    }
+
+    /**
+     * Moves a medication to its current expiry date. Does nothing for
+     * medications that are not indexed.
+     *
+     * @param med The medication whose expiry date changed.
+     */
+    void reindex(Medication med) {
+        if (dates.containsKey(med) || med.getExpiryDate() != null) {
+            removed(med);
+            added(med);
+        }
+    }
+
+    /**
+     * Retrieves the medications that expire before the given date, oldest first.
+     *
+     * @param date The cut-off date (exclusive).
+     * @return The matching medications.
+     */
+    List<Medication> expiringBefore(LocalDate date) {
+        return byDate.before(date);
+    }
+
+    /**
+     * Retrieves the medications that expire between two dates, soonest first.
+     *
+     * @param from The first date of the window (inclusive).
+     * @param to   The last date of the window (inclusive).
+     * @return The matching medications.
+     */
+    List<Medication> expiringBetween(LocalDate from, LocalDate to) {
+        return byDate.between(from, true, to, true);
+    }
+}
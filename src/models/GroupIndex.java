@@ -0,0 +1,159 @@
+package src.models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Groups entities by the ID of a related entity, such as prescriptions by the
+ * doctor who wrote them, so that one group can be listed or counted in time
+ * proportional to its own size. Each group keeps its entities in insertion
+ * order. The index is safe for concurrent use.
+ *
+ * @param <T> The type of entity being grouped.
+ *
+ * @author May Basalo
+ */
+class GroupIndex<T> implements SecondaryIndex<T> {
+    private final Map<String, Set<T>> groups;
+    private final Function<T, String> keyOf;
+
+    /**
+     * Creates an empty index that is filled through {@link #add(String, Object)}
+     * rather than registered with a registry.
+     */
+    GroupIndex() {
+        this(entity -> null);
+    }
+
+    /**
+     * Creates an empty index.
+     *
+     * @param keyOf The function that extracts the group key from an entity; entities with a null key are not indexed.
+     */
+    GroupIndex(Function<T, String> keyOf) {
+        this.groups = new ConcurrentHashMap<>();
+        this.keyOf = keyOf;
+    }
+
+    @Override
+    public void added(T entity) {
+        add(keyOf.apply(entity), entity);
+    }
+
+    @Override
+    public void removed(T entity) {
+        remove(keyOf.apply(entity), entity);
+    }
+
+    /**
+     * Adds an entity to a group.
+     *
+     * @param key    The group key; a null key is ignored.
+     * @param entity The entity to add.
+     */
+    void add(String key, T entity) {
+        if (key == null) {
+            return;
+        }
+        groups.compute(key, (k, group) -> {
+            if (group == null) {
+                group = new LinkedHashSet<>();
+            }
+            synchronized (group) {
+                group.add(entity);
+            }
+            return group;
+        });
+    }
+
+    /**
+     * Removes an entity from a group.
+     *
+     * @param key    The group key; a null key is ignored.
+     * @param entity The entity to remove.
+     */
+    void remove(String key, T entity) {
+        if (key == null) {
+            return;
+        }
+        groups.computeIfPresent(key, (k, group) -> {
+            synchronized (group) {
+                group.remove(entity);
+                return group.isEmpty() ? null : group;
+            }
+        });
+    }
+
+    /**
+     * Retrieves the entities in a group, in the order they were added.
+     *
+     * @param key The group key.
+     * @return A copy of the group, possibly empty.
+     */
+    List<T> get(String key) {
+        Set<T> group = groups.get(key);
+        if (group == null) {
+            return new ArrayList<>();
+        }
+        synchronized (group) {
+            return new ArrayList<>(group);
+        }
+    }
+
+    /**
+     * Removes a whole group.
+     *
+     * @param key The group key.
+     * @return The entities that were in the group, possibly none.
+     */
+    List<T> removeGroup(String key) {
+        Set<T> group = groups.remove(key);
+        if (group == null) {
+            return new ArrayList<>();
+        }
+        synchronized (group) {
+            return new ArrayList<>(group);
+        }
+    }
+
+    /**
+     * Counts the entities in a group.
+     *
+     * @param key The group key.
+     * @return The size of the group.
+     */
+    int count(String key) {
+        Set<T> group = groups.get(key);
+        if (group == null) {
+            return 0;
+        }
+        synchronized (group) {
+            return group.size();
+        }
+    }
+
+    /**
+     * Counts the entities in every group, in time proportional to the number
+     * of groups.
+     *
+     * @return The size of each non-empty group by key.
+     */
+    Map<String, Integer> counts() {
+        Map<String, Integer> counts = new HashMap<>(groups.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Set<T>> entry : groups.entrySet()) {
+            Set<T> group = entry.getValue();
+            synchronized (group) {
+                if (!group.isEmpty()) {
+                    counts.put(entry.getKey(), group.size());
+                }
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,587 @@
+package src.models;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * An ordered list of entities that also keeps a hash index on their IDs.
+ * Every change made through the list (including iterator removal and removeIf)
+ * updates the index, so ID lookups and duplicate checks run in constant time.
+ * Secondary indexes registered with {@link #addIndex(SecondaryIndex)} are
+ * notified of the same changes.
+ *
+ * The registry is safe for concurrent use: adds and removals of different IDs
+ * may run in parallel, and readers never block. Entities keep their insertion
+ * order in a skip list keyed by a sequence number, so iteration is weakly
+ * consistent rather than fail-fast and never throws
+ * ConcurrentModificationException. New entities can only be appended;
+ * positional access walks the list and costs O(n).
+ *
+ * Every add and removal is also stamped with a version from the system's
+ * {@link VersionClock}, so {@link #snapshot(long)} can hand out a fixed view
+ * of the entries as of one version without copying or locking. A removed
+ * entry stays in the skip list, hidden from the live list, until no open
+ * snapshot can still see it.
+ *
+ * @param <T> The type of entity stored in the registry.
+ *
+ * @author May Basalo
+ */
+public class IdRegistry<T> extends AbstractList<T> {
+    private final Map<String, Entry<T>> byId;
+    private final ConcurrentSkipListMap<Long, Entry<T>> order;
+    private final ConcurrentLinkedQueue<Entry<T>> retired;
+    private final VersionClock clock;
+    private final AtomicLong sequence;
+    private final AtomicInteger count;
+    private final Function<T, String> idOf;
+    private final List<SecondaryIndex<T>> indexes;
+
+    /**
+     * Creates an empty registry.
+     *
+     * @param idOf The function that extracts the ID from an entity.
+     */
+    public IdRegistry(Function<T, String> idOf) {
+        this(idOf, new VersionClock());
+    }
+
+    /**
+     * Creates an empty registry whose versions come from a clock shared with
+     * other registries, so their snapshots line up.
+     *
+     * @param idOf  The function that extracts the ID from an entity.
+     * @param clock The version clock.
+     */
+    IdRegistry(Function<T, String> idOf, VersionClock clock) {
+        this.byId = new ConcurrentHashMap<>();
+        this.order = new ConcurrentSkipListMap<>();
+        this.retired = new ConcurrentLinkedQueue<>();
+        this.clock = clock;
+        this.sequence = new AtomicLong();
+        this.count = new AtomicInteger();
+        this.idOf = idOf;
+        this.indexes = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Registers a secondary index and fills it with the current entries.
+     *
+     * @param index The index to keep in step with this registry.
+     */
+    void addIndex(SecondaryIndex<T> index) {
+        indexes.add(index);
+        for (T entity : this) {
+            index.added(entity);
+        }
+    }
+
+    /**
+     * Finds an entity by its ID.
+     *
+     * @param id The ID to look up.
+     * @return The matching entity, or null if none is registered.
+     */
+    public T findById(String id) {
+        Entry<T> entry = byId.get(id);
+        return entry == null ? null : entry.entity;
+    }
+
+    /**
+     * Checks whether an entity with the given ID is registered.
+     *
+     * @param id The ID to check.
+     * @return True if the ID is already in use.
+     */
+    public boolean containsId(String id) {
+        return byId.containsKey(id);
+    }
+
+    /**
+     * Removes the entity with the given ID.
+     *
+     * @param id The ID of the entity to remove.
+     * @return The removed entity, or null if none was registered.
+     */
+    public T removeById(String id) {
+        Entry<T> entry = byId.remove(id);
+        if (entry == null) {
+            return null;
+        }
+        retire(entry);
+        count.decrementAndGet();
+        modCount++;
+        notifyRemoved(entry.entity);
+        return entry.entity;
+    }
+
+    /**
+     * Appends an entity unless its ID is already registered. The check and the
+     * insert are a single atomic step.
+     *
+     * @param entity The entity to add.
+     * @return True if the entity was added, false if its ID was taken.
+     */
+    boolean addIfAbsent(T entity) {
+        String id = Objects.requireNonNull(idOf.apply(entity), "id");
+        Entry<T> entry = new Entry<>(sequence.incrementAndGet(), entity);
+        if (byId.putIfAbsent(id, entry) != null) {
+            return false;
+        }
+        order.put(entry.sequence, entry);
+        entry.stampAdded(clock);
+        count.incrementAndGet();
+        modCount++;
+        notifyAdded(entity);
+        return true;
+    }
+
+    /**
+     * Appends a batch of entities after validating the whole batch in one pass.
+     * Entities without an ID, or whose ID is already registered or repeated
+     * earlier in the batch, are skipped and recorded as failures.
+     *
+     * @param batch  The entities to add.
+     * @param result The result that collects applied items and failures.
+     * @return The entities that were added, in batch order.
+     */
+    List<T> addAllUnique(Collection<? extends T> batch, BatchResult result) {
+        List<T> accepted = new ArrayList<>(batch.size());
+        Set<String> seen = new HashSet<>();
+        for (T entity : batch) {
+            String id = entity == null ? null : idOf.apply(entity);
+            if (id == null) {
+                result.failed(null, "Missing ID");
+            } else if (!seen.add(id)) {
+                result.failed(id, "ID repeated in batch");
+            } else if (!addIfAbsent(entity)) {
+                result.failed(id, "ID already exists");
+            } else {
+                accepted.add(entity);
+                result.applied();
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Retrieves the entity at the given position. Walks the list, so it costs O(n).
+     */
+    @Override
+    public T get(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        int position = 0;
+        for (T entity : this) {
+            if (position++ == index) {
+                return entity;
+            }
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+
+    @Override
+    public int size() {
+        return count.get();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<Entry<T>> entries = order.values().iterator();
+        return new Iterator<T>() {
+            private Entry<T> upcoming;
+            private T last;
+
+            @Override
+            public boolean hasNext() {
+                while (upcoming == null && entries.hasNext()) {
+                    Entry<T> entry = entries.next();
+                    if (!entry.isRemoved()) {
+                        upcoming = entry;
+                    }
+                }
+                return upcoming != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = upcoming.entity;
+                upcoming = null;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                removeEntity(last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Appends an entity.
+     *
+     * @throws IllegalArgumentException If an entity with the same ID is already registered.
+     */
+    @Override
+    public boolean add(T entity) {
+        if (!addIfAbsent(entity)) {
+            throw new IllegalArgumentException("Duplicate ID: " + idOf.apply(entity));
+        }
+        return true;
+    }
+
+    /**
+     * Appends an entity. Only insertion at the end of the list is supported.
+     *
+     * @throws IllegalArgumentException      If an entity with the same ID is already registered.
+     * @throws UnsupportedOperationException If the index is not the end of the list.
+     */
+    @Override
+    public void add(int index, T entity) {
+        if (index != size()) {
+            throw new UnsupportedOperationException("Entities can only be appended");
+        }
+        add(entity);
+    }
+
+    @Override
+    public T remove(int index) {
+        T entity = get(index);
+        removeEntity(entity);
+        return entity;
+    }
+
+    @Override
+    public void clear() {
+        for (T entity : this) {
+            removeEntity(entity);
+        }
+    }
+
+    /**
+     * Creates a read-only view of the entries as they were at the given
+     * version. Creating the view costs O(1); it never changes afterwards, and
+     * iterating it takes no locks. The caller must hold a pin on the clock at
+     * or before the version for as long as it uses the view.
+     *
+     * @param version The version to read, from the clock this registry shares.
+     * @return The entities added by that version and not yet removed, in insertion order.
+     */
+    List<T> snapshot(long version) {
+        return new Snapshot<>(order, version, clock);
+    }
+
+    /**
+     * Physically drops removed entries that no open snapshot can see any more.
+     * Removals are retired in roughly stamp order, so the scan stops at the
+     * first entry still needed; a later purge picks up any left behind it.
+     */
+    void purgeRetired() {
+        long oldest = clock.oldestPin();
+        Entry<T> head;
+        while ((head = retired.peek()) != null && head.removed <= oldest) {
+            if (retired.remove(head)) {
+                order.remove(head.sequence, head);
+            }
+        }
+    }
+
+    /**
+     * Stamps an entry as removed and drops it from the skip list, or keeps it
+     * there for the snapshots that can still see it.
+     */
+    private void retire(Entry<T> entry) {
+        entry.stampRemoved(clock);
+        if (retired.isEmpty() && entry.removed <= clock.oldestPin()) {
+            order.remove(entry.sequence, entry);
+        } else {
+            retired.add(entry);
+            purgeRetired();
+        }
+    }
+
+    /**
+     * Removes the given entity if it is still the one registered under its ID.
+     */
+    private void removeEntity(T entity) {
+        String id = idOf.apply(entity);
+        Entry<T> entry = byId.get(id);
+        if (entry != null && entry.entity == entity && byId.remove(id, entry)) {
+            retire(entry);
+            count.decrementAndGet();
+            modCount++;
+            notifyRemoved(entity);
+        }
+    }
+
+    private void notifyAdded(T entity) {
+        for (SecondaryIndex<T> index : indexes) {
+            index.added(entity);
+        }
+    }
+
+    private void notifyRemoved(T entity) {
+        for (SecondaryIndex<T> index : indexes) {
+            index.removed(entity);
+        }
+    }
+
+    /**
+     * An entity together with the sequence number that fixes its list position
+     * and the versions at which it was added and removed.
+     *
+     * A stamp is written once. Until it is, a snapshot that meets the entry
+     * stamps it itself with a fresh version, which is later than the
+     * snapshot's own; so whether a snapshot sees an entry is decided by a
+     * final stamp and never changes.
+     */
+    private static final class Entry<T> {
+        private static final long UNSTAMPED = 0;
+        private static final long REMOVING = -1;
+        private static final VarHandle ADDED;
+        private static final VarHandle REMOVED;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                ADDED = lookup.findVarHandle(Entry.class, "added", long.class);
+                REMOVED = lookup.findVarHandle(Entry.class, "removed", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final long sequence;
+        private final T entity;
+        private volatile long added;
+        private volatile long removed;
+
+        Entry(long sequence, T entity) {
+            this.sequence = sequence;
+            this.entity = entity;
+        }
+
+        void stampAdded(VersionClock clock) {
+            if (added == UNSTAMPED) {
+                ADDED.compareAndSet(this, UNSTAMPED, clock.next());
+            }
+        }
+
+        /**
+         * Marks the entry as being removed before taking the version, so a
+         * snapshot that saw it live is always older than the removal.
+         */
+        void stampRemoved(VersionClock clock) {
+            removed = REMOVING;
+            REMOVED.compareAndSet(this, REMOVING, clock.next());
+        }
+
+        boolean isRemoved() {
+            return removed != UNSTAMPED;
+        }
+
+        boolean visibleAt(long version, VersionClock clock) {
+            if (added == UNSTAMPED) {
+                stampAdded(clock);
+            }
+            if (added > version) {
+                return false;
+            }
+            if (removed == REMOVING) {
+                REMOVED.compareAndSet(this, REMOVING, clock.next());
+            }
+            long stamp = removed;
+            return stamp == UNSTAMPED || stamp > version;
+        }
+    }
+
+    /**
+     * The entries of a registry as of one version. Iteration filters the live
+     * skip list by version; size and positional access copy the visible
+     * entities once, on first use. Until then, streams split the skip list by
+     * ranges of sequence numbers, so a parallel stream filters the entries on
+     * every thread rather than waiting for a copy made on one.
+     */
+    private static final class Snapshot<T> extends AbstractList<T> {
+        private final ConcurrentSkipListMap<Long, Entry<T>> order;
+        private final long version;
+        private final VersionClock clock;
+        private volatile Object[] rows;
+
+        Snapshot(ConcurrentSkipListMap<Long, Entry<T>> order, long version, VersionClock clock) {
+            this.order = order;
+            this.version = version;
+            this.clock = clock;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<Entry<T>> entries = order.values().iterator();
+            return new Iterator<T>() {
+                private Entry<T> upcoming;
+
+                @Override
+                public boolean hasNext() {
+                    while (upcoming == null && entries.hasNext()) {
+                        Entry<T> entry = entries.next();
+                        if (entry.visibleAt(version, clock)) {
+                            upcoming = entry;
+                        }
+                    }
+                    return upcoming != null;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    T entity = upcoming.entity;
+                    upcoming = null;
+                    return entity;
+                }
+            };
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            return (T) rows()[index];
+        }
+
+        @Override
+        public int size() {
+            return rows().length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Spliterator<T> spliterator() {
+            Object[] copy = rows;
+            if (copy != null) {
+                return (Spliterator<T>) Spliterators.spliterator(copy, Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+            }
+            Map.Entry<Long, Entry<T>> first = order.firstEntry();
+            Map.Entry<Long, Entry<T>> last = order.lastEntry();
+            if (first == null || last == null) {
+                return Spliterators.emptySpliterator();
+            }
+            return new VisibleSpliterator<>(order, first.getKey(), Math.max(first.getKey(), last.getKey() + 1), version, clock);
+        }
+
+        private Object[] rows() {
+            Object[] copy = rows;
+            if (copy == null) {
+                List<T> visible = new ArrayList<>();
+                for (T entity : this) {
+                    visible.add(entity);
+                }
+                copy = visible.toArray();
+                rows = copy;
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * Walks the entries of a skip list whose sequence numbers fall in a range,
+     * passing on the entities visible at one version. Splitting halves the
+     * range, so the splits need no walk of the list to find their bounds.
+     */
+    private static final class VisibleSpliterator<T> implements Spliterator<T> {
+        private final ConcurrentSkipListMap<Long, Entry<T>> order;
+        private final long version;
+        private final VersionClock clock;
+        private final long to;
+        private long from;
+        private Iterator<Entry<T>> entries;
+
+        VisibleSpliterator(ConcurrentSkipListMap<Long, Entry<T>> order, long from, long to, long version, VersionClock clock) {
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.version = version;
+            this.clock = clock;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Iterator<Entry<T>> remaining = entries();
+            while (remaining.hasNext()) {
+                Entry<T> entry = remaining.next();
+                if (entry.visibleAt(version, clock)) {
+                    action.accept(entry.entity);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Iterator<Entry<T>> remaining = entries();
+            while (remaining.hasNext()) {
+                Entry<T> entry = remaining.next();
+                if (entry.visibleAt(version, clock)) {
+                    action.accept(entry.entity);
+                }
+            }
+        }
+
+        private Iterator<Entry<T>> entries() {
+            if (entries == null) {
+                entries = order.subMap(from, to).values().iterator();
+            }
+            return entries;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (entries != null || to - from < 2) {
+                return null;
+            }
+            long middle = from + (to - from) / 2;
+            Spliterator<T> prefix = new VisibleSpliterator<>(order, from, middle, version, clock);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package src.models;
+
+/**
+ * Decides what happens to a prescription for a medication that interacts with
+ * one the patient is already prescribed.
+ *
+ * @author May Basalo
+ */
+public enum InteractionPolicy {
+    /** Refuses the prescription. */
+    REJECT,
+    /** Accepts the prescription and publishes a warning. */
+    FLAG,
+    /** Accepts the prescription without checking for interactions. */
+    ALLOW
+}
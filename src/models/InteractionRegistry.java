@@ -0,0 +1,165 @@
+package src.models;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records which medications interact with each other. Every medication ID is
+ * given a dense ordinal the first time it is seen, and each medication's
+ * interactions are a bit set over those ordinals, so whether a medication
+ * interacts with any of a set of others is a word-wise AND of two bit sets.
+ *
+ * Interactions change rarely and are read on every prescription, so a
+ * medication's bit set is never changed once published: a change replaces it
+ * with an updated copy, and readers take no lock. Ordinals are never reused,
+ * so interactions recorded for a medication ID outlive the medication's
+ * removal and apply again if it is re-added. The registry is safe for
+ * concurrent use.
+ *
+ * @author May Basalo
+ */
+class InteractionRegistry {
+    private final Map<String, Integer> ordinals;
+    private final Map<Integer, String> ids;
+    private final AtomicInteger nextOrdinal;
+    private final Map<Integer, BitSet> interactions;
+
+    /**
+     * Creates an empty registry.
+     */
+    InteractionRegistry() {
+        this.ordinals = new ConcurrentHashMap<>();
+        this.ids = new ConcurrentHashMap<>();
+        this.nextOrdinal = new AtomicInteger();
+        this.interactions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Retrieves the ordinal of a medication ID, assigning the next one if the
+     * ID has not been seen before.
+     *
+     * @param medicationId The medication ID.
+     * @return The ordinal.
+     */
+    int ordinal(String medicationId) {
+        Integer ordinal = ordinals.get(medicationId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        return ordinals.computeIfAbsent(medicationId, id -> {
+            int assigned = nextOrdinal.getAndIncrement();
+            ids.put(assigned, id);
+            return assigned;
+        });
+    }
+
+    /**
+     * Retrieves the medication ID an ordinal was assigned to.
+     *
+     * @param ordinal The ordinal.
+     * @return The medication ID.
+     */
+    String idOf(int ordinal) {
+        return ids.get(ordinal);
+    }
+
+    /**
+     * Retrieves the medications a medication interacts with.
+     *
+     * @param medicationId The medication ID.
+     * @return The ordinals of the interacting medications, or null if there are none.
+     *         The set must not be modified.
+     */
+    BitSet interactionsOf(String medicationId) {
+        Integer ordinal = ordinals.get(medicationId);
+        return ordinal == null ? null : interactions.get(ordinal);
+    }
+
+    /**
+     * Tells whether two medications interact.
+     *
+     * @param first  The ID of one medication.
+     * @param second The ID of the other.
+     * @return True if an interaction between them is recorded.
+     */
+    boolean interacts(String first, String second) {
+        BitSet row = interactionsOf(first);
+        Integer other = ordinals.get(second);
+        return row != null && other != null && row.get(other);
+    }
+
+    /**
+     * Records that two medications interact.
+     *
+     * @param first  The ID of one medication.
+     * @param second The ID of the other.
+     * @return True if the interaction was not already recorded.
+     * @throws IllegalArgumentException If both IDs are the same.
+     */
+    synchronized boolean add(String first, String second) {
+        if (first.equals(second)) {
+            throw new IllegalArgumentException("A medication cannot interact with itself: " + first);
+        }
+        if (interacts(first, second)) {
+            return false;
+        }
+        int a = ordinal(first);
+        int b = ordinal(second);
+        update(a, b, true);
+        update(b, a, true);
+        return true;
+    }
+
+    /**
+     * Forgets that two medications interact.
+     *
+     * @param first  The ID of one medication.
+     * @param second The ID of the other.
+     * @return True if the interaction was recorded.
+     */
+    synchronized boolean remove(String first, String second) {
+        if (!interacts(first, second)) {
+            return false;
+        }
+        int a = ordinals.get(first);
+        int b = ordinals.get(second);
+        update(a, b, false);
+        update(b, a, false);
+        return true;
+    }
+
+    /**
+     * Lists every recorded interaction once.
+     *
+     * @return The pairs of interacting medication IDs.
+     */
+    List<String[]> pairs() {
+        List<String[]> pairs = new ArrayList<>();
+        for (Map.Entry<Integer, BitSet> entry : interactions.entrySet()) {
+            int a = entry.getKey();
+            BitSet row = entry.getValue();
+            for (int b = row.nextSetBit(a + 1); b >= 0; b = row.nextSetBit(b + 1)) {
+                pairs.add(new String[] {idOf(a), idOf(b)});
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Publishes a copy of one medication's bit set with one bit changed.
+     */
+    private void update(int ordinal, int other, boolean interacts) {
+        BitSet current = interactions.get(ordinal);
+        BitSet updated = current == null ? new BitSet() : (BitSet) current.clone();
+        updated.set(other, interacts);
+        if (updated.isEmpty()) {
+            interactions.remove(ordinal);
+        } else {
+            interactions.put(ordinal, updated);
+        }
+    }
+}
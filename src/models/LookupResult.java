@@ -0,0 +1,66 @@
+package src.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the answer to a batched lookup: what each key resolved to, in the
+ * order the keys were given, and the keys that matched nothing. A key given
+ * more than once is resolved once.
+ * 
+ * @param <T> The type each key resolves to.
+ * @author May Basalo
+ */
+public class LookupResult<T> {
+    private final Map<String, T> found;
+    private final List<String> missing;
+
+    /**
+     * Creates an empty result.
+     */
+    public LookupResult() {
+        this.found = new LinkedHashMap<>();
+        this.missing = new ArrayList<>();
+    }
+
+    /** Records what a key resolved to. */
+    void found(String key, T value) {
+        found.put(key, value);
+    }
+
+    /** Records a key that matched nothing. */
+    void missing(String key) {
+        missing.add(key);
+    }
+
+    /**
+     * Retrieves what a key resolved to.
+     * 
+     * @param key The ID or name that was looked up.
+     * @return The match, or null if the key matched nothing or was not looked up.
+     */
+    public T get(String key) {
+        return found.get(key);
+    }
+
+    /** Retrieves every key that matched, with its match, in the order the keys were given. */
+    public Map<String, T> getFound() { return Collections.unmodifiableMap(found); }
+
+    /** Retrieves the keys that matched nothing, in the order they were given. */
+    public List<String> getMissing() { return Collections.unmodifiableList(missing); }
+
+    /** Returns true if every key matched. */
+    public boolean isComplete() { return missing.isEmpty(); }
+
+    /** Returns a string representation of the result. */
+    @Override
+    public String toString() {
+        return "LookupResult{" +
+            "Found=" + found.size() +
+            ", Missing=" + missing +
+            '}';
+    }
+}
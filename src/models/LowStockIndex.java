@@ -0,0 +1,103 @@
+package src.models;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which medications are below their reorder point, so they can be
+ * listed and counted in time proportional to their own number rather than
+ * the size of the catalogue.
+ *
+ * A medication is only looked at when its stock crosses its reorder point or
+ * the reorder point changes; the many changes that leave it on the same side
+ * cost nothing here. Each look is made under a per-medication lock and reads
+ * the medication's current stock, so looks made in any order after concurrent
+ * changes still settle on the right answer. The index is safe for concurrent use.
+ *
+ * @author May Basalo
+ */
+class LowStockIndex {
+    private final IdRegistry<Medication> registry;
+    private final Map<Medication, Medication> low;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param registry The registry whose medications are tracked; medications no longer in it are dropped.
+     */
+    LowStockIndex(IdRegistry<Medication> registry) {
+        this.registry = registry;
+        this.low = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Tells whether a stock change moved a medication across its reorder point.
+     *
+     * @param med      The medication whose stock changed.
+     * @param previous The quantity before the change.
+     * @param updated  The quantity after the change.
+     * @return True if the medication should be looked at again.
+     */
+    static boolean crossed(Medication med, int previous, int updated) {
+        int reorderPoint = med.getReorderPoint();
+        return (previous < reorderPoint) != (updated < reorderPoint);
+    }
+
+    /**
+     * Brings a medication's entry up to date with its current stock and
+     * reorder point.
+     *
+     * @param med The medication to look at.
+     * @return TRUE if it has just become low on stock, FALSE if it has just
+     *         stopped being low, or null if nothing changed.
+     */
+    Boolean update(Medication med) {
+        Boolean[] change = new Boolean[1];
+        low.compute(med, (key, present) -> {
+            boolean isLow = med.isLowStock() && registry.findById(med.getId()) == med;
+            if (isLow != (present != null)) {
+                change[0] = isLow;
+            }
+            return isLow ? med : null;
+        });
+        return change[0];
+    }
+
+    /**
+     * Drops a medication that has left the registry.
+     *
+     * @param med The removed medication.
+     */
+    void remove(Medication med) {
+        low.remove(med);
+    }
+
+    /**
+     * Retrieves the medications below their reorder point.
+     *
+     * @return The matching medications, the furthest below their reorder point first.
+     */
+    List<Medication> get() {
+        // Stock keeps changing while the list is sorted, so each medication's gap is read once up front.
+        Map<Medication, Long> gaps = new IdentityHashMap<>();
+        for (Medication med : low.keySet()) {
+            gaps.put(med, (long) med.getQuantity() - med.getReorderPoint());
+        }
+        List<Medication> meds = new ArrayList<>(gaps.keySet());
+        meds.sort(Comparator.comparingLong((Medication med) -> gaps.get(med)).thenComparing(Medication::getId));
+        return meds;
+    }
+
+    /**
+     * Counts the medications below their reorder point.
+     *
+     * @return The number of medications.
+     */
+    int count() {
+        return low.size();
+    }
+}
@@ -0,0 +1,28 @@
+package src.models;
+
+/**
+ * Receives medications as their stock crosses their reorder point.
+ *
+ * Listeners are called on the thread that changed the stock, while a journaled
+ * system holds its log's lock; they should hand work off rather than call back
+ * into the system to change records.
+ *
+ * @author May Basalo
+ */
+public interface LowStockListener {
+
+    /**
+     * Called after a medication's stock has fallen below its reorder point,
+     * or it was added already below it.
+     *
+     * @param medication The medication that needs reordering.
+     */
+    void stockLow(Medication medication);
+
+    /**
+     * Called after a medication's stock is back at or above its reorder point.
+     *
+     * @param medication The medication that no longer needs reordering.
+     */
+    void stockReplenished(Medication medication);
+}
@@ -0,0 +1,503 @@
+package src.models;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * An inventory backend that keeps medication records off the Java heap, in a
+ * memory-mapped file of fixed-width slots.
+ *
+ * Each slot holds the medication ID, quantity, reorder point, expiry date as an
+ * epoch day and references into a string dictionary for the name and dosage,
+ * so repeated values such as "500mg" are stored once. Callers work with ordinary
+ * {@link Medication} objects: {@link #put(Medication)} and {@link #get(String)}
+ * return views whose getters and setters read and write the mapped slot
+ * directly. Stock and expiry scans walk the mapped file without creating any
+ * objects, and the inventory is available again after a restart without any
+ * deserialization.
+ *
+ * Dictionary entries are never reclaimed, so frequently renamed medications
+ * grow the dictionary file. Adding, removing and renaming are synchronized on
+ * the store; scans and view reads take no lock.
+ *
+ * @author May Basalo
+ */
+public class MappedInventoryStore implements Closeable {
+    /** The longest medication ID, in UTF-8 bytes, that fits in a slot. */
+    public static final int MAX_ID_BYTES = 32;
+
+    private static final String DATA_FILE = "inventory.dat";
+    private static final String DICTIONARY_FILE = "inventory.dict";
+    private static final int MAGIC = 0x4D54494E; // "MTIN"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 64;
+    private static final int HEADER_SLOT_COUNT = 8;
+
+    private static final int LIVE = 0;
+    private static final int ID_LENGTH = 1;
+    private static final int ID = 2;
+    private static final int QUANTITY = 36;
+    private static final int EXPIRY = 40;
+    private static final int NAME_REF = 48;
+    private static final int DOSAGE_REF = 52;
+    private static final int GENERATION = 56;
+    private static final int REORDER_POINT = 60;
+
+    private static final VarHandle INT_VIEW = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NO_STRING = -1;
+
+    private final FileChannel channel;
+    private final DataOutputStream dictionaryOut;
+    private final Map<Integer, String> strings;
+    private final Map<String, Integer> stringRefs;
+    private final Map<String, Integer> slotsById;
+    private final Deque<Integer> freeSlots;
+    private volatile MappedByteBuffer buffer;
+    private volatile int slotCount;
+    private int capacity;
+
+    private MappedInventoryStore(FileChannel channel, DataOutputStream dictionaryOut, List<String> strings) {
+        this.channel = channel;
+        this.dictionaryOut = dictionaryOut;
+        // View reads look strings up without the store's lock, so the dictionary is a concurrent map.
+        this.strings = new ConcurrentHashMap<>(strings.size() * 2);
+        this.stringRefs = new HashMap<>(strings.size() * 2);
+        for (int i = 0; i < strings.size(); i++) {
+            this.strings.put(i, strings.get(i));
+            stringRefs.put(strings.get(i), i);
+        }
+        this.slotsById = new HashMap<>();
+        this.freeSlots = new ArrayDeque<>();
+    }
+
+    /**
+     * Opens the inventory in the given directory, creating it if needed.
+     *
+     * @param directory The directory holding the inventory files.
+     * @return The opened store.
+     */
+    public static MappedInventoryStore open(Path directory) throws IOException {
+        return open(directory, 1024);
+    }
+
+    /**
+     * Opens the inventory in the given directory, creating it if needed.
+     *
+     * @param directory       The directory holding the inventory files.
+     * @param initialCapacity The number of slots to map for a new inventory.
+     * @return The opened store.
+     */
+    public static MappedInventoryStore open(Path directory, int initialCapacity) throws IOException {
+        Files.createDirectories(directory);
+        Path dictionaryFile = directory.resolve(DICTIONARY_FILE);
+        List<String> strings = readDictionary(dictionaryFile);
+        DataOutputStream dictionaryOut = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(dictionaryFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        FileChannel channel = FileChannel.open(directory.resolve(DATA_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        MappedInventoryStore store = new MappedInventoryStore(channel, dictionaryOut, strings);
+        if (channel.size() < HEADER_SIZE) {
+            store.map(Math.max(initialCapacity, 16));
+            store.buffer.putInt(0, MAGIC);
+            store.buffer.putInt(4, VERSION);
+            store.buffer.putInt(HEADER_SLOT_COUNT, 0);
+        } else {
+            store.map((int) ((channel.size() - HEADER_SIZE) / SLOT_SIZE));
+            if (store.buffer.getInt(0) != MAGIC || store.buffer.getInt(4) != VERSION) {
+                store.close();
+                throw new IOException("Not a medication inventory file: " + directory.resolve(DATA_FILE));
+            }
+            store.slotCount = store.buffer.getInt(HEADER_SLOT_COUNT);
+            for (int slot = 0; slot < store.slotCount; slot++) {
+                if (store.isLive(slot)) {
+                    store.slotsById.put(store.readId(slot), slot);
+                } else {
+                    store.freeSlots.push(slot);
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Reads the dictionary entries. A crash while an entry was being written
+     * leaves part of it at the end of the file; the file is cut back to the
+     * last complete entry so that new entries are not appended after it.
+     */
+    private static List<String> readDictionary(Path file) throws IOException {
+        List<String> strings = new ArrayList<>();
+        if (Files.exists(file)) {
+            long complete = 0;
+            try (InputStream stream = Files.newInputStream(file);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+                while (true) {
+                    try {
+                        String value = in.readUTF();
+                        strings.add(value);
+                        complete += 2 + utfLength(value);
+                    } catch (EOFException end) {
+                        break;
+                    }
+                }
+            }
+            if (complete < Files.size(file)) {
+                try (FileChannel dictionary = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    dictionary.truncate(complete);
+                }
+            }
+        }
+        return strings;
+    }
+
+    /** Retrieves the number of bytes {@link DataOutputStream#writeUTF(String)} writes for a string, after its length word. */
+    private static int utfLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return length;
+    }
+
+    private void map(int slots) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+        capacity = slots;
+    }
+
+    /**
+     * Stores a medication, replacing any record with the same ID, and returns a
+     * view backed by the mapped slot.
+     *
+     * @param medication The medication to store.
+     * @return A medication view that reads and writes the stored record.
+     * @throws IllegalArgumentException If the ID is longer than {@link #MAX_ID_BYTES} bytes.
+     */
+    public synchronized Medication put(Medication medication) {
+        byte[] id = medication.getId().getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("Medication ID longer than " + MAX_ID_BYTES + " bytes: " + medication.getId());
+        }
+        Integer existing = slotsById.get(medication.getId());
+        int slot = existing != null ? existing : allocateSlot();
+        int base = offset(slot);
+
+        buffer.put(base + ID_LENGTH, (byte) id.length);
+        buffer.put(base + ID, id);
+        buffer.putInt(base + QUANTITY, medication.getQuantity());
+        writeDate(slot, medication.getExpiryDate());
+        buffer.putInt(base + NAME_REF, intern(medication.getName()));
+        buffer.putInt(base + DOSAGE_REF, intern(medication.getDosage()));
+        buffer.putInt(base + REORDER_POINT, medication.getReorderPoint());
+        buffer.put(base + LIVE, (byte) 1);
+        slotsById.put(medication.getId(), slot);
+        return new MappedMedication(this, medication.getId(), slot, generation(slot));
+    }
+
+    /**
+     * Retrieves a view of the stored medication with the given ID.
+     *
+     * @param id The medication ID.
+     * @return A view of the stored record, or null if there is none.
+     */
+    public synchronized Medication get(String id) {
+        Integer slot = slotsById.get(id);
+        return slot == null ? null : new MappedMedication(this, id, slot, generation(slot));
+    }
+
+    /**
+     * Removes the medication with the given ID. Existing views keep reading the
+     * last stored values until the slot is reused for another medication.
+     *
+     * @param id The medication ID.
+     * @return True if a record was removed.
+     */
+    public synchronized boolean remove(String id) {
+        Integer slot = slotsById.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        int base = offset(slot);
+        buffer.put(base + LIVE, (byte) 0);
+        freeSlots.push(slot);
+        return true;
+    }
+
+    /**
+     * Retrieves views of every stored medication, in slot order.
+     *
+     * @return The stored medications.
+     */
+    public synchronized List<Medication> getMedications() {
+        List<Medication> views = new ArrayList<>(slotsById.size());
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (isLive(slot)) {
+                views.add(new MappedMedication(this, readId(slot), slot, generation(slot)));
+            }
+        }
+        return views;
+    }
+
+    /** Retrieves the number of stored medications. */
+    public synchronized int size() {
+        return slotsById.size();
+    }
+
+    /**
+     * Adds up the stock of every stored medication without creating any objects.
+     *
+     * @return The total quantity in stock.
+     */
+    public long totalStock() {
+        long total = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int base = offset(slot);
+            if (buffer.get(base + LIVE) != 0) {
+                total += buffer.getInt(base + QUANTITY);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Counts the stored medications that expire before the given date, without
+     * creating any objects.
+     *
+     * @param date The cut-off date.
+     * @return The number of medications expiring before the date.
+     */
+    public int countExpiringBefore(LocalDate date) {
+        long cutoff = date.toEpochDay();
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int base = offset(slot);
+            if (buffer.get(base + LIVE) != 0) {
+                long expiry = buffer.getLong(base + EXPIRY);
+                if (expiry != NO_DATE && expiry < cutoff) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Passes a view of every stored medication that expires before the given date
+     * to the action. Only matching records are turned into objects.
+     *
+     * @param date   The cut-off date.
+     * @param action The action to run for each expiring medication.
+     */
+    public void forEachExpiringBefore(LocalDate date, Consumer<Medication> action) {
+        long cutoff = date.toEpochDay();
+        for (int slot = 0; slot < slotCount; slot++) {
+            int base = offset(slot);
+            if (buffer.get(base + LIVE) != 0) {
+                long expiry = buffer.getLong(base + EXPIRY);
+                if (expiry != NO_DATE && expiry < cutoff) {
+                    action.accept(new MappedMedication(this, readId(slot), slot, generation(slot)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all changes to the mapped file and dictionary to disk.
+     */
+    public synchronized void force() throws IOException {
+        dictionaryOut.flush();
+        buffer.force();
+    }
+
+    /**
+     * Flushes all changes and closes the files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            force();
+        } finally {
+            dictionaryOut.close();
+            channel.close();
+        }
+    }
+
+    private int allocateSlot() {
+        if (!freeSlots.isEmpty()) {
+            int slot = freeSlots.pop();
+            int base = offset(slot);
+            buffer.putInt(base + GENERATION, buffer.getInt(base + GENERATION) + 1);
+            return slot;
+        }
+        if (slotCount == capacity) {
+            try {
+                map(capacity * 2);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int slot = slotCount++;
+        buffer.putInt(HEADER_SLOT_COUNT, slotCount);
+        return slot;
+    }
+
+    private synchronized int intern(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer ref = stringRefs.get(value);
+        if (ref == null) {
+            try {
+                dictionaryOut.writeUTF(value);
+                dictionaryOut.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ref = strings.size();
+            strings.put(ref, value);
+            stringRefs.put(value, ref);
+        }
+        return ref;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private boolean isLive(int slot) {
+        return buffer.get(offset(slot) + LIVE) != 0;
+    }
+
+    private int generation(int slot) {
+        return buffer.getInt(offset(slot) + GENERATION);
+    }
+
+    private String readId(int slot) {
+        int base = offset(slot);
+        byte[] id = new byte[buffer.get(base + ID_LENGTH)];
+        buffer.get(base + ID, id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private void writeDate(int slot, LocalDate date) {
+        buffer.putLong(offset(slot) + EXPIRY, date == null ? NO_DATE : date.toEpochDay());
+    }
+
+    /**
+     * A medication whose fields live in a mapped slot rather than on the heap.
+     */
+    private static final class MappedMedication extends Medication {
+        private final MappedInventoryStore store;
+        private final int slot;
+        private final int generation;
+
+        MappedMedication(MappedInventoryStore store, String id, int slot, int generation) {
+            super(id, null, 0, null, null);
+            this.store = store;
+            this.slot = slot;
+            this.generation = generation;
+        }
+
+        private int base() {
+            if (store.generation(slot) != generation) {
+                throw new IllegalStateException("Medication " + getId() + " has been removed from the inventory");
+            }
+            return offset(slot);
+        }
+
+        @Override
+        public String getName() {
+            int ref = store.buffer.getInt(base() + NAME_REF);
+            return ref == NO_STRING ? null : store.strings.get(ref);
+        }
+
+        @Override
+        public int getQuantity() {
+            return (int) INT_VIEW.getVolatile(store.buffer, base() + QUANTITY);
+        }
+
+        @Override
+        public String getDosage() {
+            int ref = store.buffer.getInt(base() + DOSAGE_REF);
+            return ref == NO_STRING ? null : store.strings.get(ref);
+        }
+
+        @Override
+        public Dosage getDosageValue() {
+            return Dosage.of(getDosage());
+        }
+
+        @Override
+        public LocalDate getExpiryDate() {
+            long epochDay = store.buffer.getLong(base() + EXPIRY);
+            return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        }
+
+        @Override
+        public void setName(String name) {
+            store.buffer.putInt(base() + NAME_REF, store.intern(name));
+        }
+
+        @Override
+        protected boolean compareAndSetQuantity(int expected, int updated) {
+            // Slots are 64-byte aligned in a page-aligned mapping, so the quantity word supports CAS.
+            return INT_VIEW.compareAndSet(store.buffer, base() + QUANTITY, expected, updated);
+        }
+
+        @Override
+        public void setExpiryDate(LocalDate expiryDate) {
+            LocalDate previous = getExpiryDate();
+            store.writeDate(slot, expiryDate);
+            expiryChanged(previous);
+        }
+
+        @Override
+        public void setDosage(String dosage) {
+            store.buffer.putInt(base() + DOSAGE_REF, store.intern(dosage));
+        }
+
+        @Override
+        public int getReorderPoint() {
+            return store.buffer.getInt(base() + REORDER_POINT);
+        }
+
+        @Override
+        public void setReorderPoint(int reorderPoint) {
+            if (reorderPoint < 0) {
+                throw new IllegalArgumentException("Reorder point must not be negative: " + reorderPoint);
+            }
+            int previous = getReorderPoint();
+            store.buffer.putInt(base() + REORDER_POINT, reorderPoint);
+            reorderPointChanged(previous);
+        }
+    }
+}
@@ -1,19 +1,37 @@
 package src.models;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDate;
 
 /**
  * Models a medication within the pharmacy system.
- * Every medication is identified by an ID, name, quantity, dosage, and expiration date.
+ * Every medication is identified by an ID, name, quantity, dosage, and expiration date,
+ * and may have a reorder point: the stock level below which it needs reordering.
+ * Dosages are canonicalized through the dosage {@link StringDictionary},
+ * and dosage text that names an amount and a unit is also kept as a parsed {@link Dosage}.
  * 
  * @author May Basalo
  */
 public class Medication {
+    private static final VarHandle QUANTITY;
+
+    static {
+        try {
+            QUANTITY = MethodHandles.lookup().findVarHandle(Medication.class, "quantity", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final String id;
-    private String name;
-    private int quantity;
-    private String dosage;  // NEW FIELD
-    private LocalDate expiryDate;
+    private volatile String name;
+    private volatile int quantity;
+    private volatile String dosage;  // NEW FIELD
+    private volatile Dosage dosageValue;
+    private volatile LocalDate expiryDate;
+    private volatile int reorderPoint;
+    private volatile MedicationObserver observer;
 
     /**
      * Constructs a new Medication.
@@ -25,11 +43,30 @@ public class Medication {
      * @param expiryDate  The expiration date of the medication.
      */
     public Medication(String id, String name, int quantity, String dosage, LocalDate expiryDate) {
+        this(id, name, quantity, dosage, expiryDate, 0);
+    }
+
+    /**
+     * Constructs a new Medication with a reorder point.
+     * 
+     * @param id           The unique identifier for the medication.
+     * @param name         The name of the medication.
+     * @param quantity     The stock quantity.
+     * @param dosage       The dosage information (e.g., "500mg").
+     * @param expiryDate   The expiration date of the medication.
+     * @param reorderPoint The stock level below which the medication needs reordering; 0 for none.
+     */
+    public Medication(String id, String name, int quantity, String dosage, LocalDate expiryDate, int reorderPoint) {
+        if (reorderPoint < 0) {
+            throw new IllegalArgumentException("Reorder point must not be negative: " + reorderPoint);
+        }
         this.id = id;
         this.name = name;
         this.quantity = quantity;
-        this.dosage = dosage;
+        this.dosage = StringDictionary.dosages().canonical(dosage);
+        this.dosageValue = Dosage.of(dosage);
         this.expiryDate = expiryDate;
+        this.reorderPoint = reorderPoint;
     }
 
     /** Retrieves the medication's ID.. */
@@ -44,14 +81,98 @@ public class Medication {
     /** Retrieves the medication's dosage. */
     public String getDosage() { return dosage; }
 
+    /** Retrieves the medication's dosage as an amount and unit, or null if the dosage text does not parse. */
+    public Dosage getDosageValue() { return dosageValue; }
+
     /** Retrieves the medication's expiration date. */
     public LocalDate getExpiryDate() { return expiryDate; }
 
+    /** Retrieves the stock level below which the medication needs reordering; 0 if none is set. */
+    public int getReorderPoint() { return reorderPoint; }
+
+    /**
+     * Tells whether the medication needs reordering, that is whether its
+     * stock has fallen below its reorder point.
+     * 
+     * @return True if the quantity is below the reorder point.
+     */
+    public boolean isLowStock() {
+        return getQuantity() < getReorderPoint();
+    }
+
     /** Sets a new name for the medication. */
     public void setName(String name) { this.name = name; }
 
     /** Sets a new stock quantity for the medication. */
-    public void setQuantity(int quantity) { this.quantity = quantity; }
+    public void setQuantity(int quantity) {
+        while (true) {
+            int current = getQuantity();
+            if (compareAndSetQuantity(current, quantity)) {
+                quantityChanged(current, quantity);
+                return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Atomically takes units out of stock. The stock never goes negative: if
+     * fewer units are available than requested, nothing is taken.
+     * 
+     * @param units The number of units to dispense.
+     * @return True if the units were taken, false if stock was insufficient.
+     */
+    public boolean dispense(int units) {
+        if (units < 0) {
+            throw new IllegalArgumentException("Units must not be negative: " + units);
+        }
+        while (true) {
+            int current = getQuantity();
+            if (current < units) {
+                return false;
+            }
+            if (compareAndSetQuantity(current, current - units)) {
+                quantityChanged(current, current - units);
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Atomically adds units to stock. Stock is only ever taken out by
+     * {@link #dispense(int)}, so negative units are refused.
+     * 
+     * @param units The number of units to add.
+     * @return The new stock quantity.
+     */
+    public int restock(int units) {
+        if (units < 0) {
+            throw new IllegalArgumentException("Units must not be negative: " + units);
+        }
+        while (true) {
+            int current = getQuantity();
+            int updated = Math.addExact(current, units);
+            if (compareAndSetQuantity(current, updated)) {
+                quantityChanged(current, updated);
+                return updated;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Sets the stock quantity only if it still holds the expected value.
+     * Subclasses that store the quantity elsewhere override this together with
+     * {@link #getQuantity()}; every change of quantity goes through it.
+     * 
+     * @param expected The quantity the caller last read.
+     * @param updated  The new quantity.
+     * @return True if the quantity was updated.
+     */
+    protected boolean compareAndSetQuantity(int expected, int updated) {
+        return QUANTITY.compareAndSet(this, expected, updated);
+    }
 
     /**
      * Sets a new expiry date for the medication.
@@ -59,22 +180,87 @@ public class Medication {
      * @param expiryDate The new expiration date.
      */
     public void setExpiryDate(LocalDate expiryDate) {
+        LocalDate previous = this.expiryDate;
         this.expiryDate = expiryDate;
+        expiryChanged(previous);
+    }
+
+    /**
+     * Sets the stock level below which the medication needs reordering.
+     * 
+     * @param reorderPoint The new reorder point; 0 means the medication is never low on stock.
+     */
+    public void setReorderPoint(int reorderPoint) {
+        if (reorderPoint < 0) {
+            throw new IllegalArgumentException("Reorder point must not be negative: " + reorderPoint);
+        }
+        int previous = this.reorderPoint;
+        this.reorderPoint = reorderPoint;
+        reorderPointChanged(previous);
+    }
+
+    /**
+     * Sets the observer told about field changes, or clears it when null.
+     */
+    void setObserver(MedicationObserver observer) {
+        this.observer = observer;
+    }
+
+    /**
+     * Tells the observer, if any, that the expiry date has changed.
+     * 
+     * @param previous The expiry date before the change.
+     */
+    void expiryChanged(LocalDate previous) {
+        if (observer != null) {
+            observer.expiryChanged(this, previous);
+        }
+    }
+
+    /**
+     * Tells the observer, if any, that the stock quantity has changed.
+     * 
+     * @param previous The quantity before the change.
+     * @param updated  The quantity after the change.
+     */
+    private void quantityChanged(int previous, int updated) {
+        MedicationObserver observer = this.observer;
+        if (observer != null && previous != updated) {
+            observer.quantityChanged(this, previous, updated);
+        }
+    }
+
+    /**
+     * Tells the observer, if any, that the reorder point has changed.
+     * 
+     * @param previous The reorder point before the change.
+     */
+    void reorderPointChanged(int previous) {
+        MedicationObserver observer = this.observer;
+        if (observer != null) {
+            observer.reorderPointChanged(this, previous);
+        }
     }
 
 
     /** Sets a new dosage for the medication. */
-    public void setDosage(String dosage) { this.dosage = dosage; }
+    public void setDosage(String dosage) {
+        this.dosage = StringDictionary.dosages().canonical(dosage);
+        this.dosageValue = Dosage.of(dosage);
+    }
+
+    /** Sets a new dosage for the medication from a parsed value. */
+    public void setDosageValue(Dosage dosage) { setDosage(dosage == null ? null : dosage.toString()); }
 
     /** Returns a string representation of the medication. */
     @Override
     public String toString() {
         return "Medication{" +
             "ID='" + id + '\'' +
-            ", Name='" + name + '\'' +
-            ", Quantity=" + quantity +
-            ", Dosage='" + dosage + '\'' +  // UPDATED
-            ", Expiry Date=" + expiryDate +
+            ", Name='" + getName() + '\'' +
+            ", Quantity=" + getQuantity() +
+            ", Dosage='" + getDosage() + '\'' +  // UPDATED
+            ", Expiry Date=" + getExpiryDate() +
             '}';
     }
 }
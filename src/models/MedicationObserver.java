@@ -0,0 +1,37 @@
+package src.models;
+
+import java.time.LocalDate;
+
+/**
+ * Receives changes made to a medication's fields, so indexes built on those
+ * fields can stay current even when a setter is called directly.
+ *
+ * @author May Basalo
+ */
+interface MedicationObserver {
+
+    /**
+     * Called after a medication's expiry date has changed.
+     *
+     * @param medication The medication that changed.
+     * @param previous   The expiry date before the change.
+     */
+    void expiryChanged(Medication medication, LocalDate previous);
+
+    /**
+     * Called after a medication's stock quantity has changed.
+     *
+     * @param medication The medication that changed.
+     * @param previous   The quantity before the change.
+     * @param updated    The quantity after the change.
+     */
+    void quantityChanged(Medication medication, int previous, int updated);
+
+    /**
+     * Called after a medication's reorder point has changed.
+     *
+     * @param medication The medication that changed.
+     * @param previous   The reorder point before the change.
+     */
+    void reorderPointChanged(Medication medication, int previous);
+}
@@ -0,0 +1,265 @@
+package src.models;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Calls a {@link MedicationTrackingServer} over HTTP.
+ *
+ * Every call is asynchronous and returns as soon as the request is sent, so one
+ * client thread can keep thousands of requests in flight. Records come back as
+ * JSON lines in the encoding of a JSONL report. A call completes with false or
+ * null when the server answers that the record was not found or the change was
+ * refused, and completes exceptionally on any other error.
+ *
+ * @author May Basalo
+ */
+public class MedicationTrackingClient {
+    private static final String FORM = "application/x-www-form-urlencoded";
+
+    private final URI base;
+    private final HttpClient http;
+
+    /**
+     * Creates a client for the server at the given address.
+     *
+     * @param base The server's address, such as http://127.0.0.1:8080/.
+     */
+    public MedicationTrackingClient(URI base) {
+        this(base, HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(10)).build());
+    }
+
+    /**
+     * Creates a client that sends its requests through the given HTTP client.
+     *
+     * @param base The server's address, such as http://127.0.0.1:8080/.
+     * @param http The HTTP client to send requests with.
+     */
+    public MedicationTrackingClient(URI base, HttpClient http) {
+        this.base = base.getPath().endsWith("/") ? base : URI.create(base + "/");
+        this.http = http;
+    }
+
+    /**
+     * Looks up a medication by ID.
+     *
+     * @param medicationId The ID of the medication.
+     * @return The medication as a JSON line, or null if it was not found.
+     */
+    public CompletableFuture<String> findMedicationById(String medicationId) {
+        return send(get("medications/" + encode(medicationId))).thenApply(response -> found(response) ? lines(response).get(0) : null);
+    }
+
+    /**
+     * Looks up the medications with the given name.
+     *
+     * @param name The name to match.
+     * @return The matching medications, one JSON line each.
+     */
+    public CompletableFuture<List<String>> findMedicationsByName(String name) {
+        return send(get("medications?name=" + encode(name))).thenApply(MedicationTrackingClient::lines);
+    }
+
+    /**
+     * Adds a medication.
+     *
+     * @param medication The medication to add.
+     * @return True if it was added, false if its ID already exists.
+     */
+    public CompletableFuture<Boolean> addMedication(Medication medication) {
+        return send(form("POST", "medications", "id", medication.getId(), "name", medication.getName(),
+                         "quantity", medication.getQuantity(), "dosage", medication.getDosage(),
+                         "expiryDate", medication.getExpiryDate(), "reorderPoint", medication.getReorderPoint()))
+                .thenApply(MedicationTrackingClient::found);
+    }
+
+    /**
+     * Edits a medication's details.
+     *
+     * @param medicationId The ID of the medication to edit.
+     * @param newName      The new name.
+     * @param newQuantity  The new quantity.
+     * @param newDosage    The new dosage.
+     * @return True if it was edited, false if it was not found.
+     */
+    public CompletableFuture<Boolean> editMedication(String medicationId, String newName, int newQuantity, String newDosage) {
+        return send(form("PUT", "medications/" + encode(medicationId), "name", newName, "quantity", newQuantity, "dosage", newDosage))
+                .thenApply(MedicationTrackingClient::found);
+    }
+
+    /**
+     * Deletes a medication together with its prescriptions.
+     *
+     * @param medicationId The ID of the medication to delete.
+     * @return True if it was deleted, false if it was not found.
+     */
+    public CompletableFuture<Boolean> deleteMedication(String medicationId) {
+        return send(HttpRequest.newBuilder(base.resolve("medications/" + encode(medicationId))).DELETE().build())
+                .thenApply(MedicationTrackingClient::found);
+    }
+
+    /**
+     * Restocks a medication.
+     *
+     * @param medicationId The ID of the medication to restock.
+     * @param quantity     The number of units to add.
+     * @return True if it was restocked, false if it was not found.
+     */
+    public CompletableFuture<Boolean> restockMedication(String medicationId, int quantity) {
+        return send(form("POST", "medications/" + encode(medicationId) + "/restock", "quantity", quantity))
+                .thenApply(MedicationTrackingClient::found);
+    }
+
+    /**
+     * Sets the stock level below which a medication needs reordering.
+     *
+     * @param medicationId The ID of the medication.
+     * @param reorderPoint The new reorder point.
+     * @return True if it was set, false if the medication was not found.
+     */
+    public CompletableFuture<Boolean> setReorderPoint(String medicationId, int reorderPoint) {
+        return send(form("PUT", "medications/" + encode(medicationId) + "/reorder-point", "reorderPoint", reorderPoint))
+                .thenApply(MedicationTrackingClient::found);
+    }
+
+    /**
+     * Looks up the medications below their reorder point.
+     *
+     * @return The matching medications, one JSON line each, the furthest below their reorder point first.
+     */
+    public CompletableFuture<List<String>> findLowStockMedications() {
+        return send(get("medications?lowStock")).thenApply(MedicationTrackingClient::lines);
+    }
+
+    /**
+     * Records that two medications interact.
+     *
+     * @param medicationId      The ID of one medication.
+     * @param otherMedicationId The ID of the other.
+     * @return True if it was recorded, false if it already was.
+     */
+    public CompletableFuture<Boolean> addInteraction(String medicationId, String otherMedicationId) {
+        return send(form("POST", "medications/" + encode(medicationId) + "/interactions", "otherMedicationId", otherMedicationId))
+                .thenApply(MedicationTrackingClient::found);
+    }
+
+    /**
+     * Forgets that two medications interact.
+     *
+     * @param medicationId      The ID of one medication.
+     * @param otherMedicationId The ID of the other.
+     * @return True if it was removed, false if it was not recorded.
+     */
+    public CompletableFuture<Boolean> removeInteraction(String medicationId, String otherMedicationId) {
+        return send(HttpRequest.newBuilder(base.resolve("medications/" + encode(medicationId) + "/interactions/"
+                                                        + encode(otherMedicationId))).DELETE().build())
+                .thenApply(MedicationTrackingClient::found);
+    }
+
+    /**
+     * Looks up the medications a patient is prescribed that interact with another.
+     *
+     * @param patientId    The ID of the patient.
+     * @param medicationId The ID of the medication.
+     * @return The interacting medications, one JSON line each.
+     */
+    public CompletableFuture<List<String>> findInteractingMedications(String patientId, String medicationId) {
+        return send(get("medications/" + encode(medicationId) + "/interactions?patientId=" + encode(patientId)))
+                .thenApply(MedicationTrackingClient::lines);
+    }
+
+    /**
+     * Accepts a prescription.
+     *
+     * @param request The prescription to accept.
+     * @return True if it was accepted, false if its ID already exists, a record it refers to was not found,
+     *         or its medication interacts with one the patient is prescribed.
+     */
+    public CompletableFuture<Boolean> acceptPrescription(PrescriptionRequest request) {
+        return send(form("POST", "prescriptions", "id", request.getPrescriptionId(), "doctorId", request.getDoctorId(),
+                         "patientId", request.getPatientId(), "medicationId", request.getMedicationId(),
+                         "expiryDate", request.getPrescriptionExpiry()))
+                .thenApply(MedicationTrackingClient::found);
+    }
+
+    /**
+     * Retrieves a system report.
+     *
+     * @param format   The encoding of the report.
+     * @param sections The sections to include.
+     * @return The report.
+     */
+    public CompletableFuture<String> report(ReportFormat format, Set<ReportSection> sections) {
+        StringBuilder names = new StringBuilder();
+        for (ReportSection section : sections) {
+            names.append(names.length() == 0 ? "" : ",").append(section.name());
+        }
+        return send(get("report?format=" + format.name() + "&sections=" + names)).thenApply(response -> found(response) ? response.body() : null);
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(base.resolve(path)).GET().build();
+    }
+
+    /**
+     * Builds a request with a form-encoded body of alternating names and
+     * values; null values are left out.
+     */
+    private HttpRequest form(String method, String path, Object... fields) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            if (fields[i + 1] == null) {
+                continue;
+            }
+            if (body.length() > 0) {
+                body.append('&');
+            }
+            body.append(fields[i]).append('=').append(encode(String.valueOf(fields[i + 1])));
+        }
+        return HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", FORM)
+                .method(method, HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest request) {
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tells whether the server applied or found what was asked for. Not found
+     * and refused are ordinary answers; anything else is an error.
+     */
+    private static boolean found(HttpResponse<String> response) {
+        int status = response.statusCode();
+        if (status >= 200 && status < 300) {
+            return true;
+        }
+        if (status == 404 || status == 409) {
+            return false;
+        }
+        throw new CompletionException(new IOException("HTTP " + status + " from " + response.request().method() + " "
+                                                      + response.request().uri() + ": " + response.body().trim()));
+    }
+
+    private static List<String> lines(HttpResponse<String> response) {
+        String body = response.body();
+        return !found(response) || body.isEmpty() ? List.of() : Arrays.asList(body.split("\n"));
+    }
+
+    private static String encode(String value) {
+        // Spaces as %20 rather than +, which is only a space in query strings, not in paths.
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
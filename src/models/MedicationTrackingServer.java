@@ -0,0 +1,621 @@
+package src.models;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves a MedicationTrackingSystem over HTTP with the JDK's built-in server,
+ * so terminals can share one system instead of each embedding their own.
+ *
+ * Resources:
+ * <pre>
+ * GET    /medications?name=N | ?prefix=P       Medications with that name, or whose name starts with P
+ * GET    /medications?lowStock                 Medications below their reorder point, furthest below first
+ * GET    /medications/{id}
+ * POST   /medications                          id, name, quantity [, dosage] [, expiryDate] [, reorderPoint]
+ * PUT    /medications/{id}                     name, quantity, dosage [, expiryDate]
+ * DELETE /medications/{id} [?policy=RESTRICT]
+ * POST   /medications/{id}/restock             quantity
+ * PUT    /medications/{id}/reorder-point       reorderPoint
+ * GET    /medications/{id}/interactions?patientId=P  Medications P is prescribed that interact with this one
+ * POST   /medications/{id}/interactions        otherMedicationId
+ * DELETE /medications/{id}/interactions/{otherId}
+ * GET    /doctors?name=N | ?prefix=P, GET /doctors/{id}, GET /doctors/{id}/prescriptions
+ * POST   /doctors                              id, name, age, phoneNumber, specialty
+ * PUT    /doctors/{id}                         name, age, phoneNumber, specialty
+ * DELETE /doctors/{id} [?policy=RESTRICT]
+ * GET    /patients?name=N | ?prefix=P, GET /patients/{id}, GET /patients/{id}/prescriptions
+ * GET    /patients/{id}/prescriptions?limit=L [&amp;from=T] [&amp;to=T] [&amp;cursor=C]
+ *                                              A page of history, newest first; the Next-Cursor header continues it
+ * GET    /patients/{id}/prescriptions?activeOn=D  Prescriptions in force on date D
+ * POST   /patients                             id, name, age, phoneNumber
+ * PUT    /patients/{id}                        name, age, phoneNumber
+ * DELETE /patients/{id} [?policy=RESTRICT]
+ * GET    /prescriptions/{id}
+ * POST   /prescriptions                        id, doctorId, patientId, medicationId, expiryDate [, quantity]
+ * GET    /report [?format=TEXT|CSV|JSONL] [&amp;sections=MEDICATIONS,...] [&amp;offset=0] [&amp;limit=100]
+ * </pre>
+ * Parameters are read from the query string and from a form-encoded request
+ * body. Records are returned as JSON Lines, one record per line, in the same
+ * encoding as a JSONL report. Changes answer 201 or 204 when applied, 404 when
+ * a record is not found, 409 when refused, and 400 when a parameter is missing
+ * or malformed.
+ *
+ * The server accepts and reads connections on a single selector thread, so
+ * idle keep-alive connections cost no thread at all. Each request runs on its
+ * own virtual thread when the runtime has them (Java 21 and later), and on a
+ * fixed pool of platform threads otherwise. The system must be safe for
+ * concurrent use, such as a {@link ConcurrentMedicationTrackingSystem}.
+ *
+ * The built-in HTTP server writes the headers and the body of a response
+ * separately, so with Nagle's algorithm on, every small response waits out the
+ * client's delayed ACK. {@link #main(String[])} turns it off through the
+ * JVM-wide {@code sun.net.httpserver.nodelay} property; an application that
+ * embeds the server should start the JVM with
+ * {@code -Dsun.net.httpserver.nodelay=true} for the same latency.
+ *
+ * @author May Basalo
+ */
+public class MedicationTrackingServer implements Closeable {
+    private static final int BACKLOG = 4096;
+    private static final int FALLBACK_THREADS = Math.max(16, Runtime.getRuntime().availableProcessors() * 8);
+    private static final String JSON_LINES = "application/x-ndjson; charset=utf-8";
+    private static final String PLAIN_TEXT = "text/plain; charset=utf-8";
+
+    private final MedicationTrackingSystem system;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    /**
+     * Creates a server; it accepts requests once started.
+     *
+     * @param system  The system to serve, which must be safe for concurrent use.
+     * @param address The address to listen on; port 0 picks a free port.
+     */
+    public MedicationTrackingServer(MedicationTrackingSystem system, InetSocketAddress address) throws IOException {
+        this.system = system;
+        this.server = HttpServer.create(address, BACKLOG);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformThreadExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /** Retrieves the address the server listens on, including the port it picked. */
+    public InetSocketAddress getAddress() { return server.getAddress(); }
+
+    /** Retrieves whether requests run on virtual threads. */
+    public boolean isUsingVirtualThreads() { return virtualThreads; }
+
+    /**
+     * Stops accepting requests, waits up to a second for those in progress,
+     * and stops the request threads.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task, or returns
+     * null when the runtime has no virtual threads. The factory is looked up
+     * reflectively so the server still compiles and runs on Java 17.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(FALLBACK_THREADS, task -> {
+            Thread thread = new Thread(task, "medication-server-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = segments(exchange.getRequestURI().getRawPath());
+            Parameters params = Parameters.of(exchange);
+            String method = exchange.getRequestMethod();
+            switch (path.length == 0 ? "" : path[0]) {
+                case "medications":
+                    medications(exchange, method, path, params);
+                    break;
+                case "doctors":
+                    doctors(exchange, method, path, params);
+                    break;
+                case "patients":
+                    patients(exchange, method, path, params);
+                    break;
+                case "prescriptions":
+                    prescriptions(exchange, method, path, params);
+                    break;
+                case "report":
+                    report(exchange, method, path, params);
+                    break;
+                default:
+                    respond(exchange, 404, "No such resource: " + exchange.getRequestURI().getPath());
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            fail(exchange, 400, e.getMessage(), e);
+        } catch (RuntimeException e) {
+            fail(exchange, 500, e.toString(), e);
+        }
+        exchange.close();
+    }
+
+    private void medications(HttpExchange exchange, String method, String[] path, Parameters params) throws IOException {
+        if (path.length == 1) {
+            if (method.equals("GET") && params.has("lowStock")) {
+                rows(exchange, ReportSection.MEDICATIONS, system.getLowStockMedications());
+            } else if (method.equals("GET")) {
+                rows(exchange, ReportSection.MEDICATIONS, params.has("prefix")
+                        ? system.findMedicationsByNamePrefix(params.required("prefix"))
+                        : system.findMedicationsByName(params.required("name")));
+            } else if (method.equals("POST")) {
+                Medication medication = new Medication(params.required("id"), params.required("name"), params.integer("quantity"),
+                                                       params.optional("dosage"), params.optionalDate("expiryDate"),
+                                                       params.has("reorderPoint") ? params.integer("reorderPoint") : 0);
+                applied(exchange, system.addMedications(List.of(medication)), 201);
+            } else {
+                notAllowed(exchange);
+            }
+            return;
+        }
+        String id = path[1];
+        if (path.length == 3 && path[2].equals("restock") && method.equals("POST")) {
+            int quantity = params.integer("quantity");
+            changed(exchange, system.restockMedication(id, quantity), "Medication", id);
+            return;
+        }
+        if (path.length == 3 && path[2].equals("reorder-point") && method.equals("PUT")) {
+            int reorderPoint = params.integer("reorderPoint");
+            if (reorderPoint < 0) {
+                throw new IllegalArgumentException("Reorder point must not be negative: " + reorderPoint);
+            }
+            changed(exchange, system.setReorderPoint(id, reorderPoint), "Medication", id);
+            return;
+        }
+        if (path.length >= 3 && path[2].equals("interactions")) {
+            interactions(exchange, method, path, params);
+            return;
+        }
+        if (path.length != 2) {
+            respond(exchange, 404, "No such resource: " + exchange.getRequestURI().getPath());
+            return;
+        }
+        switch (method) {
+            case "GET":
+                record(exchange, ReportSection.MEDICATIONS, system.findMedicationById(id));
+                break;
+            case "PUT": {
+                String name = params.required("name");
+                int quantity = params.integer("quantity");
+                String dosage = params.optional("dosage");
+                changed(exchange, params.has("expiryDate")
+                        ? system.editMedication(id, name, quantity, dosage, params.date("expiryDate"))
+                        : system.editMedication(id, name, quantity, dosage), "Medication", id);
+                break;
+            }
+            case "DELETE":
+                deleted(exchange, system.deleteMedications(List.of(id), params.policy()), "Medication", id);
+                break;
+            default:
+                notAllowed(exchange);
+        }
+    }
+
+    private void doctors(HttpExchange exchange, String method, String[] path, Parameters params) throws IOException {
+        if (path.length == 1) {
+            if (method.equals("GET")) {
+                rows(exchange, ReportSection.DOCTORS, params.has("prefix")
+                        ? system.findDoctorsByNamePrefix(params.required("prefix"))
+                        : system.findDoctorsByName(params.required("name")));
+            } else if (method.equals("POST")) {
+                Doctor doctor = new Doctor(params.required("id"), params.required("name"), params.integer("age"),
+                                           params.optional("phoneNumber"), params.optional("specialty"));
+                applied(exchange, system.addDoctors(List.of(doctor)), 201);
+            } else {
+                notAllowed(exchange);
+            }
+            return;
+        }
+        String id = path[1];
+        if (path.length == 3 && path[2].equals("prescriptions") && method.equals("GET")) {
+            if (system.findDoctorById(id) == null) {
+                respond(exchange, 404, "Doctor not found: " + id);
+            } else {
+                rows(exchange, ReportSection.PRESCRIPTIONS, system.getPrescriptionsByDoctor(id));
+            }
+            return;
+        }
+        if (path.length != 2) {
+            respond(exchange, 404, "No such resource: " + exchange.getRequestURI().getPath());
+            return;
+        }
+        switch (method) {
+            case "GET":
+                record(exchange, ReportSection.DOCTORS, system.findDoctorById(id));
+                break;
+            case "PUT": {
+                String name = params.required("name");
+                int age = params.integer("age");
+                changed(exchange, system.editDoctor(id, name, age, params.optional("phoneNumber"), params.optional("specialty")),
+                        "Doctor", id);
+                break;
+            }
+            case "DELETE":
+                deleted(exchange, system.deleteDoctors(List.of(id), params.policy()), "Doctor", id);
+                break;
+            default:
+                notAllowed(exchange);
+        }
+    }
+
+    private void patients(HttpExchange exchange, String method, String[] path, Parameters params) throws IOException {
+        if (path.length == 1) {
+            if (method.equals("GET")) {
+                rows(exchange, ReportSection.PATIENTS, params.has("prefix")
+                        ? system.findPatientsByNamePrefix(params.required("prefix"))
+                        : system.findPatientsByName(params.required("name")));
+            } else if (method.equals("POST")) {
+                Patient patient = new Patient(params.required("id"), params.required("name"), params.integer("age"),
+                                              params.optional("phoneNumber"));
+                applied(exchange, system.addPatients(List.of(patient)), 201);
+            } else {
+                notAllowed(exchange);
+            }
+            return;
+        }
+        String id = path[1];
+        if (path.length == 3 && path[2].equals("prescriptions") && method.equals("GET")) {
+            if (system.findPatientById(id) == null) {
+                respond(exchange, 404, "Patient not found: " + id);
+            } else if (params.has("activeOn")) {
+                rows(exchange, ReportSection.PRESCRIPTIONS, system.getPrescriptionsActiveOn(id, params.date("activeOn")));
+            } else if (params.has("limit")) {
+                PrescriptionHistoryPage page = system.getPrescriptionHistory(id, params.optionalInstant("from"), params.optionalInstant("to"),
+                                                                             params.optional("cursor"), params.integer("limit"));
+                if (page.hasNext()) {
+                    exchange.getResponseHeaders().set("Next-Cursor", page.getNextCursor());
+                }
+                rows(exchange, ReportSection.PRESCRIPTIONS, page.getPrescriptions());
+            } else {
+                rows(exchange, ReportSection.PRESCRIPTIONS, system.getPrescriptionsByPatient(id));
+            }
+            return;
+        }
+        if (path.length != 2) {
+            respond(exchange, 404, "No such resource: " + exchange.getRequestURI().getPath());
+            return;
+        }
+        switch (method) {
+            case "GET":
+                record(exchange, ReportSection.PATIENTS, system.findPatientById(id));
+                break;
+            case "PUT": {
+                String name = params.required("name");
+                int age = params.integer("age");
+                changed(exchange, system.editPatient(id, name, age, params.optional("phoneNumber")), "Patient", id);
+                break;
+            }
+            case "DELETE":
+                deleted(exchange, system.deletePatients(List.of(id), params.policy()), "Patient", id);
+                break;
+            default:
+                notAllowed(exchange);
+        }
+    }
+
+    private void interactions(HttpExchange exchange, String method, String[] path, Parameters params) throws IOException {
+        String id = path[1];
+        if (path.length == 3 && method.equals("GET")) {
+            rows(exchange, ReportSection.MEDICATIONS, system.findInteractingMedications(params.required("patientId"), id));
+        } else if (path.length == 3 && method.equals("POST")) {
+            String other = params.required("otherMedicationId");
+            boolean added = system.addInteraction(id, other);
+            respond(exchange, added ? 201 : 409, added ? null : "Interaction already recorded: " + id + ", " + other);
+        } else if (path.length == 4 && method.equals("DELETE")) {
+            boolean removed = system.removeInteraction(id, path[3]);
+            respond(exchange, removed ? 204 : 404, removed ? null : "Interaction not found: " + id + ", " + path[3]);
+        } else if (path.length <= 4) {
+            notAllowed(exchange);
+        } else {
+            respond(exchange, 404, "No such resource: " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private void prescriptions(HttpExchange exchange, String method, String[] path, Parameters params) throws IOException {
+        if (path.length == 2 && method.equals("GET")) {
+            record(exchange, ReportSection.PRESCRIPTIONS, system.findPrescriptionById(path[1]));
+        } else if (path.length == 1 && method.equals("POST")) {
+            PrescriptionRequest request = new PrescriptionRequest(params.required("id"), params.required("doctorId"),
+                                                                  params.required("patientId"), params.required("medicationId"),
+                                                                  params.date("expiryDate"));
+            if (params.has("quantity")) {
+                // A reservation only reports whether it was accepted, not why it was refused.
+                boolean accepted = system.acceptPrescription(request.getPrescriptionId(), request.getDoctorId(),
+                                                             request.getPatientId(), request.getMedicationId(),
+                                                             request.getPrescriptionExpiry(), params.integer("quantity"));
+                respond(exchange, accepted ? 201 : 409, accepted ? null : "Prescription refused: " + request.getPrescriptionId());
+            } else {
+                applied(exchange, system.acceptPrescriptions(List.of(request)), 201);
+            }
+        } else if (path.length <= 2) {
+            notAllowed(exchange);
+        } else {
+            respond(exchange, 404, "No such resource: " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private void report(HttpExchange exchange, String method, String[] path, Parameters params) throws IOException {
+        if (path.length != 1 || !method.equals("GET")) {
+            notAllowed(exchange);
+            return;
+        }
+        ReportFormat format = params.has("format")
+                ? ReportFormat.valueOf(params.required("format").toUpperCase(Locale.ROOT))
+                : ReportFormat.JSONL;
+        Set<ReportSection> sections = EnumSet.allOf(ReportSection.class);
+        if (params.has("sections")) {
+            sections.clear();
+            for (String section : params.required("sections").split(",")) {
+                sections.add(ReportSection.valueOf(section.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        long offset = params.has("offset") ? Long.parseLong(params.required("offset")) : 0;
+        long limit = params.has("limit") ? Long.parseLong(params.required("limit")) : Long.MAX_VALUE;
+
+        ReportWriter writer = new ReportWriter(exchange.getResponseBody(), format);
+        writer.setSections(sections);
+        writer.setPage(offset, limit);
+        String type = format == ReportFormat.CSV ? "text/csv; charset=utf-8"
+                : format == ReportFormat.JSONL ? JSON_LINES : PLAIN_TEXT;
+        exchange.getResponseHeaders().set("Content-Type", type);
+        // The report is streamed, so its length is unknown and it is sent chunked.
+        exchange.sendResponseHeaders(200, 0);
+        writer.write(system);
+    }
+
+    private static void record(HttpExchange exchange, ReportSection section, Object record) throws IOException {
+        if (record == null) {
+            respond(exchange, 404, section.getTitle().substring(0, section.getTitle().length() - 1) + " not found");
+        } else {
+            rows(exchange, section, List.of(record));
+        }
+    }
+
+    private static void rows(HttpExchange exchange, ReportSection section, Iterable<?> rows) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        new ReportWriter(body, ReportFormat.JSONL).write(section, rows);
+        exchange.getResponseHeaders().set("Content-Type", JSON_LINES);
+        send(exchange, 200, body.toByteArray());
+    }
+
+    private static void applied(HttpExchange exchange, BatchResult result, int status) throws IOException {
+        if (result.getAppliedCount() > 0) {
+            respond(exchange, status, null);
+            return;
+        }
+        BatchResult.Failure failure = result.getFailures().get(0);
+        boolean missing = failure.getReason().contains("not found");
+        respond(exchange, missing ? 404 : 409, failure.toString());
+    }
+
+    private static void changed(HttpExchange exchange, boolean found, String kind, String id) throws IOException {
+        respond(exchange, found ? 204 : 404, found ? null : kind + " not found: " + id);
+    }
+
+    private static void deleted(HttpExchange exchange, BatchResult result, String kind, String id) throws IOException {
+        if (result.getAppliedCount() > 0) {
+            respond(exchange, 204, null);
+            return;
+        }
+        // The delete's own result tells a missing record from one the delete policy protects.
+        String reason = result.getFailures().get(0).getReason();
+        boolean missing = "Not found".equals(reason);
+        respond(exchange, missing ? 404 : 409, missing ? kind + " not found: " + id : kind + " not deleted: " + id + ". " + reason);
+    }
+
+    private static void notAllowed(HttpExchange exchange) throws IOException {
+        respond(exchange, 405, "Method not allowed: " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath());
+    }
+
+    /**
+     * Answers a request that failed with an error status. Once a status has been
+     * sent, as for a report that fails part way through streaming, the exception
+     * is rethrown instead and the exchange left open, so the server drops the
+     * connection and the client sees a truncated response rather than a complete one.
+     */
+    private static void fail(HttpExchange exchange, int status, String message, RuntimeException e) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            throw e;
+        }
+        respond(exchange, status, message);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        if (message == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", PLAIN_TEXT);
+        send(exchange, status, (message + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String[] segments(String rawPath) {
+        String trimmed = rawPath.replaceAll("^/+|/+$", "");
+        if (trimmed.isEmpty()) {
+            return new String[0];
+        }
+        String[] segments = trimmed.split("/+");
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = URLDecoder.decode(segments[i].replace("+", "%2B"), StandardCharsets.UTF_8);
+        }
+        return segments;
+    }
+
+    /**
+     * The parameters of a request, from its query string and form-encoded body.
+     */
+    private static class Parameters {
+        private final Map<String, String> values = new HashMap<>();
+
+        static Parameters of(HttpExchange exchange) throws IOException {
+            Parameters params = new Parameters();
+            params.parse(exchange.getRequestURI().getRawQuery());
+            String type = exchange.getRequestHeaders().getFirst("Content-Type");
+            // The body is always read to the end: the built-in server closes the connection after an
+            // empty response if the request body has not been consumed.
+            try (InputStream in = exchange.getRequestBody()) {
+                byte[] body = in.readAllBytes();
+                if (type != null && type.startsWith("application/x-www-form-urlencoded")) {
+                    params.parse(new String(body, StandardCharsets.UTF_8));
+                }
+            }
+            return params;
+        }
+
+        private void parse(String encoded) {
+            if (encoded == null || encoded.isEmpty()) {
+                return;
+            }
+            for (String pair : encoded.split("&")) {
+                int equals = pair.indexOf('=');
+                String name = equals < 0 ? pair : pair.substring(0, equals);
+                String value = equals < 0 ? "" : pair.substring(equals + 1);
+                values.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+
+        boolean has(String name) {
+            return values.containsKey(name);
+        }
+
+        String optional(String name) {
+            return values.get(name);
+        }
+
+        String required(String name) {
+            String value = values.get(name);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing parameter: " + name);
+            }
+            return value;
+        }
+
+        int integer(String name) {
+            return Integer.parseInt(required(name));
+        }
+
+        LocalDate date(String name) {
+            return LocalDate.parse(required(name));
+        }
+
+        LocalDate optionalDate(String name) {
+            return has(name) ? date(name) : null;
+        }
+
+        Instant optionalInstant(String name) {
+            return has(name) ? Instant.parse(required(name)) : null;
+        }
+
+        DeletePolicy policy() {
+            return has("policy") ? DeletePolicy.valueOf(required("policy").toUpperCase(Locale.ROOT)) : DeletePolicy.CASCADE;
+        }
+    }
+
+    /**
+     * Serves an empty system until the process is stopped.
+     *
+     * Usage: java src.models.MedicationTrackingServer [--host 127.0.0.1] [--port 8080] [--quiet]
+     */
+    public static void main(String[] args) throws IOException {
+        // Read once, when the first server is created; see the class comment.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        String host = "127.0.0.1";
+        int port = 8080;
+        boolean quiet = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host": host = args[++i]; break;
+                case "--port": port = Integer.parseInt(args[++i]); break;
+                case "--quiet": quiet = true; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ConcurrentMedicationTrackingSystem system = new ConcurrentMedicationTrackingSystem();
+        AsyncEventSink events = quiet ? null : new AsyncEventSink(1 << 16);
+        system.setEventListener(events);
+        MedicationTrackingServer server = new MedicationTrackingServer(system, new InetSocketAddress(InetAddress.getByName(host), port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (events != null) {
+                try {
+                    events.close();
+                } catch (IOException e) {
+                    System.err.println("Could not flush events: " + e.getMessage());
+                }
+            }
+        }));
+        server.start();
+        System.out.println("Serving on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                           + (server.isUsingVirtualThreads() ? " (virtual threads)" : " (" + FALLBACK_THREADS + " request threads)"));
+    }
+}
@@ -1,9 +1,28 @@
 package src.models;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 
 /**
@@ -23,344 +42,1783 @@ import java.util.List;
  */
 public class MedicationTrackingSystem {
 
-    private final List<Medication> medications;
-    private final List<Doctor> doctors;
-    private final List<Patient> patients;
-    private final List<Prescription> prescriptions;
+    private final VersionClock versions;
+    private final IdRegistry<Medication> medications;
+    private final IdRegistry<Doctor> doctors;
+    private final IdRegistry<Patient> patients;
+    private final IdRegistry<Prescription> prescriptions;
+    private final NameIndex<Medication> medicationNames;
+    private final NameIndex<Doctor> doctorNames;
+    private final NameIndex<Patient> patientNames;
+    private final ExpiryIndex expiryIndex;
+    private final GroupIndex<Prescription> prescriptionsByDoctor;
+    private final GroupIndex<Prescription> prescriptionsByPatient;
+    private final GroupIndex<Prescription> prescriptionsByMedication;
+    private final PrescriptionHistory prescriptionHistory;
+    private final InteractionRegistry interactions;
+    private final ActiveMedicationIndex activeMedications;
+    private final GroupIndex<Doctor> doctorsByPatient;
+    private final TimingWheel<Prescription> prescriptionExpiries;
+    private final LongAdder totalStock;
+    private final ExpiryCounter<Medication> medicationExpiryCounts;
+    private final ExpiryCounter<Prescription> prescriptionExpiryCounts;
+    private final LowStockIndex lowStock;
+    private final List<LowStockListener> lowStockListeners;
+    private final List<PrescriptionExpiryListener> expiryListeners;
+    private ScheduledExecutorService expirySweeper;
+    private volatile WriteAheadLog journal;
+    private volatile MappedInventoryStore inventory;
+    private volatile boolean quiet;
+    private volatile InteractionPolicy interactionPolicy = InteractionPolicy.REJECT;
+    private volatile SystemEventListener eventListener = new ConsoleEventSink();
+    private final SystemMetrics metrics = new SystemMetrics(this);
 
     /**
-     * Constructs a new MedicationTrackingSystem and initializes empty lists.
+     * Constructs a new MedicationTrackingSystem and initializes empty, ID-indexed lists.
      */
     public MedicationTrackingSystem() {
-        this.medications = new ArrayList<>();
-        this.doctors = new ArrayList<>();
-        this.patients = new ArrayList<>();
-        this.prescriptions = new ArrayList<>();
+        this.versions = new VersionClock();
+        this.medications = new IdRegistry<>(Medication::getId, versions);
+        this.doctors = new IdRegistry<>(Doctor::getId, versions);
+        this.patients = new IdRegistry<>(Patient::getId, versions);
+        this.prescriptions = new IdRegistry<>(Prescription::getId, versions);
+        this.medicationNames = new NameIndex<>(Medication::getName);
+        this.doctorNames = new NameIndex<>(Doctor::getName);
+        this.patientNames = new NameIndex<>(Patient::getName);
+        this.expiryIndex = new ExpiryIndex();
+        this.prescriptionsByDoctor = new GroupIndex<>(prescription ->
+                prescription.getDoctor() == null ? null : prescription.getDoctor().getId());
+        this.prescriptionsByPatient = new GroupIndex<>(prescription ->
+                prescription.getPatient() == null ? null : prescription.getPatient().getId());
+        this.prescriptionsByMedication = new GroupIndex<>(prescription ->
+                prescription.getMedication() == null ? null : prescription.getMedication().getId());
+        this.prescriptionHistory = new PrescriptionHistory();
+        this.interactions = new InteractionRegistry();
+        this.activeMedications = new ActiveMedicationIndex(interactions);
+        this.doctorsByPatient = new GroupIndex<>();
+        this.medications.addIndex(medicationNames);
+        this.medications.addIndex(expiryIndex);
+        this.totalStock = new LongAdder();
+        this.lowStock = new LowStockIndex(medications);
+        this.lowStockListeners = new CopyOnWriteArrayList<>();
+        this.medicationExpiryCounts = new ExpiryCounter<>(Medication::getExpiryDate);
+        this.medications.addIndex(medicationExpiryCounts);
+        this.medications.addIndex(new SecondaryIndex<Medication>() {
+            private final MedicationObserver observer = new MedicationObserver() {
+                @Override
+                public void expiryChanged(Medication med, LocalDate previous) {
+                    expiryIndex.reindex(med);
+                    medicationExpiryCounts.moved(previous, med.getExpiryDate());
+                }
+
+                @Override
+                public void quantityChanged(Medication med, int previous, int updated) {
+                    totalStock.add(updated - previous);
+                    if (LowStockIndex.crossed(med, previous, updated)) {
+                        stockLevelChanged(med);
+                    }
+                }
+
+                @Override
+                public void reorderPointChanged(Medication med, int previous) {
+                    stockLevelChanged(med);
+                }
+            };
+
+            @Override
+            public void added(Medication med) {
+                med.setObserver(observer);
+                totalStock.add(med.getQuantity());
+                stockLevelChanged(med);
+            }
+
+            @Override
+            public void removed(Medication med) {
+                med.setObserver(null);
+                totalStock.add(-med.getQuantity());
+                lowStock.remove(med);
+            }
+        });
+        this.prescriptionExpiries = new TimingWheel<>(LocalDate.now().toEpochDay());
+        this.expiryListeners = new CopyOnWriteArrayList<>();
+        this.prescriptions.addIndex(new SecondaryIndex<Prescription>() {
+            @Override
+            public void added(Prescription prescription) {
+                LocalDate expiry = prescription.getPrescriptionExpiry();
+                if (expiry != null) {
+                    // A prescription is valid through its expiry date and lapses the day after.
+                    prescriptionExpiries.schedule(prescription, expiry.toEpochDay() + 1);
+                }
+            }
+
+            @Override
+            public void removed(Prescription prescription) {
+                prescriptionExpiries.cancel(prescription);
+            }
+        });
+        this.prescriptionExpiryCounts = new ExpiryCounter<>(Prescription::getPrescriptionExpiry);
+        this.prescriptions.addIndex(prescriptionExpiryCounts);
+        this.prescriptions.addIndex(prescriptionsByDoctor);
+        this.prescriptions.addIndex(prescriptionsByPatient);
+        this.prescriptions.addIndex(prescriptionsByMedication);
+        this.prescriptions.addIndex(prescriptionHistory);
+        this.prescriptions.addIndex(activeMedications);
+        this.doctors.addIndex(doctorNames);
+        this.doctors.addIndex(new SecondaryIndex<Doctor>() {
+            private final DoctorObserver observer = (doctor, patient) -> doctorsByPatient.add(patient.getId(), doctor);
+
+            @Override
+            public void added(Doctor doctor) {
+                doctor.setObserver(observer);
+                for (Patient patient : doctor.getPatients()) {
+                    doctorsByPatient.add(patient.getId(), doctor);
+                }
+            }
+
+            @Override
+            public void removed(Doctor doctor) {
+                doctor.setObserver(null);
+                for (Patient patient : doctor.getPatients()) {
+                    doctorsByPatient.remove(patient.getId(), doctor);
+                }
+            }
+        });
+        this.patients.addIndex(patientNames);
+    }
+
+    /**
+     * Attaches the write-ahead log that records every mutation, or detaches it when null.
+     */
+    void setJournal(WriteAheadLog journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Runs an action while no other mutation is in progress, for example to
+     * take a checkpoint. A plain system is used by one thread at a time, so
+     * the action simply runs.
+     */
+    void exclusive(Runnable action) {
+        action.run();
+    }
+
+    /**
+     * Runs an automatic checkpoint that a mutation has made due. A plain system
+     * runs it at once, on the mutating thread, between two mutations.
+     */
+    void scheduleCheckpoint(Runnable checkpoint) {
+        checkpoint.run();
+    }
+
+    /**
+     * Moves medication storage to a memory-mapped inventory. Medications already
+     * in the inventory are registered, and medications added from now on are
+     * written to it; the system then holds views whose fields live in the mapped
+     * file. Must be called before any medications are added.
+     * 
+     * @param inventory The inventory store to use.
+     */
+    public void useInventory(MappedInventoryStore inventory) {
+        if (!medications.isEmpty()) {
+            throw new IllegalStateException("Inventory must be attached before medications are added");
+        }
+        this.inventory = inventory;
+        for (Medication med : inventory.getMedications()) {
+            medications.add(med);
+        }
+        publish(SystemEventType.INVENTORY_ATTACHED, medications.size());
+    }
+
+    /**
+     * Turns events off or back on, for example while replaying a log.
+     */
+    void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    /**
+     * Replaces the listener that receives this system's events. A new system
+     * prints every event to the console as it happens; pass an
+     * {@link AsyncEventSink} to write them off the calling thread, or null to
+     * run silently, with no events built at all.
+     * 
+     * @param listener The listener, or null for silent mode.
+     */
+    public void setEventListener(SystemEventListener listener) {
+        this.eventListener = listener;
+    }
+
+    /**
+     * Retrieves the listener that receives this system's events.
+     * 
+     * @return The listener, or null if the system is silent.
+     */
+    public SystemEventListener getEventListener() {
+        return eventListener;
+    }
+
+    /**
+     * Chooses what happens to a prescription for a medication that interacts
+     * with one the patient is already prescribed. A new system rejects them.
+     * 
+     * @param policy The policy to apply to prescriptions accepted from now on.
+     */
+    public void setInteractionPolicy(InteractionPolicy policy) {
+        this.interactionPolicy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * Retrieves what happens to a prescription for an interacting medication.
+     * 
+     * @return The interaction policy.
+     */
+    public InteractionPolicy getInteractionPolicy() {
+        return interactionPolicy;
+    }
+
+    /**
+     * Retrieves the latency and outcome counters of this system's operations.
+     * 
+     * @return The metrics, which can also be registered as a platform MBean.
+     */
+    public SystemMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Finds a registered medication by ID, or returns null. */
+    public Medication findMedicationById(String medicationId) {
+        long start = System.nanoTime();
+        Medication med = medications.findById(medicationId);
+        metrics.recordLookup(TrackedOperation.FIND_MEDICATION_BY_ID, start, med != null);
+        return med;
+    }
+
+    /** Finds a registered doctor by ID, or returns null. */
+    public Doctor findDoctorById(String doctorId) {
+        long start = System.nanoTime();
+        Doctor doctor = doctors.findById(doctorId);
+        metrics.recordLookup(TrackedOperation.FIND_DOCTOR_BY_ID, start, doctor != null);
+        return doctor;
+    }
+
+    /** Finds a registered patient by ID, or returns null. */
+    public Patient findPatientById(String patientId) {
+        long start = System.nanoTime();
+        Patient patient = patients.findById(patientId);
+        metrics.recordLookup(TrackedOperation.FIND_PATIENT_BY_ID, start, patient != null);
+        return patient;
+    }
+
+    /**
+     * Sends an event to the listener unless the system is quiet or silent.
+     * Records among the arguments are described now, while they still hold
+     * the values the event is about, since a listener may build the message
+     * later on another thread.
+     */
+    private void publish(SystemEventType type, Object... arguments) {
+        SystemEventListener listener = eventListener;
+        if (listener != null && !quiet) {
+            for (int i = 0; i < arguments.length; i++) {
+                Object argument = arguments[i];
+                if (argument instanceof Medication || argument instanceof Person || argument instanceof Prescription) {
+                    arguments[i] = argument.toString();
+                }
+            }
+            listener.eventOccurred(new SystemEvent(type, arguments));
+        }
     }
 
         /**
-     * Looks up a patient by name.
+     * Looks up patients by name and displays every match.
+     * Matching ignores case and extra whitespace.
+     * 
+     * @param name The name of the patient to search for.
+     */
+    public void searchPatientByName(String name) {
+        long start = System.nanoTime();
+        List<Patient> matches = patientNames.findExact(name);
+        for (Patient patient : matches) {
+            publish(SystemEventType.PATIENT_FOUND, patient);
+        }
+        if (matches.isEmpty()) {
+            publish(SystemEventType.PATIENT_NOT_FOUND);
+        }
+        metrics.recordLookup(TrackedOperation.SEARCH_PATIENT_BY_NAME, start, !matches.isEmpty());
+    }
+
+    /**
+     * Finds doctors by name and displays every match.
+     * Matching ignores case and extra whitespace.
+     * 
+     * @param name The name of the doctor to search for.
+     */
+    public void searchDoctorByName(String name) {
+        long start = System.nanoTime();
+        List<Doctor> matches = doctorNames.findExact(name);
+        for (Doctor doctor : matches) {
+            publish(SystemEventType.DOCTOR_FOUND, doctor);
+        }
+        if (matches.isEmpty()) {
+            publish(SystemEventType.DOCTOR_NOT_FOUND);
+        }
+        metrics.recordLookup(TrackedOperation.SEARCH_DOCTOR_BY_NAME, start, !matches.isEmpty());
+    }
+
+    /**
+     * Finds medications by name and displays every match.
+     * Matching ignores case and extra whitespace.
+     * 
+     * @param name The name of the medication to search for.
+     */
+    public void searchMedicationByName(String name) {
+        long start = System.nanoTime();
+        List<Medication> matches = medicationNames.findExact(name);
+        for (Medication med : matches) {
+            publish(SystemEventType.MEDICATION_FOUND, med);
+        }
+        if (matches.isEmpty()) {
+            publish(SystemEventType.MEDICATION_NOT_FOUND);
+        }
+        metrics.recordLookup(TrackedOperation.SEARCH_MEDICATION_BY_NAME, start, !matches.isEmpty());
+    }
+
+    /**
+     * Retrieves every patient with the given name, ignoring case and extra whitespace.
+     * 
+     * @param name The name to look up.
+     * @return The matching patients, possibly empty.
+     */
+    public List<Patient> findPatientsByName(String name) {
+        long start = System.nanoTime();
+        List<Patient> matches = patientNames.findExact(name);
+        metrics.recordLookup(TrackedOperation.FIND_PATIENTS_BY_NAME, start, !matches.isEmpty());
+        return matches;
+    }
+
+    /**
+     * Retrieves every patient whose name starts with the given prefix, ordered by name.
+     * 
+     * @param prefix The partial name typed so far.
+     * @return The matching patients, possibly empty.
+     */
+    public List<Patient> findPatientsByNamePrefix(String prefix) {
+        long start = System.nanoTime();
+        List<Patient> matches = patientNames.findByPrefix(prefix);
+        metrics.recordLookup(TrackedOperation.FIND_PATIENTS_BY_NAME_PREFIX, start, !matches.isEmpty());
+        return matches;
+    }
+
+    /**
+     * Retrieves every doctor with the given name, ignoring case and extra whitespace.
+     * 
+     * @param name The name to look up.
+     * @return The matching doctors, possibly empty.
+     */
+    public List<Doctor> findDoctorsByName(String name) {
+        long start = System.nanoTime();
+        List<Doctor> matches = doctorNames.findExact(name);
+        metrics.recordLookup(TrackedOperation.FIND_DOCTORS_BY_NAME, start, !matches.isEmpty());
+        return matches;
+    }
+
+    /**
+     * Retrieves every doctor whose name starts with the given prefix, ordered by name.
+     * 
+     * @param prefix The partial name typed so far.
+     * @return The matching doctors, possibly empty.
+     */
+    public List<Doctor> findDoctorsByNamePrefix(String prefix) {
+        long start = System.nanoTime();
+        List<Doctor> matches = doctorNames.findByPrefix(prefix);
+        metrics.recordLookup(TrackedOperation.FIND_DOCTORS_BY_NAME_PREFIX, start, !matches.isEmpty());
+        return matches;
+    }
+
+    /**
+     * Retrieves every medication with the given name, ignoring case and extra whitespace.
+     * 
+     * @param name The name to look up.
+     * @return The matching medications, possibly empty.
+     */
+    public List<Medication> findMedicationsByName(String name) {
+        long start = System.nanoTime();
+        List<Medication> matches = medicationNames.findExact(name);
+        metrics.recordLookup(TrackedOperation.FIND_MEDICATIONS_BY_NAME, start, !matches.isEmpty());
+        return matches;
+    }
+
+    /**
+     * Retrieves every medication whose name starts with the given prefix, ordered by name.
+     * 
+     * @param prefix The partial name typed so far.
+     * @return The matching medications, possibly empty.
+     */
+    public List<Medication> findMedicationsByNamePrefix(String prefix) {
+        long start = System.nanoTime();
+        List<Medication> matches = medicationNames.findByPrefix(prefix);
+        metrics.recordLookup(TrackedOperation.FIND_MEDICATIONS_BY_NAME_PREFIX, start, !matches.isEmpty());
+        return matches;
+    }
+
+    /** Finds a registered prescription by ID, or returns null. */
+    public Prescription findPrescriptionById(String prescriptionId) {
+        long start = System.nanoTime();
+        Prescription prescription = prescriptions.findById(prescriptionId);
+        metrics.recordLookup(TrackedOperation.FIND_PRESCRIPTION_BY_ID, start, prescription != null);
+        return prescription;
+    }
+
+    /**
+     * Finds a batch of medications by ID in one call.
+     * 
+     * @param medicationIds The IDs to look up.
+     * @return Each ID's medication, in the order given, and the IDs that are not registered.
+     */
+    public LookupResult<Medication> findMedicationsById(Collection<String> medicationIds) {
+        long start = System.nanoTime();
+        LookupResult<Medication> result = lookUp(medicationIds, medications::findById);
+        metrics.recordLookup(TrackedOperation.FIND_MEDICATIONS_BY_ID, start, result.isComplete());
+        return result;
+    }
+
+    /**
+     * Finds a batch of doctors by ID in one call.
+     * 
+     * @param doctorIds The IDs to look up.
+     * @return Each ID's doctor, in the order given, and the IDs that are not registered.
+     */
+    public LookupResult<Doctor> findDoctorsById(Collection<String> doctorIds) {
+        long start = System.nanoTime();
+        LookupResult<Doctor> result = lookUp(doctorIds, doctors::findById);
+        metrics.recordLookup(TrackedOperation.FIND_DOCTORS_BY_ID, start, result.isComplete());
+        return result;
+    }
+
+    /**
+     * Finds a batch of patients by ID in one call.
+     * 
+     * @param patientIds The IDs to look up.
+     * @return Each ID's patient, in the order given, and the IDs that are not registered.
+     */
+    public LookupResult<Patient> findPatientsById(Collection<String> patientIds) {
+        long start = System.nanoTime();
+        LookupResult<Patient> result = lookUp(patientIds, patients::findById);
+        metrics.recordLookup(TrackedOperation.FIND_PATIENTS_BY_ID, start, result.isComplete());
+        return result;
+    }
+
+    /**
+     * Finds a batch of prescriptions by ID in one call.
+     * 
+     * @param prescriptionIds The IDs to look up.
+     * @return Each ID's prescription, in the order given, and the IDs that are not registered.
+     */
+    public LookupResult<Prescription> findPrescriptionsById(Collection<String> prescriptionIds) {
+        long start = System.nanoTime();
+        LookupResult<Prescription> result = lookUp(prescriptionIds, prescriptions::findById);
+        metrics.recordLookup(TrackedOperation.FIND_PRESCRIPTIONS_BY_ID, start, result.isComplete());
+        return result;
+    }
+
+    /**
+     * Finds the medications with each of a batch of names in one call, ignoring
+     * case and extra whitespace.
+     * 
+     * @param names The names to look up.
+     * @return Each name's matches, in the order given, and the names that matched nothing.
+     */
+    public LookupResult<List<Medication>> findMedicationsByNames(Collection<String> names) {
+        long start = System.nanoTime();
+        LookupResult<List<Medication>> result = lookUp(names, name -> nonEmpty(medicationNames.findExact(name)));
+        metrics.recordLookup(TrackedOperation.FIND_MEDICATIONS_BY_NAMES, start, result.isComplete());
+        return result;
+    }
+
+    /**
+     * Finds the doctors with each of a batch of names in one call, ignoring
+     * case and extra whitespace.
+     * 
+     * @param names The names to look up.
+     * @return Each name's matches, in the order given, and the names that matched nothing.
+     */
+    public LookupResult<List<Doctor>> findDoctorsByNames(Collection<String> names) {
+        long start = System.nanoTime();
+        LookupResult<List<Doctor>> result = lookUp(names, name -> nonEmpty(doctorNames.findExact(name)));
+        metrics.recordLookup(TrackedOperation.FIND_DOCTORS_BY_NAMES, start, result.isComplete());
+        return result;
+    }
+
+    /**
+     * Finds the patients with each of a batch of names in one call, ignoring
+     * case and extra whitespace.
+     * 
+     * @param names The names to look up.
+     * @return Each name's matches, in the order given, and the names that matched nothing.
+     */
+    public LookupResult<List<Patient>> findPatientsByNames(Collection<String> names) {
+        long start = System.nanoTime();
+        LookupResult<List<Patient>> result = lookUp(names, name -> nonEmpty(patientNames.findExact(name)));
+        metrics.recordLookup(TrackedOperation.FIND_PATIENTS_BY_NAMES, start, result.isComplete());
+        return result;
+    }
+
+    /**
+     * Retrieves the prescriptions of a patient, in the order they were accepted.
+     * Only that patient's prescriptions are visited.
+     * 
+     * @param patientId The ID of the patient.
+     * @return The patient's prescriptions, possibly empty.
+     */
+    public List<Prescription> getPrescriptionsByPatient(String patientId) {
+        long start = System.nanoTime();
+        List<Prescription> issued = prescriptionsByPatient.get(patientId);
+        metrics.recordLookup(TrackedOperation.GET_PRESCRIPTIONS_BY_PATIENT, start, !issued.isEmpty());
+        return issued;
+    }
+
+    /**
+     * Retrieves the doctors whose panels include a patient.
+     * 
+     * @param patientId The ID of the patient.
+     * @return The patient's doctors, possibly empty.
+     */
+    public List<Doctor> getDoctorsByPatient(String patientId) {
+        long start = System.nanoTime();
+        List<Doctor> panels = doctorsByPatient.get(patientId);
+        metrics.recordLookup(TrackedOperation.GET_DOCTORS_BY_PATIENT, start, !panels.isEmpty());
+        return panels;
+    }
+
+    /**
+     * Reads a patient's prescriptions, newest first, one page at a time.
+     * 
+     * @param patientId The ID of the patient.
+     * @param cursor    The cursor returned with the previous page, or null for the first page.
+     * @param limit     The most prescriptions to return.
+     * @return The page, with the cursor of the next page if there is one.
+     */
+    public PrescriptionHistoryPage getPrescriptionHistory(String patientId, String cursor, int limit) {
+        return getPrescriptionHistory(patientId, null, null, cursor, limit);
+    }
+
+    /**
+     * Reads a patient's prescriptions issued within a window, such as the last
+     * 90 days, newest first, one page at a time. Each patient's prescriptions
+     * are kept in issue order, so a page costs time proportional to its size,
+     * however long the history is. Prescriptions swept out by
+     * {@link #expirePrescriptions(LocalDate)} stay listed; prescriptions
+     * deleted with their doctor, patient or medication do not.
+     * 
+     * @param patientId The ID of the patient.
+     * @param from      The earliest issue time to include, or null for no lower bound.
+     * @param to        The issue time to stop before (exclusive), or null for no upper bound.
+     * @param cursor    The cursor returned with the previous page, or null for the first page.
+     * @param limit     The most prescriptions to return.
+     * @return The page, with the cursor of the next page if there is one.
+     * @throws IllegalArgumentException If the limit is not positive or the cursor is malformed.
+     */
+    public PrescriptionHistoryPage getPrescriptionHistory(String patientId, Instant from, Instant to, String cursor, int limit) {
+        long start = System.nanoTime();
+        PrescriptionHistoryPage page = prescriptionHistory.page(patientId, from, to, cursor, limit);
+        metrics.recordLookup(TrackedOperation.GET_PRESCRIPTION_HISTORY, start, !page.getPrescriptions().isEmpty());
+        return page;
+    }
+
+    /**
+     * Lists a patient's prescriptions that were in force on a date: issued on
+     * or before it, in the system's time zone, and not past their expiry date.
+     * Prescriptions that have since expired and been swept out are included.
+     * 
+     * @param patientId The ID of the patient.
+     * @param date      The date.
+     * @return The matching prescriptions, newest first.
+     */
+    public List<Prescription> getPrescriptionsActiveOn(String patientId, LocalDate date) {
+        long start = System.nanoTime();
+        List<Prescription> active = prescriptionHistory.activeOn(patientId, date, ZoneId.systemDefault());
+        metrics.recordLookup(TrackedOperation.GET_PRESCRIPTIONS_ACTIVE_ON, start, !active.isEmpty());
+        return active;
+    }
+
+    /**
+     * Gathers a patient with their doctors, prescriptions and prescribed
+     * medications, using the reverse indexes rather than scanning the system.
+     * 
+     * @param patientId The ID of the patient.
+     * @return The overview, or null if the patient is not registered.
+     */
+    public PatientOverview findPatientOverview(String patientId) {
+        long start = System.nanoTime();
+        PatientOverview overview = overviewOf(patientId);
+        metrics.recordLookup(TrackedOperation.FIND_PATIENT_OVERVIEW, start, overview != null);
+        return overview;
+    }
+
+    /**
+     * Gathers the overviews of a batch of patients in one call.
+     * 
+     * @param patientIds The IDs of the patients.
+     * @return Each ID's overview, in the order given, and the IDs that are not registered.
+     */
+    public LookupResult<PatientOverview> findPatientOverviews(Collection<String> patientIds) {
+        long start = System.nanoTime();
+        LookupResult<PatientOverview> result = lookUp(patientIds, this::overviewOf);
+        metrics.recordLookup(TrackedOperation.FIND_PATIENT_OVERVIEWS, start, result.isComplete());
+        return result;
+    }
+
+    private PatientOverview overviewOf(String patientId) {
+        Patient patient = patients.findById(patientId);
+        if (patient == null) {
+            return null;
+        }
+        return new PatientOverview(patient, doctorsByPatient.get(patientId), prescriptionsByPatient.get(patientId));
+    }
+
+    /**
+     * Resolves each distinct key once, in the order given. A key that resolves
+     * to null, or a null key, is reported as missing.
+     */
+    private static <T> LookupResult<T> lookUp(Collection<String> keys, Function<String, T> resolver) {
+        LookupResult<T> result = new LookupResult<>();
+        Set<String> seen = new HashSet<>();
+        for (String key : keys) {
+            if (!seen.add(key)) {
+                continue;
+            }
+            T value = key == null ? null : resolver.apply(key);
+            if (value == null) {
+                result.missing(key);
+            } else {
+                result.found(key, value);
+            }
+        }
+        return result;
+    }
+
+    private static <T> List<T> nonEmpty(List<T> matches) {
+        return matches.isEmpty() ? null : matches;
+    }
+
+    /**
+     * Registers a new medication in the system, verifying the uniqueness of the ID.
+     * 
+     * @param medication The medication to be added.
+     */
+    public void addMedication(Medication medication) {
+        long start = System.nanoTime();
+        if (medications.containsId(medication.getId())) {
+            publish(SystemEventType.DUPLICATE_MEDICATION, medication.getId());
+            metrics.record(TrackedOperation.ADD_MEDICATION, start, OperationOutcome.DUPLICATE);
+            return;
+        }
+
+    if (inventory != null) {
+        medication = inventory.put(medication);
+    }
+    medications.add(medication);
+    if (journal != null) {
+        journal.addMedication(medication);
+    }
+    publish(SystemEventType.MEDICATION_ADDED, medication.getName(), medication.getId());
+    metrics.record(TrackedOperation.ADD_MEDICATION, start, OperationOutcome.SUCCESS);
+}
+
+
+    /**
+     * Registers a new doctor in the system, confirming the uniqueness of the ID.
+     * 
+     * @param doctor The doctor to be added.
+     */
+    public void addDoctor(Doctor doctor) {
+        long start = System.nanoTime();
+        if (doctors.containsId(doctor.getId())) {
+            publish(SystemEventType.DUPLICATE_DOCTOR, doctor.getId());
+            metrics.record(TrackedOperation.ADD_DOCTOR, start, OperationOutcome.DUPLICATE);
+            return;
+        }
+
+        doctors.add(doctor);
+        if (journal != null) {
+            journal.addDoctor(doctor);
+        }
+        publish(SystemEventType.DOCTOR_ADDED, doctor.getName(), doctor.getSpecialty());
+        metrics.record(TrackedOperation.ADD_DOCTOR, start, OperationOutcome.SUCCESS);
+        }
+    
+
+    /**
+     * Registers a new patient in the system, verifying the uniqueness of the ID.
+     * 
+     * @param patient The patient to be added.
+     */
+    public void addPatient(Patient patient) {
+        long start = System.nanoTime();
+        // Check if a patient with the same ID already exists
+        if (patients.containsId(patient.getId())) {
+            publish(SystemEventType.DUPLICATE_PATIENT, patient.getId());
+            metrics.record(TrackedOperation.ADD_PATIENT, start, OperationOutcome.DUPLICATE);
+            return;
+        }
+    
+    // If the ID is unique, add the patient
+    patients.add(patient);
+    if (journal != null) {
+        journal.addPatient(patient);
+    }
+    publish(SystemEventType.PATIENT_ADDED, patient.getName(), patient.getId());
+    metrics.record(TrackedOperation.ADD_PATIENT, start, OperationOutcome.SUCCESS);
+}
+
+    /**
+     * Adds a new prescription to the system, ensuring the ID is unique.
+     * 
+     * @param prescription The prescription to be added.
+     */
+    public void addPrescription(Prescription prescription) {
+        long start = System.nanoTime();
+        if (prescriptions.containsId(prescription.getId())) {
+            publish(SystemEventType.DUPLICATE_PRESCRIPTION, prescription.getId());
+            metrics.record(TrackedOperation.ADD_PRESCRIPTION, start, OperationOutcome.DUPLICATE);
+            return;
+        }
+
+    prescriptions.add(prescription);
+    if (journal != null) {
+        journal.addPrescription(prescription);
+    }
+    publish(SystemEventType.PRESCRIPTION_ADDED, prescription.getPatient().getName(), prescription.getId());
+    metrics.record(TrackedOperation.ADD_PRESCRIPTION, start, OperationOutcome.SUCCESS);
+}
+
+    /**
+     * Registers a batch of medications, validating every ID in a single pass.
+     * Medications whose ID already exists or repeats within the batch are skipped.
+     * 
+     * @param batch The medications to be added.
+     * @return The number of medications added and the reason for each one skipped.
+     */
+    public BatchResult addMedications(Collection<Medication> batch) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult();
+        if (inventory != null) {
+            batch = storeNew(batch);
+        }
+        List<Medication> added = medications.addAllUnique(batch, result);
+        if (journal != null) {
+            journal.addMedications(added);
+        }
+        publish(SystemEventType.MEDICATIONS_ADDED, result.getAppliedCount(), result.getFailures().size());
+        metrics.record(TrackedOperation.ADD_MEDICATIONS, start, batchOutcome(result));
+        return result;
+    }
+
+    /**
+     * Writes the medications of a batch whose IDs are not yet registered to the
+     * inventory and returns the batch with those medications replaced by their views.
+     */
+    private List<Medication> storeNew(Collection<Medication> batch) {
+        List<Medication> stored = new ArrayList<>(batch.size());
+        Set<String> seen = new HashSet<>();
+        for (Medication med : batch) {
+            if (med != null && med.getId() != null && !medications.containsId(med.getId()) && seen.add(med.getId())) {
+                stored.add(inventory.put(med));
+            } else {
+                stored.add(med);
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Registers a batch of doctors, validating every ID in a single pass.
+     * Doctors whose ID already exists or repeats within the batch are skipped.
+     * 
+     * @param batch The doctors to be added.
+     * @return The number of doctors added and the reason for each one skipped.
+     */
+    public BatchResult addDoctors(Collection<Doctor> batch) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult();
+        List<Doctor> added = doctors.addAllUnique(batch, result);
+        if (journal != null) {
+            journal.addDoctors(added);
+        }
+        publish(SystemEventType.DOCTORS_ADDED, result.getAppliedCount(), result.getFailures().size());
+        metrics.record(TrackedOperation.ADD_DOCTORS, start, batchOutcome(result));
+        return result;
+    }
+
+    /**
+     * Registers a batch of patients, validating every ID in a single pass.
+     * Patients whose ID already exists or repeats within the batch are skipped.
+     * 
+     * @param batch The patients to be added.
+     * @return The number of patients added and the reason for each one skipped.
+     */
+    public BatchResult addPatients(Collection<Patient> batch) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult();
+        List<Patient> added = patients.addAllUnique(batch, result);
+        if (journal != null) {
+            journal.addPatients(added);
+        }
+        publish(SystemEventType.PATIENTS_ADDED, result.getAppliedCount(), result.getFailures().size());
+        metrics.record(TrackedOperation.ADD_PATIENTS, start, batchOutcome(result));
+        return result;
+    }
+
+
+
+     /**
+     * Edits a medication's details by ID.
+     * 
+     * @param medicationId The ID of the medication to edit.
+     * @param newName The new name of the medication.
+     * @param newQuantity The new quantity.
+     * @param newDosage The new dosage.
+     * @return True if the medication was found and edited.
+     */
+    public boolean editMedication(String medicationId, String newName, int newQuantity, String newDosage) {
+        long start = System.nanoTime();
+        Medication med = medications.findById(medicationId);
+        if (med != null) {
+            med.setName(newName);
+            medicationNames.reindex(med);
+            med.setDosage(newDosage);  // NEW FIELD UPDATED
+            WriteAheadLog log = journal;
+            if (log != null) {
+                log.editMedication(med, newName, newQuantity, newDosage, null);
+            } else {
+                med.setQuantity(newQuantity);
+            }
+            publish(SystemEventType.MEDICATION_UPDATED, med);
+            metrics.record(TrackedOperation.EDIT_MEDICATION, start, OperationOutcome.SUCCESS);
+            return true;
+        }
+        
+    publish(SystemEventType.MEDICATION_NOT_FOUND);
+    metrics.record(TrackedOperation.EDIT_MEDICATION, start, OperationOutcome.NOT_FOUND);
+    return false;
+}
+
+    /**
+     * Edits a doctor's details by ID.
+     *
+     * @param doctorId The ID of the doctor to edit.
+     * @param newName The new name of the doctor.
+     * @param newAge The new age of the doctor.
+     * @param newPhoneNumber The new contact number of the doctor.
+     * @param newSpecialty The new specialty of the doctor.
+     * @return True if the doctor was found and edited.
+     */
+    public boolean editDoctor(String doctorId, String newName, int newAge, String newPhoneNumber, String newSpecialty) {
+        long start = System.nanoTime();
+        Doctor doc = doctors.findById(doctorId);
+        if (doc != null) {
+            doc.setName(newName);
+            doctorNames.reindex(doc);
+            doc.setAge(newAge);
+            doc.setPhoneNumber(newPhoneNumber);
+            doc.setSpecialty(newSpecialty);
+            if (journal != null) {
+                journal.editDoctor(doctorId, newName, newAge, newPhoneNumber, newSpecialty);
+            }
+            publish(SystemEventType.DOCTOR_UPDATED);
+            metrics.record(TrackedOperation.EDIT_DOCTOR, start, OperationOutcome.SUCCESS);
+            return true;
+        }
+        publish(SystemEventType.DOCTOR_NOT_FOUND);
+        metrics.record(TrackedOperation.EDIT_DOCTOR, start, OperationOutcome.NOT_FOUND);
+        return false;
+    }
+
+     /**
+     * Edits a patient's details by ID.
+     *
+     * @param patientId The ID of the patient to edit.
+     * @param newName The new name of the patient.
+     * @param newAge The new age of the patient.
+     * @param newPhoneNumber The new contact number of the patient.
+     * @return True if the patient was found and edited.
+     */
+    public boolean editPatient(String patientId, String newName, int newAge, String newPhoneNumber) {
+        long start = System.nanoTime();
+        Patient pat = patients.findById(patientId);
+        if (pat != null) {
+            pat.setName(newName);
+            patientNames.reindex(pat);
+            pat.setAge(newAge);
+            pat.setPhoneNumber(newPhoneNumber);
+            if (journal != null) {
+                journal.editPatient(patientId, newName, newAge, newPhoneNumber);
+            }
+            publish(SystemEventType.PATIENT_UPDATED);
+            metrics.record(TrackedOperation.EDIT_PATIENT, start, OperationOutcome.SUCCESS);
+            return true;
+        }
+        publish(SystemEventType.PATIENT_NOT_FOUND);
+        metrics.record(TrackedOperation.EDIT_PATIENT, start, OperationOutcome.NOT_FOUND);
+        return false;
+    }
+
+    /**
+ * Edits a medication's details by ID, including its expiry date.
+ * 
+ * @param medicationId The ID of the medication to edit.
+ * @param newName The new name of the medication.
+ * @param newQuantity The new quantity.
+ * @param newDosage The new dosage.
+ * @param newExpiryDate The new expiry date.
+ * @return True if the medication was found and edited.
+ */
+public boolean editMedication(String medicationId, String newName, int newQuantity, String newDosage, LocalDate newExpiryDate) {
+    long start = System.nanoTime();
+    Medication med = medications.findById(medicationId);
+    if (med != null) {
+        med.setName(newName);
+        medicationNames.reindex(med);
+        med.setDosage(newDosage);
+        med.setExpiryDate(newExpiryDate); // Updating expiry date
+        WriteAheadLog log = journal;
+        if (log != null) {
+            log.editMedication(med, newName, newQuantity, newDosage, newExpiryDate);
+        } else {
+            med.setQuantity(newQuantity);
+        }
+        publish(SystemEventType.MEDICATION_UPDATED, med);
+        metrics.record(TrackedOperation.EDIT_MEDICATION, start, OperationOutcome.SUCCESS);
+        return true;
+    }
+    publish(SystemEventType.MEDICATION_NOT_FOUND);
+    metrics.record(TrackedOperation.EDIT_MEDICATION, start, OperationOutcome.NOT_FOUND);
+    return false;
+}
+
+
+    /**
+     * Deletes a medication from the system by ID, together with its prescriptions.
+     * 
+     * @param medicationId The ID of the medication to delete.
+     */
+    public void deleteMedication(String medicationId) {
+        deleteMedication(medicationId, DeletePolicy.CASCADE);
+    }
+
+    /**
+     * Deletes a medication from the system by ID. Its prescriptions are found
+     * through a reverse index, so the cost depends on how many there are, not on
+     * the size of the system.
+     * 
+     * @param medicationId The ID of the medication to delete.
+     * @param policy       Whether to delete the medication's prescriptions or to refuse while it has any.
+     * @return True if the medication was deleted.
+     */
+    public boolean deleteMedication(String medicationId, DeletePolicy policy) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult();
+        Medication removed = removeMedication(medicationId, policy, result);
+        if (removed != null) {
+            if (journal != null) {
+                journal.deleteMedications(List.of(removed));
+            }
+            publish(SystemEventType.MEDICATION_DELETED);
+            metrics.record(TrackedOperation.DELETE_MEDICATION, start, OperationOutcome.SUCCESS);
+            return true;
+        }
+        publishDeleteFailure(SystemEventType.MEDICATION_NOT_FOUND, "Medication", medicationId, result);
+        metrics.record(TrackedOperation.DELETE_MEDICATION, start, batchOutcome(result));
+        return false;
+    }
+
+    /**
+     * Deletes a patient by ID, together with their prescriptions, and removes
+     * them from every doctor's patient list.
+     * 
+     * @param patientId The ID of the patient to delete.
+     */
+    public void deletePatient(String patientId) {
+        deletePatient(patientId, DeletePolicy.CASCADE);
+}
+
+    /**
+     * Deletes a patient by ID. Their doctors and prescriptions are found through
+     * reverse indexes, so the cost depends on how many links the patient has,
+     * not on the size of the system.
+     * 
+     * @param patientId The ID of the patient to delete.
+     * @param policy    Whether to unlink the patient and delete their prescriptions, or to refuse while any exist.
+     * @return True if the patient was deleted.
+     */
+    public boolean deletePatient(String patientId, DeletePolicy policy) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult();
+        Patient removed = removePatient(patientId, policy, result);
+        if (removed != null) {
+            if (journal != null) {
+                journal.deletePatients(List.of(removed));
+            }
+            publish(SystemEventType.PATIENT_DELETED);
+            metrics.record(TrackedOperation.DELETE_PATIENT, start, OperationOutcome.SUCCESS);
+            return true;
+        }
+        publishDeleteFailure(SystemEventType.PATIENT_NOT_FOUND, "Patient", patientId, result);
+        metrics.record(TrackedOperation.DELETE_PATIENT, start, batchOutcome(result));
+        return false;
+    }
+
+
+    /**
+     * Deletes a doctor by ID, together with the prescriptions they issued.
+     * 
+     * @param doctorId The ID of the doctor to delete.
+     */
+    public void deleteDoctor(String doctorId) {
+        deleteDoctor(doctorId, DeletePolicy.CASCADE);
+    }
+
+    /**
+     * Deletes a doctor by ID. Their prescriptions are found through the
+     * doctor-to-prescriptions index, so the cost depends on how many there are.
+     * 
+     * @param doctorId The ID of the doctor to delete.
+     * @param policy   Whether to delete the doctor's prescriptions, or to refuse while they have patients or prescriptions.
+     * @return True if the doctor was deleted.
+     */
+    public boolean deleteDoctor(String doctorId, DeletePolicy policy) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult();
+        Doctor removed = removeDoctor(doctorId, policy, result);
+        if (removed != null) {
+            if (journal != null) {
+                journal.deleteDoctors(List.of(removed));
+            }
+            publish(SystemEventType.DOCTOR_DELETED);
+            metrics.record(TrackedOperation.DELETE_DOCTOR, start, OperationOutcome.SUCCESS);
+            return true;
+        }
+        publishDeleteFailure(SystemEventType.DOCTOR_NOT_FOUND, "Doctor", doctorId, result);
+        metrics.record(TrackedOperation.DELETE_DOCTOR, start, batchOutcome(result));
+        return false;
+    }
+
+    /**
+     * Deletes a batch of medications by ID, together with their prescriptions.
+     * 
+     * @param medicationIds The IDs of the medications to delete.
+     * @return The number of medications deleted and each ID that was not found.
+     */
+    public BatchResult deleteMedications(Collection<String> medicationIds) {
+        return deleteMedications(medicationIds, DeletePolicy.CASCADE);
+    }
+
+    /**
+     * Deletes a batch of medications by ID.
+     * 
+     * @param medicationIds The IDs of the medications to delete.
+     * @param policy        Whether to delete their prescriptions, or to skip medications that still have any.
+     * @return The number of medications deleted and the reason for each one skipped.
+     */
+    public BatchResult deleteMedications(Collection<String> medicationIds, DeletePolicy policy) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult();
+        List<Medication> removed = new ArrayList<>();
+        for (String id : medicationIds) {
+            Medication med = removeMedication(id, policy, result);
+            if (med != null) {
+                removed.add(med);
+            }
+        }
+        if (journal != null) {
+            journal.deleteMedications(removed);
+        }
+        publish(SystemEventType.MEDICATIONS_DELETED, result.getAppliedCount(), result.getFailures().size());
+        metrics.record(TrackedOperation.DELETE_MEDICATIONS, start, batchOutcome(result));
+        return result;
+    }
+
+    /**
+     * Deletes a batch of patients by ID, together with their prescriptions and doctor links.
+     * 
+     * @param patientIds The IDs of the patients to delete.
+     * @return The number of patients deleted and each ID that was not found.
+     */
+    public BatchResult deletePatients(Collection<String> patientIds) {
+        return deletePatients(patientIds, DeletePolicy.CASCADE);
+    }
+
+    /**
+     * Deletes a batch of patients by ID.
+     * 
+     * @param patientIds The IDs of the patients to delete.
+     * @param policy     Whether to unlink them and delete their prescriptions, or to skip patients that still have any.
+     * @return The number of patients deleted and the reason for each one skipped.
+     */
+    public BatchResult deletePatients(Collection<String> patientIds, DeletePolicy policy) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult();
+        List<Patient> removed = new ArrayList<>();
+        for (String id : patientIds) {
+            Patient patient = removePatient(id, policy, result);
+            if (patient != null) {
+                removed.add(patient);
+            }
+        }
+        if (journal != null) {
+            journal.deletePatients(removed);
+        }
+        publish(SystemEventType.PATIENTS_DELETED, result.getAppliedCount(), result.getFailures().size());
+        metrics.record(TrackedOperation.DELETE_PATIENTS, start, batchOutcome(result));
+        return result;
+    }
+
+    /**
+     * Deletes a batch of doctors by ID, together with the prescriptions they issued.
+     * 
+     * @param doctorIds The IDs of the doctors to delete.
+     * @return The number of doctors deleted and each ID that was not found.
+     */
+    public BatchResult deleteDoctors(Collection<String> doctorIds) {
+        return deleteDoctors(doctorIds, DeletePolicy.CASCADE);
+    }
+
+    /**
+     * Deletes a batch of doctors by ID.
+     * 
+     * @param doctorIds The IDs of the doctors to delete.
+     * @param policy    Whether to delete their prescriptions, or to skip doctors that still have patients or prescriptions.
+     * @return The number of doctors deleted and the reason for each one skipped.
+     */
+    public BatchResult deleteDoctors(Collection<String> doctorIds, DeletePolicy policy) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult();
+        List<Doctor> removed = new ArrayList<>();
+        for (String id : doctorIds) {
+            Doctor doctor = removeDoctor(id, policy, result);
+            if (doctor != null) {
+                removed.add(doctor);
+            }
+        }
+        if (journal != null) {
+            journal.deleteDoctors(removed);
+        }
+        publish(SystemEventType.DOCTORS_DELETED, result.getAppliedCount(), result.getFailures().size());
+        metrics.record(TrackedOperation.DELETE_DOCTORS, start, batchOutcome(result));
+        return result;
+    }
+
+    private Medication removeMedication(String medicationId, DeletePolicy policy, BatchResult result) {
+        if (policy == DeletePolicy.RESTRICT && medications.containsId(medicationId)
+                && prescriptionsByMedication.count(medicationId) > 0) {
+            result.failed(medicationId, "Medication still has prescriptions");
+            return null;
+        }
+        Medication removed = medications.removeById(medicationId);
+        if (removed == null) {
+            result.failed(medicationId, "Not found");
+            return null;
+        }
+        removePrescriptions(prescriptionsByMedication.get(medicationId));
+        if (inventory != null) {
+            inventory.remove(medicationId);
+        }
+        result.applied();
+        return removed;
+    }
+
+    private Patient removePatient(String patientId, DeletePolicy policy, BatchResult result) {
+        if (policy == DeletePolicy.RESTRICT && patients.containsId(patientId)
+                && (doctorsByPatient.count(patientId) > 0 || prescriptionsByPatient.count(patientId) > 0)) {
+            result.failed(patientId, "Patient still has doctors or prescriptions");
+            return null;
+        }
+        Patient removed = patients.removeById(patientId);
+        if (removed == null) {
+            result.failed(patientId, "Not found");
+            return null;
+        }
+        for (Doctor doctor : doctorsByPatient.removeGroup(patientId)) {
+            doctor.getPatients().removeIf(patient -> patientId.equals(patient.getId()));
+        }
+        removePrescriptions(prescriptionsByPatient.get(patientId));
+        prescriptionHistory.forget(patientId);
+        result.applied();
+        return removed;
+    }
+
+    private Doctor removeDoctor(String doctorId, DeletePolicy policy, BatchResult result) {
+        Doctor doctor = doctors.findById(doctorId);
+        if (policy == DeletePolicy.RESTRICT && doctor != null
+                && (!doctor.getPatients().isEmpty() || prescriptionsByDoctor.count(doctorId) > 0)) {
+            result.failed(doctorId, "Doctor still has patients or prescriptions");
+            return null;
+        }
+        Doctor removed = doctors.removeById(doctorId);
+        if (removed == null) {
+            result.failed(doctorId, "Not found");
+            return null;
+        }
+        removePrescriptions(prescriptionsByDoctor.get(doctorId));
+        result.applied();
+        return removed;
+    }
+
+    /**
+     * Removes prescriptions from the system and from their patients' lists.
+     */
+    private void removePrescriptions(List<Prescription> removed) {
+        for (Prescription prescription : removed) {
+            prescriptions.removeById(prescription.getId());
+            if (prescription.getPatient() != null) {
+                prescription.getPatient().getPrescriptions().remove(prescription);
+            }
+        }
+    }
+
+    private void publishDeleteFailure(SystemEventType notFound, String type, String id, BatchResult result) {
+        String reason = result.getFailures().get(0).getReason();
+        if ("Not found".equals(reason)) {
+            publish(notFound);
+        } else {
+            publish(SystemEventType.DELETE_REFUSED, type, id, reason);
+        }
+    }
+
+    /**
+     * Classifies a batch, or the result of a single delete, for the metrics:
+     * a batch with any skipped item counts as rejected, and a single delete that
+     * found nothing as not found.
+     */
+    private static OperationOutcome batchOutcome(BatchResult result) {
+        if (result.isSuccessful()) {
+            return OperationOutcome.SUCCESS;
+        }
+        if (result.getAppliedCount() == 0 && result.getFailures().size() == 1
+                && "Not found".equals(result.getFailures().get(0).getReason())) {
+            return OperationOutcome.NOT_FOUND;
+        }
+        return OperationOutcome.REJECTED;
+    }
+
+
+    /**
+     * Assigns a patient to a doctor using the doctor's ID.
+     * 
+     * @param doctorId The ID of the doctor.
+     * @param patient  The patient to add.
+     */
+    public void addPatientToDoctor(String doctorId, Patient patient) {
+        long start = System.nanoTime();
+        Doctor doc = doctors.findById(doctorId);
+        if (doc != null) {
+            doc.addPatient(patient);
+            if (journal != null) {
+                journal.assignPatient(doctorId, patient);
+            }
+            publish(SystemEventType.PATIENT_ASSIGNED);
+            metrics.record(TrackedOperation.ADD_PATIENT_TO_DOCTOR, start, OperationOutcome.SUCCESS);
+            return;
+        }
+        publish(SystemEventType.DOCTOR_NOT_FOUND);
+        metrics.record(TrackedOperation.ADD_PATIENT_TO_DOCTOR, start, OperationOutcome.NOT_FOUND);
+    }
+
+    /**
+     * Accepts a prescription and links it to the patient.
+     * 
+     * @param prescriptionId    The ID of the prescription.
+     * @param doctorId          The ID of the prescribing doctor.
+     * @param patientId         The ID of the patient.
+     * @param medicationId      The ID of the prescribed medication.
+     * @param prescriptionExpiry The expiration date of the prescription.
+     */
+    public void acceptPrescription(String prescriptionId, String doctorId, String patientId, String medicationId, LocalDate prescriptionExpiry) {
+        long start = System.nanoTime();
+        if (prescriptions.containsId(prescriptionId)) {
+            publish(SystemEventType.DUPLICATE_PRESCRIPTION, prescriptionId);
+            metrics.record(TrackedOperation.ACCEPT_PRESCRIPTION, start, OperationOutcome.DUPLICATE);
+            return;
+        }
+
+        Doctor doctor = doctors.findById(doctorId);
+        Patient patient = patients.findById(patientId);
+        Medication medication = medications.findById(medicationId);
+
+        if (doctor != null && patient != null && medication != null) {
+            if (refusedForInteraction(patient, medication)) {
+                metrics.record(TrackedOperation.ACCEPT_PRESCRIPTION, start, OperationOutcome.REJECTED);
+                return;
+            }
+            Prescription prescription = new Prescription(prescriptionId, doctor, patient, medication, prescriptionExpiry);
+            if (!prescriptions.addIfAbsent(prescription)) {
+                publish(SystemEventType.DUPLICATE_PRESCRIPTION, prescriptionId);
+                metrics.record(TrackedOperation.ACCEPT_PRESCRIPTION, start, OperationOutcome.DUPLICATE);
+                return;
+            }
+            patient.addPrescription(prescription);
+            if (journal != null) {
+                journal.acceptPrescription(prescription);
+            }
+            publish(SystemEventType.PRESCRIPTION_ACCEPTED, patient.getName(), medication.getName(), doctor.getName());
+            metrics.record(TrackedOperation.ACCEPT_PRESCRIPTION, start, OperationOutcome.SUCCESS);
+
+        } else {
+            publish(SystemEventType.PRESCRIPTION_REFERENCE_NOT_FOUND);
+            metrics.record(TrackedOperation.ACCEPT_PRESCRIPTION, start, OperationOutcome.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Accepts a prescription and reserves the prescribed units from stock. The
+     * prescription is rejected, and no stock is taken, if the medication does
+     * not have enough units left.
+     * 
+     * @param prescriptionId    The ID of the prescription.
+     * @param doctorId          The ID of the prescribing doctor.
+     * @param patientId         The ID of the patient.
+     * @param medicationId      The ID of the prescribed medication.
+     * @param prescriptionExpiry The expiration date of the prescription.
+     * @param quantity          The number of units to reserve.
+     * @return True if the prescription was accepted.
+     */
+    public boolean acceptPrescription(String prescriptionId, String doctorId, String patientId, String medicationId, LocalDate prescriptionExpiry, int quantity) {
+        long start = System.nanoTime();
+        if (prescriptions.containsId(prescriptionId)) {
+            publish(SystemEventType.DUPLICATE_PRESCRIPTION, prescriptionId);
+            metrics.record(TrackedOperation.ACCEPT_PRESCRIPTION, start, OperationOutcome.DUPLICATE);
+            return false;
+        }
+
+        Doctor doctor = doctors.findById(doctorId);
+        Patient patient = patients.findById(patientId);
+        Medication medication = medications.findById(medicationId);
+
+        if (doctor == null || patient == null || medication == null) {
+            publish(SystemEventType.PRESCRIPTION_REFERENCE_NOT_FOUND);
+            metrics.record(TrackedOperation.ACCEPT_PRESCRIPTION, start, OperationOutcome.NOT_FOUND);
+            return false;
+        }
+        if (refusedForInteraction(patient, medication)) {
+            metrics.record(TrackedOperation.ACCEPT_PRESCRIPTION, start, OperationOutcome.REJECTED);
+            return false;
+        }
+
+        Prescription prescription = new Prescription(prescriptionId, doctor, patient, medication, prescriptionExpiry);
+        WriteAheadLog log = journal;
+        OperationOutcome outcome = log != null
+                ? log.reservePrescription(prescription, () -> reserve(prescription, quantity))
+                : reserve(prescription, quantity);
+        if (outcome == OperationOutcome.REJECTED) {
+            publish(SystemEventType.RESERVATION_REFUSED, medication.getName(), quantity);
+            metrics.record(TrackedOperation.ACCEPT_PRESCRIPTION, start, OperationOutcome.REJECTED);
+            return false;
+        }
+        if (outcome == OperationOutcome.DUPLICATE) {
+            publish(SystemEventType.DUPLICATE_PRESCRIPTION, prescriptionId);
+            metrics.record(TrackedOperation.ACCEPT_PRESCRIPTION, start, OperationOutcome.DUPLICATE);
+            return false;
+        }
+        publish(SystemEventType.PRESCRIPTION_RESERVED, patient.getName(), medication.getName(), doctor.getName(), quantity);
+        metrics.record(TrackedOperation.ACCEPT_PRESCRIPTION, start, OperationOutcome.SUCCESS);
+        return true;
+    }
+
+    /**
+     * Takes a prescription's units out of stock and registers it, putting the
+     * units back if its ID turns out to be taken.
+     */
+    private OperationOutcome reserve(Prescription prescription, int quantity) {
+        Medication medication = prescription.getMedication();
+        if (!medication.dispense(quantity)) {
+            return OperationOutcome.REJECTED;
+        }
+        if (!prescriptions.addIfAbsent(prescription)) {
+            medication.restock(quantity);
+            return OperationOutcome.DUPLICATE;
+        }
+        prescription.getPatient().addPrescription(prescription);
+        return OperationOutcome.SUCCESS;
+    }
+
+    /**
+     * Accepts a batch of prescriptions and links each one to its patient.
+     * The whole batch is validated in one pass; requests with a duplicate ID or
+     * an unknown doctor, patient, or medication are skipped, as are, under the
+     * {@link InteractionPolicy#REJECT} policy, requests for a medication that
+     * interacts with one the patient is prescribed, including earlier in the batch.
+     * 
+     * @param requests The prescriptions to accept.
+     * @return The number of prescriptions accepted and the reason for each one skipped.
+     */
+    public BatchResult acceptPrescriptions(Collection<PrescriptionRequest> requests) {
+        long start = System.nanoTime();
+        BatchResult result = new BatchResult();
+        List<Prescription> accepted = new ArrayList<>(requests.size());
+        Set<String> seen = new HashSet<>();
+        Map<Patient, List<Medication>> batched = new HashMap<>();
+
+        Instant now = Instant.now();
+        for (PrescriptionRequest request : requests) {
+            String prescriptionId = request.getPrescriptionId();
+            Doctor doctor = doctors.findById(request.getDoctorId());
+            Patient patient = patients.findById(request.getPatientId());
+            Medication medication = medications.findById(request.getMedicationId());
+
+            if (prescriptionId == null) {
+                result.failed(null, "Missing ID");
+            } else if (prescriptions.containsId(prescriptionId)) {
+                result.failed(prescriptionId, "ID already exists");
+            } else if (!seen.add(prescriptionId)) {
+                result.failed(prescriptionId, "ID repeated in batch");
+            } else if (doctor == null || patient == null || medication == null) {
+                result.failed(prescriptionId, "Doctor, patient, or medication not found");
+            } else if (refusedForInteraction(patient, medication, batched.get(patient))) {
+                result.failed(prescriptionId, "Interacts with a medication the patient is prescribed");
+            } else {
+                Instant issuedAt = request.getIssuedAt() != null ? request.getIssuedAt() : now;
+                accepted.add(new Prescription(prescriptionId, doctor, patient, medication, request.getPrescriptionExpiry(), issuedAt));
+                batched.computeIfAbsent(patient, p -> new ArrayList<>()).add(medication);
+            }
+        }
+
+        List<Prescription> added = prescriptions.addAllUnique(accepted, result);
+        for (Prescription prescription : added) {
+            prescription.getPatient().addPrescription(prescription);
+        }
+        if (journal != null) {
+            journal.acceptPrescriptions(added);
+        }
+        publish(SystemEventType.PRESCRIPTIONS_ACCEPTED, result.getAppliedCount(), result.getFailures().size());
+        metrics.record(TrackedOperation.ACCEPT_PRESCRIPTIONS, start, batchOutcome(result));
+        return result;
+    }
+
+    /**
+     * Applies the interaction policy to a prescription about to be accepted.
+     */
+    private boolean refusedForInteraction(Patient patient, Medication medication) {
+        return refusedForInteraction(patient, medication, null);
+    }
+
+    /**
+     * Applies the interaction policy to a prescription about to be accepted,
+     * checking it against the medications the patient is prescribed and, for a
+     * batch, those accepted for the patient earlier in the batch.
      * 
-     * @param name The name of the patient to search for.
+     * @return True if the prescription must be refused.
      */
-    public void searchPatientByName(String name) {
-        for (Patient patient : patients) {
-            if (patient.getName().equalsIgnoreCase(name)) {
-                System.out.println("Patient Found: " + patient);
-                return;
+    private boolean refusedForInteraction(Patient patient, Medication medication, List<Medication> batched) {
+        InteractionPolicy policy = interactionPolicy;
+        if (policy == InteractionPolicy.ALLOW) {
+            return false;
+        }
+        List<String> conflicts = activeMedications.conflicts(patient.getId(), medication.getId());
+        if (batched != null) {
+            List<String> withBatch = null;
+            for (Medication other : batched) {
+                if (interactions.interacts(medication.getId(), other.getId())) {
+                    if (withBatch == null) {
+                        withBatch = new ArrayList<>(conflicts);
+                    }
+                    withBatch.add(other.getId());
+                }
             }
+            if (withBatch != null) {
+                conflicts = withBatch;
+            }
+        }
+        if (conflicts.isEmpty()) {
+            return false;
         }
-        System.out.println("Patient not found.");
+        StringJoiner names = new StringJoiner(", ");
+        for (String id : conflicts) {
+            Medication other = medications.findById(id);
+            names.add(other == null ? id : other.getName());
+        }
+        boolean refused = policy == InteractionPolicy.REJECT;
+        publish(refused ? SystemEventType.INTERACTION_REFUSED : SystemEventType.INTERACTION_FLAGGED,
+                medication.getName(), names, patient.getName());
+        return refused;
     }
 
     /**
-     * Finds a doctor by name.
+     * Records that two medications interact, so that, under the current
+     * interaction policy, neither can be prescribed to a patient who is
+     * prescribed the other. The medications need not be registered yet.
      * 
-     * @param name The name of the doctor to search for.
+     * @param medicationId      The ID of one medication.
+     * @param otherMedicationId The ID of the other.
+     * @return True if the interaction was not already recorded.
+     * @throws IllegalArgumentException If both IDs are the same.
      */
-    public void searchDoctorByName(String name) {
-        for (Doctor doctor : doctors) {
-            if (doctor.getName().equalsIgnoreCase(name)) {
-                System.out.println("Doctor Found: " + doctor);
-                return;
+    public boolean addInteraction(String medicationId, String otherMedicationId) {
+        long start = System.nanoTime();
+        boolean added = interactions.add(medicationId, otherMedicationId);
+        if (added) {
+            if (journal != null) {
+                journal.addInteraction(medicationId, otherMedicationId);
             }
+            publish(SystemEventType.INTERACTION_ADDED, medicationId, otherMedicationId);
         }
-        System.out.println("Doctor not found.");
+        metrics.record(TrackedOperation.ADD_INTERACTION, start, added ? OperationOutcome.SUCCESS : OperationOutcome.DUPLICATE);
+        return added;
     }
 
     /**
-     * Finds a medication by name.
+     * Forgets that two medications interact.
      * 
-     * @param name The name of the medication to search for.
+     * @param medicationId      The ID of one medication.
+     * @param otherMedicationId The ID of the other.
+     * @return True if the interaction was recorded.
      */
-    public void searchMedicationByName(String name) {
-        for (Medication med : medications) {
-            if (med.getName().equalsIgnoreCase(name)) {
-                System.out.println("Medication Found: " + med);
-                return;
+    public boolean removeInteraction(String medicationId, String otherMedicationId) {
+        long start = System.nanoTime();
+        boolean removed = interactions.remove(medicationId, otherMedicationId);
+        if (removed) {
+            if (journal != null) {
+                journal.removeInteraction(medicationId, otherMedicationId);
             }
+            publish(SystemEventType.INTERACTION_REMOVED, medicationId, otherMedicationId);
         }
-        System.out.println("Medication not found.");
+        metrics.record(TrackedOperation.REMOVE_INTERACTION, start, removed ? OperationOutcome.SUCCESS : OperationOutcome.NOT_FOUND);
+        return removed;
     }
 
     /**
-     * Registers a new medication in the system, verifying the uniqueness of the ID.
+     * Tells whether an interaction between two medications is recorded.
      * 
-     * @param medication The medication to be added.
+     * @param medicationId      The ID of one medication.
+     * @param otherMedicationId The ID of the other.
+     * @return True if the medications interact.
      */
-    public void addMedication(Medication medication) {
-        for (Medication existingMedication : medications) {
-            if (existingMedication.getId().equals(medication.getId())) {
-                System.out.println("Error: A medication with ID " + medication.getId() + " already exists.");
-                return;
-        }
+    public boolean hasInteraction(String medicationId, String otherMedicationId) {
+        return interactions.interacts(medicationId, otherMedicationId);
     }
 
-    medications.add(medication);
-    System.out.println("Medication added: " + medication.getName() + " (ID: " + medication.getId() + ")");
-}
-
-
     /**
-     * Registers a new doctor in the system, confirming the uniqueness of the ID.
+     * Finds the medications a patient is prescribed that interact with a
+     * given one. The check costs a few word-wise ANDs, however many
+     * prescriptions the patient has.
      * 
-     * @param doctor The doctor to be added.
+     * @param patientId    The ID of the patient.
+     * @param medicationId The ID of the medication.
+     * @return The interacting medications the patient is prescribed.
      */
-    public void addDoctor(Doctor doctor) {
-        doctors.add(doctor);
-        System.out.println("Doctor added: " + doctor.getName() + " (Specialty: " + doctor.getSpecialty() + ")");
+    public List<Medication> findInteractingMedications(String patientId, String medicationId) {
+        long start = System.nanoTime();
+        List<Medication> found = new ArrayList<>();
+        for (String id : activeMedications.conflicts(patientId, medicationId)) {
+            Medication med = medications.findById(id);
+            if (med != null) {
+                found.add(med);
+            }
         }
-    
+        metrics.recordLookup(TrackedOperation.FIND_INTERACTING_MEDICATIONS, start, !found.isEmpty());
+        return found;
+    }
 
     /**
-     * Registers a new patient in the system, verifying the uniqueness of the ID.
+     * Lists every recorded interaction once, for writing a snapshot.
      * 
-     * @param patient The patient to be added.
+     * @return The pairs of interacting medication IDs.
      */
-    public void addPatient(Patient patient) {
-        // Check if a patient with the same ID already exists
-        for (Patient existingPatient : patients) {
-            if (existingPatient.getId().equals(patient.getId())) {
-                System.out.println("Error: A patient with ID " + patient.getId() + " already exists.");
-                return;
-        }
+    List<String[]> getInteractions() {
+        return interactions.pairs();
     }
-    
-    // If the ID is unique, add the patient
-    patients.add(patient);
-    System.out.println("Patient added: " + patient.getName() + " (ID: " + patient.getId() + ")");
-}
 
     /**
-     * Adds a new prescription to the system, ensuring the ID is unique.
+     * Lists the prescriptions that were swept out on expiry but are still kept
+     * in their patients' histories, for writing a snapshot.
      * 
-     * @param prescription The prescription to be added.
+     * @return The lapsed prescriptions.
      */
-    public void addPrescription(Prescription prescription) {
-        for (Prescription existingPrescription : prescriptions) {
-            if (existingPrescription.getId().equals(prescription.getId())) {
-                System.out.println("Error: A prescription with ID " + prescription.getId() + " already exists.");
-                return;
-        }
+    List<Prescription> getLapsedPrescriptions() {
+        return prescriptionHistory.lapsed();
     }
 
-    prescriptions.add(prescription);
-    System.out.println("Prescription added for patient " + prescription.getPatient().getName() + 
-                       " (Prescription ID: " + prescription.getId() + ")");
-}
-
-
-
-     /**
-     * Edits a medication's details by ID.
+    /**
+     * Puts a lapsed prescription back into its patient's history without
+     * registering it, for loading a snapshot.
      * 
-     * @param medicationId The ID of the medication to edit.
-     * @param newName The new name of the medication.
-     * @param newQuantity The new quantity.
-     * @param newDosage The new dosage.
+     * @param prescription The lapsed prescription.
      */
-    public void editMedication(String medicationId, String newName, int newQuantity, String newDosage) {
-        for (Medication med : medications) {
-            if (med.getId().equals(medicationId)) {
-                med.setName(newName);
-                med.setQuantity(newQuantity);
-                med.setDosage(newDosage);  // NEW FIELD UPDATED
-                System.out.println("Medication updated successfully: " + med);
-                return;
-            }
-        }
-        
-    System.out.println("Medication not found.");
-}
+    void restoreLapsedPrescription(Prescription prescription) {
+        prescriptionHistory.restoreLapsed(prescription);
+    }
 
     /**
-     * Edits a doctor's details by ID.
-     *
-     * @param doctorId The ID of the doctor to edit.
-     * @param newName The new name of the doctor.
-     * @param newAge The new age of the doctor.
-     * @param newPhoneNumber The new contact number of the doctor.
-     * @param newSpecialty The new specialty of the doctor.
+     * Registers a listener that is told about every prescription removed because it expired.
+     * 
+     * @param listener The listener to add.
      */
-    public void editDoctor(String doctorId, String newName, int newAge, String newPhoneNumber, String newSpecialty) {
-        for (Doctor doc : doctors) {
-            if (doc.getId().equals(doctorId)) {
-                doc.setName(newName);
-                doc.setAge(newAge);
-                doc.setPhoneNumber(newPhoneNumber);
-                doc.setSpecialty(newSpecialty);
-                System.out.println("Doctor updated successfully.");
-                return;
-            }
-        }
-        System.out.println("Doctor not found.");
+    public void addPrescriptionExpiryListener(PrescriptionExpiryListener listener) {
+        expiryListeners.add(listener);
     }
 
-     /**
-     * Edits a patient's details by ID.
-     *
-     * @param patientId The ID of the patient to edit.
-     * @param newName The new name of the patient.
-     * @param newAge The new age of the patient.
-     * @param newPhoneNumber The new contact number of the patient.
+    /**
+     * Removes a previously registered expiry listener.
+     * 
+     * @param listener The listener to remove.
      */
-    public void editPatient(String patientId, String newName, int newAge, String newPhoneNumber) {
-        for (Patient pat : patients) {
-            if (pat.getId().equals(patientId)) {
-                pat.setName(newName);
-                pat.setAge(newAge);
-                pat.setPhoneNumber(newPhoneNumber);
-                System.out.println("Patient updated successfully.");
-                return;
-            }
-        }
-        System.out.println("Patient not found.");
+    public void removePrescriptionExpiryListener(PrescriptionExpiryListener listener) {
+        expiryListeners.remove(listener);
     }
 
     /**
- * Edits a medication's details by ID, including its expiry date.
- * 
- * @param medicationId The ID of the medication to edit.
- * @param newName The new name of the medication.
- * @param newQuantity The new quantity.
- * @param newDosage The new dosage.
- * @param newExpiryDate The new expiry date.
- */
-public void editMedication(String medicationId, String newName, int newQuantity, String newDosage, LocalDate newExpiryDate) {
-    for (Medication med : medications) {
-        if (med.getId().equals(medicationId)) {
-            med.setName(newName);
-            med.setQuantity(newQuantity);
-            med.setDosage(newDosage);
-            med.setExpiryDate(newExpiryDate); // Updating expiry date
-            System.out.println("Medication updated successfully: " + med);
-            return;
-        }
+     * Registers a listener that is told whenever a medication's stock crosses
+     * its reorder point, in either direction.
+     * 
+     * @param listener The listener to add.
+     */
+    public void addLowStockListener(LowStockListener listener) {
+        lowStockListeners.add(listener);
     }
-    System.out.println("Medication not found.");
-}
-
 
     /**
-     * Deletes a medication from the system by ID.
+     * Removes a previously registered low-stock listener.
      * 
-     * @param medicationId The ID of the medication to delete.
+     * @param listener The listener to remove.
      */
-    public void deleteMedication(String medicationId) {
-        Iterator<Medication> iterator = medications.iterator();
-        while (iterator.hasNext()) {
-            Medication med = iterator.next();
-            if (med.getId().equals(medicationId)) {
-                iterator.remove();
-                System.out.println("Medication deleted successfully.");
-                return;
-            }
-        }
-        System.out.println("Medication not found.");
+    public void removeLowStockListener(LowStockListener listener) {
+        lowStockListeners.remove(listener);
     }
 
     /**
-     * Deletes a patient by ID.
-     * 
-     * @param patientId The ID of the patient to delete.
+     * Looks at a medication whose stock may have crossed its reorder point, and
+     * tells the listeners if it did. Called only on a crossing, so the cost is
+     * proportional to the number of medications that cross, not to the number
+     * of stock changes.
      */
-    public void deletePatient(String patientId) {
-        boolean removed = patients.removeIf(patient -> patient.getId().equals(patientId));
-
-        if (removed) {
-            System.out.println("Patient deleted successfully.");
+    private void stockLevelChanged(Medication med) {
+        Boolean nowLow = lowStock.update(med);
+        if (nowLow == null) {
+            return;
+        }
+        if (nowLow) {
+            publish(SystemEventType.STOCK_LOW, med.getName(), med.getQuantity(), med.getReorderPoint());
+            for (LowStockListener listener : lowStockListeners) {
+                listener.stockLow(med);
+            }
         } else {
-            System.out.println("Patient not found.");
+            publish(SystemEventType.STOCK_REPLENISHED, med.getName(), med.getQuantity(), med.getReorderPoint());
+            for (LowStockListener listener : lowStockListeners) {
+                listener.stockReplenished(med);
+            }
         }
-}
-
+    }
 
     /**
-     * Deletes a doctor by ID.
+     * Removes every prescription that has expired as of the given date from the
+     * system and from its patient's prescriptions, then notifies the expiry listeners.
+     * Expiries are kept in a timing wheel, so only the prescriptions that expire
+     * are touched, not the whole prescription list. The expired prescriptions
+     * stay in their patients' prescription histories. A journaled system logs
+     * the sweep, so a recovered system does not bring them back.
      * 
-     * @param doctorId The ID of the doctor to delete.
+     * @param today The current date; prescriptions with an expiry date before it are removed.
+     * @return The prescriptions that expired, in expiry order.
      */
-    public void deleteDoctor(String doctorId) {
-        Iterator<Doctor> iterator = doctors.iterator();
-        while (iterator.hasNext()) {
-            Doctor doctor = iterator.next();
-            if (doctor.getId().equals(doctorId)) {
-                iterator.remove();
-                System.out.println("Doctor deleted successfully.");
-                return;
+    public List<Prescription> expirePrescriptions(LocalDate today) {
+        long start = System.nanoTime();
+        List<Prescription> expired = prescriptionExpiries.advanceTo(today.toEpochDay());
+        lapse(expired);
+        if (journal != null && !expired.isEmpty()) {
+            journal.expirePrescriptions(expired);
+        }
+        for (Prescription prescription : expired) {
+            for (PrescriptionExpiryListener listener : expiryListeners) {
+                listener.prescriptionExpired(prescription);
             }
         }
-        System.out.println("Doctor not found.");
+        if (!expired.isEmpty()) {
+            publish(SystemEventType.PRESCRIPTIONS_EXPIRED, expired.size());
+        }
+        metrics.record(TrackedOperation.EXPIRE_PRESCRIPTIONS, start, OperationOutcome.SUCCESS);
+        return expired;
     }
 
-
     /**
-     * Assigns a patient to a doctor using the doctor's ID.
+     * Removes prescriptions that a logged expiry sweep removed, for replaying
+     * the log. The expiry listeners were told at the time and are not told again.
      * 
-     * @param doctorId The ID of the doctor.
-     * @param patient  The patient to add.
+     * @param prescriptionIds The IDs of the swept prescriptions.
      */
-    public void addPatientToDoctor(String doctorId, Patient patient) {
-        for (Doctor doc : doctors) {
-            if (doc.getId().equals(doctorId)) {
-                doc.addPatient(patient);
-                System.out.println("Patient added to doctor's list.");
-                return;
+    void replayExpiry(Collection<String> prescriptionIds) {
+        List<Prescription> expired = new ArrayList<>(prescriptionIds.size());
+        for (String id : prescriptionIds) {
+            Prescription prescription = prescriptions.findById(id);
+            if (prescription != null) {
+                expired.add(prescription);
             }
         }
-        System.out.println("Doctor not found.");
+        lapse(expired);
     }
 
     /**
-     * Accepts a prescription and links it to the patient.
-     * 
-     * @param prescriptionId    The ID of the prescription.
-     * @param doctorId          The ID of the prescribing doctor.
-     * @param patientId         The ID of the patient.
-     * @param medicationId      The ID of the prescribed medication.
-     * @param prescriptionExpiry The expiration date of the prescription.
+     * Removes swept prescriptions from the system, keeping them in their
+     * patients' histories.
      */
-    public void acceptPrescription(String prescriptionId, String doctorId, String patientId, String medicationId, LocalDate prescriptionExpiry) {
-        Doctor doctor = null;
-        Patient patient = null;
-        Medication medication = null;
-
-        for (Doctor doc : doctors) {
-            if (doc.getId().equals(doctorId)) {
-                doctor = doc;
-                break;
-            }
-        }
+    private void lapse(List<Prescription> expired) {
+        prescriptionHistory.lapse(expired);
+        removePrescriptions(expired);
+    }
 
-        for (Patient pat : patients) {
-            if (pat.getId().equals(patientId)) {
-                patient = pat;
-                break;
-            }
+    /**
+     * Starts a background thread that removes expired prescriptions at a fixed rate.
+     * The sweep calls {@link #expirePrescriptions(LocalDate)} from that thread, so
+     * a system used from other threads at the same time must be a
+     * {@link ConcurrentMedicationTrackingSystem}, whose sweep locks every stripe.
+     * 
+     * @param period How often to sweep.
+     * @param unit   The unit of the period.
+     */
+    public synchronized void startExpirySweeper(long period, TimeUnit unit) {
+        if (expirySweeper != null) {
+            return;
         }
+        expirySweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "prescription-expiry-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        expirySweeper.scheduleAtFixedRate(() -> expirePrescriptions(LocalDate.now()), 0, period, unit);
+    }
 
-        for (Medication med : medications) {
-            if (med.getId().equals(medicationId)) {
-                medication = med;
-                break;
-            }
+    /**
+     * Stops the background expiry sweeper, if it is running.
+     */
+    public synchronized void stopExpirySweeper() {
+        if (expirySweeper != null) {
+            expirySweeper.shutdown();
+            expirySweeper = null;
         }
+    }
 
-        if (doctor != null && patient != null && medication != null) {
-            Prescription prescription = new Prescription(prescriptionId, doctor, patient, medication, prescriptionExpiry);
-            prescriptions.add(prescription);
-            patient.addPrescription(prescription);
-            System.out.println("Prescription successfully added for patient " + patient.getName() + 
-                   ", Medication: " + medication.getName() + 
-                   ", Prescribed by: " + doctor.getName());
+    /**
+     * Takes a point-in-time view of every registered record, in O(1). The view
+     * does not change as records are added or deleted, and reading it takes no
+     * locks, so long reports can run alongside writers. Close it when done.
+     * 
+     * @return The snapshot.
+     */
+    public SystemSnapshot snapshot() {
+        return new SystemSnapshot(this, versions, medications, doctors, patients, prescriptions);
+    }
 
-        } else {
-            System.out.println("Error: Doctor, patient, or medication not found.");
-        }
+    /**
+     * Drops deleted records that no open snapshot still needs.
+     */
+    void purgeRetired() {
+        medications.purgeRetired();
+        doctors.purgeRetired();
+        patients.purgeRetired();
+        prescriptions.purgeRetired();
     }
 
     /**
-     * Retrieves the list of doctors.
+     * Retrieves the list of doctors. The list is live and backed by an ordered
+     * registry: iterate it, or look doctors up by ID, rather than index into
+     * it. It is not RandomAccess, so get(int) walks the list and costs O(n).
      * 
      * @return The list of doctors.
      */
@@ -369,7 +1827,8 @@ public void editMedication(String medicationId, String newName, int newQuantity,
     }
 
     /**
-     * Retrieves the list of patients.
+     * Retrieves the list of patients. As with {@link #getDoctors()}, the list
+     * is live and not RandomAccess.
      * 
      * @return The list of patients.
      */
@@ -378,7 +1837,8 @@ public void editMedication(String medicationId, String newName, int newQuantity,
     }
 
     /**
-     * Retrieves the list of medications.
+     * Retrieves the list of medications. As with {@link #getDoctors()}, the list
+     * is live and not RandomAccess.
      * 
      * @return The list of medications.
      */
@@ -387,7 +1847,8 @@ public void editMedication(String medicationId, String newName, int newQuantity,
     }
 
     /**
-     * Retrieves the list of prescriptions.
+     * Retrieves the list of prescriptions. As with {@link #getDoctors()}, the list
+     * is live and not RandomAccess.
      * 
      * @return The list of prescriptions.
      */
@@ -399,105 +1860,267 @@ public void editMedication(String medicationId, String newName, int newQuantity,
      * Generates a system-wide report of all data.
      */
     public void generateSystemReport() {
-        System.out.println("\n*** SYSTEM REPORT ***");
-        
-        // List all medications
-        System.out.println("\nMedications:");
-        if (medications.isEmpty()) {
-            System.out.println("No medications available.");
-        } else {
-            for (Medication med : medications) {
-                System.out.println(med);
-            }
-        }
-    
-        // List all doctors
-        System.out.println("\nDoctors:");
-        if (doctors.isEmpty()) {
-            System.out.println("No doctors available.");
-        } else {
-            for (Doctor doc : doctors) {
-                System.out.println(doc);
-            }
-        }
-    
-        // List all patients
-        System.out.println("\nPatients:");
-        if (patients.isEmpty()) {
-            System.out.println("No patients available.");
-        } else {
-            for (Patient pat : patients) {
-                System.out.println(pat);
-            }
-        }
-    
-        // List all prescriptions
-        System.out.println("\nPrescriptions:");
-        if (prescriptions.isEmpty()) {
-            System.out.println("No prescriptions available.");
-        } else {
-            for (Prescription presc : prescriptions) {
-                System.out.println(presc);
-            }
+        try {
+            generateSystemReport(new OutputStreamWriter(System.out, Charset.defaultCharset()), ReportFormat.TEXT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
+
+    /**
+     * Streams a report of all data to the given writer. The writer is flushed
+     * but not closed. Use {@link ReportWriter} directly to pick sections or page the rows.
+     * 
+     * @param out    The destination of the report.
+     * @param format The encoding of the report.
+     */
+    public void generateSystemReport(Writer out, ReportFormat format) throws IOException {
+        long start = System.nanoTime();
+        new ReportWriter(out, format).write(this);
+        metrics.record(TrackedOperation.GENERATE_SYSTEM_REPORT, start, OperationOutcome.SUCCESS);
     } 
 
          /**
-     * Checks for expired medications and displays them.
+     * Checks for expired medications and reports each to the event listener, oldest first.
      */
     public void checkForExpiredMedications() {
-        System.out.println("\n*** Expired Medications Check ***");
-        LocalDate today = LocalDate.now();
-        boolean foundExpired = false;
+        long start = System.nanoTime();
+        publish(SystemEventType.EXPIRED_MEDICATIONS_CHECKED);
+        List<Medication> expired = expiryIndex.expiringBefore(LocalDate.now());
 
-        for (Medication med : medications) {
-            if (med.getExpiryDate().isBefore(today)) {
-                System.out.println("Expired Medication: " + med);
-                foundExpired = true;
-            }
+        for (Medication med : expired) {
+            publish(SystemEventType.MEDICATION_EXPIRED, med);
         }
         
-        if (!foundExpired) {
-            System.out.println("No expired medications found.");
+        if (expired.isEmpty()) {
+            publish(SystemEventType.NO_EXPIRED_MEDICATIONS);
+        }
+        metrics.recordLookup(TrackedOperation.CHECK_FOR_EXPIRED_MEDICATIONS, start, !expired.isEmpty());
+    }
+
+    /**
+     * Reports the medications that expire within the given number of days to
+     * the event listener, soonest first.
+     * 
+     * @param days The size of the window, counted from today.
+     */
+    public void checkForMedicationsExpiringWithin(int days) {
+        long start = System.nanoTime();
+        publish(SystemEventType.EXPIRING_MEDICATIONS_CHECKED, days);
+        LocalDate today = LocalDate.now();
+        List<Medication> expiring = expiryIndex.expiringBetween(today, today.plusDays(days));
+
+        for (Medication med : expiring) {
+            publish(SystemEventType.MEDICATION_EXPIRING, med);
+        }
+
+        if (expiring.isEmpty()) {
+            publish(SystemEventType.NO_EXPIRING_MEDICATIONS, days);
         }
+        metrics.recordLookup(TrackedOperation.CHECK_FOR_MEDICATIONS_EXPIRING_WITHIN, start, !expiring.isEmpty());
+    }
+
+    /**
+     * Retrieves the medications whose expiry date is before today, oldest first.
+     * 
+     * @return The expired medications.
+     */
+    public List<Medication> getExpiredMedications() {
+        long start = System.nanoTime();
+        List<Medication> expired = expiryIndex.expiringBefore(LocalDate.now());
+        metrics.recordLookup(TrackedOperation.GET_EXPIRED_MEDICATIONS, start, !expired.isEmpty());
+        return expired;
+    }
+
+    /**
+     * Retrieves the medications that have not expired yet but will within the
+     * given number of days, soonest first.
+     * 
+     * @param days The size of the window, counted from today.
+     * @return The medications expiring from today up to and including today plus days.
+     */
+    public List<Medication> getMedicationsExpiringWithin(int days) {
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        List<Medication> expiring = expiryIndex.expiringBetween(today, today.plusDays(days));
+        metrics.recordLookup(TrackedOperation.GET_MEDICATIONS_EXPIRING_WITHIN, start, !expiring.isEmpty());
+        return expiring;
     }
 
         /**
-     * Prints a list of all prescriptions issued by a specific doctor.
+     * Reports every prescription issued by a specific doctor to the event listener.
      * 
      * @param doctorId The ID of the doctor whose prescriptions are to be listed.
      */
     public void printPrescriptionsByDoctor(String doctorId) {
-        System.out.println("\n*** Prescriptions Issued by Doctor ID: " + doctorId + " ***");
-        boolean found = false;
+        long start = System.nanoTime();
+        publish(SystemEventType.DOCTOR_PRESCRIPTIONS_LISTED, doctorId);
+        List<Prescription> issued = prescriptionsByDoctor.get(doctorId);
         
-        for (Prescription presc : prescriptions) {
-            if (presc.getDoctor().getId().equals(doctorId)) {
-                System.out.println(presc);
-                found = true;
-            }
+        for (Prescription presc : issued) {
+            publish(SystemEventType.PRESCRIPTION_LISTED, presc);
         }
         
-        if (!found) {
-            System.out.println("No prescriptions found for this doctor.");
+        if (issued.isEmpty()) {
+            publish(SystemEventType.NO_DOCTOR_PRESCRIPTIONS);
         }
+        metrics.recordLookup(TrackedOperation.PRINT_PRESCRIPTIONS_BY_DOCTOR, start, !issued.isEmpty());
+        }
+
+    /**
+     * Retrieves the prescriptions issued by a doctor, in the order they were added.
+     * Only that doctor's prescriptions are visited.
+     * 
+     * @param doctorId The ID of the doctor.
+     * @return The doctor's prescriptions, possibly empty.
+     */
+    public List<Prescription> getPrescriptionsByDoctor(String doctorId) {
+        long start = System.nanoTime();
+        List<Prescription> issued = prescriptionsByDoctor.get(doctorId);
+        metrics.recordLookup(TrackedOperation.GET_PRESCRIPTIONS_BY_DOCTOR, start, !issued.isEmpty());
+        return issued;
+    }
+
+    /**
+     * Counts the prescriptions issued by a doctor.
+     * 
+     * @param doctorId The ID of the doctor.
+     * @return The number of prescriptions.
+     */
+    public int countPrescriptionsByDoctor(String doctorId) {
+        long start = System.nanoTime();
+        int count = prescriptionsByDoctor.count(doctorId);
+        metrics.recordLookup(TrackedOperation.COUNT_PRESCRIPTIONS_BY_DOCTOR, start, count > 0);
+        return count;
+    }
+
+    /**
+     * Counts the prescriptions issued by every doctor who has issued any, in
+     * time proportional to the number of doctors.
+     * 
+     * @return The number of prescriptions per doctor ID.
+     */
+    public Map<String, Integer> getPrescriptionCountsByDoctor() {
+        return prescriptionsByDoctor.counts();
+    }
+
+    /**
+     * Retrieves the dashboard figures as of today.
+     * 
+     * @return The figures.
+     */
+    public DashboardStats getDashboardStats() {
+        return getDashboardStats(LocalDate.now());
+    }
+
+    /**
+     * Retrieves the dashboard figures as of the given date. Every figure is a
+     * running total kept up to date by each add, edit, restock, dispense and
+     * delete, so no records are scanned; expiry counts only look at the days
+     * since the date last asked about.
+     * 
+     * @param today The date expiry is measured against.
+     * @return The figures.
+     */
+    public DashboardStats getDashboardStats(LocalDate today) {
+        int prescriptionCount = prescriptions.size();
+        // A prescription is valid through its expiry date, so it has lapsed once that date is before today.
+        long lapsed = prescriptionExpiryCounts.countBefore(today);
+        return new DashboardStats(today, medications.size(), totalStock.sum(), medicationExpiryCounts.countBefore(today),
+                                  lowStock.count(), doctors.size(), patients.size(), prescriptionCount,
+                                  Math.max(0, prescriptionCount - lapsed));
+    }
+
+    /**
+     * Sets the stock level below which a medication needs reordering. If the
+     * change moves the medication onto or off the low-stock list, the
+     * low-stock listeners are told.
+     * 
+     * @param medicationId The ID of the medication.
+     * @param reorderPoint The new reorder point; 0 means the medication is never low on stock.
+     * @return True if the medication was found.
+     */
+    public boolean setReorderPoint(String medicationId, int reorderPoint) {
+        long start = System.nanoTime();
+        Medication med = medications.findById(medicationId);
+        if (med != null) {
+            med.setReorderPoint(reorderPoint);
+            if (journal != null) {
+                journal.setReorderPoint(medicationId, reorderPoint);
+            }
+            publish(SystemEventType.REORDER_POINT_SET, med.getName(), reorderPoint);
+            metrics.record(TrackedOperation.SET_REORDER_POINT, start, OperationOutcome.SUCCESS);
+            return true;
         }
+        publish(SystemEventType.MEDICATION_NOT_FOUND);
+        metrics.record(TrackedOperation.SET_REORDER_POINT, start, OperationOutcome.NOT_FOUND);
+        return false;
+    }
+
+    /**
+     * Lists the medications whose stock is below their reorder point, in time
+     * proportional to the number listed.
+     * 
+     * @return The medications that need reordering, the furthest below their reorder point first.
+     */
+    public List<Medication> getLowStockMedications() {
+        long start = System.nanoTime();
+        List<Medication> low = lowStock.get();
+        metrics.recordLookup(TrackedOperation.GET_LOW_STOCK_MEDICATIONS, start, !low.isEmpty());
+        return low;
+    }
 
     /**
      * Restocks a medication by adding a specified quantity.
      * 
      * @param medicationId The ID of the medication to restock.
      * @param quantity The amount to add to the existing stock.
+     * @return True if the medication was found and restocked.
+     * @throws IllegalArgumentException If the quantity is negative.
      */
-    public void restockMedication(String medicationId, int quantity) {
-        for (Medication med : medications) {
-            if (med.getId().equals(medicationId)) {
-                med.setQuantity(med.getQuantity() + quantity);
-                System.out.println("Restocked " + quantity + " units of " + med.getName() + ". New quantity: " + med.getQuantity());
-                return;
-            }
+    public boolean restockMedication(String medicationId, int quantity) {
+        long start = System.nanoTime();
+        Medication med = medications.findById(medicationId);
+        if (med != null) {
+            WriteAheadLog log = journal;
+            int updated = log != null ? log.restockMedication(med, quantity) : med.restock(quantity);
+            publish(SystemEventType.MEDICATION_RESTOCKED, quantity, med.getName(), updated);
+            metrics.record(TrackedOperation.RESTOCK_MEDICATION, start, OperationOutcome.SUCCESS);
+            return true;
+        }
+        publish(SystemEventType.MEDICATION_NOT_FOUND);
+        metrics.record(TrackedOperation.RESTOCK_MEDICATION, start, OperationOutcome.NOT_FOUND);
+        return false;
+    }
+
+    /**
+     * Takes units of a medication out of stock. The stock is decremented with a
+     * single compare-and-set, so concurrent dispenses of the same medication never
+     * take it below zero and, unless a journal is attached, never wait on a lock.
+     * With a journal, the change and its log record are made as one step under
+     * the log's lock, so the log holds stock changes in the order they happened.
+     * 
+     * @param medicationId The ID of the medication to dispense.
+     * @param quantity     The number of units to dispense.
+     * @return True if the units were dispensed, false if the medication was not found or stock was insufficient.
+     */
+    public boolean dispenseMedication(String medicationId, int quantity) {
+        long start = System.nanoTime();
+        Medication med = medications.findById(medicationId);
+        if (med == null) {
+            publish(SystemEventType.MEDICATION_NOT_FOUND);
+            metrics.record(TrackedOperation.DISPENSE_MEDICATION, start, OperationOutcome.NOT_FOUND);
+            return false;
+        }
+        WriteAheadLog log = journal;
+        if (!(log != null ? log.dispenseMedication(med, quantity) : med.dispense(quantity))) {
+            publish(SystemEventType.DISPENSE_REFUSED, med.getName(), quantity);
+            metrics.record(TrackedOperation.DISPENSE_MEDICATION, start, OperationOutcome.REJECTED);
+            return false;
         }
-        System.out.println("Medication not found.");
+        publish(SystemEventType.MEDICATION_DISPENSED, quantity, med.getName());
+        metrics.record(TrackedOperation.DISPENSE_MEDICATION, start, OperationOutcome.SUCCESS);
+        return true;
     }
 
 }
\ No newline at end of file
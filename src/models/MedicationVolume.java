@@ -0,0 +1,35 @@
+package src.models;
+
+/**
+ * A medication together with the number of prescriptions written for it, as
+ * ranked by {@link SystemAnalytics#topMedications(int)}.
+ * 
+ * @author May Basalo
+ */
+public class MedicationVolume {
+    private final Medication medication;
+    private final long prescriptionCount;
+
+    /**
+     * Creates a volume.
+     * 
+     * @param medication        The medication.
+     * @param prescriptionCount The number of prescriptions for it.
+     */
+    public MedicationVolume(Medication medication, long prescriptionCount) {
+        this.medication = medication;
+        this.prescriptionCount = prescriptionCount;
+    }
+
+    /** Retrieves the medication. */
+    public Medication getMedication() { return medication; }
+
+    /** Retrieves the number of prescriptions for the medication. */
+    public long getPrescriptionCount() { return prescriptionCount; }
+
+    /** Returns a string representation of the volume. */
+    @Override
+    public String toString() {
+        return "MedicationVolume{Medication='" + medication.getName() + "', Prescriptions=" + prescriptionCount + "}";
+    }
+}
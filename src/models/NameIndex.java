@@ -0,0 +1,117 @@
+package src.models;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A sorted index from normalized names to the entities carrying them.
+ * Names are case-folded and their whitespace is trimmed and collapsed, so
+ * "  chris   JOHNSON" and "Chris Johnson" share one key. Exact lookups and
+ * prefix lookups both return every matching entity. The index is safe for
+ * concurrent use.
+ *
+ * @param <T> The type of entity being indexed.
+ *
+ * @author May Basalo
+ */
+class NameIndex<T> implements SecondaryIndex<T> {
+    private final SortedMultimap<String, T> byName;
+    private final Map<T, String> keys;
+    private final Function<T, String> nameOf;
+
+    /**
+     * Creates an empty name index.
+     *
+     * @param nameOf The function that extracts the name from an entity.
+     */
+    NameIndex(Function<T, String> nameOf) {
+        this.byName = new SortedMultimap<>();
+        this.keys = new ConcurrentHashMap<>();
+        this.nameOf = nameOf;
+    }
+
+    /**
+     * Normalizes a name for lookup: trims it, collapses inner whitespace to
+     * single spaces and lower-cases it.
+     *
+     * @param name The name to normalize.
+     * @return The normalized key, or an empty string for a null name.
+     */
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder(name.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = key.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    key.append(' ');
+                    pendingSpace = false;
+                }
+                key.append(c);
+            }
+        }
+        return key.toString().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void added(T entity) {
+        String key = normalize(nameOf.apply(entity));
+        keys.put(entity, key);
+        byName.put(key, entity);
+    }
+
+    @Override
+    public void removed(T entity) {
+        String key = keys.remove(entity);
+        if (key != null) {
+            byName.remove(key, entity);
+        }
+    }
+
+    /**
+     * Moves an entity to the key for its current name. Must be called after
+     * the entity's name changes.
+     *
+     * @param entity The renamed entity.
+     */
+    void reindex(T entity) {
+        String key = normalize(nameOf.apply(entity));
+        String previous = keys.replace(entity, key);
+        if (previous != null && !previous.equals(key)) {
+            byName.put(key, entity);
+            byName.remove(previous, entity);
+        }
+    }
+
+    /**
+     * Finds every entity whose normalized name equals the given name.
+     *
+     * @param name The name to look up.
+     * @return The matching entities, possibly empty.
+     */
+    List<T> findExact(String name) {
+        return byName.get(normalize(name));
+    }
+
+    /**
+     * Finds every entity whose normalized name starts with the given prefix,
+     * ordered by name.
+     *
+     * @param prefix The name prefix to look up.
+     * @return The matching entities, possibly empty.
+     */
+    List<T> findByPrefix(String prefix) {
+        String key = normalize(prefix);
+        return key.isEmpty()
+            ? byName.all()
+            : byName.between(key, true, key + Character.MAX_VALUE, false);
+    }
+}
@@ -0,0 +1,17 @@
+package src.models;
+
+/**
+ * How a tracked operation ended, as counted by {@link SystemMetrics}.
+ * 
+ * @author May Basalo
+ */
+public enum OperationOutcome {
+    /** The operation did what was asked, or a lookup found at least one record. */
+    SUCCESS,
+    /** A record the operation needed, or a lookup searched for, does not exist. */
+    NOT_FOUND,
+    /** The operation tried to add a record whose ID is already in use. */
+    DUPLICATE,
+    /** The operation was refused, for example for lack of stock, or a batch skipped some items. */
+    REJECTED
+}
@@ -0,0 +1,99 @@
+package src.models;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A point-in-time summary of one tracked operation: how often it ran, how each
+ * call ended and how long the calls took. Latencies are in microseconds.
+ * 
+ * @author May Basalo
+ */
+public class OperationStats {
+    private final String operation;
+    private final long count;
+    private final long successCount;
+    private final long notFoundCount;
+    private final long duplicateCount;
+    private final long rejectedCount;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p90Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    /**
+     * Creates a summary.
+     */
+    @ConstructorProperties({"operation", "count", "successCount", "notFoundCount", "duplicateCount", "rejectedCount",
+                            "meanMicros", "p50Micros", "p90Micros", "p99Micros", "p999Micros", "maxMicros"})
+    public OperationStats(String operation, long count, long successCount, long notFoundCount, long duplicateCount,
+                          long rejectedCount, double meanMicros, double p50Micros, double p90Micros, double p99Micros,
+                          double p999Micros, double maxMicros) {
+        this.operation = operation;
+        this.count = count;
+        this.successCount = successCount;
+        this.notFoundCount = notFoundCount;
+        this.duplicateCount = duplicateCount;
+        this.rejectedCount = rejectedCount;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    /** Retrieves the name of the system method, such as "acceptPrescription". */
+    public String getOperation() { return operation; }
+
+    /** Retrieves the number of calls. */
+    public long getCount() { return count; }
+
+    /** Retrieves the number of calls that succeeded. */
+    public long getSuccessCount() { return successCount; }
+
+    /** Retrieves the number of calls that did not find a record. */
+    public long getNotFoundCount() { return notFoundCount; }
+
+    /** Retrieves the number of calls refused because an ID was already in use. */
+    public long getDuplicateCount() { return duplicateCount; }
+
+    /** Retrieves the number of calls that were otherwise refused. */
+    public long getRejectedCount() { return rejectedCount; }
+
+    /** Retrieves the mean latency. */
+    public double getMeanMicros() { return meanMicros; }
+
+    /** Retrieves the median latency. */
+    public double getP50Micros() { return p50Micros; }
+
+    /** Retrieves the 90th percentile latency. */
+    public double getP90Micros() { return p90Micros; }
+
+    /** Retrieves the 99th percentile latency. */
+    public double getP99Micros() { return p99Micros; }
+
+    /** Retrieves the 99.9th percentile latency. */
+    public double getP999Micros() { return p999Micros; }
+
+    /** Retrieves the largest latency. */
+    public double getMaxMicros() { return maxMicros; }
+
+    /** Returns a string representation of the summary. */
+    @Override
+    public String toString() {
+        return "OperationStats{" +
+            "Operation='" + operation + '\'' +
+            ", Count=" + count +
+            ", Success=" + successCount +
+            ", Not Found=" + notFoundCount +
+            ", Duplicate=" + duplicateCount +
+            ", Rejected=" + rejectedCount +
+            ", Mean=" + meanMicros + "us" +
+            ", p50=" + p50Micros + "us" +
+            ", p99=" + p99Micros + "us" +
+            ", Max=" + maxMicros + "us" +
+            '}';
+    }
+}
@@ -1,6 +1,5 @@
 package src.models;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -22,7 +21,7 @@ public class Patient extends Person {
      */
     public Patient(String id, String name, int age, String phoneNumber) {
         super(id, name, age, phoneNumber); // Calls the constructor of Person
-        this.prescriptions = new ArrayList<>();
+        this.prescriptions = new ConcurrentAppendList<>();
     }
 
     /**
@@ -95,7 +94,9 @@ public class Patient extends Person {
     }
 
     /**
-     * Retrieves the patient's assigned prescription.
+     * Retrieves the patient's assigned prescription, in the order they were
+     * added. For a long history, page through it in issue order with
+     * {@link MedicationTrackingSystem#getPrescriptionHistory(String, String, int)} instead.
      * 
      * @return The list of prescriptions.
      */
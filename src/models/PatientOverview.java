@@ -0,0 +1,65 @@
+package src.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Everything a pharmacy screen shows about one patient: the patient, the
+ * doctors whose panels they are on, their prescriptions, and the medications
+ * those prescriptions are for. Built from the system's reverse indexes in one
+ * call, so its cost depends on the patient's own records only.
+ * 
+ * @author May Basalo
+ */
+public class PatientOverview {
+    private final Patient patient;
+    private final List<Doctor> doctors;
+    private final List<Prescription> prescriptions;
+    private final List<Medication> medications;
+
+    /**
+     * Creates an overview.
+     * 
+     * @param patient       The patient.
+     * @param doctors       The patient's doctors.
+     * @param prescriptions The patient's prescriptions.
+     */
+    public PatientOverview(Patient patient, List<Doctor> doctors, List<Prescription> prescriptions) {
+        this.patient = patient;
+        this.doctors = Collections.unmodifiableList(new ArrayList<>(doctors));
+        this.prescriptions = Collections.unmodifiableList(new ArrayList<>(prescriptions));
+        Set<Medication> prescribed = new LinkedHashSet<>();
+        for (Prescription prescription : prescriptions) {
+            if (prescription.getMedication() != null) {
+                prescribed.add(prescription.getMedication());
+            }
+        }
+        this.medications = Collections.unmodifiableList(new ArrayList<>(prescribed));
+    }
+
+    /** Retrieves the patient. */
+    public Patient getPatient() { return patient; }
+
+    /** Retrieves the doctors whose panels include the patient. */
+    public List<Doctor> getDoctors() { return doctors; }
+
+    /** Retrieves the patient's prescriptions, in the order they were accepted. */
+    public List<Prescription> getPrescriptions() { return prescriptions; }
+
+    /** Retrieves each medication prescribed to the patient, once, in prescription order. */
+    public List<Medication> getMedications() { return medications; }
+
+    /** Returns a string representation of the overview. */
+    @Override
+    public String toString() {
+        return "PatientOverview{" +
+            "Patient=" + patient.getName() +
+            ", Doctors=" + doctors.size() +
+            ", Prescriptions=" + prescriptions.size() +
+            ", Medications=" + medications.size() +
+            '}';
+    }
+}
@@ -8,9 +8,9 @@ package src.models;
  */
 public class Person {
     private final String id;
-    private String name;
-    private int age;
-    private String phoneNumber;
+    private volatile String name;
+    private volatile int age;
+    private volatile String phoneNumber;
 
     /**
      * Creates a Person object.
@@ -1,10 +1,13 @@
 package src.models;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Objects;
 
 /**
  * Represents a prescription within the pharmacy system..
- *Each prescription is associated with a specific doctor, patient, and medication.
+ *Each prescription is associated with a specific doctor, patient, and medication,
+ * and records when it was issued.
  * 
  * @author May Basalo
  */
@@ -14,9 +17,10 @@ public class Prescription {
     private final Patient patient;
     private final Medication medication;
     private final LocalDate prescriptionExpiry;
+    private final Instant issuedAt;
 
     /**
-     * Creates a new Prescription.
+     * Creates a new Prescription issued now.
      * 
      * @param id                 The unique identifier for the prescription.
      * @param doctor             The doctor issuing the prescription.
@@ -25,11 +29,26 @@ public class Prescription {
      * @param prescriptionExpiry The expiration date of the prescription.
      */
     public Prescription(String id, Doctor doctor, Patient patient, Medication medication, LocalDate prescriptionExpiry) {
+        this(id, doctor, patient, medication, prescriptionExpiry, Instant.now());
+    }
+
+    /**
+     * Creates a new Prescription issued at the given time.
+     * 
+     * @param id                 The unique identifier for the prescription.
+     * @param doctor             The doctor issuing the prescription.
+     * @param patient            The patient receiving the prescription.
+     * @param medication         The prescribed medication.
+     * @param prescriptionExpiry The expiration date of the prescription.
+     * @param issuedAt           When the prescription was issued.
+     */
+    public Prescription(String id, Doctor doctor, Patient patient, Medication medication, LocalDate prescriptionExpiry, Instant issuedAt) {
         this.id = id;
         this.doctor = doctor;
         this.patient = patient;
         this.medication = medication;
         this.prescriptionExpiry = prescriptionExpiry;
+        this.issuedAt = Objects.requireNonNull(issuedAt, "issuedAt");
     }
 
     /**
@@ -77,6 +96,15 @@ public class Prescription {
         return prescriptionExpiry;
     }
 
+    /**
+     * Retrieves when the prescription was issued.
+     * 
+     * @return The issue time.
+     */
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
     /**
      * Returns a string that represents the details of the prescription.
      * 
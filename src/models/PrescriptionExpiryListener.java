@@ -0,0 +1,17 @@
+package src.models;
+
+/**
+ * Receives prescriptions as they expire and are removed from the active set.
+ * 
+ * @author May Basalo
+ */
+public interface PrescriptionExpiryListener {
+
+    /**
+     * Called after an expired prescription has been removed from the system and
+     * from its patient's prescriptions.
+     * 
+     * @param prescription The prescription that expired.
+     */
+    void prescriptionExpired(Prescription prescription);
+}
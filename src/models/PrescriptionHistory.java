@@ -0,0 +1,295 @@
+package src.models;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps each patient's prescriptions ordered by the time they were issued, so
+ * a window of a long history can be read, page by page, in time proportional
+ * to the page rather than to the whole history.
+ *
+ * Prescriptions issued at the same instant are ordered by ID. A page is
+ * continued by a cursor naming the last prescription returned, so pages stay
+ * consistent while prescriptions are added or removed between requests: the
+ * next page starts just past that prescription whether or not it still exists.
+ *
+ * A history outlives the expiry sweep: prescriptions the sweep removes from
+ * the system are marked as lapsed and stay in their patient's history, which
+ * is dropped only when the patient is deleted. Each history is also ordered by
+ * expiry date, so the prescriptions in force on a past date are found without
+ * visiting those that had already expired by then. The index is safe for
+ * concurrent use.
+ *
+ * @author May Basalo
+ */
+class PrescriptionHistory implements SecondaryIndex<Prescription> {
+    private static final char CURSOR_SEPARATOR = '~';
+
+    private final Map<String, History> byPatient;
+    private final Set<Prescription> lapsed;
+
+    /**
+     * Creates an empty index.
+     */
+    PrescriptionHistory() {
+        this.byPatient = new ConcurrentHashMap<>();
+        this.lapsed = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    @Override
+    public void added(Prescription prescription) {
+        String patientId = patientIdOf(prescription);
+        if (patientId == null) {
+            return;
+        }
+        byPatient.compute(patientId, (id, history) -> {
+            if (history == null) {
+                history = new History();
+            }
+            history.put(prescription);
+            return history;
+        });
+    }
+
+    @Override
+    public void removed(Prescription prescription) {
+        String patientId = patientIdOf(prescription);
+        if (patientId == null || lapsed.contains(prescription)) {
+            return;
+        }
+        byPatient.computeIfPresent(patientId, (id, history) -> {
+            history.remove(prescription);
+            return history.isEmpty() ? null : history;
+        });
+    }
+
+    /**
+     * Marks prescriptions as lapsed, so they stay in the history when the
+     * expiry sweep removes them from the system.
+     *
+     * @param expired The prescriptions about to be swept.
+     */
+    void lapse(Collection<Prescription> expired) {
+        lapsed.addAll(expired);
+    }
+
+    /**
+     * Puts a lapsed prescription back into its patient's history, as when a
+     * snapshot is loaded.
+     *
+     * @param prescription The prescription, which is not in the system.
+     */
+    void restoreLapsed(Prescription prescription) {
+        if (patientIdOf(prescription) == null) {
+            return;
+        }
+        lapsed.add(prescription);
+        added(prescription);
+    }
+
+    /**
+     * Lists the lapsed prescriptions still kept in histories.
+     *
+     * @return A copy of the lapsed prescriptions.
+     */
+    List<Prescription> lapsed() {
+        synchronized (lapsed) {
+            return new ArrayList<>(lapsed);
+        }
+    }
+
+    /**
+     * Drops a deleted patient's history, lapsed prescriptions included.
+     *
+     * @param patientId The ID of the patient.
+     */
+    void forget(String patientId) {
+        History history = byPatient.remove(patientId);
+        if (history != null) {
+            lapsed.removeAll(history.byIssue.values());
+        }
+    }
+
+    /**
+     * Reads one page of a patient's prescriptions issued within a window,
+     * newest first.
+     *
+     * @param patientId The ID of the patient.
+     * @param from      The earliest issue time to include, or null for no lower bound.
+     * @param to        The issue time to stop before (exclusive), or null for no upper bound.
+     * @param cursor    The cursor returned with the previous page, or null for the first page.
+     * @param limit     The most prescriptions to return.
+     * @return The page.
+     * @throws IllegalArgumentException If the limit is not positive or the cursor is malformed.
+     */
+    PrescriptionHistoryPage page(String patientId, Instant from, Instant to, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+        Key after = cursor == null ? null : decode(cursor);
+        History history = byPatient.get(patientId);
+        if (history == null) {
+            return new PrescriptionHistoryPage(new ArrayList<>(), null);
+        }
+        NavigableMap<Key, Prescription> window = history.byIssue;
+        if (from != null) {
+            window = window.tailMap(Key.first(from), true);
+        }
+        if (to != null) {
+            window = window.headMap(Key.first(to), false);
+        }
+        if (after != null) {
+            window = window.headMap(after, false);
+        }
+        List<Prescription> page = new ArrayList<>(Math.min(limit, 64));
+        String next = null;
+        for (Map.Entry<Key, Prescription> entry : window.descendingMap().entrySet()) {
+            if (page.size() == limit) {
+                next = encode(new Key(page.get(page.size() - 1)));
+                break;
+            }
+            page.add(entry.getValue());
+        }
+        return new PrescriptionHistoryPage(page, next);
+    }
+
+    /**
+     * Lists a patient's prescriptions that were in force on a date: issued on
+     * or before it and not yet past their expiry date. Only the prescriptions
+     * that had not expired before that date are visited.
+     *
+     * @param patientId The ID of the patient.
+     * @param date      The date.
+     * @param zone      The time zone the date is in.
+     * @return The matching prescriptions, newest first.
+     */
+    List<Prescription> activeOn(String patientId, LocalDate date, ZoneId zone) {
+        List<Prescription> active = new ArrayList<>();
+        History history = byPatient.get(patientId);
+        if (history == null) {
+            return active;
+        }
+        Instant endOfDay = date.plusDays(1).atStartOfDay(zone).toInstant();
+        // A prescription is valid through its expiry date.
+        for (Prescription prescription : history.byExpiry.tailMap(ExpiryKey.first(date.toEpochDay()), true).values()) {
+            if (prescription.getIssuedAt().isBefore(endOfDay)) {
+                active.add(prescription);
+            }
+        }
+        active.sort((a, b) -> new Key(b).compareTo(new Key(a)));
+        return active;
+    }
+
+    private static String patientIdOf(Prescription prescription) {
+        return prescription.getPatient() == null ? null : prescription.getPatient().getId();
+    }
+
+    private static String encode(Key key) {
+        return key.issuedAt.toString() + CURSOR_SEPARATOR + key.id;
+    }
+
+    private static Key decode(String cursor) {
+        int separator = cursor.indexOf(CURSOR_SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        try {
+            return new Key(Instant.parse(cursor.substring(0, separator)), cursor.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * One patient's prescriptions, ordered by issue time and by expiry date.
+     */
+    private static final class History {
+        final NavigableMap<Key, Prescription> byIssue = new ConcurrentSkipListMap<>();
+        final NavigableMap<ExpiryKey, Prescription> byExpiry = new ConcurrentSkipListMap<>();
+
+        void put(Prescription prescription) {
+            byIssue.put(new Key(prescription), prescription);
+            byExpiry.put(new ExpiryKey(prescription), prescription);
+        }
+
+        void remove(Prescription prescription) {
+            byIssue.remove(new Key(prescription));
+            byExpiry.remove(new ExpiryKey(prescription));
+        }
+
+        boolean isEmpty() {
+            return byIssue.isEmpty();
+        }
+    }
+
+    /**
+     * A position in a history: an issue time, then a prescription ID to order
+     * prescriptions issued at the same instant.
+     */
+    private static final class Key implements Comparable<Key> {
+        final Instant issuedAt;
+        final String id;
+
+        Key(Instant issuedAt, String id) {
+            this.issuedAt = issuedAt;
+            this.id = id;
+        }
+
+        Key(Prescription prescription) {
+            this(prescription.getIssuedAt(), prescription.getId());
+        }
+
+        /** The position before every prescription issued at the given instant. */
+        static Key first(Instant issuedAt) {
+            return new Key(issuedAt, "");
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byTime = issuedAt.compareTo(other.issuedAt);
+            return byTime != 0 ? byTime : id.compareTo(other.id);
+        }
+    }
+
+    /**
+     * A position in a history ordered by expiry: an expiry day, with
+     * prescriptions that never expire last, then the issue position.
+     */
+    private static final class ExpiryKey implements Comparable<ExpiryKey> {
+        final long expiryDay;
+        final Key key;
+
+        ExpiryKey(long expiryDay, Key key) {
+            this.expiryDay = expiryDay;
+            this.key = key;
+        }
+
+        ExpiryKey(Prescription prescription) {
+            this(prescription.getPrescriptionExpiry() == null ? Long.MAX_VALUE
+                    : prescription.getPrescriptionExpiry().toEpochDay(), new Key(prescription));
+        }
+
+        /** The position before every prescription expiring on the given day. */
+        static ExpiryKey first(long expiryDay) {
+            return new ExpiryKey(expiryDay, Key.first(Instant.MIN));
+        }
+
+        @Override
+        public int compareTo(ExpiryKey other) {
+            int byExpiry = Long.compare(expiryDay, other.expiryDay);
+            return byExpiry != 0 ? byExpiry : key.compareTo(other.key);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package src.models;
+
+import java.util.List;
+
+/**
+ * One page of a patient's prescription history, newest first, together with
+ * the cursor that continues it.
+ *
+ * @author May Basalo
+ */
+public class PrescriptionHistoryPage {
+    private final List<Prescription> prescriptions;
+    private final String nextCursor;
+
+    /**
+     * Creates a page.
+     *
+     * @param prescriptions The prescriptions on the page, newest first.
+     * @param nextCursor    The cursor of the next page, or null if this is the last one.
+     */
+    public PrescriptionHistoryPage(List<Prescription> prescriptions, String nextCursor) {
+        this.prescriptions = prescriptions;
+        this.nextCursor = nextCursor;
+    }
+
+    /** Retrieves the prescriptions on the page, newest first. */
+    public List<Prescription> getPrescriptions() { return prescriptions; }
+
+    /** Retrieves the cursor that fetches the next page, or null if this is the last one. */
+    public String getNextCursor() { return nextCursor; }
+
+    /** Tells whether more pages follow this one. */
+    public boolean hasNext() { return nextCursor != null; }
+}
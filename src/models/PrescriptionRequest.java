@@ -0,0 +1,72 @@
+package src.models;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Describes a prescription to be accepted, by the IDs of the records it links.
+ * Used to submit many prescriptions at once through
+ * {@link MedicationTrackingSystem#acceptPrescriptions(java.util.Collection)}.
+ * 
+ * @author May Basalo
+ */
+public class PrescriptionRequest {
+    private final String prescriptionId;
+    private final String doctorId;
+    private final String patientId;
+    private final String medicationId;
+    private final LocalDate prescriptionExpiry;
+    private final Instant issuedAt;
+
+    /**
+     * Creates a new PrescriptionRequest.
+     * 
+     * @param prescriptionId     The ID of the prescription.
+     * @param doctorId           The ID of the prescribing doctor.
+     * @param patientId          The ID of the patient.
+     * @param medicationId       The ID of the prescribed medication.
+     * @param prescriptionExpiry The expiration date of the prescription.
+     */
+    public PrescriptionRequest(String prescriptionId, String doctorId, String patientId, String medicationId, LocalDate prescriptionExpiry) {
+        this(prescriptionId, doctorId, patientId, medicationId, prescriptionExpiry, null);
+    }
+
+    /**
+     * Creates a new PrescriptionRequest for a prescription issued at a known
+     * time, such as one imported from another system.
+     * 
+     * @param prescriptionId     The ID of the prescription.
+     * @param doctorId           The ID of the prescribing doctor.
+     * @param patientId          The ID of the patient.
+     * @param medicationId       The ID of the prescribed medication.
+     * @param prescriptionExpiry The expiration date of the prescription.
+     * @param issuedAt           When the prescription was issued, or null for when it is accepted.
+     */
+    public PrescriptionRequest(String prescriptionId, String doctorId, String patientId, String medicationId,
+                               LocalDate prescriptionExpiry, Instant issuedAt) {
+        this.prescriptionId = prescriptionId;
+        this.doctorId = doctorId;
+        this.patientId = patientId;
+        this.medicationId = medicationId;
+        this.prescriptionExpiry = prescriptionExpiry;
+        this.issuedAt = issuedAt;
+    }
+
+    /** Retrieves the ID of the prescription. */
+    public String getPrescriptionId() { return prescriptionId; }
+
+    /** Retrieves the ID of the prescribing doctor. */
+    public String getDoctorId() { return doctorId; }
+
+    /** Retrieves the ID of the patient. */
+    public String getPatientId() { return patientId; }
+
+    /** Retrieves the ID of the prescribed medication. */
+    public String getMedicationId() { return medicationId; }
+
+    /** Retrieves the expiration date of the prescription. */
+    public LocalDate getPrescriptionExpiry() { return prescriptionExpiry; }
+
+    /** Retrieves when the prescription was issued, or null if it is issued when accepted. */
+    public Instant getIssuedAt() { return issuedAt; }
+}
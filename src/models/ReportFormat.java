@@ -0,0 +1,15 @@
+package src.models;
+
+/**
+ * The encodings a {@link ReportWriter} can produce.
+ * 
+ * @author May Basalo
+ */
+public enum ReportFormat {
+    /** The human-readable console report, one record per line. */
+    TEXT,
+    /** Comma-separated values; each section starts with its own header row. */
+    CSV,
+    /** One JSON object per line, tagged with the record type. */
+    JSONL
+}
@@ -0,0 +1,27 @@
+package src.models;
+
+/**
+ * The sections of a system report, in the order they are written.
+ * 
+ * @author May Basalo
+ */
+public enum ReportSection {
+    MEDICATIONS("Medications", "medication"),
+    DOCTORS("Doctors", "doctor"),
+    PATIENTS("Patients", "patient"),
+    PRESCRIPTIONS("Prescriptions", "prescription");
+
+    private final String title;
+    private final String recordType;
+
+    ReportSection(String title, String recordType) {
+        this.title = title;
+        this.recordType = recordType;
+    }
+
+    /** Retrieves the heading used in the text report. */
+    public String getTitle() { return title; }
+
+    /** Retrieves the record type written in CSV and JSON Lines reports. */
+    public String getRecordType() { return recordType; }
+}
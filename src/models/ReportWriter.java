@@ -0,0 +1,507 @@
+package src.models;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Streams a system report to a {@link Writer} as plain text, CSV or JSON Lines.
+ *
+ * Records are read straight from the system's registries and encoded field by
+ * field into a private character buffer, so no per-row strings are built and
+ * the report needs the same small amount of memory whatever the size of the
+ * data set. The report can be limited to some sections and paged: the offset
+ * and limit apply to the rows of each section separately. Every line, in
+ * every format, ends with a single '\n' whatever the platform, so a report's
+ * bytes do not depend on where it was written.
+ *
+ * A writer is not safe for use by several threads at once.
+ *
+ * @author May Basalo
+ */
+public class ReportWriter implements Flushable {
+    private static final int BUFFER_SIZE = 8192;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+    private final ReportFormat format;
+    private final char[] buffer;
+    private final char[] digits;
+    private int position;
+    private Set<ReportSection> sections;
+    private long offset;
+    private long limit;
+
+    /**
+     * Creates a report writer that encodes to the given writer.
+     *
+     * @param out    The destination; it is flushed, but not closed, after each report.
+     * @param format The encoding to produce.
+     */
+    public ReportWriter(Writer out, ReportFormat format) {
+        this.out = out;
+        this.format = format;
+        this.buffer = new char[BUFFER_SIZE];
+        this.digits = new char[20];
+        this.sections = EnumSet.allOf(ReportSection.class);
+        this.offset = 0;
+        this.limit = Long.MAX_VALUE;
+    }
+
+    /**
+     * Creates a report writer that encodes to the given stream as UTF-8.
+     *
+     * @param out    The destination; it is flushed, but not closed, after each report.
+     * @param format The encoding to produce.
+     */
+    public ReportWriter(OutputStream out, ReportFormat format) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8), format);
+    }
+
+    /**
+     * Limits the report to the given sections. They are always written in the
+     * order declared by {@link ReportSection}.
+     *
+     * @param sections The sections to include.
+     */
+    public void setSections(Set<ReportSection> sections) {
+        this.sections = sections.isEmpty() ? EnumSet.noneOf(ReportSection.class) : EnumSet.copyOf(sections);
+    }
+
+    /**
+     * Pages the rows of every section.
+     *
+     * @param offset The number of rows to skip at the start of each section.
+     * @param limit  The most rows to write per section.
+     */
+    public void setPage(long offset, long limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Writes the report for the given system and flushes the destination. The
+     * report is read from a snapshot, so every section reflects the same moment
+     * even while the system is being changed.
+     *
+     * @param system The system to report on.
+     */
+    public void write(MedicationTrackingSystem system) throws IOException {
+        try (SystemSnapshot snapshot = system.snapshot()) {
+            write(snapshot);
+        }
+    }
+
+    /**
+     * Writes the report for a snapshot and flushes the destination.
+     *
+     * @param snapshot The snapshot to report on.
+     */
+    public void write(SystemSnapshot snapshot) throws IOException {
+        if (format == ReportFormat.TEXT) {
+            newLine();
+            text("*** SYSTEM REPORT ***");
+            newLine();
+        }
+        for (ReportSection section : sections) {
+            switch (section) {
+                case MEDICATIONS:
+                    writeSection(section, snapshot.getMedications());
+                    break;
+                case DOCTORS:
+                    writeSection(section, snapshot.getDoctors());
+                    break;
+                case PATIENTS:
+                    writeSection(section, snapshot.getPatients());
+                    break;
+                case PRESCRIPTIONS:
+                    writeSection(section, snapshot.getPrescriptions());
+                    break;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Writes records as a single section, without the report heading, and
+     * flushes the destination. The page set by {@link #setPage(long, long)}
+     * applies to the records.
+     *
+     * @param section The kind of record to write.
+     * @param rows    The records, which must all be of the section's type.
+     */
+    public void write(ReportSection section, Iterable<?> rows) throws IOException {
+        writeSection(section, rows);
+        flush();
+    }
+
+    /**
+     * Writes out any buffered characters and flushes the destination.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void writeSection(ReportSection section, Iterable<?> rows) throws IOException {
+        boolean empty = true;
+        long skipped = 0;
+        long written = 0;
+        sectionStart(section);
+        for (Object row : rows) {
+            empty = false;
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            if (written == limit) {
+                break;
+            }
+            switch (section) {
+                case MEDICATIONS:
+                    medication((Medication) row);
+                    break;
+                case DOCTORS:
+                    doctor((Doctor) row);
+                    break;
+                case PATIENTS:
+                    patient((Patient) row);
+                    break;
+                case PRESCRIPTIONS:
+                    prescription((Prescription) row);
+                    break;
+            }
+            written++;
+        }
+        if (empty && format == ReportFormat.TEXT) {
+            text("No " + section.getTitle().toLowerCase(Locale.ROOT) + " available.");
+            newLine();
+        }
+    }
+
+    private void sectionStart(ReportSection section) throws IOException {
+        switch (format) {
+            case TEXT:
+                newLine();
+                text(section.getTitle());
+                text(":");
+                newLine();
+                break;
+            case CSV:
+                switch (section) {
+                    case MEDICATIONS:
+                        text("type,id,name,quantity,dosage,expiry_date");
+                        break;
+                    case DOCTORS:
+                        text("type,id,name,age,phone_number,specialty");
+                        break;
+                    case PATIENTS:
+                        text("type,id,name,age,phone_number,prescription_count");
+                        break;
+                    case PRESCRIPTIONS:
+                        text("type,id,doctor_id,patient_id,medication_id,expiry_date,issued_at");
+                        break;
+                }
+                newLine();
+                break;
+            case JSONL:
+                break;
+        }
+    }
+
+    private void medication(Medication med) throws IOException {
+        if (format == ReportFormat.TEXT) {
+            text("Medication{ID='");
+            text(med.getId());
+            text("', Name='");
+            text(med.getName());
+            text("', Quantity=");
+            number(med.getQuantity());
+            text(", Dosage='");
+            text(med.getDosage());
+            text("', Expiry Date=");
+            date(med.getExpiryDate());
+            text("}");
+            newLine();
+            return;
+        }
+        recordStart(ReportSection.MEDICATIONS);
+        stringField("id", med.getId());
+        stringField("name", med.getName());
+        numberField("quantity", med.getQuantity());
+        stringField("dosage", med.getDosage());
+        dateField("expiryDate", med.getExpiryDate());
+        recordEnd();
+    }
+
+    private void doctor(Doctor doctor) throws IOException {
+        if (format == ReportFormat.TEXT) {
+            text("Doctor{ID='");
+            text(doctor.getId());
+            text("', Name='");
+            text(doctor.getName());
+            text("', Age=");
+            number(doctor.getAge());
+            text(", Phone Number='");
+            text(doctor.getPhoneNumber());
+            text("', Specialty='");
+            text(doctor.getSpecialty());
+            text("'}");
+            newLine();
+            return;
+        }
+        recordStart(ReportSection.DOCTORS);
+        stringField("id", doctor.getId());
+        stringField("name", doctor.getName());
+        numberField("age", doctor.getAge());
+        stringField("phoneNumber", doctor.getPhoneNumber());
+        stringField("specialty", doctor.getSpecialty());
+        recordEnd();
+    }
+
+    private void patient(Patient patient) throws IOException {
+        if (format == ReportFormat.TEXT) {
+            text("Patient{ID='");
+            text(patient.getId());
+            text("', Name='");
+            text(patient.getName());
+            text("', Age=");
+            number(patient.getAge());
+            text(", Phone Number='");
+            text(patient.getPhoneNumber());
+            text("', Prescriptions Count=");
+            number(patient.getPrescriptions().size());
+            text("}");
+            newLine();
+            return;
+        }
+        recordStart(ReportSection.PATIENTS);
+        stringField("id", patient.getId());
+        stringField("name", patient.getName());
+        numberField("age", patient.getAge());
+        stringField("phoneNumber", patient.getPhoneNumber());
+        numberField("prescriptionCount", patient.getPrescriptions().size());
+        recordEnd();
+    }
+
+    private void prescription(Prescription prescription) throws IOException {
+        if (format == ReportFormat.TEXT) {
+            text("Prescription{ID='");
+            text(prescription.getId());
+            text("', Doctor='");
+            text(prescription.getDoctor().getName());
+            text("', Patient='");
+            text(prescription.getPatient().getName());
+            text("', Medication='");
+            text(prescription.getMedication().getName());
+            text("', Expiry Date=");
+            date(prescription.getPrescriptionExpiry());
+            text("}");
+            newLine();
+            return;
+        }
+        recordStart(ReportSection.PRESCRIPTIONS);
+        stringField("id", prescription.getId());
+        stringField("doctorId", prescription.getDoctor().getId());
+        stringField("patientId", prescription.getPatient().getId());
+        stringField("medicationId", prescription.getMedication().getId());
+        dateField("expiryDate", prescription.getPrescriptionExpiry());
+        stringField("issuedAt", prescription.getIssuedAt().toString());
+        recordEnd();
+    }
+
+    private void recordStart(ReportSection section) throws IOException {
+        if (format == ReportFormat.CSV) {
+            text(section.getRecordType());
+        } else {
+            text("{\"type\":\"");
+            text(section.getRecordType());
+            text("\"");
+        }
+    }
+
+    private void recordEnd() throws IOException {
+        if (format == ReportFormat.JSONL) {
+            put('}');
+        }
+        newLine();
+    }
+
+    private void fieldStart(String name) throws IOException {
+        if (format == ReportFormat.CSV) {
+            put(',');
+        } else {
+            text(",\"");
+            text(name);
+            text("\":");
+        }
+    }
+
+    private void stringField(String name, String value) throws IOException {
+        fieldStart(name);
+        if (format == ReportFormat.CSV) {
+            csv(value);
+        } else {
+            json(value);
+        }
+    }
+
+    private void numberField(String name, long value) throws IOException {
+        fieldStart(name);
+        number(value);
+    }
+
+    private void dateField(String name, LocalDate value) throws IOException {
+        fieldStart(name);
+        if (value == null) {
+            if (format == ReportFormat.JSONL) {
+                text("null");
+            }
+        } else if (format == ReportFormat.CSV) {
+            date(value);
+        } else {
+            put('"');
+            date(value);
+            put('"');
+        }
+    }
+
+    private void csv(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            text(value);
+            return;
+        }
+        put('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                put('"');
+            }
+            put(c);
+        }
+        put('"');
+    }
+
+    private void json(String value) throws IOException {
+        if (value == null) {
+            text("null");
+            return;
+        }
+        put('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                put('\\');
+                put(c);
+            } else if (c < 0x20) {
+                text("\\u00");
+                put(HEX[c >> 4]);
+                put(HEX[c & 0xF]);
+            } else {
+                put(c);
+            }
+        }
+        put('"');
+    }
+
+    /**
+     * Writes a date as ISO yyyy-MM-dd without going through LocalDate.toString.
+     */
+    private void date(LocalDate value) throws IOException {
+        if (value == null) {
+            text("null");
+            return;
+        }
+        int year = value.getYear();
+        if (year < 1000 || year > 9999) {
+            text(value.toString());
+            return;
+        }
+        number(year);
+        put('-');
+        twoDigits(value.getMonthValue());
+        put('-');
+        twoDigits(value.getDayOfMonth());
+    }
+
+    private void twoDigits(int value) throws IOException {
+        put((char) ('0' + value / 10));
+        put((char) ('0' + value % 10));
+    }
+
+    /**
+     * Writes a number without creating a string for it.
+     */
+    private void number(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            text(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start; i < digits.length; i++) {
+            put(digits[i]);
+        }
+    }
+
+    private void text(String value) throws IOException {
+        if (value == null) {
+            value = "null";
+        }
+        int length = value.length();
+        int from = 0;
+        while (from < length) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int count = Math.min(length - from, buffer.length - position);
+            value.getChars(from, from + count, buffer, position);
+            position += count;
+            from += count;
+        }
+    }
+
+    private void newLine() throws IOException {
+        put('\n');
+    }
+
+    private void put(char c) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = c;
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
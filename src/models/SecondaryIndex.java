@@ -0,0 +1,25 @@
+package src.models;
+
+/**
+ * A derived index that an {@link IdRegistry} keeps in step with its entries.
+ *
+ * @param <T> The type of entity being indexed.
+ *
+ * @author May Basalo
+ */
+interface SecondaryIndex<T> {
+
+    /**
+     * Called after an entity has been added to the registry.
+     *
+     * @param entity The added entity.
+     */
+    void added(T entity);
+
+    /**
+     * Called after an entity has been removed from the registry.
+     *
+     * @param entity The removed entity.
+     */
+    void removed(T entity);
+}
@@ -0,0 +1,292 @@
+package src.models;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes and reads compact binary snapshots of a {@link MedicationTrackingSystem}.
+ *
+ * A snapshot holds one table per entity type. Registered entities come first,
+ * in registry order, followed by any unregistered entities that are still
+ * reachable through prescriptions or doctor and patient lists (for example a
+ * doctor deleted after issuing a prescription) or a lapsed prescription kept
+ * in a patient's history after the expiry sweep. Links between entities are
+ * stored as table positions, so object identity survives a round trip.
+ * Snapshots are written to a temporary file, fsynced and then renamed into
+ * place, so a crash never leaves a half-written snapshot behind.
+ *
+ * @author May Basalo
+ */
+final class SnapshotStore {
+    private static final int MAGIC = 0x4D545353; // "MTSS"
+    private static final int VERSION = 5;
+
+    private SnapshotStore() {
+    }
+
+    /**
+     * Writes a snapshot of the system.
+     *
+     * @param system The system to capture.
+     * @param lsn    The LSN of the last log record reflected in the system.
+     * @param file   The snapshot file to replace.
+     */
+    static void write(MedicationTrackingSystem system, long lsn, Path file) throws IOException {
+        Table<Medication> meds = new Table<>(system.getMedications());
+        Table<Doctor> doctors = new Table<>(system.getDoctors());
+        Table<Patient> patients = new Table<>(system.getPatients());
+        Table<Prescription> prescriptions = new Table<>(system.getPrescriptions());
+        List<Prescription> lapsed = system.getLapsedPrescriptions();
+        for (Prescription prescription : lapsed) {
+            prescriptions.indexOf(prescription);
+        }
+
+        // Pull in unregistered entities that registered ones still point at.
+        int doctorCursor = 0;
+        int patientCursor = 0;
+        int prescriptionCursor = 0;
+        boolean grew = true;
+        while (grew) {
+            grew = false;
+            for (; doctorCursor < doctors.rows.size(); doctorCursor++, grew = true) {
+                for (Patient patient : doctors.rows.get(doctorCursor).getPatients()) {
+                    patients.indexOf(patient);
+                }
+            }
+            for (; patientCursor < patients.rows.size(); patientCursor++, grew = true) {
+                for (Prescription prescription : patients.rows.get(patientCursor).getPrescriptions()) {
+                    prescriptions.indexOf(prescription);
+                }
+            }
+            for (; prescriptionCursor < prescriptions.rows.size(); prescriptionCursor++, grew = true) {
+                Prescription prescription = prescriptions.rows.get(prescriptionCursor);
+                doctors.indexOf(prescription.getDoctor());
+                patients.indexOf(prescription.getPatient());
+                meds.indexOf(prescription.getMedication());
+            }
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lsn);
+
+            meds.writeHeader(out);
+            for (Medication med : meds.rows) {
+                EntityCodec.writeMedication(out, med);
+                out.writeInt(med.getReorderPoint());
+            }
+            doctors.writeHeader(out);
+            for (Doctor doctor : doctors.rows) {
+                EntityCodec.writeDoctor(out, doctor);
+            }
+            patients.writeHeader(out);
+            for (Patient patient : patients.rows) {
+                EntityCodec.writePatient(out, patient);
+            }
+            prescriptions.writeHeader(out);
+            for (Prescription prescription : prescriptions.rows) {
+                EntityCodec.writeString(out, prescription.getId());
+                out.writeInt(doctors.indexOf(prescription.getDoctor()));
+                out.writeInt(patients.indexOf(prescription.getPatient()));
+                out.writeInt(meds.indexOf(prescription.getMedication()));
+                EntityCodec.writeDate(out, prescription.getPrescriptionExpiry());
+                EntityCodec.writeInstant(out, prescription.getIssuedAt());
+            }
+
+            for (Doctor doctor : doctors.rows) {
+                out.writeInt(doctor.getPatients().size());
+                for (Patient patient : doctor.getPatients()) {
+                    out.writeInt(patients.indexOf(patient));
+                }
+            }
+            for (Patient patient : patients.rows) {
+                out.writeInt(patient.getPrescriptions().size());
+                for (Prescription prescription : patient.getPrescriptions()) {
+                    out.writeInt(prescriptions.indexOf(prescription));
+                }
+            }
+            List<String[]> interactions = system.getInteractions();
+            out.writeInt(interactions.size());
+            for (String[] pair : interactions) {
+                EntityCodec.writeString(out, pair[0]);
+                EntityCodec.writeString(out, pair[1]);
+            }
+            out.writeInt(lapsed.size());
+            for (Prescription prescription : lapsed) {
+                out.writeInt(prescriptions.indexOf(prescription));
+            }
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a snapshot into an empty system. Medications the system already
+     * holds, such as those of a mapped inventory, are kept in place of the
+     * snapshot's copies.
+     *
+     * @param file   The snapshot file to read.
+     * @param system The empty system to fill.
+     * @return The LSN recorded in the snapshot.
+     */
+    static long read(Path file, MedicationTrackingSystem system) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+            int magic = in.readInt();
+            int version = in.readInt();
+            if (magic != MAGIC || version < 1 || version > VERSION) {
+                throw new IOException("Not a medication system snapshot: " + file);
+            }
+            long lsn = in.readLong();
+
+            int medCount = in.readInt();
+            int registeredMeds = in.readInt();
+            Medication[] meds = new Medication[medCount];
+            boolean[] alreadyHeld = new boolean[medCount];
+            boolean holdsMedications = !system.getMedications().isEmpty();
+            for (int i = 0; i < medCount; i++) {
+                Medication med = EntityCodec.readMedication(in);
+                // Version 1 snapshots predate reorder points.
+                int reorderPoint = version >= 2 ? in.readInt() : 0;
+                Medication held = holdsMedications ? system.findMedicationById(med.getId()) : null;
+                if (held != null) {
+                    meds[i] = held;
+                    alreadyHeld[i] = true;
+                } else {
+                    med.setReorderPoint(reorderPoint);
+                    meds[i] = med;
+                }
+            }
+            int doctorCount = in.readInt();
+            int registeredDoctors = in.readInt();
+            Doctor[] doctors = new Doctor[doctorCount];
+            for (int i = 0; i < doctorCount; i++) {
+                doctors[i] = EntityCodec.readDoctor(in);
+            }
+            int patientCount = in.readInt();
+            int registeredPatients = in.readInt();
+            Patient[] patients = new Patient[patientCount];
+            for (int i = 0; i < patientCount; i++) {
+                patients[i] = EntityCodec.readPatient(in);
+            }
+            int prescriptionCount = in.readInt();
+            int registeredPrescriptions = in.readInt();
+            Prescription[] prescriptions = new Prescription[prescriptionCount];
+            for (int i = 0; i < prescriptionCount; i++) {
+                String id = EntityCodec.readString(in);
+                Doctor doctor = doctors[in.readInt()];
+                Patient patient = patients[in.readInt()];
+                Medication med = meds[in.readInt()];
+                LocalDate expiry = EntityCodec.readDate(in);
+                // Snapshots before version 3 predate issue times; such prescriptions are stamped as they load.
+                Instant issuedAt = version >= 3 ? EntityCodec.readInstant(in) : Instant.now();
+                prescriptions[i] = new Prescription(id, doctor, patient, med, expiry, issuedAt);
+            }
+
+            for (Doctor doctor : doctors) {
+                for (int n = in.readInt(); n > 0; n--) {
+                    doctor.addPatient(patients[in.readInt()]);
+                }
+            }
+            for (Patient patient : patients) {
+                for (int n = in.readInt(); n > 0; n--) {
+                    patient.addPrescription(prescriptions[in.readInt()]);
+                }
+            }
+            // Snapshots before version 4 predate interactions.
+            String[][] interactions = new String[version >= 4 ? in.readInt() : 0][];
+            for (int i = 0; i < interactions.length; i++) {
+                interactions[i] = new String[] {EntityCodec.readString(in), EntityCodec.readString(in)};
+            }
+            // Snapshots before version 5 predate lapsed prescriptions.
+            Prescription[] lapsed = new Prescription[version >= 5 ? in.readInt() : 0];
+            for (int i = 0; i < lapsed.length; i++) {
+                lapsed[i] = prescriptions[in.readInt()];
+            }
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Truncated snapshot: " + file);
+            }
+
+            List<Medication> medList = system.getMedications();
+            for (int i = 0; i < registeredMeds; i++) {
+                if (!alreadyHeld[i]) {
+                    medList.add(meds[i]);
+                }
+            }
+            List<Doctor> doctorList = system.getDoctors();
+            for (int i = 0; i < registeredDoctors; i++) {
+                doctorList.add(doctors[i]);
+            }
+            List<Patient> patientList = system.getPatients();
+            for (int i = 0; i < registeredPatients; i++) {
+                patientList.add(patients[i]);
+            }
+            List<Prescription> prescriptionList = system.getPrescriptions();
+            for (int i = 0; i < registeredPrescriptions; i++) {
+                prescriptionList.add(prescriptions[i]);
+            }
+            for (String[] pair : interactions) {
+                system.addInteraction(pair[0], pair[1]);
+            }
+            for (Prescription prescription : lapsed) {
+                system.restoreLapsedPrescription(prescription);
+            }
+            return lsn;
+        }
+    }
+
+    /**
+     * Assigns table positions to entities by identity, in first-seen order.
+     */
+    private static final class Table<T> {
+        private final List<T> rows;
+        private final Map<T, Integer> positions;
+        private final int registeredCount;
+
+        Table(List<T> registered) {
+            this.rows = new ArrayList<>(registered);
+            this.positions = new IdentityHashMap<>(rows.size() * 2);
+            for (int i = 0; i < rows.size(); i++) {
+                positions.put(rows.get(i), i);
+            }
+            this.registeredCount = rows.size();
+        }
+
+        int indexOf(T entity) {
+            Integer position = positions.get(entity);
+            if (position == null) {
+                position = rows.size();
+                rows.add(entity);
+                positions.put(entity, position);
+            }
+            return position;
+        }
+
+        void writeHeader(DataOutputStream out) throws IOException {
+            out.writeInt(rows.size());
+            out.writeInt(registeredCount);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package src.models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A sorted map from keys to sets of values, safe for concurrent use.
+ *
+ * Readers never lock. Writers lock only the bucket for the key they change,
+ * and an emptied bucket is retired and unlinked under that lock, so a
+ * concurrent add can never land in a bucket that has already been dropped.
+ *
+ * @param <K> The key type.
+ * @param <T> The value type; values are compared by identity or their own equals.
+ *
+ * @author May Basalo
+ */
+class SortedMultimap<K extends Comparable<? super K>, T> {
+    private final ConcurrentSkipListMap<K, Bucket<T>> buckets;
+
+    /**
+     * Creates an empty multimap.
+     */
+    SortedMultimap() {
+        this.buckets = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Adds a value under a key.
+     *
+     * @param key   The key.
+     * @param value The value to add.
+     */
+    void put(K key, T value) {
+        while (true) {
+            Bucket<T> bucket = buckets.computeIfAbsent(key, k -> new Bucket<>());
+            synchronized (bucket) {
+                if (!bucket.retired) {
+                    bucket.values.add(value);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a value from under a key.
+     *
+     * @param key   The key.
+     * @param value The value to remove.
+     */
+    void remove(K key, T value) {
+        Bucket<T> bucket = buckets.get(key);
+        if (bucket == null) {
+            return;
+        }
+        synchronized (bucket) {
+            bucket.values.remove(value);
+            if (bucket.values.isEmpty() && !bucket.retired) {
+                bucket.retired = true;
+                buckets.remove(key, bucket);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the values stored under a key.
+     *
+     * @param key The key.
+     * @return A copy of the values, possibly empty.
+     */
+    List<T> get(K key) {
+        Bucket<T> bucket = buckets.get(key);
+        return bucket == null ? new ArrayList<>() : new ArrayList<>(bucket.values);
+    }
+
+    /**
+     * Retrieves the values under every key before the given one, in key order.
+     *
+     * @param to The upper bound (exclusive).
+     * @return The matching values.
+     */
+    List<T> before(K to) {
+        return flatten(buckets.headMap(to, false).values());
+    }
+
+    /**
+     * Retrieves the values under every key in a range, in key order.
+     *
+     * @param from          The lower bound.
+     * @param fromInclusive Whether the lower bound itself is included.
+     * @param to            The upper bound.
+     * @param toInclusive   Whether the upper bound itself is included.
+     * @return The matching values.
+     */
+    List<T> between(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        if (to.compareTo(from) < 0) {
+            return new ArrayList<>();
+        }
+        return flatten(buckets.subMap(from, fromInclusive, to, toInclusive).values());
+    }
+
+    /**
+     * Retrieves the values under every key, in key order.
+     *
+     * @return All values.
+     */
+    List<T> all() {
+        return flatten(buckets.values());
+    }
+
+    private static <T> List<T> flatten(Collection<Bucket<T>> range) {
+        List<T> result = new ArrayList<>();
+        for (Bucket<T> bucket : range) {
+            result.addAll(bucket.values);
+        }
+        return result;
+    }
+
+    /**
+     * The values stored under one key.
+     */
+    private static final class Bucket<T> {
+        private final Set<T> values = ConcurrentHashMap.newKeySet();
+        private boolean retired;
+    }
+}
@@ -0,0 +1,78 @@
+package src.models;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalizes strings that repeat across many records, such as dosages and
+ * specialties, so that every record holding the same value shares one String
+ * instance instead of its own copy.
+ *
+ * The dictionary is bounded: once it holds its capacity of distinct values,
+ * new values are returned as given rather than added, so free-text input can
+ * never grow it without limit. Each field has its own dictionary, so a field
+ * with many distinct values cannot fill the room another field's few, highly
+ * repeated values need. Fields that are mostly unique, such as medication
+ * names, gain nothing from a dictionary and are not canonicalized.
+ *
+ * @author May Basalo
+ */
+public class StringDictionary {
+    private static final StringDictionary DOSAGES = new StringDictionary(1 << 14);
+    private static final StringDictionary SPECIALTIES = new StringDictionary(1 << 12);
+
+    private final ConcurrentHashMap<String, String> values;
+    private final int capacity;
+
+    /**
+     * Creates an empty dictionary.
+     *
+     * @param capacity The most distinct values to hold.
+     */
+    public StringDictionary(int capacity) {
+        this.values = new ConcurrentHashMap<>();
+        this.capacity = capacity;
+    }
+
+    /**
+     * Retrieves the dictionary of medication dosages.
+     *
+     * @return The dosage dictionary.
+     */
+    public static StringDictionary dosages() {
+        return DOSAGES;
+    }
+
+    /**
+     * Retrieves the dictionary of doctor specialties.
+     *
+     * @return The specialty dictionary.
+     */
+    public static StringDictionary specialties() {
+        return SPECIALTIES;
+    }
+
+    /**
+     * Retrieves the canonical instance of a value.
+     *
+     * @param value The value, possibly null.
+     * @return The instance every equal value maps to, or the value itself if
+     *         it is null or the dictionary is full.
+     */
+    public String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = values.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (values.size() >= capacity) {
+            return value;
+        }
+        existing = values.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    /** Retrieves the number of distinct values held. */
+    public int size() { return values.size(); }
+}
@@ -0,0 +1,87 @@
+package src.models;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks that keys are hashed onto, so writers on different keys
+ * rarely contend while writers on the same key are serialized.
+ *
+ * Several stripes are always taken in ascending order, which keeps callers
+ * that lock more than one key free of deadlock.
+ *
+ * @author May Basalo
+ */
+final class StripedLock {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * Creates a striped lock.
+     *
+     * @param minimumStripes The least number of stripes; rounded up to a power of two.
+     */
+    StripedLock(int minimumStripes) {
+        int count = Integer.highestOneBit(Math.max(1, minimumStripes - 1)) << 1;
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Locks the stripes of the given keys. Null keys are ignored.
+     *
+     * @param keys The keys to lock.
+     * @return The locked stripe indexes, to hand back to {@link #unlock(int[])}.
+     */
+    int[] lock(String... keys) {
+        int[] held = new int[keys.length];
+        int count = 0;
+        for (String key : keys) {
+            if (key != null) {
+                held[count++] = stripeOf(key);
+            }
+        }
+        held = Arrays.stream(held, 0, count).sorted().distinct().toArray();
+        for (int stripe : held) {
+            stripes[stripe].lock();
+        }
+        return held;
+    }
+
+    /**
+     * Releases stripes taken by {@link #lock(String...)}.
+     *
+     * @param held The stripe indexes returned by the lock call.
+     */
+    void unlock(int[] held) {
+        for (int i = held.length - 1; i >= 0; i--) {
+            stripes[held[i]].unlock();
+        }
+    }
+
+    /**
+     * Locks every stripe, for operations that touch many keys at once.
+     */
+    void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    /**
+     * Releases every stripe taken by {@link #lockAll()}.
+     */
+    void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    private int stripeOf(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
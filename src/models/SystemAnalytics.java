@@ -0,0 +1,261 @@
+package src.models;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Computes aggregates over a MedicationTrackingSystem's records: prescriptions
+ * per doctor and per specialty, the most prescribed medications, stock by
+ * expiry bucket, and patients per doctor.
+ *
+ * Each aggregate reads a {@link SystemSnapshot}, so it is consistent and runs
+ * while the system keeps changing. The records are split across a fork-join
+ * pool with a parallel stream; every split counts into its own partial
+ * accumulator, and the partials are merged pairwise as the splits complete, so
+ * the threads share nothing while they count.
+ *
+ * @author May Basalo
+ */
+public class SystemAnalytics {
+    private static final ExpiryBucket[] BUCKETS = ExpiryBucket.values();
+    private static final Comparator<MedicationVolume> BY_VOLUME =
+            Comparator.comparingLong(MedicationVolume::getPrescriptionCount).reversed()
+                      .thenComparing(volume -> volume.getMedication().getId());
+
+    private final MedicationTrackingSystem system;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates analytics that run on the common fork-join pool.
+     *
+     * @param system The system to analyse.
+     */
+    public SystemAnalytics(MedicationTrackingSystem system) {
+        this(system, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates analytics that run on the given pool, which bounds the number of
+     * threads they use.
+     *
+     * @param system The system to analyse.
+     * @param pool   The pool to run on.
+     */
+    public SystemAnalytics(MedicationTrackingSystem system, ForkJoinPool pool) {
+        this.system = system;
+        this.pool = pool;
+    }
+
+    /**
+     * Counts the prescriptions written by each doctor.
+     *
+     * @return The number of prescriptions per doctor; doctors with none are left out.
+     */
+    public Map<Doctor, Long> prescriptionsPerDoctor() {
+        try (SystemSnapshot snapshot = system.snapshot()) {
+            return prescriptionsPerDoctor(snapshot);
+        }
+    }
+
+    /**
+     * Counts the prescriptions written by each doctor in a snapshot.
+     *
+     * @param snapshot The snapshot to read.
+     * @return The number of prescriptions per doctor; doctors with none are left out.
+     */
+    public Map<Doctor, Long> prescriptionsPerDoctor(SystemSnapshot snapshot) {
+        return countBy(snapshot.getPrescriptions(), Prescription::getDoctor).toMap();
+    }
+
+    /**
+     * Counts the prescriptions written in each specialty.
+     *
+     * @return The number of prescriptions per specialty of the prescribing doctor.
+     */
+    public Map<String, Long> prescriptionsPerSpecialty() {
+        try (SystemSnapshot snapshot = system.snapshot()) {
+            return prescriptionsPerSpecialty(snapshot);
+        }
+    }
+
+    /**
+     * Counts the prescriptions written in each specialty in a snapshot.
+     *
+     * @param snapshot The snapshot to read.
+     * @return The number of prescriptions per specialty of the prescribing doctor.
+     */
+    public Map<String, Long> prescriptionsPerSpecialty(SystemSnapshot snapshot) {
+        // Doctors are far fewer than prescriptions, so the per-doctor counts are folded sequentially.
+        Map<String, Long> perSpecialty = new HashMap<>();
+        for (Map.Entry<Doctor, Long> entry : prescriptionsPerDoctor(snapshot).entrySet()) {
+            String specialty = entry.getKey() == null ? null : entry.getKey().getSpecialty();
+            perSpecialty.merge(specialty, entry.getValue(), Long::sum);
+        }
+        return Collections.unmodifiableMap(perSpecialty);
+    }
+
+    /**
+     * Ranks medications by the number of prescriptions written for them.
+     *
+     * @param n The number of medications to return.
+     * @return Up to n medications, most prescribed first; ties are ordered by medication ID.
+     */
+    public List<MedicationVolume> topMedications(int n) {
+        try (SystemSnapshot snapshot = system.snapshot()) {
+            return topMedications(snapshot, n);
+        }
+    }
+
+    /**
+     * Ranks medications in a snapshot by the number of prescriptions written for them.
+     *
+     * @param snapshot The snapshot to read.
+     * @param n        The number of medications to return.
+     * @return Up to n medications, most prescribed first; ties are ordered by medication ID.
+     */
+    public List<MedicationVolume> topMedications(SystemSnapshot snapshot, int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative: " + n);
+        }
+        Tally<Medication> counts = countBy(snapshot.getPrescriptions(), Prescription::getMedication);
+        // A heap of the n largest seen so far, smallest on top, so selection costs O(m log n).
+        PriorityQueue<MedicationVolume> top = new PriorityQueue<>(Math.max(1, n), BY_VOLUME.reversed());
+        for (Map.Entry<Medication, long[]> entry : counts.entries()) {
+            if (entry.getKey() == null || n == 0) {
+                continue;
+            }
+            MedicationVolume volume = new MedicationVolume(entry.getKey(), entry.getValue()[0]);
+            if (top.size() < n) {
+                top.add(volume);
+            } else if (BY_VOLUME.compare(volume, top.peek()) < 0) {
+                top.poll();
+                top.add(volume);
+            }
+        }
+        List<MedicationVolume> ranked = new ArrayList<>(top);
+        ranked.sort(BY_VOLUME);
+        return ranked;
+    }
+
+    /**
+     * Totals the units in stock by how soon they expire. No price is recorded
+     * for medications, so stock is valued in units.
+     *
+     * @param today The date expiry is measured from.
+     * @return The units in stock per bucket, with every bucket present.
+     */
+    public Map<ExpiryBucket, Long> stockByExpiry(LocalDate today) {
+        try (SystemSnapshot snapshot = system.snapshot()) {
+            return stockByExpiry(snapshot, today);
+        }
+    }
+
+    /**
+     * Totals the units in stock in a snapshot by how soon they expire.
+     *
+     * @param snapshot The snapshot to read.
+     * @param today    The date expiry is measured from.
+     * @return The units in stock per bucket, with every bucket present.
+     */
+    public Map<ExpiryBucket, Long> stockByExpiry(SystemSnapshot snapshot, LocalDate today) {
+        List<Medication> medications = snapshot.getMedications();
+        long[] units = run(() -> medications.parallelStream().collect(
+                () -> new long[BUCKETS.length],
+                (partial, medication) -> partial[ExpiryBucket.of(medication.getExpiryDate(), today).ordinal()] += medication.getQuantity(),
+                (partial, other) -> {
+                    for (int i = 0; i < partial.length; i++) {
+                        partial[i] += other[i];
+                    }
+                }));
+        Map<ExpiryBucket, Long> totals = new EnumMap<>(ExpiryBucket.class);
+        for (ExpiryBucket bucket : BUCKETS) {
+            totals.put(bucket, units[bucket.ordinal()]);
+        }
+        return Collections.unmodifiableMap(totals);
+    }
+
+    /**
+     * Counts the patients on each doctor's panel.
+     *
+     * @return The number of patients per doctor, with every doctor present.
+     */
+    public Map<Doctor, Long> patientsPerDoctor() {
+        try (SystemSnapshot snapshot = system.snapshot()) {
+            return patientsPerDoctor(snapshot);
+        }
+    }
+
+    /**
+     * Counts the patients on the panel of each doctor in a snapshot. Panels are
+     * read as they are when each doctor is visited.
+     *
+     * @param snapshot The snapshot to read.
+     * @return The number of patients per doctor, with every doctor present.
+     */
+    public Map<Doctor, Long> patientsPerDoctor(SystemSnapshot snapshot) {
+        List<Doctor> doctors = snapshot.getDoctors();
+        return run(() -> doctors.parallelStream().collect(
+                Tally<Doctor>::new, (partial, doctor) -> partial.add(doctor, doctor.getPatients().size()), Tally::merge)).toMap();
+    }
+
+    private <K> Tally<K> countBy(List<Prescription> prescriptions, Function<Prescription, K> key) {
+        return run(() -> prescriptions.parallelStream().collect(
+                Tally<K>::new, (partial, prescription) -> partial.add(key.apply(prescription), 1), Tally::merge));
+    }
+
+    /**
+     * Runs a computation on the pool; parallel streams started inside it split
+     * their work across that pool's threads.
+     */
+    private <T> T run(Callable<T> computation) {
+        return pool.submit(computation).join();
+    }
+
+    /**
+     * Running totals per record, private to one split of a parallel count.
+     * Records are compared by identity, which is how the system's entities are
+     * compared anyway, and a total is a one-element array so adding to it
+     * takes a single lookup.
+     */
+    private static final class Tally<K> {
+        private final IdentityHashMap<K, long[]> totals = new IdentityHashMap<>();
+
+        void add(K key, long amount) {
+            long[] total = totals.get(key);
+            if (total == null) {
+                total = new long[1];
+                totals.put(key, total);
+            }
+            total[0] += amount;
+        }
+
+        void merge(Tally<K> other) {
+            for (Map.Entry<K, long[]> entry : other.totals.entrySet()) {
+                add(entry.getKey(), entry.getValue()[0]);
+            }
+        }
+
+        Iterable<Map.Entry<K, long[]>> entries() {
+            return totals.entrySet();
+        }
+
+        Map<K, Long> toMap() {
+            Map<K, Long> map = new HashMap<>(totals.size() * 4 / 3 + 1);
+            for (Map.Entry<K, long[]> entry : totals.entrySet()) {
+                map.put(entry.getKey(), entry.getValue()[0]);
+            }
+            return Collections.unmodifiableMap(map);
+        }
+    }
+}
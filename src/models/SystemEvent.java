@@ -0,0 +1,51 @@
+package src.models;
+
+/**
+ * Something that happened in a MedicationTrackingSystem: a record added,
+ * found, changed or refused. The event keeps its raw arguments and only builds
+ * its message when {@link #getMessage()} is called, so a listener that formats
+ * on another thread keeps that cost off the caller. The system passes records,
+ * such as a medication, already described as they were when the event was
+ * published, so a late message never shows later values.
+ * 
+ * @author May Basalo
+ */
+public class SystemEvent {
+    private final SystemEventType type;
+    private final Object[] arguments;
+
+    /**
+     * Creates an event.
+     * 
+     * @param type      The kind of event.
+     * @param arguments The values described by the event's message.
+     */
+    public SystemEvent(SystemEventType type, Object... arguments) {
+        this.type = type;
+        this.arguments = arguments;
+    }
+
+    /** Retrieves the kind of event. */
+    public SystemEventType getType() { return type; }
+
+    /** Retrieves the number of arguments. */
+    public int getArgumentCount() { return arguments.length; }
+
+    /** Retrieves an argument by position. */
+    public Object getArgument(int index) { return arguments[index]; }
+
+    /**
+     * Builds the human-readable description of the event.
+     * 
+     * @return The message, as the system has always printed it.
+     */
+    public String getMessage() {
+        return type.format(arguments);
+    }
+
+    /** Returns a string representation of the event. */
+    @Override
+    public String toString() {
+        return type + ": " + getMessage();
+    }
+}
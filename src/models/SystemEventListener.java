@@ -0,0 +1,18 @@
+package src.models;
+
+/**
+ * Receives the events a MedicationTrackingSystem publishes as it works.
+ * Listeners are called on the thread that performed the operation, so a
+ * listener that does slow work should hand it off, as {@link AsyncEventSink} does.
+ * 
+ * @author May Basalo
+ */
+public interface SystemEventListener {
+
+    /**
+     * Called after an operation succeeds or is refused.
+     * 
+     * @param event The event.
+     */
+    void eventOccurred(SystemEvent event);
+}
@@ -0,0 +1,94 @@
+package src.models;
+
+/**
+ * The kinds of event a MedicationTrackingSystem publishes, each with the
+ * message template used to describe it. A "{}" in the template stands for the
+ * next argument of the event.
+ * 
+ * @author May Basalo
+ */
+public enum SystemEventType {
+    INVENTORY_ATTACHED("Inventory attached: {} medications loaded."),
+    PATIENT_FOUND("Patient Found: {}"),
+    DOCTOR_FOUND("Doctor Found: {}"),
+    MEDICATION_FOUND("Medication Found: {}"),
+    PATIENT_NOT_FOUND("Patient not found."),
+    DOCTOR_NOT_FOUND("Doctor not found."),
+    MEDICATION_NOT_FOUND("Medication not found."),
+    PRESCRIPTION_REFERENCE_NOT_FOUND("Error: Doctor, patient, or medication not found."),
+    DUPLICATE_MEDICATION("Error: A medication with ID {} already exists."),
+    DUPLICATE_DOCTOR("Error: A doctor with ID {} already exists."),
+    DUPLICATE_PATIENT("Error: A patient with ID {} already exists."),
+    DUPLICATE_PRESCRIPTION("Error: A prescription with ID {} already exists."),
+    MEDICATION_ADDED("Medication added: {} (ID: {})"),
+    DOCTOR_ADDED("Doctor added: {} (Specialty: {})"),
+    PATIENT_ADDED("Patient added: {} (ID: {})"),
+    PRESCRIPTION_ADDED("Prescription added for patient {} (Prescription ID: {})"),
+    MEDICATIONS_ADDED("Medications added: {} ({} rejected)"),
+    DOCTORS_ADDED("Doctors added: {} ({} rejected)"),
+    PATIENTS_ADDED("Patients added: {} ({} rejected)"),
+    MEDICATION_UPDATED("Medication updated successfully: {}"),
+    DOCTOR_UPDATED("Doctor updated successfully."),
+    PATIENT_UPDATED("Patient updated successfully."),
+    MEDICATION_DELETED("Medication deleted successfully."),
+    PATIENT_DELETED("Patient deleted successfully."),
+    DOCTOR_DELETED("Doctor deleted successfully."),
+    DELETE_REFUSED("Error: {} {} not deleted. {}."),
+    MEDICATIONS_DELETED("Medications deleted: {} ({} not deleted)"),
+    PATIENTS_DELETED("Patients deleted: {} ({} not deleted)"),
+    DOCTORS_DELETED("Doctors deleted: {} ({} not deleted)"),
+    PATIENT_ASSIGNED("Patient added to doctor's list."),
+    PRESCRIPTION_ACCEPTED("Prescription successfully added for patient {}, Medication: {}, Prescribed by: {}"),
+    PRESCRIPTION_RESERVED("Prescription successfully added for patient {}, Medication: {}, Prescribed by: {}, Reserved: {} units"),
+    RESERVATION_REFUSED("Error: Insufficient stock of {} to reserve {} units."),
+    INTERACTION_REFUSED("Error: {} interacts with {}, already prescribed to {}."),
+    INTERACTION_FLAGGED("Warning: {} interacts with {}, already prescribed to {}."),
+    INTERACTION_ADDED("Interaction recorded between {} and {}."),
+    INTERACTION_REMOVED("Interaction removed between {} and {}."),
+    PRESCRIPTIONS_ACCEPTED("Prescriptions accepted: {} ({} rejected)"),
+    PRESCRIPTIONS_EXPIRED("Expired prescriptions removed: {}"),
+    EXPIRED_MEDICATIONS_CHECKED("\n*** Expired Medications Check ***"),
+    MEDICATION_EXPIRED("Expired Medication: {}"),
+    NO_EXPIRED_MEDICATIONS("No expired medications found."),
+    EXPIRING_MEDICATIONS_CHECKED("\n*** Medications Expiring Within {} Days ***"),
+    MEDICATION_EXPIRING("Expiring Medication: {}"),
+    NO_EXPIRING_MEDICATIONS("No medications expiring within {} days."),
+    DOCTOR_PRESCRIPTIONS_LISTED("\n*** Prescriptions Issued by Doctor ID: {} ***"),
+    PRESCRIPTION_LISTED("{}"),
+    NO_DOCTOR_PRESCRIPTIONS("No prescriptions found for this doctor."),
+    MEDICATION_RESTOCKED("Restocked {} units of {}. New quantity: {}"),
+    MEDICATION_DISPENSED("Dispensed {} units of {}."),
+    DISPENSE_REFUSED("Insufficient stock of {} to dispense {} units."),
+    REORDER_POINT_SET("Reorder point of {} set to {} units."),
+    STOCK_LOW("Low stock: {} has {} units left, below its reorder point of {}."),
+    STOCK_REPLENISHED("Stock of {} replenished: {} units, reorder point {}.");
+
+    private final String template;
+
+    SystemEventType(String template) {
+        this.template = template;
+    }
+
+    /** Retrieves the message template of this kind of event. */
+    public String getTemplate() { return template; }
+
+    /**
+     * Fills the template with the given arguments.
+     * 
+     * @param arguments The values that replace each "{}", in order.
+     * @return The message.
+     */
+    String format(Object[] arguments) {
+        StringBuilder message = new StringBuilder(template.length() + 16 * arguments.length);
+        int from = 0;
+        for (Object argument : arguments) {
+            int at = template.indexOf("{}", from);
+            if (at < 0) {
+                break;
+            }
+            message.append(template, from, at).append(argument);
+            from = at + 2;
+        }
+        return message.append(template, from, template.length()).toString();
+    }
+}
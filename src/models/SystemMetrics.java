@@ -0,0 +1,194 @@
+package src.models;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records the latency and outcome of every tracked MedicationTrackingSystem
+ * operation, and exposes them together with entity counts through
+ * {@link #getOperations()} and, once registered, as a platform MXBean.
+ *
+ * Recording takes two clock reads and a few atomic increments into
+ * preallocated arrays; it never allocates and never locks, so it stays on in
+ * production.
+ *
+ * @author May Basalo
+ */
+public class SystemMetrics implements SystemMetricsMXBean {
+    private static final OperationOutcome[] OUTCOMES = OperationOutcome.values();
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final MedicationTrackingSystem system;
+    private final LatencyHistogram[] latencies;
+    // Per operation: one counter per outcome, then the total latency in nanoseconds.
+    private final AtomicLongArray counters;
+    private final int stride;
+    private ObjectName registeredName;
+
+    /**
+     * Creates the metrics of a system.
+     *
+     * @param system The system whose entity counts are reported.
+     */
+    SystemMetrics(MedicationTrackingSystem system) {
+        this.system = system;
+        TrackedOperation[] operations = TrackedOperation.values();
+        this.latencies = new LatencyHistogram[operations.length];
+        for (int i = 0; i < operations.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        this.stride = OUTCOMES.length + 1;
+        this.counters = new AtomicLongArray(operations.length * stride);
+    }
+
+    /**
+     * Records one call.
+     *
+     * @param operation  The operation that ran.
+     * @param startNanos The {@link System#nanoTime()} reading taken when the call began.
+     * @param outcome    How the call ended.
+     */
+    void record(TrackedOperation operation, long startNanos, OperationOutcome outcome) {
+        long elapsed = System.nanoTime() - startNanos;
+        int base = operation.ordinal() * stride;
+        latencies[operation.ordinal()].record(elapsed);
+        counters.incrementAndGet(base + outcome.ordinal());
+        counters.addAndGet(base + OUTCOMES.length, elapsed);
+    }
+
+    /**
+     * Records one lookup, which succeeds if it found anything.
+     *
+     * @param operation  The operation that ran.
+     * @param startNanos The {@link System#nanoTime()} reading taken when the call began.
+     * @param found      Whether the lookup found a record.
+     */
+    void recordLookup(TrackedOperation operation, long startNanos, boolean found) {
+        record(operation, startNanos, found ? OperationOutcome.SUCCESS : OperationOutcome.NOT_FOUND);
+    }
+
+    /**
+     * Retrieves the statistics of one operation.
+     *
+     * @param operation The operation.
+     * @return A snapshot of its counters and latency percentiles.
+     */
+    public OperationStats getStats(TrackedOperation operation) {
+        int base = operation.ordinal() * stride;
+        long[] outcomes = new long[OUTCOMES.length];
+        long count = 0;
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            outcomes[i] = counters.get(base + i);
+            count += outcomes[i];
+        }
+        long totalNanos = counters.get(base + OUTCOMES.length);
+        LatencyHistogram histogram = latencies[operation.ordinal()];
+        return new OperationStats(operation.getMethodName(), count,
+                                  outcomes[OperationOutcome.SUCCESS.ordinal()],
+                                  outcomes[OperationOutcome.NOT_FOUND.ordinal()],
+                                  outcomes[OperationOutcome.DUPLICATE.ordinal()],
+                                  outcomes[OperationOutcome.REJECTED.ordinal()],
+                                  count == 0 ? 0 : totalNanos / 1e3 / count,
+                                  histogram.getPercentile(50) / 1e3,
+                                  histogram.getPercentile(90) / 1e3,
+                                  histogram.getPercentile(99) / 1e3,
+                                  histogram.getPercentile(99.9) / 1e3,
+                                  histogram.getMax() / 1e3);
+    }
+
+    @Override
+    public List<OperationStats> getOperations() {
+        List<OperationStats> stats = new ArrayList<>();
+        for (TrackedOperation operation : TrackedOperation.values()) {
+            OperationStats snapshot = getStats(operation);
+            if (snapshot.getCount() > 0) {
+                stats.add(snapshot);
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public int getMedicationCount() {
+        return system.getMedications().size();
+    }
+
+    @Override
+    public int getDoctorCount() {
+        return system.getDoctors().size();
+    }
+
+    @Override
+    public int getPatientCount() {
+        return system.getPatients().size();
+    }
+
+    @Override
+    public int getPrescriptionCount() {
+        return system.getPrescriptions().size();
+    }
+
+    @Override
+    public long getTotalStock() {
+        return system.getDashboardStats().getTotalStock();
+    }
+
+    @Override
+    public long getExpiredMedicationCount() {
+        return system.getDashboardStats().getExpiredMedicationCount();
+    }
+
+    @Override
+    public long getActivePrescriptionCount() {
+        return system.getDashboardStats().getActivePrescriptionCount();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    /**
+     * Publishes these metrics on the platform MBean server, under
+     * src.models:type=MedicationTrackingSystem,name=&lt;n&gt; where n counts the
+     * systems registered so far.
+     *
+     * @return The name the metrics were registered under.
+     * @throws JMException If the MBean server refuses the registration.
+     */
+    public synchronized ObjectName register() throws JMException {
+        if (registeredName == null) {
+            ObjectName name = new ObjectName("src.models:type=MedicationTrackingSystem,name=" + INSTANCES.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+        }
+        return registeredName;
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server, if registered.
+     *
+     * @throws JMException If the MBean server refuses the removal.
+     */
+    public synchronized void unregister() throws JMException {
+        if (registeredName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(registeredName)) {
+                server.unregisterMBean(registeredName);
+            }
+            registeredName = null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package src.models;
+
+import java.util.List;
+
+/**
+ * The management interface through which {@link SystemMetrics} are published
+ * to JMX clients such as JConsole.
+ * 
+ * @author May Basalo
+ */
+public interface SystemMetricsMXBean {
+
+    /** Retrieves the number of registered medications. */
+    int getMedicationCount();
+
+    /** Retrieves the number of registered doctors. */
+    int getDoctorCount();
+
+    /** Retrieves the number of registered patients. */
+    int getPatientCount();
+
+    /** Retrieves the number of registered prescriptions. */
+    int getPrescriptionCount();
+
+    /** Retrieves the units in stock across all medications. */
+    long getTotalStock();
+
+    /** Retrieves the number of medications that have expired as of today. */
+    long getExpiredMedicationCount();
+
+    /** Retrieves the number of prescriptions still valid today. */
+    long getActivePrescriptionCount();
+
+    /** Retrieves the statistics of every operation that has been called at least once. */
+    List<OperationStats> getOperations();
+
+    /** Clears every latency histogram and counter. */
+    void reset();
+}
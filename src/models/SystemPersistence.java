@@ -0,0 +1,184 @@
+package src.models;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a {@link MedicationTrackingSystem} durable across restarts.
+ *
+ * Every mutation made through the system's methods is appended to a
+ * write-ahead log whose records are fsynced in groups by a background thread,
+ * so the dispensing counter never waits for the disk. Periodic snapshots
+ * capture the whole state and let older log segments be deleted, so recovery
+ * loads the latest snapshot and replays only the log written after it.
+ *
+ * Changes made by adding to the lists returned from the system's getters, or by
+ * calling setters on entities directly, bypass the log and are only persisted
+ * by the next snapshot.
+ *
+ * A checkpoint holds off every mutation while it records the log position and
+ * writes the snapshot, so the snapshot holds exactly the records up to that
+ * position and recovery never applies one twice. With a
+ * {@link ConcurrentMedicationTrackingSystem}, automatic checkpoints run on a
+ * background thread; with a plain system, on the thread whose mutation made
+ * them due.
+ *
+ * @author May Basalo
+ */
+public class SystemPersistence implements Closeable {
+    /** Default time the log flusher waits to gather a group of records. */
+    public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 5;
+    /** Default number of log records between automatic snapshots. */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1_000_000;
+
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+
+    private final Path directory;
+    private final MedicationTrackingSystem system;
+    private final WriteAheadLog journal;
+    private volatile IOException checkpointFailure;
+    private volatile boolean closed;
+
+    private SystemPersistence(Path directory, MedicationTrackingSystem system, WriteAheadLog journal) {
+        this.directory = directory;
+        this.system = system;
+        this.journal = journal;
+    }
+
+    /**
+     * Opens the data directory with the default settings, recovering any state
+     * stored there.
+     *
+     * @param directory The directory holding the snapshot and log files.
+     * @return The opened persistence layer.
+     */
+    public static SystemPersistence open(Path directory) throws IOException {
+        return open(directory, DEFAULT_COMMIT_INTERVAL_MILLIS, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Opens the data directory, recovering any state stored there.
+     *
+     * @param directory            The directory holding the snapshot and log files.
+     * @param commitIntervalMillis How long the log waits to gather a group of records before fsyncing.
+     * @param checkpointInterval   Log records between automatic snapshots, or 0 to only snapshot on {@link #checkpoint()}.
+     * @return The opened persistence layer.
+     */
+    public static SystemPersistence open(Path directory, long commitIntervalMillis, int checkpointInterval) throws IOException {
+        return open(directory, commitIntervalMillis, checkpointInterval, MedicationTrackingSystem::new);
+    }
+
+    /**
+     * Opens the data directory into a system made by the given factory, such as
+     * a {@link ConcurrentMedicationTrackingSystem} or a system with a mapped
+     * inventory attached. The system must hold no doctors, patients or
+     * prescriptions. Medications it already holds, such as those of a mapped
+     * inventory, are kept in place of the snapshot's copies, and prescriptions
+     * are linked to them.
+     *
+     * @param directory            The directory holding the snapshot and log files.
+     * @param commitIntervalMillis How long the log waits to gather a group of records before fsyncing.
+     * @param checkpointInterval   Log records between automatic snapshots, or 0 to only snapshot on {@link #checkpoint()}.
+     * @param factory              Creates the system to recover into.
+     * @return The opened persistence layer.
+     */
+    public static SystemPersistence open(Path directory, long commitIntervalMillis, int checkpointInterval,
+                                         Supplier<? extends MedicationTrackingSystem> factory) throws IOException {
+        Files.createDirectories(directory);
+        MedicationTrackingSystem system = factory.get();
+        InteractionPolicy policy = system.getInteractionPolicy();
+        system.setQuiet(true);
+        // Every logged prescription passed the interaction check when it was accepted; replay must not check it against interactions recorded later.
+        system.setInteractionPolicy(InteractionPolicy.ALLOW);
+        try {
+            Path snapshot = directory.resolve(SNAPSHOT_FILE);
+            long lsn = Files.exists(snapshot) ? SnapshotStore.read(snapshot, system) : 0L;
+            lsn = WriteAheadLog.replay(directory, lsn, system);
+
+            WriteAheadLog journal = new WriteAheadLog(directory, lsn + 1, commitIntervalMillis, checkpointInterval);
+            SystemPersistence persistence = new SystemPersistence(directory, system, journal);
+            journal.setCheckpointTrigger(() -> system.scheduleCheckpoint(persistence::automaticCheckpoint));
+            system.setJournal(journal);
+            return persistence;
+        } finally {
+            system.setInteractionPolicy(policy);
+            system.setQuiet(false);
+        }
+    }
+
+    /**
+     * Retrieves the recovered system. Mutations made through it are logged.
+     *
+     * @return The persistent system.
+     */
+    public MedicationTrackingSystem getSystem() {
+        return system;
+    }
+
+    /**
+     * Writes a snapshot of the current state and deletes the log segments it
+     * covers. Mutations wait while the snapshot is written. With a plain
+     * system, must not be called while another thread is mutating it.
+     */
+    public void checkpoint() throws IOException {
+        try {
+            system.exclusive(() -> {
+                try {
+                    journal.checkpoint(lsn -> SnapshotStore.write(system, lsn, directory.resolve(SNAPSHOT_FILE)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Takes a checkpoint made due by the log. A failure is kept and reported by
+     * the next call to {@link #sync()} or {@link #close()}, since no caller is
+     * waiting for it.
+     */
+    private void automaticCheckpoint() {
+        if (closed) {
+            return;
+        }
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            if (!closed) {
+                checkpointFailure = e;
+            }
+        }
+    }
+
+    /**
+     * Blocks until every mutation made so far is on disk.
+     */
+    public void sync() throws IOException {
+        journal.sync();
+        throwCheckpointFailure();
+    }
+
+    /**
+     * Flushes the log and detaches it from the system.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        system.setJournal(null);
+        journal.close();
+        throwCheckpointFailure();
+    }
+
+    private void throwCheckpointFailure() throws IOException {
+        IOException failure = checkpointFailure;
+        if (failure != null) {
+            throw new IOException("Automatic checkpoint failed", failure);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package src.models;
+
+import java.util.List;
+
+/**
+ * A read-only view of a MedicationTrackingSystem's records as of one moment.
+ * Taking a snapshot costs O(1) and copies nothing; its lists never change
+ * afterwards, however the system is modified, and iterating them takes no
+ * locks and never throws ConcurrentModificationException. Reports and
+ * analytics can therefore run while prescriptions are accepted and dispensed.
+ *
+ * The snapshot fixes which records exist. The records themselves are the
+ * system's live objects, so a field such as a medication's stock is read as it
+ * is when the record is visited.
+ *
+ * Close the snapshot when done: until then, records deleted after it was taken
+ * are kept in memory for it.
+ *
+ * @author May Basalo
+ */
+public class SystemSnapshot implements AutoCloseable {
+    private final MedicationTrackingSystem system;
+    private final VersionClock clock;
+    private final long pin;
+    private final long version;
+    private final List<Medication> medications;
+    private final List<Doctor> doctors;
+    private final List<Patient> patients;
+    private final List<Prescription> prescriptions;
+    private boolean closed;
+
+    SystemSnapshot(MedicationTrackingSystem system, VersionClock clock, IdRegistry<Medication> medications,
+                   IdRegistry<Doctor> doctors, IdRegistry<Patient> patients, IdRegistry<Prescription> prescriptions) {
+        this.system = system;
+        this.clock = clock;
+        this.pin = clock.pin();
+        this.version = clock.current();
+        this.medications = medications.snapshot(version);
+        this.doctors = doctors.snapshot(version);
+        this.patients = patients.snapshot(version);
+        this.prescriptions = prescriptions.snapshot(version);
+    }
+
+    /** Retrieves the version the snapshot reads; later snapshots have equal or higher versions. */
+    public long getVersion() { return version; }
+
+    /** Retrieves the medications registered when the snapshot was taken. */
+    public List<Medication> getMedications() { return medications; }
+
+    /** Retrieves the doctors registered when the snapshot was taken. */
+    public List<Doctor> getDoctors() { return doctors; }
+
+    /** Retrieves the patients registered when the snapshot was taken. */
+    public List<Patient> getPatients() { return patients; }
+
+    /** Retrieves the prescriptions registered when the snapshot was taken. */
+    public List<Prescription> getPrescriptions() { return prescriptions; }
+
+    /**
+     * Releases the snapshot, letting the system drop records deleted since it
+     * was taken. The lists must not be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            clock.unpin(pin);
+            system.purgeRetired();
+        }
+    }
+}
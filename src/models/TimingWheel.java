@@ -0,0 +1,202 @@
+package src.models;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A hierarchical timing wheel with a tick of one day.
+ *
+ * Entries are filed under the epoch day on which they fall due. Three levels of
+ * 64 slots cover the next 64 days, 4096 days and 262144 days; anything further
+ * out waits in an overflow list. Scheduling and cancelling are O(1), and each
+ * entry is moved down a level at most twice before it fires, so advancing the
+ * wheel costs O(1) amortized per entry plus one step per day elapsed.
+ * All operations are synchronized on the wheel.
+ *
+ * @param <T> The type of entry being scheduled.
+ *
+ * @author May Basalo
+ */
+class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 3;
+
+    private final Node<T>[][] wheels;
+    private final Node<T> overflow;
+    private final List<Node<T>> due;
+    private final Map<T, Node<T>> nodes;
+    private long currentDay;
+
+    /**
+     * Creates an empty wheel whose clock starts at the given day.
+     *
+     * @param startDay The epoch day the wheel has already reached.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimingWheel(long startDay) {
+        this.wheels = new Node[LEVELS][SLOTS];
+        for (Node<T>[] wheel : wheels) {
+            for (int i = 0; i < SLOTS; i++) {
+                wheel[i] = Node.sentinel();
+            }
+        }
+        this.overflow = Node.sentinel();
+        this.due = new ArrayList<>();
+        this.nodes = new IdentityHashMap<>();
+        this.currentDay = startDay;
+    }
+
+    /** Retrieves the epoch day the wheel has reached. */
+    synchronized long currentDay() {
+        return currentDay;
+    }
+
+    /** Retrieves the number of scheduled entries. */
+    synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Schedules an entry, replacing any earlier schedule for it. An entry whose
+     * day has already been reached fires on the next advance.
+     *
+     * @param entry  The entry to schedule.
+     * @param dueDay The epoch day on which the entry falls due.
+     */
+    synchronized void schedule(T entry, long dueDay) {
+        cancel(entry);
+        Node<T> node = new Node<>(entry, dueDay);
+        nodes.put(entry, node);
+        place(node);
+    }
+
+    /**
+     * Removes an entry from the wheel.
+     *
+     * @param entry The entry to cancel.
+     * @return True if the entry was scheduled.
+     */
+    synchronized boolean cancel(T entry) {
+        Node<T> node = nodes.remove(entry);
+        if (node == null) {
+            return false;
+        }
+        if (node.prev != null) {
+            node.unlink();
+        } else {
+            due.remove(node);
+        }
+        return true;
+    }
+
+    /**
+     * Advances the clock to the given day and returns every entry that fell due
+     * on or before it, in due order.
+     *
+     * @param day The epoch day to advance to.
+     * @return The entries that fell due.
+     */
+    synchronized List<T> advanceTo(long day) {
+        List<T> fired = new ArrayList<>();
+        drainDue(fired);
+        while (currentDay < day) {
+            currentDay++;
+            if ((currentDay & MASK) == 0) {
+                if (((currentDay >>> SLOT_BITS) & MASK) == 0) {
+                    if (((currentDay >>> (2 * SLOT_BITS)) & MASK) == 0) {
+                        cascade(overflow);
+                    }
+                    cascade(wheels[2][(int) ((currentDay >>> (2 * SLOT_BITS)) & MASK)]);
+                }
+                cascade(wheels[1][(int) ((currentDay >>> SLOT_BITS) & MASK)]);
+            }
+            drainDue(fired);
+            Node<T> head = wheels[0][(int) (currentDay & MASK)];
+            while (head.next != head) {
+                Node<T> node = head.next;
+                node.unlink();
+                nodes.remove(node.entry);
+                fired.add(node.entry);
+            }
+        }
+        return fired;
+    }
+
+    private void place(Node<T> node) {
+        long delta = node.dueDay - currentDay;
+        if (delta <= 0) {
+            due.add(node);
+        } else if (delta < SLOTS) {
+            wheels[0][(int) (node.dueDay & MASK)].append(node);
+        } else if (delta < (long) SLOTS * SLOTS) {
+            wheels[1][(int) ((node.dueDay >>> SLOT_BITS) & MASK)].append(node);
+        } else if (delta < (long) SLOTS * SLOTS * SLOTS) {
+            wheels[2][(int) ((node.dueDay >>> (2 * SLOT_BITS)) & MASK)].append(node);
+        } else {
+            overflow.append(node);
+        }
+    }
+
+    private void cascade(Node<T> head) {
+        // Detach the whole list first: entries still too far out go back to the same list.
+        Node<T> node = head.next;
+        head.prev.next = null;
+        head.next = head;
+        head.prev = head;
+        while (node != null && node != head) {
+            Node<T> next = node.next;
+            node.prev = null;
+            node.next = null;
+            place(node);
+            node = next;
+        }
+    }
+
+    private void drainDue(List<T> fired) {
+        for (Node<T> node : due) {
+            nodes.remove(node.entry);
+            fired.add(node.entry);
+        }
+        due.clear();
+    }
+
+    /**
+     * A scheduled entry, linked into the circular list of its slot.
+     */
+    private static final class Node<T> {
+        private final T entry;
+        private final long dueDay;
+        private Node<T> prev;
+        private Node<T> next;
+
+        Node(T entry, long dueDay) {
+            this.entry = entry;
+            this.dueDay = dueDay;
+        }
+
+        static <T> Node<T> sentinel() {
+            Node<T> head = new Node<>(null, 0L);
+            head.prev = head;
+            head.next = head;
+            return head;
+        }
+
+        void append(Node<T> node) {
+            node.prev = prev;
+            node.next = this;
+            prev.next = node;
+            prev = node;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package src.models;
+
+import java.util.Locale;
+
+/**
+ * The MedicationTrackingSystem operations whose latency and outcomes are
+ * recorded by {@link SystemMetrics}. Overloads of the same method share one entry.
+ * 
+ * @author May Basalo
+ */
+public enum TrackedOperation {
+    SEARCH_PATIENT_BY_NAME,
+    SEARCH_DOCTOR_BY_NAME,
+    SEARCH_MEDICATION_BY_NAME,
+    FIND_PATIENTS_BY_NAME,
+    FIND_PATIENTS_BY_NAME_PREFIX,
+    FIND_DOCTORS_BY_NAME,
+    FIND_DOCTORS_BY_NAME_PREFIX,
+    FIND_MEDICATIONS_BY_NAME,
+    FIND_MEDICATIONS_BY_NAME_PREFIX,
+    FIND_MEDICATION_BY_ID,
+    FIND_DOCTOR_BY_ID,
+    FIND_PATIENT_BY_ID,
+    FIND_PRESCRIPTION_BY_ID,
+    FIND_MEDICATIONS_BY_ID,
+    FIND_DOCTORS_BY_ID,
+    FIND_PATIENTS_BY_ID,
+    FIND_PRESCRIPTIONS_BY_ID,
+    FIND_MEDICATIONS_BY_NAMES,
+    FIND_DOCTORS_BY_NAMES,
+    FIND_PATIENTS_BY_NAMES,
+    GET_PRESCRIPTIONS_BY_PATIENT,
+    GET_DOCTORS_BY_PATIENT,
+    GET_PRESCRIPTION_HISTORY,
+    GET_PRESCRIPTIONS_ACTIVE_ON,
+    FIND_PATIENT_OVERVIEW,
+    FIND_PATIENT_OVERVIEWS,
+    ADD_MEDICATION,
+    ADD_DOCTOR,
+    ADD_PATIENT,
+    ADD_PRESCRIPTION,
+    ADD_MEDICATIONS,
+    ADD_DOCTORS,
+    ADD_PATIENTS,
+    EDIT_MEDICATION,
+    EDIT_DOCTOR,
+    EDIT_PATIENT,
+    DELETE_MEDICATION,
+    DELETE_PATIENT,
+    DELETE_DOCTOR,
+    DELETE_MEDICATIONS,
+    DELETE_PATIENTS,
+    DELETE_DOCTORS,
+    ADD_PATIENT_TO_DOCTOR,
+    ACCEPT_PRESCRIPTION,
+    ACCEPT_PRESCRIPTIONS,
+    ADD_INTERACTION,
+    REMOVE_INTERACTION,
+    FIND_INTERACTING_MEDICATIONS,
+    EXPIRE_PRESCRIPTIONS,
+    GENERATE_SYSTEM_REPORT,
+    CHECK_FOR_EXPIRED_MEDICATIONS,
+    CHECK_FOR_MEDICATIONS_EXPIRING_WITHIN,
+    GET_EXPIRED_MEDICATIONS,
+    GET_MEDICATIONS_EXPIRING_WITHIN,
+    PRINT_PRESCRIPTIONS_BY_DOCTOR,
+    GET_PRESCRIPTIONS_BY_DOCTOR,
+    COUNT_PRESCRIPTIONS_BY_DOCTOR,
+    GET_LOW_STOCK_MEDICATIONS,
+    SET_REORDER_POINT,
+    RESTOCK_MEDICATION,
+    DISPENSE_MEDICATION;
+
+    private final String methodName;
+
+    TrackedOperation() {
+        StringBuilder name = new StringBuilder();
+        for (String word : name().toLowerCase(Locale.ROOT).split("_")) {
+            name.append(name.length() == 0 ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+        }
+        this.methodName = name.toString();
+    }
+
+    /** Retrieves the name of the system method this operation tracks, such as "acceptPrescription". */
+    public String getMethodName() { return methodName; }
+}
@@ -0,0 +1,64 @@
+package src.models;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The version counter shared by the registries of one system, and the record
+ * of which versions open snapshots still read. Registries stamp every add and
+ * removal with a version from {@link #next()}; a snapshot sees exactly the
+ * entries added at or before its version and not removed by then.
+ *
+ * @author May Basalo
+ */
+final class VersionClock {
+    private final AtomicLong clock;
+    // Pinned version -> number of open snapshots holding that pin.
+    private final ConcurrentSkipListMap<Long, Integer> pins;
+
+    VersionClock() {
+        this.clock = new AtomicLong();
+        this.pins = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Issues a version later than every version issued or read before.
+     */
+    long next() {
+        return clock.incrementAndGet();
+    }
+
+    /**
+     * Opens a read at the current version. The pin is registered before the
+     * version is read, so a removal that finds no pin older than its own stamp
+     * can never be needed by this read.
+     *
+     * @return The pin to pass to {@link #unpin(long)}; the read version is {@link #current()} at or after it.
+     */
+    long pin() {
+        long pin = clock.get();
+        pins.merge(pin, 1, Integer::sum);
+        return pin;
+    }
+
+    /** Reads the latest issued version. */
+    long current() {
+        return clock.get();
+    }
+
+    /** Releases a pin taken by {@link #pin()}. */
+    void unpin(long pin) {
+        pins.computeIfPresent(pin, (version, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Retrieves the oldest version an open snapshot may still read.
+     *
+     * @return The oldest pin, or Long.MAX_VALUE if no snapshot is open.
+     */
+    long oldestPin() {
+        Map.Entry<Long, Integer> oldest = pins.firstEntry();
+        return oldest == null ? Long.MAX_VALUE : oldest.getKey();
+    }
+}
@@ -0,0 +1,881 @@
+package src.models;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of every mutation made to a {@link MedicationTrackingSystem}.
+ *
+ * Records are encoded into an in-memory buffer on the caller's thread and a
+ * background thread writes and fsyncs them in groups, so a mutation never waits
+ * for the disk. Each record carries a log sequence number (LSN) and a CRC, and
+ * replay stops at the first torn or corrupt record. The log is split into
+ * segment files named after their first LSN; a new segment is started at every
+ * checkpoint so older segments can be deleted once a snapshot covers them.
+ *
+ * @author May Basalo
+ */
+final class WriteAheadLog implements Closeable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int FLUSH_THRESHOLD = 1 << 20;
+
+    private static final byte ADD_MEDICATION = 1;
+    private static final byte ADD_DOCTOR = 2;
+    private static final byte ADD_PATIENT = 3;
+    private static final byte ADD_PRESCRIPTION = 4;
+    private static final byte ACCEPT_PRESCRIPTION = 5;
+    private static final byte EDIT_MEDICATION = 6;
+    private static final byte EDIT_DOCTOR = 7;
+    private static final byte EDIT_PATIENT = 8;
+    private static final byte DELETE_MEDICATION = 9;
+    private static final byte DELETE_DOCTOR = 10;
+    private static final byte DELETE_PATIENT = 11;
+    private static final byte RESTOCK_MEDICATION = 12;
+    private static final byte ASSIGN_PATIENT = 13;
+    private static final byte DISPENSE_MEDICATION = 14;
+    private static final byte SET_REORDER_POINT = 15;
+    private static final byte ADD_INTERACTION = 16;
+    private static final byte REMOVE_INTERACTION = 17;
+    private static final byte SET_STOCK_LEVEL = 18;
+    private static final byte RESERVE_PRESCRIPTION = 19;
+    private static final byte EXPIRE_PRESCRIPTIONS = 20;
+
+    private final Path directory;
+    private final long commitIntervalMillis;
+    private final int checkpointInterval;
+    private final Thread flusher;
+
+    private final RecordBuffer record = new RecordBuffer();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel segment;
+    private byte[] pending = new byte[64 * 1024];
+    private int pendingSize;
+    private long nextLsn;
+    private long durableLsn;
+    private int recordsSinceCheckpoint;
+    private Runnable checkpointTrigger;
+    private IOException failure;
+    private boolean flushing;
+    private boolean closed;
+
+    /**
+     * Opens the log for appending, starting a fresh segment at the given LSN.
+     *
+     * @param directory            The directory holding the segment files.
+     * @param firstLsn             The LSN to give the next record.
+     * @param commitIntervalMillis How long the flusher waits to gather a group before writing.
+     * @param checkpointInterval   Records between automatic checkpoints, or 0 to disable them.
+     */
+    WriteAheadLog(Path directory, long firstLsn, long commitIntervalMillis, int checkpointInterval) throws IOException {
+        this.directory = directory;
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.checkpointInterval = checkpointInterval;
+        this.nextLsn = firstLsn;
+        this.durableLsn = firstLsn - 1;
+        this.segment = openSegment(firstLsn);
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Sets the action run when enough records have been appended since the last
+     * checkpoint. It runs on the mutating thread, between two mutations.
+     */
+    void setCheckpointTrigger(Runnable checkpointTrigger) {
+        this.checkpointTrigger = checkpointTrigger;
+    }
+
+    /** Retrieves the LSN of the last record appended. */
+    synchronized long lastLsn() {
+        return nextLsn - 1;
+    }
+
+    /**
+     * Writes the snapshot that a checkpoint records. The snapshot must reflect
+     * every record up to the given LSN and none after it.
+     */
+    interface SnapshotWriter {
+        void write(long coveredLsn) throws IOException;
+    }
+
+    void addMedication(Medication med) {
+        appendMedication(med);
+        mutationComplete();
+    }
+
+    void addMedications(Collection<Medication> meds) {
+        for (Medication med : meds) {
+            appendMedication(med);
+        }
+        mutationComplete();
+    }
+
+    /**
+     * Appends an added medication. A reorder point goes in a record of its own,
+     * so medication records keep the layout older logs were written with.
+     */
+    private void appendMedication(Medication med) {
+        append(ADD_MEDICATION, out -> EntityCodec.writeMedication(out, med));
+        int reorderPoint = med.getReorderPoint();
+        if (reorderPoint != 0) {
+            append(SET_REORDER_POINT, out -> {
+                EntityCodec.writeString(out, med.getId());
+                out.writeInt(reorderPoint);
+            });
+        }
+    }
+
+    void addDoctor(Doctor doctor) {
+        append(ADD_DOCTOR, out -> EntityCodec.writeDoctor(out, doctor));
+        mutationComplete();
+    }
+
+    void addDoctors(Collection<Doctor> batch) {
+        for (Doctor doctor : batch) {
+            append(ADD_DOCTOR, out -> EntityCodec.writeDoctor(out, doctor));
+        }
+        mutationComplete();
+    }
+
+    void addPatient(Patient patient) {
+        append(ADD_PATIENT, out -> EntityCodec.writePatient(out, patient));
+        mutationComplete();
+    }
+
+    void addPatients(Collection<Patient> batch) {
+        for (Patient patient : batch) {
+            append(ADD_PATIENT, out -> EntityCodec.writePatient(out, patient));
+        }
+        mutationComplete();
+    }
+
+    void addPrescription(Prescription prescription) {
+        append(ADD_PRESCRIPTION, out -> {
+            EntityCodec.writeString(out, prescription.getId());
+            EntityCodec.writeDoctor(out, prescription.getDoctor());
+            EntityCodec.writePatient(out, prescription.getPatient());
+            EntityCodec.writeMedication(out, prescription.getMedication());
+            EntityCodec.writeDate(out, prescription.getPrescriptionExpiry());
+            EntityCodec.writeInstant(out, prescription.getIssuedAt());
+        });
+        mutationComplete();
+    }
+
+    void acceptPrescription(Prescription prescription) {
+        append(ACCEPT_PRESCRIPTION, out -> writeAccepted(out, prescription));
+        mutationComplete();
+    }
+
+    void acceptPrescriptions(Collection<Prescription> batch) {
+        for (Prescription prescription : batch) {
+            append(ACCEPT_PRESCRIPTION, out -> writeAccepted(out, prescription));
+        }
+        mutationComplete();
+    }
+
+    /**
+     * Sets a medication's stock as part of an edit and logs the edit, in one
+     * step with respect to other stock changes.
+     */
+    void editMedication(Medication med, String name, int quantity, String dosage, LocalDate expiryDate) {
+        stockChange(() -> {
+            med.setQuantity(quantity);
+            return true;
+        }, EDIT_MEDICATION, out -> {
+            EntityCodec.writeString(out, med.getId());
+            EntityCodec.writeString(out, name);
+            out.writeInt(quantity);
+            EntityCodec.writeString(out, dosage);
+            EntityCodec.writeDate(out, expiryDate);
+        });
+    }
+
+    void editDoctor(String id, String name, int age, String phoneNumber, String specialty) {
+        append(EDIT_DOCTOR, out -> {
+            EntityCodec.writeString(out, id);
+            EntityCodec.writeString(out, name);
+            out.writeInt(age);
+            EntityCodec.writeString(out, phoneNumber);
+            EntityCodec.writeString(out, specialty);
+        });
+        mutationComplete();
+    }
+
+    void editPatient(String id, String name, int age, String phoneNumber) {
+        append(EDIT_PATIENT, out -> {
+            EntityCodec.writeString(out, id);
+            EntityCodec.writeString(out, name);
+            out.writeInt(age);
+            EntityCodec.writeString(out, phoneNumber);
+        });
+        mutationComplete();
+    }
+
+    void deleteMedications(Collection<Medication> meds) {
+        for (Medication med : meds) {
+            append(DELETE_MEDICATION, out -> EntityCodec.writeString(out, med.getId()));
+        }
+        mutationComplete();
+    }
+
+    void deleteDoctors(Collection<Doctor> batch) {
+        for (Doctor doctor : batch) {
+            append(DELETE_DOCTOR, out -> EntityCodec.writeString(out, doctor.getId()));
+        }
+        mutationComplete();
+    }
+
+    void deletePatients(Collection<Patient> batch) {
+        for (Patient patient : batch) {
+            append(DELETE_PATIENT, out -> EntityCodec.writeString(out, patient.getId()));
+        }
+        mutationComplete();
+    }
+
+    /**
+     * Restocks a medication and logs its new stock level in one step.
+     *
+     * @return The new stock level.
+     */
+    int restockMedication(Medication med, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Units must not be negative: " + quantity);
+        }
+        int[] updated = new int[1];
+        stockChange(() -> {
+            updated[0] = med.restock(quantity);
+            return true;
+        }, SET_STOCK_LEVEL, out -> writeStockLevel(out, med, updated[0]));
+        return updated[0];
+    }
+
+    /**
+     * Dispenses a medication and logs its new stock level in one step.
+     *
+     * @return False, with nothing logged, if there was not enough stock.
+     */
+    boolean dispenseMedication(Medication med, int quantity) {
+        return stockChange(() -> med.dispense(quantity), SET_STOCK_LEVEL, out -> writeStockLevel(out, med, med.getQuantity()));
+    }
+
+    /**
+     * Reserves stock for a prescription and logs the prescription with the
+     * resulting stock level as a single record, so recovery never sees one
+     * without the other.
+     *
+     * @param prescription The prescription being accepted.
+     * @param reserve      Takes the stock and registers the prescription.
+     * @return The outcome of the reservation; only a successful one is logged.
+     */
+    OperationOutcome reservePrescription(Prescription prescription, Supplier<OperationOutcome> reserve) {
+        OperationOutcome[] outcome = new OperationOutcome[1];
+        stockChange(() -> {
+            outcome[0] = reserve.get();
+            return outcome[0] == OperationOutcome.SUCCESS;
+        }, RESERVE_PRESCRIPTION, out -> {
+            writeAccepted(out, prescription);
+            out.writeInt(prescription.getMedication().getQuantity());
+        });
+        return outcome[0];
+    }
+
+    void setReorderPoint(String id, int reorderPoint) {
+        append(SET_REORDER_POINT, out -> {
+            EntityCodec.writeString(out, id);
+            out.writeInt(reorderPoint);
+        });
+        mutationComplete();
+    }
+
+    void addInteraction(String medicationId, String otherMedicationId) {
+        append(ADD_INTERACTION, out -> {
+            EntityCodec.writeString(out, medicationId);
+            EntityCodec.writeString(out, otherMedicationId);
+        });
+        mutationComplete();
+    }
+
+    void removeInteraction(String medicationId, String otherMedicationId) {
+        append(REMOVE_INTERACTION, out -> {
+            EntityCodec.writeString(out, medicationId);
+            EntityCodec.writeString(out, otherMedicationId);
+        });
+        mutationComplete();
+    }
+
+    /**
+     * Logs the prescriptions an expiry sweep removed, as one record, so a
+     * replay removes the same ones and a reused ID is free again after it.
+     */
+    void expirePrescriptions(Collection<Prescription> expired) {
+        append(EXPIRE_PRESCRIPTIONS, out -> {
+            out.writeInt(expired.size());
+            for (Prescription prescription : expired) {
+                EntityCodec.writeString(out, prescription.getId());
+            }
+        });
+        mutationComplete();
+    }
+
+    void assignPatient(String doctorId, Patient patient) {
+        append(ASSIGN_PATIENT, out -> {
+            EntityCodec.writeString(out, doctorId);
+            EntityCodec.writePatient(out, patient);
+        });
+        mutationComplete();
+    }
+
+    /**
+     * Makes a change to a medication's stock and appends the record describing
+     * it as one step. Stock changes are compare-and-sets that take no lock, so
+     * without this two changes made on different threads could be logged in
+     * the opposite order to the one they were made in, and replay would end on
+     * the wrong level. Holding the log's lock across both puts every logged
+     * change to a stock in the order it happened; the record is written inside
+     * the lock, so it may read the level the change left.
+     *
+     * @return False, with nothing logged, if the change was refused.
+     */
+    private boolean stockChange(BooleanSupplier change, byte op, RecordWriter writer) {
+        synchronized (this) {
+            try {
+                ensureWritable();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!change.getAsBoolean()) {
+                return false;
+            }
+            append(op, writer);
+        }
+        mutationComplete();
+        return true;
+    }
+
+    private static void writeStockLevel(DataOutputStream out, Medication med, int quantity) throws IOException {
+        EntityCodec.writeString(out, med.getId());
+        out.writeInt(quantity);
+    }
+
+    private static void writeAccepted(DataOutputStream out, Prescription prescription) throws IOException {
+        EntityCodec.writeString(out, prescription.getId());
+        EntityCodec.writeString(out, prescription.getDoctor().getId());
+        EntityCodec.writeString(out, prescription.getPatient().getId());
+        EntityCodec.writeString(out, prescription.getMedication().getId());
+        EntityCodec.writeDate(out, prescription.getPrescriptionExpiry());
+        EntityCodec.writeInstant(out, prescription.getIssuedAt());
+    }
+
+    /**
+     * Encodes one record into the scratch buffer and queues it.
+     */
+    private synchronized void append(byte op, RecordWriter writer) {
+        try {
+            begin(op);
+            writer.write(recordOut);
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void begin(byte op) throws IOException {
+        ensureWritable();
+        record.reset();
+        recordOut.writeLong(0L); // LSN, filled in by end()
+        recordOut.writeByte(op);
+    }
+
+    private void ensureWritable() throws IOException {
+        if (closed) {
+            throw new IOException("Write-ahead log is closed");
+        }
+        if (failure != null) {
+            throw new IOException("Write-ahead log failed", failure);
+        }
+    }
+
+    /**
+     * Stamps the record in the scratch buffer with the next LSN, frames it with
+     * its length and CRC, and queues it for the flusher.
+     */
+    private void end() {
+        byte[] body = record.buffer();
+        int length = record.size();
+        long lsn = nextLsn++;
+        for (int i = 0; i < 8; i++) {
+            body[i] = (byte) (lsn >>> (56 - 8 * i));
+        }
+        crc.reset();
+        crc.update(body, 0, length);
+
+        ensurePending(length + 8);
+        putInt(length);
+        putInt((int) crc.getValue());
+        System.arraycopy(body, 0, pending, pendingSize, length);
+        pendingSize += length;
+        recordsSinceCheckpoint++;
+        if (pendingSize == length + 8 || pendingSize >= FLUSH_THRESHOLD) {
+            notifyAll();
+        }
+    }
+
+    private void mutationComplete() {
+        Runnable trigger;
+        synchronized (this) {
+            if (checkpointInterval <= 0 || recordsSinceCheckpoint < checkpointInterval) {
+                return;
+            }
+            recordsSinceCheckpoint = 0;
+            trigger = checkpointTrigger;
+        }
+        if (trigger != null) {
+            trigger.run();
+        }
+    }
+
+    private void ensurePending(int extra) {
+        if (pendingSize + extra > pending.length) {
+            byte[] grown = new byte[Math.max(pending.length * 2, pendingSize + extra)];
+            System.arraycopy(pending, 0, grown, 0, pendingSize);
+            pending = grown;
+        }
+    }
+
+    private void putInt(int value) {
+        pending[pendingSize++] = (byte) (value >>> 24);
+        pending[pendingSize++] = (byte) (value >>> 16);
+        pending[pendingSize++] = (byte) (value >>> 8);
+        pending[pendingSize++] = (byte) value;
+    }
+
+    /**
+     * Writes queued records in groups: after the first record of a group
+     * arrives, the flusher waits up to the commit interval for more before
+     * issuing a single write and fsync for all of them.
+     */
+    private void flushLoop() {
+        byte[] spare = new byte[pending.length];
+        while (true) {
+            byte[] batch;
+            int size;
+            long upTo;
+            FileChannel target;
+            synchronized (this) {
+                try {
+                    while (pendingSize == 0 && !closed) {
+                        wait();
+                    }
+                    if (pendingSize == 0) {
+                        return;
+                    }
+                    if (!closed && pendingSize < FLUSH_THRESHOLD && commitIntervalMillis > 0) {
+                        wait(commitIntervalMillis);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                flushing = true;
+                batch = pending;
+                size = pendingSize;
+                pending = spare.length >= batch.length / 2 ? spare : new byte[batch.length];
+                pendingSize = 0;
+                upTo = nextLsn - 1;
+                target = segment;
+            }
+
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch, 0, size);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    flushing = false;
+                    notifyAll();
+                }
+                return;
+            }
+
+            spare = batch;
+            synchronized (this) {
+                durableLsn = upTo;
+                flushing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Blocks until every record appended so far has been written and fsynced.
+     */
+    synchronized void sync() throws IOException {
+        long target = nextLsn - 1;
+        notifyAll();
+        try {
+            while (durableLsn < target && failure == null) {
+                if (!flusher.isAlive()) {
+                    throw new IOException("Write-ahead log flusher has stopped");
+                }
+                wait(commitIntervalMillis + 10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the write-ahead log", e);
+        }
+        if (failure != null) {
+            throw new IOException("Write-ahead log failed", failure);
+        }
+    }
+
+    /**
+     * Starts a new segment and has a snapshot written that covers every record
+     * appended before it, then deletes the segments the snapshot covers.
+     *
+     * The log's lock is held from reading the covered LSN until the snapshot is
+     * written, so no record can be appended, and no stock change made, in
+     * between; the caller must hold off every other mutation. Records still
+     * queued when the segment is switched are written to the new segment,
+     * which replay reads after the older ones, so the log stays in LSN order
+     * whether or not the snapshot is completed.
+     *
+     * @param writer Writes the snapshot, given the LSN it covers.
+     */
+    synchronized void checkpoint(SnapshotWriter writer) throws IOException {
+        ensureWritable();
+        try {
+            // A group being written outside the lock targets the current segment; let it finish before closing it.
+            while (flushing) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the write-ahead log", e);
+        }
+        long coveredLsn = nextLsn - 1;
+        FileChannel previous = segment;
+        segment = openSegment(nextLsn);
+        previous.close();
+
+        writer.write(coveredLsn);
+        for (Path old : listSegments(directory)) {
+            if (segmentStart(old) <= coveredLsn) {
+                Files.deleteIfExists(old);
+            }
+        }
+    }
+
+    /**
+     * Flushes all queued records and closes the current segment.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            segment.close();
+            if (failure != null) {
+                throw new IOException("Write-ahead log failed", failure);
+            }
+        }
+    }
+
+    private FileChannel openSegment(long firstLsn) throws IOException {
+        return FileChannel.open(segmentPath(directory, firstLsn),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static Path segmentPath(Path directory, long firstLsn) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentStart(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        segments.sort((a, b) -> Long.compare(segmentStart(a), segmentStart(b)));
+        return segments;
+    }
+
+    /**
+     * Replays every intact record with an LSN greater than the given one into the
+     * system. The system must not have a journal attached while replaying.
+     *
+     * Replay stops for good at the first torn or corrupt record, including one
+     * whose length runs past the end of its segment, or at a gap in the LSNs,
+     * since every later record may depend on the ones lost. What
+     * follows that point is cut off the log, so that records appended after
+     * recovery are not stranded behind it at the next replay.
+     *
+     * @param directory The directory holding the segment files.
+     * @param afterLsn  The LSN already covered by the loaded snapshot.
+     * @param system    The system to apply the records to.
+     * @return The LSN of the last record applied or skipped, or afterLsn if there were none.
+     */
+    static long replay(Path directory, long afterLsn, MedicationTrackingSystem system) throws IOException {
+        long lastLsn = afterLsn;
+        CRC32 check = new CRC32();
+        byte[] body = new byte[256];
+        List<Path> segments = listSegments(directory);
+        for (int s = 0; s < segments.size(); s++) {
+            Path path = segments.get(s);
+            long segmentBytes = Files.size(path);
+            long intactBytes = 0;
+            boolean stopped = false;
+            try (InputStream file = Files.newInputStream(path);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+                while (true) {
+                    int length;
+                    int expectedCrc;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException endOfSegment) {
+                        break;
+                    }
+                    try {
+                        expectedCrc = in.readInt();
+                        // A length read from a torn or corrupt header can be anything; never size a buffer by it
+                        // unless the segment really holds that many more bytes.
+                        if (length < 9 || length > segmentBytes - intactBytes - 8) {
+                            stopped = true;
+                            break;
+                        }
+                        if (body.length < length) {
+                            body = new byte[Math.max(length, body.length * 2)];
+                        }
+                        in.readFully(body, 0, length);
+                    } catch (EOFException tornTail) {
+                        stopped = true;
+                        break;
+                    }
+                    check.reset();
+                    check.update(body, 0, length);
+                    if ((int) check.getValue() != expectedCrc) {
+                        stopped = true;
+                        break;
+                    }
+
+                    DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(body, 0, length));
+                    long lsn = recordIn.readLong();
+                    byte op = recordIn.readByte();
+                    if (lsn > lastLsn + 1) {
+                        stopped = true;
+                        break;
+                    }
+                    if (lsn > afterLsn) {
+                        apply(op, recordIn, system);
+                    }
+                    lastLsn = Math.max(lastLsn, lsn);
+                    intactBytes += 8 + length;
+                }
+            }
+            if (stopped) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(intactBytes);
+                }
+                for (Path later : segments.subList(s + 1, segments.size())) {
+                    Files.deleteIfExists(later);
+                }
+                break;
+            }
+        }
+        return lastLsn;
+    }
+
+    private static void apply(byte op, DataInputStream in, MedicationTrackingSystem system) throws IOException {
+        switch (op) {
+            case ADD_MEDICATION:
+                system.addMedication(EntityCodec.readMedication(in));
+                break;
+            case ADD_DOCTOR:
+                system.addDoctor(EntityCodec.readDoctor(in));
+                break;
+            case ADD_PATIENT:
+                system.addPatient(EntityCodec.readPatient(in));
+                break;
+            case ADD_PRESCRIPTION: {
+                String id = EntityCodec.readString(in);
+                Doctor doctor = EntityCodec.readDoctor(in);
+                Patient patient = EntityCodec.readPatient(in);
+                Medication medication = EntityCodec.readMedication(in);
+                LocalDate expiry = EntityCodec.readDate(in);
+                Instant issuedAt = readIssuedAt(in);
+                Doctor registeredDoctor = system.findDoctorById(doctor.getId());
+                Patient registeredPatient = system.findPatientById(patient.getId());
+                Medication registeredMedication = system.findMedicationById(medication.getId());
+                system.addPrescription(new Prescription(id,
+                        registeredDoctor != null ? registeredDoctor : doctor,
+                        registeredPatient != null ? registeredPatient : patient,
+                        registeredMedication != null ? registeredMedication : medication,
+                        expiry, issuedAt));
+                break;
+            }
+            case ACCEPT_PRESCRIPTION:
+                system.acceptPrescriptions(List.of(new PrescriptionRequest(EntityCodec.readString(in), EntityCodec.readString(in),
+                        EntityCodec.readString(in), EntityCodec.readString(in), EntityCodec.readDate(in), readIssuedAt(in))));
+                break;
+            case EDIT_MEDICATION: {
+                String id = EntityCodec.readString(in);
+                String name = EntityCodec.readString(in);
+                int quantity = in.readInt();
+                String dosage = EntityCodec.readString(in);
+                LocalDate expiry = EntityCodec.readDate(in);
+                if (expiry == null) {
+                    system.editMedication(id, name, quantity, dosage);
+                } else {
+                    system.editMedication(id, name, quantity, dosage, expiry);
+                }
+                break;
+            }
+            case EDIT_DOCTOR:
+                system.editDoctor(EntityCodec.readString(in), EntityCodec.readString(in), in.readInt(),
+                        EntityCodec.readString(in), EntityCodec.readString(in));
+                break;
+            case EDIT_PATIENT:
+                system.editPatient(EntityCodec.readString(in), EntityCodec.readString(in), in.readInt(),
+                        EntityCodec.readString(in));
+                break;
+            case DELETE_MEDICATION:
+                system.deleteMedication(EntityCodec.readString(in));
+                break;
+            case DELETE_DOCTOR:
+                system.deleteDoctor(EntityCodec.readString(in));
+                break;
+            case DELETE_PATIENT:
+                system.deletePatient(EntityCodec.readString(in));
+                break;
+            case RESTOCK_MEDICATION:
+                // Logs written before stock levels were recorded hold restocks and dispenses as deltas.
+                system.restockMedication(EntityCodec.readString(in), in.readInt());
+                break;
+            case DISPENSE_MEDICATION:
+                system.dispenseMedication(EntityCodec.readString(in), in.readInt());
+                break;
+            case SET_STOCK_LEVEL:
+                setStockLevel(system, EntityCodec.readString(in), in.readInt());
+                break;
+            case RESERVE_PRESCRIPTION: {
+                PrescriptionRequest request = new PrescriptionRequest(EntityCodec.readString(in), EntityCodec.readString(in),
+                        EntityCodec.readString(in), EntityCodec.readString(in), EntityCodec.readDate(in), EntityCodec.readInstant(in));
+                system.acceptPrescriptions(List.of(request));
+                setStockLevel(system, request.getMedicationId(), in.readInt());
+                break;
+            }
+            case SET_REORDER_POINT:
+                system.setReorderPoint(EntityCodec.readString(in), in.readInt());
+                break;
+            case ADD_INTERACTION:
+                system.addInteraction(EntityCodec.readString(in), EntityCodec.readString(in));
+                break;
+            case REMOVE_INTERACTION:
+                system.removeInteraction(EntityCodec.readString(in), EntityCodec.readString(in));
+                break;
+            case EXPIRE_PRESCRIPTIONS: {
+                List<String> ids = new ArrayList<>();
+                for (int n = in.readInt(); n > 0; n--) {
+                    ids.add(EntityCodec.readString(in));
+                }
+                system.replayExpiry(ids);
+                break;
+            }
+            case ASSIGN_PATIENT: {
+                String doctorId = EntityCodec.readString(in);
+                Patient patient = EntityCodec.readPatient(in);
+                Patient registered = system.findPatientById(patient.getId());
+                system.addPatientToDoctor(doctorId, registered != null ? registered : patient);
+                break;
+            }
+            default:
+                throw new IOException("Unknown write-ahead log record type: " + op);
+        }
+    }
+
+    /**
+     * Applies a logged stock level. The level is set outright rather than
+     * through a conditional dispense, so replay reaches the logged level
+     * whatever the stock was before.
+     */
+    private static void setStockLevel(MedicationTrackingSystem system, String medicationId, int quantity) {
+        Medication med = system.findMedicationById(medicationId);
+        if (med != null) {
+            med.setQuantity(quantity);
+        }
+    }
+
+    /**
+     * Reads the issue time that ends a prescription record. Records logged
+     * before issue times were kept end without one; their prescriptions are
+     * stamped with the time they are replayed.
+     */
+    private static Instant readIssuedAt(DataInputStream in) throws IOException {
+        return in.available() > 0 ? EntityCodec.readInstant(in) : Instant.now();
+    }
+
+    /**
+     * Writes the payload of one record.
+     */
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * A ByteArrayOutputStream that exposes its backing array, so a record can be
+     * stamped and checksummed without copying it.
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() {
+            super(256);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package src.test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import src.models.ConcurrentMedicationTrackingSystem;
+import src.models.LatencyHistogram;
+import src.models.Medication;
+import src.models.MedicationTrackingClient;
+import src.models.MedicationTrackingServer;
+import src.models.PrescriptionRequest;
+
+/**
+ * Drives a {@link MedicationTrackingServer} over loopback with many concurrent
+ * connections, and reports throughput and latency percentiles for each kind of
+ * operation as the client sees them, network and HTTP handling included.
+ *
+ * Usage:
+ * <pre>
+ * java src.test.HttpLoadDriver [--seed 42] [--medications 10000] [--doctors 500] [--patients 100000]
+ *                              [--zipf 1.0] [--connections 1000] [--seconds 30]
+ *                              [--mix add=5,search-name=25,search-id=30,prescribe=20,restock=15,delete=5]
+ * </pre>
+ * The driver populates a server in the same process and listens on a free
+ * loopback port. Each connection issues its next request as soon as the last
+ * one is answered, so the number of requests in flight equals the number of
+ * connections; no client thread is held while a request is outstanding.
+ *
+ * @author May Basalo
+ */
+public class HttpLoadDriver {
+    private final MedicationTrackingClient client;
+    private final WorkloadGenerator generator;
+    private final LoadDriver.Operation[] schedule;
+    private final Map<LoadDriver.Operation, LatencyHistogram> latencies;
+    private final List<String> addedMedications;
+    private final LongAdder errors;
+    private volatile long deadline;
+
+    /**
+     * Creates a driver for a server populated by the given generator.
+     *
+     * @param client    The client to send requests with.
+     * @param generator The generator that populated the server, which also picks the records each operation uses.
+     * @param mix       The relative weight of each operation.
+     */
+    public HttpLoadDriver(MedicationTrackingClient client, WorkloadGenerator generator, Map<LoadDriver.Operation, Integer> mix) {
+        this.client = client;
+        this.generator = generator;
+        List<LoadDriver.Operation> slots = new ArrayList<>();
+        for (Map.Entry<LoadDriver.Operation, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                slots.add(entry.getKey());
+            }
+        }
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("The operation mix is empty");
+        }
+        this.schedule = slots.toArray(new LoadDriver.Operation[0]);
+        this.latencies = new EnumMap<>(LoadDriver.Operation.class);
+        for (LoadDriver.Operation operation : LoadDriver.Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+        }
+        this.addedMedications = new ArrayList<>();
+        this.errors = new LongAdder();
+    }
+
+    /**
+     * Keeps the given number of requests in flight until the time limit passes
+     * and every outstanding request has been answered.
+     *
+     * @param connections The number of concurrent requests.
+     * @param millis      How long to keep issuing requests, in milliseconds.
+     * @return The elapsed time in nanoseconds.
+     */
+    public long run(int connections, long millis) throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(connections);
+        long start = System.nanoTime();
+        deadline = start + millis * 1_000_000L;
+        for (int i = 0; i < connections; i++) {
+            issue(finished);
+        }
+        finished.await();
+        return System.nanoTime() - start;
+    }
+
+    /** Retrieves the number of requests that failed with an error rather than an answer. */
+    public long getErrorCount() { return errors.sum(); }
+
+    private void issue(CountDownLatch finished) {
+        if (System.nanoTime() - deadline >= 0) {
+            finished.countDown();
+            return;
+        }
+        LoadDriver.Operation operation;
+        CompletableFuture<?> call;
+        long before = System.nanoTime();
+        // The generator is not thread-safe; callbacks for different connections run on different threads.
+        synchronized (generator) {
+            operation = schedule[generator.nextInt(schedule.length)];
+            if (operation == LoadDriver.Operation.DELETE && addedMedications.isEmpty()) {
+                operation = LoadDriver.Operation.ADD;
+            }
+            call = send(operation);
+        }
+        LoadDriver.Operation sent = operation;
+        call.whenComplete((result, failure) -> {
+            if (failure != null) {
+                errors.increment();
+            } else {
+                latencies.get(sent).record(System.nanoTime() - before);
+            }
+            issue(finished);
+        });
+    }
+
+    private CompletableFuture<?> send(LoadDriver.Operation operation) {
+        switch (operation) {
+            case ADD: {
+                Medication medication = generator.newMedication();
+                addedMedications.add(medication.getId());
+                return client.addMedication(medication);
+            }
+            case SEARCH_NAME:
+                return client.findMedicationsByName(generator.medicationName(generator.nextMedication()));
+            case SEARCH_ID:
+                return client.findMedicationById(generator.medicationId(generator.nextMedication()));
+            case PRESCRIBE: {
+                PrescriptionRequest request = generator.prescriptionRequest(generator.nextPatient());
+                return client.acceptPrescription(request);
+            }
+            case RESTOCK:
+                return client.restockMedication(generator.medicationId(generator.nextMedication()), 1 + generator.nextInt(100));
+            case DELETE: {
+                int last = addedMedications.size() - 1;
+                int index = generator.nextInt(addedMedications.size());
+                String id = addedMedications.get(index);
+                addedMedications.set(index, addedMedications.get(last));
+                addedMedications.remove(last);
+                return client.deleteMedication(id);
+            }
+            default:
+                throw new IllegalStateException("Unknown operation: " + operation);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long seed = 42;
+        int medications = 10_000;
+        int doctors = 500;
+        int patients = 100_000;
+        double zipf = 1.0;
+        int connections = 1000;
+        long millis = 30_000;
+        String mix = "add=5,search-name=25,search-id=30,prescribe=20,restock=15,delete=5";
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--medications": medications = Integer.parseInt(value); break;
+                case "--doctors": doctors = Integer.parseInt(value); break;
+                case "--patients": patients = Integer.parseInt(value); break;
+                case "--zipf": zipf = Double.parseDouble(value); break;
+                case "--connections": connections = Integer.parseInt(value); break;
+                case "--seconds": millis = Long.parseLong(value) * 1000; break;
+                case "--mix": mix = value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ConcurrentMedicationTrackingSystem system = new ConcurrentMedicationTrackingSystem();
+        system.setEventListener(null);
+        WorkloadGenerator generator = new WorkloadGenerator(seed, medications, doctors, patients, zipf);
+        generator.populate(system);
+
+        try (MedicationTrackingServer server = new MedicationTrackingServer(system, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            server.start();
+            URI base = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+            System.out.printf(Locale.ROOT, "Serving %d medications, %d doctors, %d patients at %s on %s; %d connections%n",
+                              medications, doctors, patients, base,
+                              server.isUsingVirtualThreads() ? "virtual threads" : "platform threads", connections);
+
+            HttpLoadDriver driver = new HttpLoadDriver(new MedicationTrackingClient(base), generator, LoadDriver.parseMix(mix));
+            long elapsed = driver.run(connections, millis);
+            LoadDriver.printReport(System.out, driver.latencies, elapsed);
+            System.out.println("errors: " + driver.getErrorCount());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package src.test;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import src.models.LatencyHistogram;
+import src.models.Medication;
+import src.models.MedicationTrackingSystem;
+import src.models.PrescriptionRequest;
+
+/**
+ * Replays a configurable mix of operations against a generated population and
+ * reports throughput and latency percentiles for each kind of operation.
+ *
+ * Usage:
+ * <pre>
+ * java src.test.LoadDriver [--seed 42] [--medications 10000] [--doctors 500] [--patients 100000]
+ *                          [--zipf 1.0] [--ops 1000000 | --seconds 30]
+ *                          [--mix add=5,search-name=25,search-id=30,prescribe=20,restock=15,delete=5]
+ * </pre>
+ * The same seed and settings replay the same sequence of operations. The
+ * system runs without an event listener, so no time is spent on console output.
+ *
+ * @author May Basalo
+ */
+public class LoadDriver {
+
+    /**
+     * The kinds of operation the driver issues.
+     */
+    public enum Operation {
+        ADD("add"),
+        SEARCH_NAME("search-name"),
+        SEARCH_ID("search-id"),
+        PRESCRIBE("prescribe"),
+        RESTOCK("restock"),
+        DELETE("delete");
+
+        private final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+
+        static Operation fromKey(String key) {
+            for (Operation operation : values()) {
+                if (operation.key.equals(key)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation: " + key);
+        }
+    }
+
+    private final MedicationTrackingSystem system;
+    private final WorkloadGenerator generator;
+    private final Operation[] schedule;
+    private final Map<Operation, LatencyHistogram> latencies;
+    private final List<String> addedMedications;
+
+    /**
+     * Creates a driver for a populated system.
+     *
+     * @param system    The system to drive.
+     * @param generator The generator that populated it, which also picks the records each operation uses.
+     * @param mix       The relative weight of each operation.
+     */
+    public LoadDriver(MedicationTrackingSystem system, WorkloadGenerator generator, Map<Operation, Integer> mix) {
+        this.system = system;
+        this.generator = generator;
+        List<Operation> slots = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                slots.add(entry.getKey());
+            }
+        }
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("The operation mix is empty");
+        }
+        this.schedule = slots.toArray(new Operation[0]);
+        this.latencies = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+        }
+        this.addedMedications = new ArrayList<>();
+    }
+
+    /**
+     * Runs until the operation count or the time limit is reached, whichever comes first.
+     *
+     * @param operations The most operations to issue.
+     * @param millis     The longest time to run, in milliseconds.
+     * @return The elapsed time in nanoseconds.
+     */
+    public long run(long operations, long millis) {
+        long limit = millis >= Long.MAX_VALUE / 1_000_000L ? Long.MAX_VALUE : millis * 1_000_000L;
+        long start = System.nanoTime();
+        for (long issued = 0; issued < operations; issued++) {
+            if ((issued & 1023) == 0 && System.nanoTime() - start >= limit) {
+                break;
+            }
+            Operation operation = schedule[generator.nextInt(schedule.length)];
+            if (operation == Operation.DELETE && addedMedications.isEmpty()) {
+                // Only medications added by the driver are deleted, so the population stays intact.
+                operation = Operation.ADD;
+            }
+            long before = System.nanoTime();
+            perform(operation);
+            latencies.get(operation).record(System.nanoTime() - before);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void perform(Operation operation) {
+        switch (operation) {
+            case ADD: {
+                Medication medication = generator.newMedication();
+                system.addMedication(medication);
+                addedMedications.add(medication.getId());
+                break;
+            }
+            case SEARCH_NAME:
+                system.findMedicationsByName(generator.medicationName(generator.nextMedication()));
+                break;
+            case SEARCH_ID:
+                system.findMedicationById(generator.medicationId(generator.nextMedication()));
+                break;
+            case PRESCRIBE: {
+                PrescriptionRequest request = generator.prescriptionRequest(generator.nextPatient());
+                system.acceptPrescription(request.getPrescriptionId(), request.getDoctorId(), request.getPatientId(),
+                                          request.getMedicationId(), request.getPrescriptionExpiry());
+                break;
+            }
+            case RESTOCK:
+                system.restockMedication(generator.medicationId(generator.nextMedication()), 1 + generator.nextInt(100));
+                break;
+            case DELETE: {
+                int last = addedMedications.size() - 1;
+                int index = generator.nextInt(addedMedications.size());
+                String id = addedMedications.get(index);
+                addedMedications.set(index, addedMedications.get(last));
+                addedMedications.remove(last);
+                system.deleteMedication(id);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Prints the throughput and latency percentiles of each operation.
+     *
+     * @param out         Where to print the report.
+     * @param elapsedNanos The elapsed time returned by {@link #run(long, long)}.
+     */
+    public void printReport(PrintStream out, long elapsedNanos) {
+        printReport(out, latencies, elapsedNanos);
+    }
+
+    /**
+     * Prints the throughput and latency percentiles of each operation that ran.
+     */
+    static void printReport(PrintStream out, Map<Operation, LatencyHistogram> latencies, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        out.printf(Locale.ROOT, "%-12s %10s %12s %10s %10s %10s %10s %10s%n",
+                   "operation", "count", "ops/sec", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latencies.get(operation);
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+            total += count;
+            out.printf(Locale.ROOT, "%-12s %10d %12.0f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                       operation.key, count, count / seconds,
+                       histogram.getPercentile(50) / 1e3, histogram.getPercentile(90) / 1e3,
+                       histogram.getPercentile(99) / 1e3, histogram.getPercentile(99.9) / 1e3,
+                       histogram.getMax() / 1e3);
+        }
+        out.printf(Locale.ROOT, "%-12s %10d %12.0f  (%.2f s)%n", "total", total, total / seconds, seconds);
+    }
+
+    /**
+     * Parses a mix such as "add=5,search-id=30".
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight but got: " + part);
+            }
+            weights.put(Operation.fromKey(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+
+    public static void main(String[] args) {
+        long seed = 42;
+        int medications = 10_000;
+        int doctors = 500;
+        int patients = 100_000;
+        double zipf = 1.0;
+        long operations = Long.MAX_VALUE;
+        long millis = 30_000;
+        String mix = "add=5,search-name=25,search-id=30,prescribe=20,restock=15,delete=5";
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--medications": medications = Integer.parseInt(value); break;
+                case "--doctors": doctors = Integer.parseInt(value); break;
+                case "--patients": patients = Integer.parseInt(value); break;
+                case "--zipf": zipf = Double.parseDouble(value); break;
+                case "--ops": operations = Long.parseLong(value); millis = Long.MAX_VALUE; break;
+                case "--seconds": millis = Long.parseLong(value) * 1000; break;
+                case "--mix": mix = value; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        MedicationTrackingSystem system = new MedicationTrackingSystem();
+        system.setEventListener(null);
+        WorkloadGenerator generator = new WorkloadGenerator(seed, medications, doctors, patients, zipf);
+        long populateStart = System.nanoTime();
+        generator.populate(system);
+        System.out.printf(Locale.ROOT, "Populated %d medications, %d doctors, %d patients in %.2f s (seed %d)%n",
+                          medications, doctors, patients, (System.nanoTime() - populateStart) / 1e9, seed);
+
+        LoadDriver driver = new LoadDriver(system, generator, parseMix(mix));
+        long elapsed = driver.run(operations, millis);
+        driver.printReport(System.out, elapsed);
+    }
+}
@@ -1,18 +1,61 @@
 package src.test; 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import src.models.BatchResult;
+import src.models.ConcurrentMedicationTrackingSystem;
+import src.models.DashboardStats;
+import src.models.DeletePolicy;
 import src.models.Doctor;
+import src.models.Dosage;
+import src.models.DosageUnit;
+import src.models.ExpiryBucket;
+import src.models.InteractionPolicy;
+import src.models.LowStockListener;
+import src.models.MappedInventoryStore;
 import src.models.Medication;
 import src.models.MedicationTrackingSystem;
+import src.models.MedicationVolume;
 import src.models.Patient;
+import src.models.Prescription;
+import src.models.PrescriptionHistoryPage;
+import src.models.PrescriptionRequest;
+import src.models.ReportFormat;
+import src.models.ReportSection;
+import src.models.ReportWriter;
+import src.models.SystemAnalytics;
+import src.models.SystemPersistence;
+import src.models.SystemSnapshot;
 
 /**
  * A test class for the MedicationTrackingSystem, showcasing its key functionalities
- * This involves adding medications, searching for records, restocking inventory, and generating reports.
+ * This involves adding medications, searching for records, restocking inventory, and generating reports,
+ * followed by behaviour checks of the system's features. Each check prints PASS or FAIL,
+ * and the run exits with status 1 if any failed.
  * 
  * @author May Basalo
  */
 public class TestMedicationTrackingSystem {
-    public static void main(String[] args) {
+    private static final LocalDate FAR_EXPIRY = LocalDate.now().plusYears(2);
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
         // Create the system instance
         MedicationTrackingSystem system = new MedicationTrackingSystem();
 
@@ -58,6 +101,13 @@ public class TestMedicationTrackingSystem {
         system.addPatientToDoctor("D102", pat2);
         system.addPatientToDoctor("D103", pat3);
 
+        // Searching by name ignores case and extra whitespace
+        System.out.println("\n*** Searching by Name ***");
+        system.searchPatientByName("  sophia   TAYLOR ");
+        for (Doctor doc : system.findDoctorsByNamePrefix("dr. o")) {
+            System.out.println("Doctor Match: " + doc);
+        }
+
         // Editing a medication
         System.out.println("\n*** Editing Medication ***");
         system.editMedication("M103", "Naproxen (500mg)", 45, "600mg"); // Changed medication dosage
@@ -77,6 +127,7 @@ public class TestMedicationTrackingSystem {
         // *** CHECKING FOR EXPIRED MEDICATIONS ***
         System.out.println("\n*** Checking for Expired Medications ***");
         system.checkForExpiredMedications();
+        system.checkForMedicationsExpiringWithin(90);
 
         // Accepting prescriptions
         System.out.println("\n*** Accepting Prescriptions ***");
@@ -114,6 +165,819 @@ public class TestMedicationTrackingSystem {
                 System.out.println(doc);
             }
         }
+
+        // ****** TESTING RECOVERY FROM THE LOG AND SNAPSHOTS ******
+        System.out.println("\n*** Recovering from the Log and Snapshots ***");
+        testRecovery();
+        testRecoveryOfRacingAdds();
+
+        // ****** TESTING STOCK CHANGES UNDER CONTENTION ******
+        System.out.println("\n*** Changing Stock from Many Threads ***");
+        testConcurrentStock();
+        testConcurrentRecords();
+        testNegativeRestock();
+
+        // ****** TESTING THE MAPPED INVENTORY ******
+        System.out.println("\n*** Reopening a Mapped Inventory ***");
+        testMappedInventory();
+
+        // ****** TESTING PRESCRIPTION EXPIRY ******
+        System.out.println("\n*** Expiring Prescriptions ***");
+        testPrescriptionExpiry();
+        testRecoveryOfExpiry();
+
+        // ****** TESTING SNAPSHOT ISOLATION ******
+        System.out.println("\n*** Reading a Snapshot ***");
+        testSnapshotIsolation();
+
+        // ****** TESTING PRESCRIPTION HISTORY PAGING ******
+        System.out.println("\n*** Paging Prescription History ***");
+        testHistoryPaging();
+
+        // ****** TESTING DRUG INTERACTIONS ******
+        System.out.println("\n*** Checking Drug Interactions ***");
+        testInteractions();
+
+        // ****** TESTING BATCH LOADS AND DELETES ******
+        System.out.println("\n*** Loading and Deleting in Batches ***");
+        testBatches();
+
+        // ****** TESTING STREAMED REPORTS ******
+        System.out.println("\n*** Writing Reports ***");
+        testReports();
+
+        // ****** TESTING CASCADING AND RESTRICTED DELETES ******
+        System.out.println("\n*** Deleting Linked Records ***");
+        testDeletePolicies();
+
+        // ****** TESTING DOSAGE PARSING ******
+        System.out.println("\n*** Parsing Dosages ***");
+        testDosages();
+
+        // ****** TESTING ANALYTICS ******
+        System.out.println("\n*** Computing Analytics ***");
+        testAnalytics();
+
+        // ****** TESTING DASHBOARD TOTALS ******
+        System.out.println("\n*** Reading the Dashboard ***");
+        testDashboard();
+
+        // ****** TESTING LOW-STOCK TRACKING ******
+        System.out.println("\n*** Tracking Low Stock ***");
+        testLowStock();
+
+        System.out.println("\n*** " + (failures == 0 ? "All checks passed" : failures + " check(s) failed") + " ***");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Records a change, reopens the system from its log, takes a checkpoint,
+     * and reopens it again from the snapshot and a log with a torn last record.
+     */
+    private static void testRecovery() throws IOException {
+        Path directory = Files.createTempDirectory("medication-recovery");
+        try {
+            try (SystemPersistence persistence = openSilent(directory)) {
+                MedicationTrackingSystem system = persistence.getSystem();
+                system.addMedication(new Medication("M1", "Ibuprofen", 40, "200mg", FAR_EXPIRY));
+                system.addDoctor(new Doctor("D1", "Dr. Ada Stone", 45, "555-0001", "General Practice"));
+                system.addPatient(new Patient("P1", "Noah Reed", 33, "555-0002"));
+                system.acceptPrescription("RX1", "D1", "P1", "M1", FAR_EXPIRY, 5);
+                system.restockMedication("M1", 10);
+            }
+            try (SystemPersistence persistence = openSilent(directory)) {
+                MedicationTrackingSystem system = persistence.getSystem();
+                check("records are replayed from the log",
+                      system.findPrescriptionById("RX1") != null && system.findPatientById("P1").getPrescriptions().size() == 1);
+                check("stock changes are replayed from the log", system.findMedicationById("M1").getQuantity() == 45);
+                persistence.checkpoint();
+                system.dispenseMedication("M1", 5);
+            }
+
+            // A crash while writing can leave a partial record at the end of the log.
+            Files.write(lastSegment(directory), new byte[] {0, 0, 0, 64, 7, 7, 7}, StandardOpenOption.APPEND);
+
+            try (SystemPersistence persistence = openSilent(directory)) {
+                MedicationTrackingSystem system = persistence.getSystem();
+                check("a snapshot and the log after it are both restored",
+                      system.findPrescriptionById("RX1") != null && system.findMedicationById("M1").getQuantity() == 40);
+                system.restockMedication("M1", 1);
+            }
+            try (SystemPersistence persistence = openSilent(directory)) {
+                check("changes made after a torn record was dropped survive",
+                      persistence.getSystem().findMedicationById("M1").getQuantity() == 41);
+            }
+
+            // A corrupt length word must not be trusted to size a buffer.
+            Files.write(lastSegment(directory), new byte[] {0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0, 0, 0, 0}, StandardOpenOption.APPEND);
+            try (SystemPersistence persistence = openSilent(directory)) {
+                check("a record whose length runs past the log is dropped",
+                      persistence.getSystem().findMedicationById("M1").getQuantity() == 41);
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Accepts prescriptions for doctors and medications the moment another
+     * thread adds them, then checks that every accepted prescription replays.
+     */
+    private static void testRecoveryOfRacingAdds() throws Exception {
+        Path directory = Files.createTempDirectory("medication-race");
+        try {
+            int count = 300;
+            AtomicInteger accepted = new AtomicInteger();
+            try (SystemPersistence persistence = SystemPersistence.open(directory, SystemPersistence.DEFAULT_COMMIT_INTERVAL_MILLIS,
+                    SystemPersistence.DEFAULT_CHECKPOINT_INTERVAL, () -> silent(new ConcurrentMedicationTrackingSystem()))) {
+                MedicationTrackingSystem system = persistence.getSystem();
+                system.addPatient(new Patient("P1", "Noah Reed", 33, "555-0002"));
+                AtomicInteger worker = new AtomicInteger();
+                runConcurrently(2, () -> {
+                    boolean adding = worker.getAndIncrement() == 0;
+                    for (int i = 0; i < count; i++) {
+                        if (adding) {
+                            system.addDoctor(new Doctor("D" + i, "Dr. Ada Stone", 45, "555-0001", "General Practice"));
+                            system.addMedication(new Medication("M" + i, "Ibuprofen", 10, "200mg", FAR_EXPIRY));
+                        } else {
+                            // Accept as soon as the medication, added after the doctor, can be found.
+                            while (system.findMedicationById("M" + i) == null) {
+                                Thread.onSpinWait();
+                            }
+                            if (system.acceptPrescription("RX" + i, "D" + i, "P1", "M" + i, FAR_EXPIRY, 1)) {
+                                accepted.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+            }
+            try (SystemPersistence persistence = openSilent(directory)) {
+                MedicationTrackingSystem system = persistence.getSystem();
+                check("prescriptions accepted while their records were being added all replay",
+                      accepted.get() == count && system.getPrescriptions().size() == count
+                      && system.findPatientById("P1").getPrescriptions().size() == count);
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Dispenses and restocks one medication from many threads, then checks that
+     * no unit was lost or oversold, both live and after replaying the log.
+     */
+    private static void testConcurrentStock() throws Exception {
+        MedicationTrackingSystem system = silent(new ConcurrentMedicationTrackingSystem());
+        system.addMedication(new Medication("M1", "Amoxicillin", 1000, "250mg", FAR_EXPIRY));
+        AtomicInteger dispensed = new AtomicInteger();
+        runConcurrently(8, () -> {
+            for (int i = 0; i < 250; i++) {
+                if (system.dispenseMedication("M1", 1)) {
+                    dispensed.incrementAndGet();
+                }
+            }
+        });
+        check("concurrent dispensing never oversells stock",
+              dispensed.get() == 1000 && system.findMedicationById("M1").getQuantity() == 0);
+
+        Path directory = Files.createTempDirectory("medication-stock");
+        try {
+            int expected;
+            try (SystemPersistence persistence = SystemPersistence.open(directory, SystemPersistence.DEFAULT_COMMIT_INTERVAL_MILLIS,
+                    SystemPersistence.DEFAULT_CHECKPOINT_INTERVAL, () -> silent(new ConcurrentMedicationTrackingSystem()))) {
+                MedicationTrackingSystem journaled = persistence.getSystem();
+                journaled.addMedication(new Medication("M1", "Amoxicillin", 100, "250mg", FAR_EXPIRY));
+                AtomicInteger taken = new AtomicInteger();
+                AtomicInteger worker = new AtomicInteger();
+                runConcurrently(8, () -> {
+                    boolean restocking = worker.getAndIncrement() % 2 == 0;
+                    for (int i = 0; i < 200; i++) {
+                        if (restocking) {
+                            journaled.restockMedication("M1", 1);
+                        } else if (journaled.dispenseMedication("M1", 2)) {
+                            taken.addAndGet(2);
+                        }
+                    }
+                });
+                expected = 100 + 4 * 200 - taken.get();
+                check("concurrent restocks and dispenses add up", journaled.findMedicationById("M1").getQuantity() == expected);
+            }
+            try (SystemPersistence persistence = openSilent(directory)) {
+                check("the log replays concurrent stock changes to the same level",
+                      persistence.getSystem().findMedicationById("M1").getQuantity() == expected);
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Adds medications and accepts prescriptions from many threads while
+     * another thread reads the lists, then checks that every record landed
+     * in the registries and on its patient and doctor.
+     */
+    private static void testConcurrentRecords() throws Exception {
+        MedicationTrackingSystem system = silent(new ConcurrentMedicationTrackingSystem());
+        int writers = 6;
+        int count = 200;
+        system.addDoctor(new Doctor("D1", "Dr. Ada Stone", 45, "555-0001", "General Practice"));
+        for (int t = 0; t < writers; t++) {
+            system.addPatient(new Patient("P" + t, "Noah Reed", 33, "555-0002"));
+        }
+        AtomicInteger worker = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger readerFailures = new AtomicInteger();
+        runConcurrently(writers + 1, () -> {
+            int t = worker.getAndIncrement();
+            if (t == writers) {
+                while (finished.get() < writers) {
+                    try {
+                        long stock = 0;
+                        for (Medication medication : system.getMedications()) {
+                            stock += medication.getQuantity();
+                        }
+                        for (Prescription prescription : system.getPrescriptions()) {
+                            stock += prescription.getMedication().getQuantity();
+                        }
+                    } catch (RuntimeException e) {
+                        readerFailures.incrementAndGet();
+                    }
+                }
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                String id = t + "-" + i;
+                system.addMedication(new Medication("M" + id, "Ibuprofen", 10, "200mg", FAR_EXPIRY));
+                system.acceptPrescription("RX" + id, "D1", "P" + t, "M" + id, FAR_EXPIRY, 1);
+            }
+            finished.incrementAndGet();
+        });
+        boolean perPatient = true;
+        for (int t = 0; t < writers; t++) {
+            perPatient &= system.findPatientById("P" + t).getPrescriptions().size() == count;
+        }
+        check("concurrent adds and accepts all land in the registries",
+              system.getMedications().size() == writers * count && system.getPrescriptions().size() == writers * count);
+        check("concurrent accepts all land on their patient and doctor",
+              perPatient && system.getPrescriptionsByDoctor("D1").size() == writers * count);
+        check("reading the lists during concurrent writes never fails", readerFailures.get() == 0);
+    }
+
+    /**
+     * Restocks by a negative amount, live and through a journal, and checks
+     * that it is refused and the stock is left as it was.
+     */
+    private static void testNegativeRestock() throws IOException {
+        MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+        system.addMedication(new Medication("M1", "Amoxicillin", 10, "250mg", FAR_EXPIRY));
+        check("a negative restock is refused", refused(() -> system.restockMedication("M1", -1000)));
+        check("a refused restock leaves the stock as it was", system.findMedicationById("M1").getQuantity() == 10);
+
+        Path directory = Files.createTempDirectory("medication-restock");
+        try {
+            try (SystemPersistence persistence = openSilent(directory)) {
+                MedicationTrackingSystem journaled = persistence.getSystem();
+                journaled.addMedication(new Medication("M1", "Amoxicillin", 10, "250mg", FAR_EXPIRY));
+                check("a journaled negative restock is refused", refused(() -> journaled.restockMedication("M1", -1000)));
+            }
+            try (SystemPersistence persistence = openSilent(directory)) {
+                check("a refused restock is not logged", persistence.getSystem().findMedicationById("M1").getQuantity() == 10);
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Keeps medications in a mapped inventory, reopens it after a crash tore
+     * the last dictionary entry, and checks the records and new entries survive.
+     */
+    private static void testMappedInventory() throws IOException {
+        Path directory = Files.createTempDirectory("medication-inventory");
+        try {
+            try (MappedInventoryStore inventory = MappedInventoryStore.open(directory, 16)) {
+                MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+                system.useInventory(inventory);
+                system.addMedication(new Medication("M1", "Ibuprofen", 40, "200mg", FAR_EXPIRY));
+                system.addMedication(new Medication("M2", "Naproxen", 12, "500mg", FAR_EXPIRY));
+                system.dispenseMedication("M1", 5);
+                system.setReorderPoint("M2", 20);
+            }
+
+            // A crash while writing a new name or dosage can leave part of it in the dictionary.
+            Files.write(directory.resolve("inventory.dict"), new byte[] {0, 10, 'x', 'y'}, StandardOpenOption.APPEND);
+
+            try (MappedInventoryStore inventory = MappedInventoryStore.open(directory)) {
+                MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+                system.useInventory(inventory);
+                Medication ibuprofen = system.findMedicationById("M1");
+                Medication naproxen = system.findMedicationById("M2");
+                check("a mapped inventory keeps its records across a reopen",
+                      inventory.size() == 2 && ibuprofen.getQuantity() == 35 && ibuprofen.getName().equals("Ibuprofen")
+                      && ibuprofen.getDosage().equals("200mg") && naproxen.getReorderPoint() == 20);
+                system.addMedication(new Medication("M3", "Cetirizine", 30, "10mg", FAR_EXPIRY));
+            }
+            try (MappedInventoryStore inventory = MappedInventoryStore.open(directory)) {
+                Medication cetirizine = inventory.get("M3");
+                check("dictionary entries written after a torn entry read back",
+                      cetirizine != null && cetirizine.getName().equals("Cetirizine") && cetirizine.getDosage().equals("10mg"));
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Sweeps prescriptions out as they lapse and checks that each sweep
+     * removes exactly the ones past their expiry date.
+     */
+    private static void testPrescriptionExpiry() {
+        MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+        LocalDate today = LocalDate.now();
+        system.addMedication(new Medication("M1", "Lisinopril", 100, "10mg", FAR_EXPIRY));
+        system.addDoctor(new Doctor("D1", "Dr. Ada Stone", 45, "555-0001", "General Practice"));
+        system.addPatient(new Patient("P1", "Noah Reed", 33, "555-0002"));
+        system.acceptPrescription("RX1", "D1", "P1", "M1", today.plusDays(1));
+        system.acceptPrescription("RX2", "D1", "P1", "M1", today.plusDays(3));
+        system.acceptPrescription("RX3", "D1", "P1", "M1", today.plusDays(30));
+        List<String> notified = new ArrayList<>();
+        system.addPrescriptionExpiryListener(prescription -> notified.add(prescription.getId()));
+
+        check("a prescription is valid through its expiry date", system.expirePrescriptions(today.plusDays(1)).isEmpty());
+        List<Prescription> expired = system.expirePrescriptions(today.plusDays(4));
+        check("lapsed prescriptions are swept in expiry order", ids(expired).equals(List.of("RX1", "RX2")));
+        check("swept prescriptions leave the system and the patient",
+              system.findPrescriptionById("RX1") == null && system.findPatientById("P1").getPrescriptions().size() == 1);
+        check("expiry listeners hear of each swept prescription", notified.equals(List.of("RX1", "RX2")));
+        check("a later sweep finds nothing already swept", system.expirePrescriptions(today.plusDays(4)).isEmpty());
+        check("the rest lapse when their day comes", ids(system.expirePrescriptions(today.plusDays(31))).equals(List.of("RX3")));
+    }
+
+    /**
+     * Sweeps a prescription, reuses its ID, and checks that replaying the log
+     * brings back neither the swept prescription nor its expiry notice.
+     */
+    private static void testRecoveryOfExpiry() throws IOException {
+        Path directory = Files.createTempDirectory("medication-expiry");
+        try {
+            AtomicInteger notices = new AtomicInteger();
+            Supplier<MedicationTrackingSystem> factory = () -> {
+                MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+                system.addPrescriptionExpiryListener(prescription -> notices.incrementAndGet());
+                return system;
+            };
+            try (SystemPersistence persistence = SystemPersistence.open(directory, SystemPersistence.DEFAULT_COMMIT_INTERVAL_MILLIS,
+                    SystemPersistence.DEFAULT_CHECKPOINT_INTERVAL, factory)) {
+                MedicationTrackingSystem system = persistence.getSystem();
+                LocalDate today = LocalDate.now();
+                system.addMedication(new Medication("M1", "Lisinopril", 100, "10mg", FAR_EXPIRY));
+                system.addDoctor(new Doctor("D1", "Dr. Ada Stone", 45, "555-0001", "General Practice"));
+                system.addPatient(new Patient("P1", "Noah Reed", 33, "555-0002"));
+                system.acceptPrescription("RX1", "D1", "P1", "M1", today.plusDays(1));
+                system.expirePrescriptions(today.plusDays(2));
+                system.acceptPrescription("RX1", "D1", "P1", "M1", FAR_EXPIRY);
+            }
+            notices.set(0);
+            try (SystemPersistence persistence = SystemPersistence.open(directory, SystemPersistence.DEFAULT_COMMIT_INTERVAL_MILLIS,
+                    SystemPersistence.DEFAULT_CHECKPOINT_INTERVAL, factory)) {
+                MedicationTrackingSystem system = persistence.getSystem();
+                Prescription reused = system.findPrescriptionById("RX1");
+                check("a swept prescription's ID can be reused across a recovery",
+                      reused != null && reused.getPrescriptionExpiry().equals(FAR_EXPIRY)
+                      && system.findPatientById("P1").getPrescriptions().size() == 1);
+                check("replaying a sweep does not notify expiry listeners again", notices.get() == 0);
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
     }
-}
 
+    /**
+     * Takes a snapshot and checks that it keeps the set of records it was taken
+     * with while the live system changes.
+     */
+    private static void testSnapshotIsolation() {
+        MedicationTrackingSystem system = silent(new ConcurrentMedicationTrackingSystem());
+        system.addMedication(new Medication("M1", "Metformin", 60, "500mg", FAR_EXPIRY));
+        system.addMedication(new Medication("M2", "Atorvastatin", 30, "20mg", FAR_EXPIRY));
+        try (SystemSnapshot snapshot = system.snapshot()) {
+            system.addMedication(new Medication("M3", "Omeprazole", 14, "20mg", FAR_EXPIRY));
+            system.deleteMedication("M1");
+            check("a snapshot keeps the records that existed when it was taken",
+                  new HashSet<>(ids(snapshot.getMedications())).equals(Set.of("M1", "M2")));
+            check("the live system moves on while the snapshot is read",
+                  new HashSet<>(ids(system.getMedications())).equals(Set.of("M2", "M3")));
+        }
+    }
+
+    /**
+     * Pages through a long prescription history while it grows, then checks
+     * the prescriptions in force on a past date before and after they are swept.
+     */
+    private static void testHistoryPaging() {
+        MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+        Medication med = new Medication("M1", "Levothyroxine", 500, "50mcg", FAR_EXPIRY);
+        Doctor doctor = new Doctor("D1", "Dr. Ada Stone", 45, "555-0001", "General Practice");
+        Patient patient = new Patient("P1", "Noah Reed", 33, "555-0002");
+        system.addMedication(med);
+        system.addDoctor(doctor);
+        system.addPatient(patient);
+        LocalDate firstDay = LocalDate.of(2024, 1, 1);
+        Instant firstIssue = Instant.parse("2024-01-01T12:00:00Z");
+        List<String> newestFirst = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            String id = String.format("RX%02d", i);
+            Prescription prescription = new Prescription(id, doctor, patient, med, firstDay.plusDays(i + 30),
+                                                         firstIssue.plus(i, ChronoUnit.DAYS));
+            system.getPrescriptions().add(prescription);
+            patient.addPrescription(prescription);
+            newestFirst.add(0, id);
+        }
+
+        List<String> seen = new ArrayList<>();
+        int pages = 0;
+        String cursor = null;
+        do {
+            PrescriptionHistoryPage page = system.getPrescriptionHistory("P1", cursor, 10);
+            seen.addAll(ids(page.getPrescriptions()));
+            cursor = page.getNextCursor();
+            if (++pages == 1) {
+                // Issued after the first page was read, so newer than every page that follows.
+                system.acceptPrescription("RX-NEW", "D1", "P1", "M1", FAR_EXPIRY);
+            }
+        } while (cursor != null);
+        check("pages walk the history newest first without gaps or repeats", seen.equals(newestFirst));
+        check("the history is split into pages of the requested size", pages == 3);
+        check("a window holds only the prescriptions issued within it",
+              system.getPrescriptionHistory("P1", firstIssue, firstIssue.plus(7, ChronoUnit.DAYS), null, 100)
+                    .getPrescriptions().size() == 7);
+
+        LocalDate midJanuary = LocalDate.of(2024, 1, 15);
+        check("prescriptions in force on a past date are found", system.getPrescriptionsActiveOn("P1", midJanuary).size() == 15);
+        system.expirePrescriptions(LocalDate.now());
+        check("lapsed prescriptions stay in the history after a sweep",
+              system.getPrescriptionsActiveOn("P1", midJanuary).size() == 15
+              && system.getPrescriptionHistory("P1", null, 100).getPrescriptions().size() == 26);
+    }
+
+    /**
+     * Records an interaction and checks that each interaction policy treats a
+     * prescription for the interacting medication as it should.
+     */
+    private static void testInteractions() {
+        MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+        system.addMedication(new Medication("M1", "Warfarin", 50, "5mg", FAR_EXPIRY));
+        system.addMedication(new Medication("M2", "Aspirin", 50, "81mg", FAR_EXPIRY));
+        system.addMedication(new Medication("M3", "Paracetamol", 50, "500mg", FAR_EXPIRY));
+        system.addDoctor(new Doctor("D1", "Dr. Ada Stone", 45, "555-0001", "General Practice"));
+        system.addPatient(new Patient("P1", "Noah Reed", 33, "555-0002"));
+
+        check("an interaction is recorded once, in either order",
+              system.addInteraction("M1", "M2") && !system.addInteraction("M2", "M1") && system.hasInteraction("M2", "M1"));
+        system.acceptPrescription("RX1", "D1", "P1", "M1", FAR_EXPIRY, 1);
+        check("the interacting medications a patient is prescribed are found",
+              ids(system.findInteractingMedications("P1", "M2")).equals(List.of("M1")));
+        check("a prescription that interacts with the patient's medication is rejected",
+              !system.acceptPrescription("RX2", "D1", "P1", "M2", FAR_EXPIRY, 1) && system.findPrescriptionById("RX2") == null);
+        check("no stock is reserved for a rejected prescription", system.findMedicationById("M2").getQuantity() == 50);
+        check("a medication that does not interact is accepted", system.acceptPrescription("RX3", "D1", "P1", "M3", FAR_EXPIRY, 1));
+
+        system.setInteractionPolicy(InteractionPolicy.FLAG);
+        check("the flag policy accepts an interacting prescription", system.acceptPrescription("RX4", "D1", "P1", "M2", FAR_EXPIRY, 1));
+        system.setInteractionPolicy(InteractionPolicy.REJECT);
+        check("a removed interaction no longer rejects",
+              system.removeInteraction("M2", "M1") && system.acceptPrescription("RX5", "D1", "P1", "M2", FAR_EXPIRY, 1));
+    }
+
+    /**
+     * Loads and deletes records in batches and checks that each batch applies
+     * its valid items and reports every skipped one with its reason.
+     */
+    private static void testBatches() {
+        MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+        system.addMedication(new Medication("M1", "Ibuprofen", 40, "200mg", FAR_EXPIRY));
+        BatchResult added = system.addMedications(List.of(
+                new Medication("M2", "Naproxen", 12, "500mg", FAR_EXPIRY),
+                new Medication("M3", "Cetirizine", 30, "10mg", FAR_EXPIRY),
+                new Medication("M2", "Naproxen", 99, "250mg", FAR_EXPIRY),
+                new Medication("M1", "Ibuprofen", 99, "400mg", FAR_EXPIRY)));
+        check("a batch add applies the new IDs and skips the rest",
+              added.getAppliedCount() == 2 && system.getMedications().size() == 3
+              && system.findMedicationById("M2").getQuantity() == 12);
+        check("a batch add reports repeated and existing IDs",
+              added.getFailures().toString().equals("[M2: ID repeated in batch, M1: ID already exists]"));
+
+        system.addDoctor(new Doctor("D1", "Dr. Ada Stone", 45, "555-0001", "General Practice"));
+        system.addPatient(new Patient("P1", "Noah Reed", 33, "555-0002"));
+        BatchResult accepted = system.acceptPrescriptions(List.of(
+                new PrescriptionRequest("RX1", "D1", "P1", "M1", FAR_EXPIRY),
+                new PrescriptionRequest("RX2", "D1", "P9", "M2", FAR_EXPIRY),
+                new PrescriptionRequest("RX1", "D1", "P1", "M3", FAR_EXPIRY)));
+        check("a prescription batch skips unknown records and repeated IDs",
+              accepted.getAppliedCount() == 1 && system.findPatientById("P1").getPrescriptions().size() == 1
+              && accepted.getFailures().toString().equals(
+                      "[RX2: Doctor, patient, or medication not found, RX1: ID repeated in batch]"));
+
+        BatchResult deleted = system.deleteMedications(List.of("M2", "M9", "M3"));
+        check("a batch delete removes the IDs it finds and reports the rest",
+              deleted.getAppliedCount() == 2 && system.getMedications().size() == 1
+              && deleted.getFailures().toString().equals("[M9: Not found]"));
+    }
+
+    /**
+     * Writes reports in each format, limited to one section and paged, and
+     * checks the exact lines produced.
+     */
+    private static void testReports() throws IOException {
+        MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+        system.addMedication(new Medication("M1", "Ibuprofen", 40, "200mg", FAR_EXPIRY));
+        system.addMedication(new Medication("M2", "Naproxen, DS", 12, "500mg", FAR_EXPIRY));
+        system.addMedication(new Medication("M3", "Cetirizine", 30, "10mg", FAR_EXPIRY));
+        system.addDoctor(new Doctor("D1", "Dr. \"Ada\" Stone", 45, "555-0001", "General Practice"));
+        String expiry = FAR_EXPIRY.toString();
+
+        StringWriter text = new StringWriter();
+        ReportWriter textReport = new ReportWriter(text, ReportFormat.TEXT);
+        textReport.setSections(EnumSet.of(ReportSection.MEDICATIONS, ReportSection.PATIENTS));
+        textReport.setPage(1, 1);
+        textReport.write(system);
+        check("a text report pages each section and notes empty ones", text.toString().equals(
+                "\n*** SYSTEM REPORT ***\n"
+                + "\nMedications:\n"
+                + "Medication{ID='M2', Name='Naproxen, DS', Quantity=12, Dosage='500mg', Expiry Date=" + expiry + "}\n"
+                + "\nPatients:\nNo patients available.\n"));
+
+        StringWriter csv = new StringWriter();
+        ReportWriter csvReport = new ReportWriter(csv, ReportFormat.CSV);
+        csvReport.setSections(EnumSet.of(ReportSection.MEDICATIONS));
+        csvReport.setPage(0, 2);
+        csvReport.write(system);
+        check("a CSV report has a header row and quotes fields with commas", csv.toString().equals(
+                "type,id,name,quantity,dosage,expiry_date\n"
+                + "medication,M1,Ibuprofen,40,200mg," + expiry + "\n"
+                + "medication,M2,\"Naproxen, DS\",12,500mg," + expiry + "\n"));
+
+        StringWriter jsonl = new StringWriter();
+        ReportWriter jsonlReport = new ReportWriter(jsonl, ReportFormat.JSONL);
+        jsonlReport.setSections(EnumSet.of(ReportSection.DOCTORS));
+        jsonlReport.write(system);
+        check("a JSON Lines report writes one escaped object per record", jsonl.toString().equals(
+                "{\"type\":\"doctor\",\"id\":\"D1\",\"name\":\"Dr. \\\"Ada\\\" Stone\",\"age\":45,"
+                + "\"phoneNumber\":\"555-0001\",\"specialty\":\"General Practice\"}\n"));
+    }
+
+    /**
+     * Deletes linked records under each delete policy and checks that a
+     * restricted delete refuses while links remain and a cascade removes them.
+     */
+    private static void testDeletePolicies() {
+        MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+        system.addMedication(new Medication("M1", "Lisinopril", 100, "10mg", FAR_EXPIRY));
+        system.addMedication(new Medication("M2", "Metformin", 100, "500mg", FAR_EXPIRY));
+        system.addDoctor(new Doctor("D1", "Dr. Ada Stone", 45, "555-0001", "General Practice"));
+        system.addDoctor(new Doctor("D2", "Dr. Ben Cole", 52, "555-0003", "Cardiology"));
+        system.addPatient(new Patient("P1", "Noah Reed", 33, "555-0002"));
+        system.addPatient(new Patient("P2", "Mia Lane", 61, "555-0004"));
+        system.addPatientToDoctor("D1", system.findPatientById("P1"));
+        system.acceptPrescription("RX1", "D1", "P1", "M1", FAR_EXPIRY);
+        system.acceptPrescription("RX2", "D2", "P2", "M2", FAR_EXPIRY);
+
+        check("a restricted delete refuses records that are still linked",
+              !system.deleteMedication("M1", DeletePolicy.RESTRICT) && !system.deletePatient("P1", DeletePolicy.RESTRICT)
+              && !system.deleteDoctor("D1", DeletePolicy.RESTRICT)
+              && system.findMedicationById("M1") != null && system.findPrescriptionById("RX1") != null);
+
+        check("deleting a medication cascades to its prescriptions",
+              system.deleteMedication("M1", DeletePolicy.CASCADE) && system.findPrescriptionById("RX1") == null
+              && system.findPatientById("P1").getPrescriptions().isEmpty()
+              && system.getPrescriptionsByDoctor("D1").isEmpty());
+
+        Doctor first = system.findDoctorById("D1");
+        check("a patient still on a doctor's list is refused under restrict",
+              !system.deletePatient("P1", DeletePolicy.RESTRICT) && first.getPatients().size() == 1);
+        check("deleting a patient cascades to its doctors' lists",
+              system.deletePatient("P1", DeletePolicy.CASCADE) && first.getPatients().isEmpty()
+              && system.getDoctorsByPatient("P1").isEmpty());
+        check("a doctor with no links left is deleted under restrict", system.deleteDoctor("D1", DeletePolicy.RESTRICT));
+
+        check("deleting a doctor cascades to the prescriptions they issued",
+              system.deleteDoctor("D2", DeletePolicy.CASCADE) && system.findPrescriptionById("RX2") == null
+              && system.findPatientById("P2").getPrescriptions().isEmpty() && system.getPrescriptions().isEmpty());
+    }
+
+    /**
+     * Parses dosage text in the forms medications are written with and checks
+     * the amounts, units, ordering and sharing of repeated values.
+     */
+    private static void testDosages() {
+        Dosage tablet = Dosage.of("500mg");
+        check("dosage text parses into an amount and a unit",
+              tablet.getAmount() == 500 && tablet.getUnit() == DosageUnit.MILLIGRAM
+              && Dosage.of("1000 IU").getUnit() == DosageUnit.INTERNATIONAL_UNIT);
+        check("dosages in different units of a dimension compare by amount",
+              Dosage.of("0.5 g").equals(tablet) && Dosage.of("12ml").compareTo(Dosage.of("1 l")) < 0
+              && Dosage.of("250mcg").compareTo(Dosage.of("1mg")) < 0);
+        check("text that is not one amount and unit does not parse",
+              Dosage.of("two tablets") == null && Dosage.of("5") == null && Dosage.of(".mg") == null
+              && Dosage.of("5 furlongs") == null && Dosage.of(null) == null);
+        check("a dosage prints as it is written", Dosage.of("0.50 g").toString().equals("0.5g"));
+        check("repeated dosage text shares one parsed value", Dosage.of("500mg") == tablet);
+
+        Medication first = new Medication("M1", "Naproxen", 10, new String("500mg"), FAR_EXPIRY);
+        Medication second = new Medication("M2", "Metformin", 10, new String("500mg"), FAR_EXPIRY);
+        check("medications share one dosage string and parsed value",
+              first.getDosage() == second.getDosage() && first.getDosageValue().equals(tablet));
+        Doctor cardiologist = new Doctor("D1", "Dr. Ada Stone", 45, "555-0001", new String("Cardiology"));
+        Doctor colleague = new Doctor("D2", "Dr. Ben Cole", 52, "555-0003", new String("Cardiology"));
+        check("doctors share one specialty string", cardiologist.getSpecialty() == colleague.getSpecialty());
+    }
+
+    /**
+     * Computes each analytics aggregate over a small, known set of records and
+     * checks the totals.
+     */
+    private static void testAnalytics() {
+        MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+        LocalDate today = LocalDate.now();
+        system.addMedication(new Medication("M1", "Lisinopril", 10, "10mg", today.plusDays(10)));
+        system.addMedication(new Medication("M2", "Metformin", 20, "500mg", today.plusDays(60)));
+        system.addMedication(new Medication("M3", "Naproxen", 5, "250mg", today.minusDays(1)));
+        system.addMedication(new Medication("M4", "Cetirizine", 7, "10mg", today.plusDays(400)));
+        system.addDoctor(new Doctor("D1", "Dr. Ada Stone", 45, "555-0001", "Cardiology"));
+        system.addDoctor(new Doctor("D2", "Dr. Ben Cole", 52, "555-0003", "Cardiology"));
+        system.addDoctor(new Doctor("D3", "Dr. Cara Holt", 39, "555-0005", "Dermatology"));
+        system.addDoctor(new Doctor("D4", "Dr. Dan West", 60, "555-0007", "Neurology"));
+        for (int i = 1; i <= 3; i++) {
+            system.addPatient(new Patient("P" + i, "Patient " + i, 30 + i, "555-010" + i));
+            system.acceptPrescription("RX1-" + i, "D1", "P" + i, "M1", FAR_EXPIRY);
+        }
+        system.acceptPrescription("RX2-1", "D2", "P1", "M2", FAR_EXPIRY);
+        system.acceptPrescription("RX2-2", "D2", "P2", "M2", FAR_EXPIRY);
+        system.acceptPrescription("RX3-1", "D3", "P3", "M4", FAR_EXPIRY);
+        system.addPatientToDoctor("D1", system.findPatientById("P1"));
+        system.addPatientToDoctor("D1", system.findPatientById("P2"));
+        system.addPatientToDoctor("D3", system.findPatientById("P3"));
+
+        SystemAnalytics analytics = new SystemAnalytics(system);
+        Doctor d1 = system.findDoctorById("D1");
+        Doctor d2 = system.findDoctorById("D2");
+        Doctor d3 = system.findDoctorById("D3");
+        Doctor d4 = system.findDoctorById("D4");
+        check("prescriptions are counted per doctor", analytics.prescriptionsPerDoctor().equals(Map.of(d1, 3L, d2, 2L, d3, 1L)));
+        check("prescriptions are counted per specialty",
+              analytics.prescriptionsPerSpecialty().equals(Map.of("Cardiology", 5L, "Dermatology", 1L)));
+        List<MedicationVolume> top = analytics.topMedications(2);
+        check("the most prescribed medications are ranked first",
+              top.size() == 2 && top.get(0).getMedication().getId().equals("M1") && top.get(0).getPrescriptionCount() == 3
+              && top.get(1).getMedication().getId().equals("M2") && top.get(1).getPrescriptionCount() == 2);
+        Map<ExpiryBucket, Long> stock = analytics.stockByExpiry(today);
+        check("stock is totalled by expiry bucket",
+              stock.get(ExpiryBucket.EXPIRED) == 5 && stock.get(ExpiryBucket.WITHIN_30_DAYS) == 10
+              && stock.get(ExpiryBucket.WITHIN_90_DAYS) == 20 && stock.get(ExpiryBucket.WITHIN_365_DAYS) == 0
+              && stock.get(ExpiryBucket.LATER) == 7 && stock.get(ExpiryBucket.NO_EXPIRY) == 0);
+        check("patients are counted per doctor, including doctors with none",
+              analytics.patientsPerDoctor().equals(Map.of(d1, 2L, d2, 0L, d3, 1L, d4, 0L)));
+    }
+
+    /**
+     * Changes records in every way the dashboard tracks and checks that its
+     * running totals match the records after each step.
+     */
+    private static void testDashboard() {
+        MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+        LocalDate today = LocalDate.now();
+        system.addMedication(new Medication("M1", "Lisinopril", 10, "10mg", FAR_EXPIRY));
+        system.addMedication(new Medication("M2", "Metformin", 20, "500mg", today.minusDays(1)));
+        system.addMedication(new Medication("M3", "Naproxen", 5, "250mg", FAR_EXPIRY));
+        system.addDoctor(new Doctor("D1", "Dr. Ada Stone", 45, "555-0001", "General Practice"));
+        system.addPatient(new Patient("P1", "Noah Reed", 33, "555-0002"));
+        system.addPatient(new Patient("P2", "Mia Lane", 61, "555-0004"));
+        system.acceptPrescription("RX1", "D1", "P1", "M1", FAR_EXPIRY);
+        system.acceptPrescription("RX2", "D1", "P2", "M3", today.plusDays(1));
+        system.acceptPrescription("RX3", "D1", "P2", "M2", FAR_EXPIRY);
+
+        DashboardStats added = system.getDashboardStats(today);
+        check("the dashboard counts added records and stock",
+              added.getMedicationCount() == 3 && added.getTotalStock() == 35 && added.getExpiredMedicationCount() == 1
+              && added.getDoctorCount() == 1 && added.getPatientCount() == 2 && added.getPrescriptionCount() == 3
+              && added.getActivePrescriptionCount() == 3);
+
+        system.restockMedication("M1", 5);
+        system.dispenseMedication("M1", 3);
+        system.editMedication("M3", "Naproxen", 8, "250mg");
+        system.setReorderPoint("M3", 10);
+        system.deleteMedication("M2", DeletePolicy.CASCADE);
+        DashboardStats changed = system.getDashboardStats(today);
+        check("the dashboard follows restocks, dispenses, edits and deletes",
+              changed.getMedicationCount() == 2 && changed.getTotalStock() == 20 && changed.getExpiredMedicationCount() == 0
+              && changed.getLowStockCount() == 1 && changed.getPrescriptionCount() == 2);
+        check("the dashboard counts prescriptions per doctor", system.getPrescriptionCountsByDoctor().equals(Map.of("D1", 2)));
+        check("prescriptions past their expiry date no longer count as active",
+              system.getDashboardStats(today.plusDays(5)).getActivePrescriptionCount() == 1);
+    }
+
+    /**
+     * Moves stock back and forth across reorder points and checks the low-stock
+     * list order and that listeners hear only of the crossings.
+     */
+    private static void testLowStock() {
+        MedicationTrackingSystem system = silent(new MedicationTrackingSystem());
+        List<String> crossings = new ArrayList<>();
+        system.addLowStockListener(new LowStockListener() {
+            @Override
+            public void stockLow(Medication medication) {
+                crossings.add("low " + medication.getId());
+            }
+
+            @Override
+            public void stockReplenished(Medication medication) {
+                crossings.add("replenished " + medication.getId());
+            }
+        });
+        system.addMedication(new Medication("M1", "Lisinopril", 20, "10mg", FAR_EXPIRY));
+        system.addMedication(new Medication("M2", "Metformin", 5, "500mg", FAR_EXPIRY));
+        system.addMedication(new Medication("M3", "Naproxen", 50, "250mg", FAR_EXPIRY));
+        system.setReorderPoint("M1", 30);
+        system.setReorderPoint("M2", 10);
+        system.setReorderPoint("M3", 10);
+        check("medications below their reorder point are listed", ids(system.getLowStockMedications()).equals(List.of("M1", "M2")));
+
+        system.dispenseMedication("M3", 30);
+        system.dispenseMedication("M3", 15);
+        check("low stock is listed furthest below the reorder point first, then by ID",
+              ids(system.getLowStockMedications()).equals(List.of("M1", "M2", "M3")));
+
+        system.restockMedication("M1", 5);
+        system.dispenseMedication("M3", 1);
+        system.restockMedication("M1", 10);
+        system.editMedication("M2", "Metformin", 10, "500mg");
+        check("stock back at the reorder point leaves the list", ids(system.getLowStockMedications()).equals(List.of("M3")));
+        check("listeners hear of each crossing and nothing else",
+              crossings.equals(List.of("low M1", "low M2", "low M3", "replenished M1", "replenished M2")));
+    }
+
+    private static void check(String description, boolean passed) {
+        System.out.println((passed ? "PASS: " : "FAIL: ") + description);
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    private static <T extends MedicationTrackingSystem> T silent(T system) {
+        system.setEventListener(null);
+        return system;
+    }
+
+    private static SystemPersistence openSilent(Path directory) throws IOException {
+        return SystemPersistence.open(directory, SystemPersistence.DEFAULT_COMMIT_INTERVAL_MILLIS,
+                                      SystemPersistence.DEFAULT_CHECKPOINT_INTERVAL, () -> silent(new MedicationTrackingSystem()));
+    }
+
+    private static void runConcurrently(int threads, Runnable task) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(task);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private static List<String> ids(List<?> records) {
+        List<String> ids = new ArrayList<>();
+        for (Object record : records) {
+            if (record instanceof Medication) {
+                ids.add(((Medication) record).getId());
+            } else {
+                ids.add(((Prescription) record).getId());
+            }
+        }
+        return ids;
+    }
+
+    private static Path lastSegment(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".log")).max(Comparator.naturalOrder()).get();
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static boolean refused(Runnable action) {
+        try {
+            action.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+}
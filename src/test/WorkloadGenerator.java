@@ -0,0 +1,239 @@
+package src.test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import src.models.Doctor;
+import src.models.Medication;
+import src.models.MedicationTrackingSystem;
+import src.models.Patient;
+import src.models.PrescriptionRequest;
+
+/**
+ * Generates a realistic, reproducible population for a MedicationTrackingSystem.
+ *
+ * The same seed always produces the same records and the same sequence of
+ * choices. Medication popularity follows a Zipf distribution, so a handful of
+ * medications receive most prescriptions and restocks. Doctor panel sizes are
+ * skewed, with a few large practices and many small ones. Prescription lengths
+ * mix short acute courses with quarterly and yearly repeat prescriptions.
+ *
+ * @author May Basalo
+ */
+public class WorkloadGenerator {
+    private static final String[] DRUG_STEMS = {
+        "Paracetamol", "Ibuprofen", "Amoxicillin", "Atorvastatin", "Metformin", "Lisinopril",
+        "Amlodipine", "Omeprazole", "Simvastatin", "Losartan", "Albuterol", "Gabapentin",
+        "Hydrochlorothiazide", "Sertraline", "Levothyroxine", "Naproxen", "Cetirizine", "Prednisone"
+    };
+    private static final String[] DOSAGES = {"5mg", "10mg", "20mg", "50mg", "100mg", "250mg", "500mg", "750mg", "12ml"};
+    private static final String[] FIRST_NAMES = {
+        "Chris", "Sophia", "Liam", "Emma", "Noah", "Olivia", "Ava", "Lucas", "Mia", "Ethan", "Amelia", "Mason"
+    };
+    private static final String[] LAST_NAMES = {
+        "Johnson", "Taylor", "Martinez", "Smith", "Brown", "Wilson", "Anderson", "Thomas", "Moore", "Clark"
+    };
+    private static final String[] SPECIALTIES = {"General Practice", "Cardiology", "Neurology", "Pediatrics", "Oncology"};
+
+    private final SplittableRandom random;
+    private final int medicationCount;
+    private final int doctorCount;
+    private final int patientCount;
+    private final double[] popularity;
+    private final int[] doctorOfPatient;
+    private final LocalDate today;
+    private long nextId;
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed            The seed that fixes every generated record and choice.
+     * @param medicationCount The number of medications in the population.
+     * @param doctorCount     The number of doctors.
+     * @param patientCount    The number of patients.
+     * @param zipfExponent    The skew of medication popularity; 1.0 is typical, 0 is uniform.
+     */
+    public WorkloadGenerator(long seed, int medicationCount, int doctorCount, int patientCount, double zipfExponent) {
+        this.random = new SplittableRandom(seed);
+        this.medicationCount = medicationCount;
+        this.doctorCount = doctorCount;
+        this.patientCount = patientCount;
+        this.popularity = zipfCumulative(medicationCount, zipfExponent);
+        this.doctorOfPatient = new int[patientCount];
+        this.today = LocalDate.of(2025, 1, 1);
+    }
+
+    /**
+     * Fills the system with the generated medications, doctors, patients and
+     * one prescription per patient, and assigns every patient to a doctor.
+     *
+     * @param system The system to populate.
+     */
+    public void populate(MedicationTrackingSystem system) {
+        List<Medication> meds = new ArrayList<>(medicationCount);
+        for (int i = 0; i < medicationCount; i++) {
+            meds.add(new Medication(medicationId(i), medicationName(i), 50 + random.nextInt(950),
+                                    DOSAGES[random.nextInt(DOSAGES.length)], today.plusDays(random.nextInt(-180, 720))));
+        }
+        system.addMedications(meds);
+
+        List<Doctor> doctors = new ArrayList<>(doctorCount);
+        for (int i = 0; i < doctorCount; i++) {
+            doctors.add(new Doctor(doctorId(i), "Dr. " + personName(), 30 + random.nextInt(35),
+                                   phoneNumber(), SPECIALTIES[random.nextInt(SPECIALTIES.length)]));
+        }
+        system.addDoctors(doctors);
+
+        List<Patient> patients = new ArrayList<>(patientCount);
+        for (int i = 0; i < patientCount; i++) {
+            patients.add(new Patient(patientId(i), personName(), 1 + random.nextInt(95), phoneNumber()));
+        }
+        system.addPatients(patients);
+
+        assignPanels(system);
+
+        List<PrescriptionRequest> requests = new ArrayList<>(patientCount);
+        for (int i = 0; i < patientCount; i++) {
+            requests.add(prescriptionRequest(i));
+        }
+        system.acceptPrescriptions(requests);
+    }
+
+    /**
+     * Splits patients into doctor panels whose sizes follow a Pareto-like skew.
+     */
+    private void assignPanels(MedicationTrackingSystem system) {
+        double[] weights = new double[doctorCount];
+        double total = 0;
+        for (int i = 0; i < doctorCount; i++) {
+            // Inverse-transform sample of a Pareto distribution with shape 1.5.
+            weights[i] = 1.0 / Math.pow(1.0 - random.nextDouble(), 1.0 / 1.5);
+            total += weights[i];
+        }
+        double[] cumulative = new double[doctorCount];
+        double running = 0;
+        for (int i = 0; i < doctorCount; i++) {
+            running += weights[i] / total;
+            cumulative[i] = running;
+        }
+        for (int i = 0; i < patientCount; i++) {
+            int doctor = Math.min(doctorCount - 1, search(cumulative, random.nextDouble()));
+            doctorOfPatient[i] = doctor;
+            system.findDoctorById(doctorId(doctor)).addPatient(system.findPatientById(patientId(i)));
+        }
+    }
+
+    /**
+     * Picks a medication index, favouring popular medications.
+     *
+     * @return The index of the chosen medication.
+     */
+    public int nextMedication() {
+        return Math.min(medicationCount - 1, search(popularity, random.nextDouble()));
+    }
+
+    /**
+     * Picks a patient index uniformly.
+     *
+     * @return The index of the chosen patient.
+     */
+    public int nextPatient() {
+        return random.nextInt(patientCount);
+    }
+
+    /**
+     * Picks a number uniformly below the bound, from the generator's own stream.
+     *
+     * @param bound The exclusive upper bound.
+     * @return The chosen number.
+     */
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    /**
+     * Creates a prescription request for a patient, written by their own doctor
+     * for a popularity-weighted medication.
+     *
+     * @param patient The index of the patient.
+     * @return The request.
+     */
+    public PrescriptionRequest prescriptionRequest(int patient) {
+        return new PrescriptionRequest("RX" + nextId++, doctorId(doctorOfPatient[patient]), patientId(patient),
+                                       medicationId(nextMedication()), today.plusDays(prescriptionLength()));
+    }
+
+    /**
+     * Creates a new medication that is not part of the initial population.
+     *
+     * @return The medication.
+     */
+    public Medication newMedication() {
+        long id = nextId++;
+        return new Medication("MX" + id, DRUG_STEMS[(int) (id % DRUG_STEMS.length)] + " Generic " + id,
+                              random.nextInt(500), DOSAGES[random.nextInt(DOSAGES.length)], today.plusDays(random.nextInt(30, 720)));
+    }
+
+    /**
+     * Picks a prescription length: mostly short acute courses, then quarterly
+     * and yearly repeats.
+     */
+    private int prescriptionLength() {
+        double draw = random.nextDouble();
+        if (draw < 0.6) {
+            return 7 + random.nextInt(24);
+        } else if (draw < 0.9) {
+            return 90;
+        }
+        return 365;
+    }
+
+    /** Retrieves the ID of the medication at the given index. */
+    public String medicationId(int index) { return "M" + index; }
+
+    /** Retrieves the name of the medication at the given index. */
+    public String medicationName(int index) {
+        return DRUG_STEMS[index % DRUG_STEMS.length] + (index < DRUG_STEMS.length ? "" : " " + (index / DRUG_STEMS.length));
+    }
+
+    /** Retrieves the ID of the doctor at the given index. */
+    public String doctorId(int index) { return "D" + index; }
+
+    /** Retrieves the ID of the patient at the given index. */
+    public String patientId(int index) { return "P" + index; }
+
+    private String personName() {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private String phoneNumber() {
+        return String.format("555-%04d", random.nextInt(10_000));
+    }
+
+    /**
+     * Builds the cumulative Zipf distribution over ranks 1..n.
+     */
+    private static double[] zipfCumulative(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            total += 1.0 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = total;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Finds the first index whose cumulative probability reaches the draw.
+     */
+    private static int search(double[] cumulative, double draw) {
+        int index = Arrays.binarySearch(cumulative, draw);
+        return index >= 0 ? index : -index - 1;
+    }
+}